@@ -0,0 +1,181 @@
+package com.gym.auth.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.gym.auth.feign.UserServiceClient;
+import com.gym.dto.redis.UserCacheDTO;
+import com.gym.result.RestResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户信息本地缓存
+ *
+ * 功能说明：
+ * 1. 认证时按用户ID查询用户信息，命中本地缓存时不再调用 gym-server
+ * 2. 条目在 auth.user-cache.ttl-seconds 后过期，条目数超过 max-size 时由 Guava 淘汰最久未使用的条目
+ * 3. 不存在的用户记在单独的 missing 缓存中，按 negative-ttl-seconds 过期，避免反复查询无效ID
+ * 4. get 未命中时由 LoadingCache 按 key 合并加载：同一个用户ID同时未命中时只发一次请求，其他线程等待同一个结果；
+ *    getAll 把未命中的ID合并为一次批量查询，但不与其他线程正在进行的加载合并
+ * 5. 未命中的ID通过 /api/internal/users/batch 批量查询（每次最多 BATCH_SIZE 个），只返回精简字段（不含密码哈希）
+ *
+ * 一致性说明：
+ * 缓存不会在用户信息变更时主动失效。gym-auth 不连接 Redis，收不到 gym-server 的会话版本/注销广播，
+ * 因此用户被禁用、修改角色后，本服务最多在 ttl-seconds 后看到新状态；新注册的用户ID若刚被缓存为不存在，
+ * 最多在 negative-ttl-seconds 后可查到。需要更短的生效时间时调小这两个配置
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class UserLookupCache {
+
+    /** 单次批量查询的最大ID数，与 gym-server InternalController 的限制一致 */
+    private static final int BATCH_SIZE = 200;
+
+    @Autowired
+    private UserServiceClient userServiceClient;
+
+    /** 最多缓存的用户数 */
+    @Value("${auth.user-cache.max-size:10000}")
+    private int maxSize;
+
+    /** 用户信息的缓存时间 */
+    @Value("${auth.user-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    /** 用户不存在时的缓存时间 */
+    @Value("${auth.user-cache.negative-ttl-seconds:10}")
+    private long negativeTtlSeconds;
+
+    /** 用户ID -> 用户信息；加载结果为空（用户不存在）的条目取出后立即移除，只保留在 missing 中 */
+    private LoadingCache<Long, Optional<UserCacheDTO>> users;
+
+    /** 不存在的用户ID */
+    private Cache<Long, Boolean> missing;
+
+    @PostConstruct
+    public void init() {
+        users = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build(new CacheLoader<Long, Optional<UserCacheDTO>>() {
+                    @Override
+                    public Optional<UserCacheDTO> load(Long userId) {
+                        return loadAll(Collections.singletonList(userId)).get(userId);
+                    }
+
+                    @Override
+                    public Map<Long, Optional<UserCacheDTO>> loadAll(Iterable<? extends Long> userIds) {
+                        return UserLookupCache.this.loadAll(userIds);
+                    }
+                });
+        missing = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(negativeTtlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 按用户ID获取用户信息
+     *
+     * @param userId 用户ID
+     * @return 用户信息，用户不存在时返回 null
+     */
+    public UserCacheDTO get(Long userId) {
+        if (missing.getIfPresent(userId) != null) {
+            return null;
+        }
+        Optional<UserCacheDTO> user;
+        try {
+            user = users.get(userId);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new IllegalStateException("查询用户信息失败", e.getCause());
+        }
+        if (!user.isPresent()) {
+            // 不存在的结果按 negative-ttl-seconds 过期，不能在 users 中保留 ttl-seconds
+            users.invalidate(userId);
+            return null;
+        }
+        return user.get();
+    }
+
+    /**
+     * 批量获取用户信息，未命中的ID合并为一次批量查询
+     *
+     * @param userIds 用户ID
+     * @return 用户ID -> 用户信息，不存在的用户不在结果中
+     */
+    public Map<Long, UserCacheDTO> getAll(Collection<Long> userIds) {
+        List<Long> lookup = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            if (missing.getIfPresent(userId) == null) {
+                lookup.add(userId);
+            }
+        }
+        if (lookup.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        ImmutableMap<Long, Optional<UserCacheDTO>> loaded;
+        try {
+            loaded = users.getAll(lookup);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new IllegalStateException("查询用户信息失败", e.getCause());
+        }
+        Map<Long, UserCacheDTO> result = new LinkedHashMap<>();
+        loaded.forEach((userId, user) -> {
+            if (user.isPresent()) {
+                result.put(userId, user.get());
+            } else {
+                users.invalidate(userId);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 查询 gym-server；查询失败时抛出异常，Guava 不缓存结果，等待同一用户的线程收到同一个异常
+     */
+    private Map<Long, Optional<UserCacheDTO>> loadAll(Iterable<? extends Long> userIds) {
+        Map<Long, Optional<UserCacheDTO>> result = new LinkedHashMap<>();
+        for (List<? extends Long> batch : Iterables.partition(userIds, BATCH_SIZE)) {
+            RestResult<List<UserCacheDTO>> response = userServiceClient.getUsersByIds(new ArrayList<>(batch));
+            if (response == null || response.getCode() == null || response.getCode() != 200) {
+                String reason = response != null ? response.getMessage() : "无响应";
+                log.warn("查询用户信息失败 - 用户ID: {}, 原因: {}", batch, reason);
+                throw new IllegalStateException("批量查询用户失败: " + reason);
+            }
+            if (response.getData() != null) {
+                for (UserCacheDTO user : response.getData()) {
+                    result.put(user.getUserID(), Optional.of(user));
+                }
+            }
+            for (Long userId : batch) {
+                if (!result.containsKey(userId)) {
+                    missing.put(userId, Boolean.TRUE);
+                    result.put(userId, Optional.empty());
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -1,10 +1,15 @@
 package com.gym.auth.feign;
 
+import com.gym.dto.redis.UserCacheDTO;
 import com.gym.entity.User;
 import com.gym.result.RestResult;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
 
 /**
  * 用户服务Feign客户端
@@ -13,6 +18,7 @@ import org.springframework.web.bind.annotation.PathVariable;
  * 1. 通过Feign调用gym-server服务获取用户信息
  * 2. 支持负载均衡和服务发现
  * 3. 提供用户认证所需的用户数据
+ * 4. 底层使用 Apache HttpClient 连接池（feign.httpclient.*），连接保持复用，不再每次调用重新建连
  * 
  * @author gym-system
  * @version 1.0
@@ -37,4 +43,13 @@ public interface UserServiceClient {
      */
     @GetMapping("/internal/users/email/{email}")
     RestResult<User> getUserByEmail(@PathVariable("email") String email);
+
+    /**
+     * 根据用户ID批量获取用户信息（精简字段，不含密码哈希）
+     * 
+     * @param userIds 用户ID列表，最多 200 个
+     * @return 存在的用户信息
+     */
+    @PostMapping("/internal/users/batch")
+    RestResult<List<UserCacheDTO>> getUsersByIds(@RequestBody List<Long> userIds);
 }
@@ -1,9 +1,11 @@
 package com.gym.auth.filter;
 
 import com.alibaba.fastjson.JSON;
+import com.gym.auth.cache.UserLookupCache;
+import com.gym.dto.redis.UserCacheDTO;
 import com.gym.entity.User;
 import com.gym.result.RestResult;
-// import com.gym.service.RedisCacheService;
+import com.gym.util.PathPatternMatcher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,10 +13,10 @@ import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -22,7 +24,8 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * API Token认证过滤器
@@ -50,11 +53,9 @@ import java.util.List;
 @Order(2)  // 在JWT过滤器之后执行
 public class ApiTokenFilter extends OncePerRequestFilter {
 
-    // @Autowired
-    // private RedisCacheService redisCacheService;
-
-    /** 路径匹配器 */
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    /** 用户信息本地缓存，未命中时批量调用 gym-server */
+    @Autowired
+    private UserLookupCache userLookupCache;
 
     /** 允许的HTTP方法 */
     @Value("${auth.api-token.allow-methods:GET,POST,PUT,DELETE,OPTIONS}")
@@ -68,6 +69,13 @@ public class ApiTokenFilter extends OncePerRequestFilter {
     @Value("${auth.api-token.ignore-urls:/login,/register,/health/**}")
     private String ignoreUrls;
 
+    /** 以下由配置预编译，避免每个请求重新拆分字符串、逐条匹配 */
+    private Set<String> allowedMethodSet;
+
+    private PathPatternMatcher forbiddenUrlMatcher;
+
+    private PathPatternMatcher ignoreUrlMatcher;
+
     /** API Token请求头名称 */
     private static final String API_TOKEN_HEADER = "X-API-Token";
 
@@ -80,6 +88,15 @@ public class ApiTokenFilter extends OncePerRequestFilter {
     /** 用户邮箱请求头名称 */
     private static final String USER_EMAIL_HEADER = "X-User-Email";
 
+    @PostConstruct
+    public void init() {
+        allowedMethodSet = StringUtils.hasText(allowedMethods)
+                ? new HashSet<>(Arrays.asList(allowedMethods.toUpperCase().split(",")))
+                : null;
+        forbiddenUrlMatcher = PathPatternMatcher.compile(forbiddenUrls);
+        ignoreUrlMatcher = PathPatternMatcher.compile(ignoreUrls);
+    }
+
     /**
      * API Token认证过滤器执行逻辑
      * 
@@ -177,12 +194,11 @@ public class ApiTokenFilter extends OncePerRequestFilter {
      * @return 是否允许
      */
     private boolean isMethodAllowed(String method) {
-        if (!StringUtils.hasText(allowedMethods)) {
+        if (allowedMethodSet == null) {
             return true; // 如果没有配置限制，则允许所有方法
         }
         
-        List<String> allowedMethodList = Arrays.asList(allowedMethods.toUpperCase().split(","));
-        return allowedMethodList.contains(method.toUpperCase().trim());
+        return allowedMethodSet.contains(method.toUpperCase().trim());
     }
 
     /**
@@ -192,13 +208,7 @@ public class ApiTokenFilter extends OncePerRequestFilter {
      * @return 是否为禁止访问的路径
      */
     private boolean isForbiddenUrl(String path) {
-        if (!StringUtils.hasText(forbiddenUrls)) {
-            return false;
-        }
-        
-        List<String> forbiddenUrlList = Arrays.asList(forbiddenUrls.split(","));
-        return forbiddenUrlList.stream()
-                .anyMatch(pattern -> pathMatcher.match(pattern.trim(), path));
+        return forbiddenUrlMatcher.matches(path);
     }
 
     /**
@@ -208,13 +218,7 @@ public class ApiTokenFilter extends OncePerRequestFilter {
      * @return 是否为白名单路径
      */
     private boolean isIgnoreUrl(String path) {
-        if (!StringUtils.hasText(ignoreUrls)) {
-            return false;
-        }
-        
-        List<String> ignoreUrlList = Arrays.asList(ignoreUrls.split(","));
-        return ignoreUrlList.stream()
-                .anyMatch(pattern -> pathMatcher.match(pattern.trim(), path));
+        return ignoreUrlMatcher.matches(path);
     }
 
     /**
@@ -238,9 +242,9 @@ public class ApiTokenFilter extends OncePerRequestFilter {
                 try {
                     Long userId = Long.valueOf(userIdStr);
                     
-                    // 从缓存中获取用户信息
-                    // User user = redisCacheService.getUser(userId);
-                    User user = null; // 临时注释掉Redis功能
+                    // 从本地缓存中获取用户信息
+                    UserCacheDTO cached = userLookupCache.get(userId);
+                    User user = cached != null ? cached.toEntity() : null;
                     
                     if (user != null && user.getAccountStatus() == User.AccountStatus.Approved) {
                         log.debug("API Token验证成功 - 用户ID: {}, 邮箱: {}", userId, user.getEmail());
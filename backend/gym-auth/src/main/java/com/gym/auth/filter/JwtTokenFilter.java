@@ -2,14 +2,15 @@ package com.gym.auth.filter;
 
 import com.alibaba.fastjson.JSON;
 import com.gym.result.RestResult;
+import com.gym.util.JwtParseResult;
 import com.gym.util.JwtUtils;
+import com.gym.util.PathPatternMatcher;
 import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -32,6 +33,10 @@ import java.util.List;
  * 4. 用户信息提取和注入
  * 5. 白名单路径放行
  * 
+ * 注意：这里只校验签名和过期时间，不检查 Token 注销（jti）和会话版本号（sv）。
+ * gym-auth 不连接 Redis，拿不到注销记录，注销只在 gym-server 的 JwtAuthenticationFilter 中生效；
+ * 已注销但未过期的 Token 在本服务中仍然有效，直到过期
+ * 
  * 认证流程：
  * 1. 检查请求路径是否在白名单中
  * 2. 提取Authorization头中的Bearer Token
@@ -49,9 +54,6 @@ public class JwtTokenFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
 
-    /** 路径匹配器 */
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
-
     /** 
      * JWT Token认证白名单路径
      * 这些路径不需要JWT Token认证
@@ -73,6 +75,9 @@ public class JwtTokenFilter extends OncePerRequestFilter {
             "/static/**"                 // 静态资源
     );
 
+    /** 白名单预编译后的匹配器 */
+    private final PathPatternMatcher jwtWhitelistMatcher = PathPatternMatcher.compile(jwtWhitelistPaths);
+
     /**
      * JWT Token认证过滤器执行逻辑
      * 
@@ -120,15 +125,16 @@ public class JwtTokenFilter extends OncePerRequestFilter {
         String token = authHeader.substring(7);
         
         try {
-            // 验证Token有效性
-            if (!jwtUtils.validateToken(token)) {
-                log.warn("JWT认证失败: Token无效 - 请求路径: {}", requestPath);
+            // 一次完成签名校验和解析（不检查注销，见类注释）
+            JwtParseResult result = jwtUtils.parseAndValidate(token);
+            if (!result.isValid()) {
+                log.warn("JWT认证失败: Token无效({}) - 请求路径: {}", result.getFailureReason(), requestPath);
                 handleAuthenticationError(response, "Token无效或已过期", HttpStatus.UNAUTHORIZED.value());
                 return;
             }
 
-            // 解析Token获取用户信息
-            Claims claims = jwtUtils.getClaims(token);
+            // 获取用户信息
+            Claims claims = result.getClaims();
             String userId = claims.getSubject();
             String role = (String) claims.get("role");
             String email = (String) claims.get("email");
@@ -163,8 +169,7 @@ public class JwtTokenFilter extends OncePerRequestFilter {
      * @return 是否为白名单路径
      */
     private boolean isJwtWhitelistPath(String path) {
-        return jwtWhitelistPaths.stream()
-                .anyMatch(pattern -> pathMatcher.match(pattern, path));
+        return jwtWhitelistMatcher.matches(path);
     }
 
     /**
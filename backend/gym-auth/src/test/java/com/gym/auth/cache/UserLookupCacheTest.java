@@ -0,0 +1,147 @@
+package com.gym.auth.cache;
+
+import com.google.common.cache.LoadingCache;
+import com.gym.auth.feign.UserServiceClient;
+import com.gym.dto.redis.UserCacheDTO;
+import com.gym.entity.User;
+import com.gym.result.RestResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserLookupCacheTest {
+
+    @Mock
+    private UserServiceClient userServiceClient;
+
+    private UserLookupCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserLookupCache();
+        ReflectionTestUtils.setField(cache, "userServiceClient", userServiceClient);
+        ReflectionTestUtils.setField(cache, "maxSize", 10000);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "negativeTtlSeconds", 10L);
+        cache.init();
+    }
+
+    @Test
+    void testConcurrentMisses_LoadedOnce() throws Exception {
+        CountDownLatch called = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userServiceClient.getUsersByIds(anyList())).thenAnswer(invocation -> {
+            called.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return found(invocation.getArgument(0));
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<UserCacheDTO>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> cache.get(1L)));
+            }
+            assertThat(called.await(5, TimeUnit.SECONDS)).isTrue();
+            // 其他线程进入等待后再放行第一次查询
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<UserCacheDTO> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).getUserID()).isEqualTo(1L);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(userServiceClient, times(1)).getUsersByIds(anyList());
+    }
+
+    @Test
+    void testMissingUser_CachedForNegativeTtl() {
+        when(userServiceClient.getUsersByIds(anyList())).thenReturn(RestResult.success(new ArrayList<>()));
+
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.get(2L)).isNull();
+        verify(userServiceClient, times(1)).getUsersByIds(anyList());
+
+        // negative-ttl 为 0 时不缓存不存在的结果，下次重新查询
+        ReflectionTestUtils.setField(cache, "negativeTtlSeconds", 0L);
+        cache.init();
+        assertThat(cache.get(3L)).isNull();
+        assertThat(cache.get(3L)).isNull();
+        verify(userServiceClient, times(3)).getUsersByIds(anyList());
+    }
+
+    @Test
+    void testOverMaxSize_Evicted() {
+        ReflectionTestUtils.setField(cache, "maxSize", 10);
+        cache.init();
+        // 奇数ID存在，偶数ID不存在
+        when(userServiceClient.getUsersByIds(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return found(ids.stream().filter(id -> id % 2 == 1).collect(Collectors.toList()));
+        });
+
+        Map<Long, UserCacheDTO> users = cache.getAll(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L));
+        assertThat(users).containsOnlyKeys(1L, 3L, 5L, 7L, 9L);
+        // 不存在的用户不占用用户缓存的名额
+        assertThat(users().size()).isEqualTo(5);
+
+        for (long userId = 11; userId < 50; userId += 2) {
+            cache.get(userId);
+        }
+        assertThat(users().size()).isLessThanOrEqualTo(10);
+        assertThat(users().asMap()).containsKey(49L);
+
+        // 被淘汰的用户再次查询时重新加载
+        clearInvocations(userServiceClient);
+        cache.get(1L);
+        verify(userServiceClient, times(1)).getUsersByIds(anyList());
+    }
+
+    @Test
+    void testLoadFailure_NotCached() {
+        when(userServiceClient.getUsersByIds(anyList()))
+                .thenReturn(RestResult.error("服务不可用"))
+                .thenAnswer(invocation -> found(invocation.getArgument(0)));
+
+        assertThatThrownBy(() -> cache.get(4L)).isInstanceOf(IllegalStateException.class);
+        assertThat(cache.get(4L).getUserID()).isEqualTo(4L);
+        verify(userServiceClient, times(2)).getUsersByIds(anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private LoadingCache<Long, ?> users() {
+        return (LoadingCache<Long, ?>) ReflectionTestUtils.getField(cache, "users");
+    }
+
+    private static RestResult<List<UserCacheDTO>> found(List<Long> userIds) {
+        return RestResult.success(userIds.stream()
+                .map(id -> UserCacheDTO.builder()
+                        .userID(id)
+                        .role(User.Role.member)
+                        .accountStatus(User.AccountStatus.Approved)
+                        .build())
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,20 @@
+package com.gym.captcha;
+
+/**
+ * 验证码校验器
+ *
+ * 实现类只负责一次同步校验，线程池、超时和熔断由 TencentCaptchaUtil 统一处理
+ */
+public interface CaptchaVerifier {
+
+    /**
+     * 校验验证码
+     *
+     * @param ticket  前端返回的 Ticket
+     * @param randStr 前端返回的 Randstr
+     * @param userIp  用户 IP
+     * @return 验证通过返回 true，票据无效返回 false
+     * @throws Exception 验证码服务不可用（网络错误、超时、接口报错）
+     */
+    boolean verify(String ticket, String randStr, String userIp) throws Exception;
+}
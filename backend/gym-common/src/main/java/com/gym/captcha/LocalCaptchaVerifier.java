@@ -0,0 +1,26 @@
+package com.gym.captcha;
+
+/**
+ * 本地验证码校验（离线测试、本地开发用，不访问腾讯云）
+ *
+ * Ticket 等于配置的通过票据时验证通过；Ticket 等于 UNAVAILABLE_TICKET 时模拟验证码服务不可用，
+ * 用于测试超时和熔断策略
+ */
+public class LocalCaptchaVerifier implements CaptchaVerifier {
+
+    public static final String UNAVAILABLE_TICKET = "local-unavailable";
+
+    private final String passTicket;
+
+    public LocalCaptchaVerifier(String passTicket) {
+        this.passTicket = passTicket;
+    }
+
+    @Override
+    public boolean verify(String ticket, String randStr, String userIp) {
+        if (UNAVAILABLE_TICKET.equals(ticket)) {
+            throw new IllegalStateException("Local captcha verifier simulated an outage.");
+        }
+        return passTicket != null && passTicket.equals(ticket);
+    }
+}
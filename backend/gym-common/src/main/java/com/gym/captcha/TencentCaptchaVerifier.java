@@ -0,0 +1,68 @@
+package com.gym.captcha;
+
+import com.tencentcloudapi.captcha.v20190722.CaptchaClient;
+import com.tencentcloudapi.captcha.v20190722.models.DescribeCaptchaResultRequest;
+import com.tencentcloudapi.captcha.v20190722.models.DescribeCaptchaResultResponse;
+import com.tencentcloudapi.common.Credential;
+import com.tencentcloudapi.common.exception.TencentCloudSDKException;
+import com.tencentcloudapi.common.profile.ClientProfile;
+import com.tencentcloudapi.common.profile.HttpProfile;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 腾讯云验证码校验
+ *
+ * 整个应用共用一个 CaptchaClient（内部的 HTTP 连接池随之复用），不再每次校验都新建认证对象和客户端；
+ * 连接和读取超时在 HttpProfile 中设置，避免腾讯云接口变慢时请求无限等待
+ */
+@Slf4j
+public class TencentCaptchaVerifier implements CaptchaVerifier {
+
+    private static final String ENDPOINT = "captcha.tencentcloudapi.com";
+
+    // 9 表示滑块验证码
+    private static final long CAPTCHA_TYPE = 9L;
+
+    private final CaptchaClient client;
+
+    private final Long captchaAppId;
+
+    private final String appSecretKey;
+
+    /**
+     * @param connectTimeoutSeconds 连接超时（秒）
+     * @param readTimeoutSeconds    读取超时（秒）
+     */
+    public TencentCaptchaVerifier(String secretId, String secretKey, Long captchaAppId, String appSecretKey,
+                                  int connectTimeoutSeconds, int readTimeoutSeconds) {
+        HttpProfile httpProfile = new HttpProfile();
+        httpProfile.setEndpoint(ENDPOINT);
+        httpProfile.setConnTimeout(connectTimeoutSeconds);
+        httpProfile.setReadTimeout(readTimeoutSeconds);
+        httpProfile.setWriteTimeout(readTimeoutSeconds);
+
+        ClientProfile clientProfile = new ClientProfile();
+        clientProfile.setHttpProfile(httpProfile);
+
+        this.client = new CaptchaClient(new Credential(secretId, secretKey), "", clientProfile);
+        this.captchaAppId = captchaAppId;
+        this.appSecretKey = appSecretKey;
+    }
+
+    @Override
+    public boolean verify(String ticket, String randStr, String userIp) throws TencentCloudSDKException {
+        DescribeCaptchaResultRequest req = new DescribeCaptchaResultRequest();
+        req.setCaptchaType(CAPTCHA_TYPE);
+        req.setTicket(ticket);
+        req.setUserIp(userIp);
+        req.setRandstr(randStr);
+        req.setCaptchaAppId(captchaAppId);
+        req.setAppSecretKey(appSecretKey);
+
+        DescribeCaptchaResultResponse resp = client.DescribeCaptchaResult(req);
+        // CaptchaCode == 1 表示验证通过
+        Long code = resp.getCaptchaCode();
+        log.info("Captcha verify result: code={}, msg={}", code, resp.getCaptchaMsg());
+        return code != null && code == 1;
+    }
+}
@@ -0,0 +1,109 @@
+package com.gym.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * 网关身份头签名工具
+ *
+ * 网关校验 JWT 后把用户ID/角色/邮箱放进请求头，并用共享密钥对这些头和时间戳做 HMAC-SHA256 签名。
+ * 下游服务验签通过即可信任这些头，不需要再解析 JWT。时间戳超过 maxAge 的签名视为无效，限制重放窗口。
+ * 未配置密钥时不签名，下游也不会信任请求头
+ */
+@Component
+public class GatewayIdentitySigner {
+
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String USER_ROLE_HEADER = "X-User-Role";
+    public static final String USER_EMAIL_HEADER = "X-User-Email";
+    public static final String TIMESTAMP_HEADER = "X-Identity-Timestamp";
+    public static final String SIGNATURE_HEADER = "X-Identity-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+
+    private final long maxAgeMillis;
+
+    // Mac 不是线程安全的，每个线程复用一个实例
+    private final ThreadLocal<Mac> macs;
+
+    public GatewayIdentitySigner(@Value("${gateway.identity.secret:}") String secret,
+                                 @Value("${gateway.identity.max-age-millis:60000}") long maxAgeMillis) {
+        this.key = secret == null || secret.isEmpty()
+                ? null
+                : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.maxAgeMillis = maxAgeMillis;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public boolean isEnabled() {
+        return key != null;
+    }
+
+    /**
+     * 对身份信息签名
+     *
+     * @return Base64URL 编码的签名；未配置密钥时返回 null
+     */
+    public String sign(String userId, String role, String email, long timestampMillis) {
+        if (key == null) {
+            return null;
+        }
+        Mac mac = macs.get();
+        byte[] signature = mac.doFinal(payload(userId, role, email, timestampMillis));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    /**
+     * 校验签名和时间戳
+     *
+     * @param timestamp 请求头中的时间戳（毫秒）
+     * @param signature 请求头中的签名
+     */
+    public boolean verify(String userId, String role, String email, String timestamp, String signature) {
+        if (key == null || userId == null || timestamp == null || signature == null) {
+            return false;
+        }
+        long timestampMillis;
+        try {
+            timestampMillis = Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        // 允许少量时钟偏差，所以取绝对值
+        if (Math.abs(System.currentTimeMillis() - timestampMillis) > maxAgeMillis) {
+            return false;
+        }
+        String expected = sign(userId, role, email, timestampMillis);
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] payload(String userId, String role, String email, long timestampMillis) {
+        // 用换行分隔，字段里不会出现换行（请求头不允许）
+        String data = userId + '\n' + nullToEmpty(role) + '\n' + nullToEmpty(email) + '\n' + timestampMillis;
+        return data.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to init " + ALGORITHM, e);
+        }
+    }
+}
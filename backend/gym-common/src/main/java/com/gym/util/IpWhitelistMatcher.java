@@ -0,0 +1,555 @@
+package com.gym.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 预编译的 IP 白名单匹配器
+ *
+ * 规则写法与 IpWhitelistFilter 原有配置一致，多条规则用分号分隔：
+ * - 单个IP: 192.168.1.1、2001:db8::1
+ * - IP范围: 192.168.1.1-192.168.1.100（IPv4 逐段比较，每一段都要落在对应区间内；IPv6 按数值比较）
+ * - 通配符: 192.168.*.*（仅 IPv4）
+ * - 网段: 192.168.1.0/24、2001:db8::/32
+ * - "0.0" 允许所有IP，"0" 禁止所有IP，没有任何有效规则时允许所有IP
+ *
+ * 编译结果：
+ * 1. 单个IP和网段放进二进制前缀树，IPv4 最多走 32 层，IPv6 最多走 128 层
+ * 2. IPv4 范围是逐段比较的"盒子"，通常拆不成少量网段，单独存成数组
+ * 3. IPv6 范围存成 [起始, 结束] 数组
+ *
+ * 编译后的实例不可变，可以被多个线程共享；匹配过程不分配对象。
+ * ::ffff:a.b.c.d 形式的 IPv4 映射地址按 IPv4 处理。
+ */
+@Slf4j
+public final class IpWhitelistMatcher {
+
+    /** 允许所有IP的标识 */
+    public static final String ALLOW_ALL_FLAG = "0.0";
+
+    /** 禁止所有IP的标识 */
+    public static final String DENY_ALL_FLAG = "0";
+
+    private static final ThreadLocal<int[]> IPV6_GROUPS = ThreadLocal.withInitial(() -> new int[8]);
+
+    private enum Mode { ALLOW_ALL, DENY_ALL, RULES }
+
+    private final Mode mode;
+
+    private final int ruleCount;
+
+    private final BitTrie ipv4Trie;
+
+    private final BitTrie ipv6Trie;
+
+    // 每个盒子占两个元素：起始IP、结束IP（各段分别比较）
+    private final int[] ipv4Boxes;
+
+    // 每个范围占四个元素：起始高64位、起始低64位、结束高64位、结束低64位
+    private final long[] ipv6Ranges;
+
+    private IpWhitelistMatcher(Mode mode, int ruleCount, BitTrie ipv4Trie, BitTrie ipv6Trie,
+                               int[] ipv4Boxes, long[] ipv6Ranges) {
+        this.mode = mode;
+        this.ruleCount = ruleCount;
+        this.ipv4Trie = ipv4Trie;
+        this.ipv6Trie = ipv6Trie;
+        this.ipv4Boxes = ipv4Boxes;
+        this.ipv6Ranges = ipv6Ranges;
+    }
+
+    /**
+     * 编译白名单配置
+     *
+     * @param allowedIps 分号分隔的规则，或 "0.0" / "0"
+     */
+    public static IpWhitelistMatcher compile(String allowedIps) {
+        BitTrie ipv4Trie = new BitTrie();
+        BitTrie ipv6Trie = new BitTrie();
+        if (ALLOW_ALL_FLAG.equals(allowedIps)) {
+            return new IpWhitelistMatcher(Mode.ALLOW_ALL, 0, ipv4Trie, ipv6Trie, new int[0], new long[0]);
+        }
+        if (DENY_ALL_FLAG.equals(allowedIps)) {
+            return new IpWhitelistMatcher(Mode.DENY_ALL, 0, ipv4Trie, ipv6Trie, new int[0], new long[0]);
+        }
+
+        Set<String> rules = expandRules(allowedIps == null ? "" : allowedIps);
+        List<int[]> boxes = new ArrayList<>();
+        List<long[]> ranges = new ArrayList<>();
+        long[] start = new long[2];
+        long[] end = new long[2];
+        for (String rule : rules) {
+            if (rule.contains("-")) {
+                String[] parts = rule.split("-");
+                if (parts.length != 2) {
+                    log.warn("忽略格式错误的IP范围: {}", rule);
+                    continue;
+                }
+                String from = parts[0].trim();
+                String to = parts[1].trim();
+                long fromV4 = parseIpv4(from, 0, from.length());
+                long toV4 = parseIpv4(to, 0, to.length());
+                if (fromV4 >= 0 && toV4 >= 0) {
+                    boxes.add(new int[]{(int) fromV4, (int) toV4});
+                } else if (parseIpv6(from, start) && parseIpv6(to, end)) {
+                    ranges.add(new long[]{start[0], start[1], end[0], end[1]});
+                } else {
+                    log.warn("忽略格式错误的IP范围: {}", rule);
+                }
+            } else if (rule.contains("/")) {
+                if (!addSubnet(rule, ipv4Trie, ipv6Trie, start)) {
+                    log.warn("忽略格式错误的网段: {}", rule);
+                }
+            } else {
+                long v4 = parseIpv4(rule, 0, rule.length());
+                if (v4 >= 0) {
+                    ipv4Trie.add(v4 << 32, 0, 32);
+                } else if (parseIpv6(rule, start)) {
+                    ipv6Trie.add(start[0], start[1], 128);
+                }
+            }
+        }
+
+        int[] boxArray = new int[boxes.size() * 2];
+        for (int i = 0; i < boxes.size(); i++) {
+            boxArray[i * 2] = boxes.get(i)[0];
+            boxArray[i * 2 + 1] = boxes.get(i)[1];
+        }
+        long[] rangeArray = new long[ranges.size() * 4];
+        for (int i = 0; i < ranges.size(); i++) {
+            System.arraycopy(ranges.get(i), 0, rangeArray, i * 4, 4);
+        }
+        log.debug("解析IP白名单规则完成，共 {} 条规则", rules.size());
+        return new IpWhitelistMatcher(rules.isEmpty() ? Mode.ALLOW_ALL : Mode.RULES, rules.size(),
+                ipv4Trie, ipv6Trie, boxArray, rangeArray);
+    }
+
+    /**
+     * 判断客户端IP是否被允许，格式不正确的IP一律拒绝
+     */
+    public boolean isAllowed(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return false;
+        }
+        long v4 = parseIpv4(ip, 0, ip.length());
+        if (v4 >= 0) {
+            return mode == Mode.RULES ? matchesIpv4((int) v4) : mode == Mode.ALLOW_ALL;
+        }
+        if (ip.indexOf(':') < 0) {
+            return false;
+        }
+        int end = ip.indexOf('%');
+        int[] groups = IPV6_GROUPS.get();
+        if (!parseIpv6Groups(ip, 0, end < 0 ? ip.length() : end, groups)) {
+            return false;
+        }
+        long hi = packHigh(groups);
+        long lo = packLow(groups);
+        if (mode != Mode.RULES) {
+            return mode == Mode.ALLOW_ALL;
+        }
+        if (hi == 0 && (lo >>> 32) == 0xFFFFL) {
+            return matchesIpv4((int) lo);
+        }
+        return matchesIpv6(hi, lo);
+    }
+
+    /**
+     * 有效规则数（通配符展开后），0 表示允许所有IP
+     */
+    public int size() {
+        return ruleCount;
+    }
+
+    private boolean matchesIpv4(int ip) {
+        if (ipv4Trie.matches(((long) ip) << 32, 0, 32)) {
+            return true;
+        }
+        for (int i = 0; i < ipv4Boxes.length; i += 2) {
+            if (inBox(ip, ipv4Boxes[i], ipv4Boxes[i + 1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesIpv6(long hi, long lo) {
+        if (ipv6Trie.matches(hi, lo, 128)) {
+            return true;
+        }
+        for (int i = 0; i < ipv6Ranges.length; i += 4) {
+            if (compare(ipv6Ranges[i], ipv6Ranges[i + 1], hi, lo) <= 0
+                    && compare(hi, lo, ipv6Ranges[i + 2], ipv6Ranges[i + 3]) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 对IP从左到右逐段比较，每一段都在 [from, to] 之间才算命中
+    private static boolean inBox(int ip, int from, int to) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int current = (ip >>> shift) & 0xFF;
+            if (current < ((from >>> shift) & 0xFF) || current > ((to >>> shift) & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compare(long hi1, long lo1, long hi2, long lo2) {
+        int result = Long.compareUnsigned(hi1, hi2);
+        return result != 0 ? result : Long.compareUnsigned(lo1, lo2);
+    }
+
+    private static boolean addSubnet(String rule, BitTrie ipv4Trie, BitTrie ipv6Trie, long[] address) {
+        int slashIndex = rule.indexOf('/');
+        int prefixLength;
+        try {
+            prefixLength = Integer.parseInt(rule.substring(slashIndex + 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        long v4 = parseIpv4(rule, 0, slashIndex);
+        if (v4 >= 0) {
+            // 前缀超过 32 位视为配置错误，不匹配任何IP
+            if (prefixLength < 0 || prefixLength > 32) {
+                return false;
+            }
+            ipv4Trie.add(v4 << 32, 0, prefixLength);
+            return true;
+        }
+        if (prefixLength < 0 || prefixLength > 128 || !parseIpv6(rule.substring(0, slashIndex), address)) {
+            return false;
+        }
+        ipv6Trie.add(address[0], address[1], prefixLength);
+        return true;
+    }
+
+    // ================= 规则展开（与原 IpWhitelistFilter 的处理方式一致） =================
+
+    private static Set<String> expandRules(String allowIp) {
+        Set<String> ipList = new LinkedHashSet<>();
+        for (String rule : allowIp.split(";")) {
+            rule = rule.trim();
+            if (rule.contains("*")) {
+                // 处理通配符 *
+                processWildcardRule(rule, ipList);
+            } else if (rule.contains("/")) {
+                // 处理网段 xxx.xxx.xxx.xxx/24
+                ipList.add(rule);
+            } else if (validateIpRule(rule) || validateIpv6Rule(rule)) {
+                // 处理单个IP或IP范围
+                ipList.add(rule);
+            }
+        }
+        return ipList;
+    }
+
+    /**
+     * 通配符规则展开成IP范围，如 192.168.1*.* -> 192.168.10.0-192.168.19.255
+     */
+    private static void processWildcardRule(String rule, Set<String> ipList) {
+        String[] ips = rule.split("\\.");
+        String[] from = new String[]{"0", "0", "0", "0"};
+        String[] end = new String[]{"255", "255", "255", "255"};
+        List<String> wildcardRanges = new ArrayList<>();
+
+        for (int i = 0; i < ips.length && i < 4; i++) {
+            if (ips[i].contains("*")) {
+                wildcardRanges = completeWildcard(ips[i]);
+                from[i] = null;
+                end[i] = null;
+            } else {
+                from[i] = ips[i];
+                end[i] = ips[i];
+            }
+        }
+
+        StringBuilder fromIP = new StringBuilder();
+        StringBuilder endIP = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            if (from[i] != null) {
+                fromIP.append(from[i]).append(".");
+                endIP.append(end[i]).append(".");
+            } else {
+                fromIP.append("[*].");
+                endIP.append("[*].");
+            }
+        }
+        fromIP.deleteCharAt(fromIP.length() - 1);
+        endIP.deleteCharAt(endIP.length() - 1);
+
+        for (String range : wildcardRanges) {
+            String[] parts = range.split(";");
+            if (parts.length == 2) {
+                String ipRange = fromIP.toString().replace("[*]", parts[0]) + "-"
+                        + endIP.toString().replace("[*]", parts[1]);
+                if (validateIpRule(ipRange)) {
+                    ipList.add(ipRange);
+                }
+            }
+        }
+    }
+
+    /**
+     * 对单个IP节点进行范围限定，返回格式为 ["10;19", "100;199"]
+     */
+    private static List<String> completeWildcard(String arg) {
+        List<String> ranges = new ArrayList<>();
+        int len = arg.length();
+        if (len == 1) {
+            ranges.add("0;255");
+        } else if (len == 2) {
+            String s1 = completeWildcardRange(arg, 1);
+            if (s1 != null) ranges.add(s1);
+            String s2 = completeWildcardRange(arg, 2);
+            if (s2 != null) ranges.add(s2);
+        } else {
+            String s1 = completeWildcardRange(arg, 1);
+            if (s1 != null) ranges.add(s1);
+        }
+        return ranges;
+    }
+
+    private static String completeWildcardRange(String arg, int length) {
+        String from = arg.replace("*", length == 1 ? "0" : "00");
+        String end = arg.replace("*", length == 1 ? "9" : "99");
+        try {
+            if (Integer.parseInt(from) > 255) {
+                return null;
+            }
+            if (Integer.parseInt(end) > 255) {
+                end = "255";
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return from + ";" + end;
+    }
+
+    private static boolean validateIpRule(String rule) {
+        for (String part : rule.split("-")) {
+            String trimmed = part.trim();
+            if (parseIpv4(trimmed, 0, trimmed.length()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean validateIpv6Rule(String rule) {
+        long[] address = new long[2];
+        for (String part : rule.split("-")) {
+            if (!parseIpv6(part.trim(), address)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ================= 地址解析 =================
+
+    /**
+     * 解析点分 IPv4，每段为 1~2 位数字或 100~255 的 3 位数字
+     *
+     * @return 32 位地址，格式不正确时返回 -1
+     */
+    static long parseIpv4(String s, int start, int end) {
+        long result = 0;
+        int octets = 0;
+        int i = start;
+        while (true) {
+            int value = 0;
+            int digits = 0;
+            while (i < end && digits < 4) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > 3 || (digits == 3 && (value < 100 || value > 255))) {
+                return -1;
+            }
+            result = (result << 8) | value;
+            if (++octets == 4) {
+                return i == end ? result : -1;
+            }
+            if (i >= end || s.charAt(i) != '.') {
+                return -1;
+            }
+            i++;
+        }
+    }
+
+    private static boolean parseIpv6(String s, long[] out) {
+        int[] groups = new int[8];
+        if (s.indexOf(':') < 0 || !parseIpv6Groups(s, 0, s.length(), groups)) {
+            return false;
+        }
+        out[0] = packHigh(groups);
+        out[1] = packLow(groups);
+        return true;
+    }
+
+    /**
+     * 解析 IPv6 文本为 8 个 16 位分组，支持 "::" 压缩和末尾的点分 IPv4
+     */
+    private static boolean parseIpv6Groups(String s, int start, int end, int[] groups) {
+        int count = 0;
+        int compressAt = -1;
+        int i = start;
+        if (end - start >= 2 && s.charAt(start) == ':') {
+            if (s.charAt(start + 1) != ':') {
+                return false;
+            }
+            compressAt = 0;
+            i = start + 2;
+        }
+        while (i < end) {
+            if (count == 8) {
+                return false;
+            }
+            int value = 0;
+            int digits = 0;
+            int j = i;
+            while (j < end) {
+                int hex = hexValue(s.charAt(j));
+                if (hex < 0) {
+                    break;
+                }
+                if (++digits > 4) {
+                    return false;
+                }
+                value = (value << 4) | hex;
+                j++;
+            }
+            if (j < end && s.charAt(j) == '.') {
+                long v4 = count <= 6 ? parseIpv4(s, i, end) : -1;
+                if (v4 < 0) {
+                    return false;
+                }
+                groups[count++] = (int) (v4 >>> 16);
+                groups[count++] = (int) (v4 & 0xFFFF);
+                break;
+            }
+            if (digits == 0) {
+                return false;
+            }
+            groups[count++] = value;
+            i = j;
+            if (i == end) {
+                break;
+            }
+            if (s.charAt(i) != ':' || ++i == end) {
+                return false;
+            }
+            if (s.charAt(i) == ':') {
+                if (compressAt >= 0) {
+                    return false;
+                }
+                compressAt = count;
+                i++;
+            }
+        }
+        if (compressAt < 0) {
+            return count == 8;
+        }
+        if (count == 8) {
+            return false;
+        }
+        // 把 "::" 之后的分组移到末尾，中间补 0
+        int tail = count - compressAt;
+        System.arraycopy(groups, compressAt, groups, 8 - tail, tail);
+        Arrays.fill(groups, compressAt, 8 - tail, 0);
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static long packHigh(int[] groups) {
+        return ((long) groups[0] << 48) | ((long) groups[1] << 32) | ((long) groups[2] << 16) | groups[3];
+    }
+
+    private static long packLow(int[] groups) {
+        return ((long) groups[4] << 48) | ((long) groups[5] << 32) | ((long) groups[6] << 16) | groups[7];
+    }
+
+    /**
+     * 二进制前缀树，地址按最高位开始逐位下降；节点存在数组里，查询不分配对象
+     */
+    private static final class BitTrie {
+
+        // children[node * 2 + bit] 为子节点下标，0 表示没有子节点（根节点下标为 0，不会作为子节点出现）
+        private int[] children = new int[32];
+
+        private boolean[] terminal = new boolean[16];
+
+        private int size = 1;
+
+        void add(long hi, long lo, int prefixLength) {
+            int node = 0;
+            for (int i = 0; i < prefixLength; i++) {
+                if (terminal[node]) {
+                    // 已被更短的网段覆盖
+                    return;
+                }
+                int slot = node * 2 + bit(hi, lo, i);
+                if (children[slot] == 0) {
+                    // newNode() 可能扩容 children，先取下标再写回
+                    int child = newNode();
+                    children[slot] = child;
+                }
+                node = children[slot];
+            }
+            terminal[node] = true;
+        }
+
+        boolean matches(long hi, long lo, int bits) {
+            int node = 0;
+            for (int i = 0; ; i++) {
+                if (terminal[node]) {
+                    return true;
+                }
+                if (i == bits) {
+                    return false;
+                }
+                node = children[node * 2 + bit(hi, lo, i)];
+                if (node == 0) {
+                    return false;
+                }
+            }
+        }
+
+        private int newNode() {
+            if (size == terminal.length) {
+                terminal = Arrays.copyOf(terminal, size * 2);
+                children = Arrays.copyOf(children, size * 4);
+            }
+            return size++;
+        }
+
+        private static int bit(long hi, long lo, int index) {
+            return index < 64 ? (int) (hi >>> (63 - index)) & 1 : (int) (lo >>> (127 - index)) & 1;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.gym.util;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * JWT 一次性解析 + 校验的结果
+ *
+ * 成功时 claims 不为空；失败时 failureReason 说明原因，调用方不需要再 catch 各种 JwtException
+ */
+public class JwtParseResult {
+
+    public enum FailureReason {
+        /** Token 为空 */
+        MISSING,
+        /** 已过期 */
+        EXPIRED,
+        /** 签名不正确（伪造或密钥不一致） */
+        BAD_SIGNATURE,
+        /** 格式错误或不支持的 JWT 类型 */
+        MALFORMED
+    }
+
+    private final Claims claims;
+
+    private final FailureReason failureReason;
+
+    private JwtParseResult(Claims claims, FailureReason failureReason) {
+        this.claims = claims;
+        this.failureReason = failureReason;
+    }
+
+    public static JwtParseResult success(Claims claims) {
+        return new JwtParseResult(claims, null);
+    }
+
+    public static JwtParseResult failure(FailureReason reason) {
+        return new JwtParseResult(null, reason);
+    }
+
+    public boolean isValid() {
+        return claims != null;
+    }
+
+    /**
+     * 校验通过的声明。缓存命中时多个请求共享同一个对象，只读，不要修改
+     */
+    public Claims getClaims() {
+        return claims;
+    }
+
+    public FailureReason getFailureReason() {
+        return failureReason;
+    }
+}
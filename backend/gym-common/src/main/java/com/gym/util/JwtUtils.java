@@ -1,17 +1,40 @@
 package com.gym.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.gym.entity.User;
 import com.gym.enumeration.ErrorCode;
 import com.gym.exception.CustomException;
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.DefaultClaims;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.UUID;
 
 /**
  * 基于 io.jsonwebtoken 0.9.1 的示例
+ *
+ * 校验通过的 Token 会放入本地 LRU 缓存（key 为整个 Token 的 SHA-256，过期时间为 Token 的 exp），
+ * 同一个 Token 的后续请求不再做 HMAC 校验和 JSON 解析。只缓存校验成功的结果
+ *
+ * 同一个声明对象会被多个请求线程共享，所以 parseAndValidate 返回的是只读的声明，修改会抛 UnsupportedOperationException
+ *
+ * 登录 Token 带有 jti（Token ID，用于单个 Token 的注销）和 sv（签发时用户的会话版本号，
+ * 用于"退出所有设备"和改密码后让旧 Token 全部失效）
  */
 @Component
 @Data
@@ -24,18 +47,57 @@ public class JwtUtils {
     @Value("${jwt.expiration:86400000}") // 默认1天(毫秒)
     private long expiration;
 
+    /**
+     * 会话版本号声明，旧 Token 没有这个声明时按 0 处理
+     */
+    public static final String SESSION_VERSION_CLAIM = "sv";
+
+    // 已校验 Token 的缓存：SHA-256(token) -> 声明
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile Cache<String, VerifiedToken> verifiedTokens = buildCache(10000);
+
+    /**
+     * 已校验 Token 缓存的最大条数
+     */
+    @Value("${jwt.cache.max-size:10000}")
+    public void setCacheMaxSize(long maxSize) {
+        this.verifiedTokens = buildCache(maxSize);
+    }
+
+    /**
+     * 更换密钥后，用旧密钥校验过的缓存全部作废
+     */
+    public void setSecretKey(String secretKey) {
+        this.secretKey = secretKey;
+        this.verifiedTokens.invalidateAll();
+    }
+
     /**
      * 生成 JWT Token
      */
     public String generateToken(User user) {
+        return generateToken(user, 0L);
+    }
+
+    /**
+     * 生成带会话版本号的 JWT Token
+     *
+     * @param sessionVersion 签发时用户的会话版本号，之后版本号增加则这个 Token 失效
+     */
+    public String generateToken(User user, long sessionVersion) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + expiration);
 
         // 在 Subject 存 userId，另外也可放进 Claims
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(String.valueOf(user.getUserID()))
                 .claim("role", user.getRole().name())
                 .claim("email", user.getEmail())
+                .claim(SESSION_VERSION_CLAIM, sessionVersion)
                 .setIssuedAt(now)
                 .setExpiration(exp)
                 .signWith(SignatureAlgorithm.HS256, secretKey)
@@ -43,24 +105,58 @@ public class JwtUtils {
     }
 
     /**
-     * 检查 Token 是否有效（签名是否正确 & 是否过期）
+     * 一次完成校验和解析：成功返回只读的声明，失败返回原因
+     *
+     * 过滤器应使用这个方法，而不是先 validateToken 再 getClaims（那样会校验两次签名）
      */
-    public boolean validateToken(String token) {
+    public JwtParseResult parseAndValidate(String token) {
+        if (token == null || token.isEmpty()) {
+            return JwtParseResult.failure(JwtParseResult.FailureReason.MISSING);
+        }
+        String cacheKey = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(cacheKey);
+        if (cached != null) {
+            if (cached.expiresAtMillis > System.currentTimeMillis()) {
+                return JwtParseResult.success(cached.claims);
+            }
+            verifiedTokens.invalidate(cacheKey);
+            return JwtParseResult.failure(JwtParseResult.FailureReason.EXPIRED);
+        }
         try {
-            Jwts.parser()
+            Claims claims = readOnly(Jwts.parser()
                     .setSigningKey(secretKey)
-                    .parseClaimsJws(token);
-            return true;
-        } catch (JwtException e) {
-            // 包括 SignatureException, ExpiredJwtException 等
-            return false;
+                    .parseClaimsJws(token)
+                    .getBody());
+            // 没有 exp 的 Token 不缓存，避免永久有效
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(cacheKey, new VerifiedToken(claims, claims.getExpiration().getTime()));
+            }
+            return JwtParseResult.success(claims);
+        } catch (ExpiredJwtException e) {
+            return JwtParseResult.failure(JwtParseResult.FailureReason.EXPIRED);
+        } catch (SignatureException e) {
+            return JwtParseResult.failure(JwtParseResult.FailureReason.BAD_SIGNATURE);
+        } catch (JwtException | IllegalArgumentException e) {
+            return JwtParseResult.failure(JwtParseResult.FailureReason.MALFORMED);
         }
     }
 
     /**
-     * 从 token 中获取所有声明 (Claims)
+     * 检查 Token 是否有效（签名是否正确 & 是否过期）
+     */
+    public boolean validateToken(String token) {
+        return parseAndValidate(token).isValid();
+    }
+
+    /**
+     * 从 token 中获取所有声明 (Claims)，返回的声明是只读的
      */
     public Claims getClaims(String token) {
+        JwtParseResult result = parseAndValidate(token);
+        if (result.isValid()) {
+            return result.getClaims();
+        }
+        // 校验失败时按原来的行为抛出对应的 JwtException
         return Jwts.parser()
                 .setSigningKey(secretKey)
                 .parseClaimsJws(token)
@@ -103,4 +199,39 @@ public class JwtUtils {
         }
     }
 
+    /**
+     * DefaultClaims 直接使用传入的 Map，包一层不可修改的 Map 后 put、setXxx 都会抛 UnsupportedOperationException
+     */
+    private static Claims readOnly(Claims claims) {
+        return new DefaultClaims(Collections.unmodifiableMap(new LinkedHashMap<>(claims)));
+    }
+
+    private static Cache<String, VerifiedToken> buildCache(long maxSize) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * 用整个 Token 的摘要做 key：只用签名部分做 key 的话，篡改 payload 但保留签名的 Token 会命中缓存
+     */
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class VerifiedToken {
+        private final Claims claims;
+        private final long expiresAtMillis;
+
+        private VerifiedToken(Claims claims, long expiresAtMillis) {
+            this.claims = claims;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
 }
@@ -0,0 +1,345 @@
+package com.gym.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 预编译的路径白名单匹配器
+ *
+ * 把一组 Ant 风格的路径模式编译成按 "/" 分段的前缀树，匹配时逐段下降：
+ * 1. 字面量段走哈希表（直接在原始路径上比较，不截取子串），与模式数量无关
+ * 2. 支持 "*"（单段）、"**"（零到多段）、段内通配（如 "*.html"、"v?"）和 "{var}"（等同 "*"）
+ * 3. 匹配过程不分配对象，编译后的实例不可变，可以被多个线程共享
+ *
+ * 语义与 Spring AntPathMatcher 的默认配置一致：大小写敏感、忽略连续的 "/"、
+ * 不含 "**" 的模式末尾 "/" 需要与路径一致、"/a/**" 可以匹配 "/a"
+ */
+public final class PathPatternMatcher {
+
+    private static final PathPatternMatcher EMPTY = new PathPatternMatcher(new Node(), new Node(), 0);
+
+    // 以 "/" 开头的模式
+    private final Node absoluteRoot;
+
+    // 不以 "/" 开头的模式（AntPathMatcher 要求两者开头一致）
+    private final Node relativeRoot;
+
+    private final int patternCount;
+
+    private PathPatternMatcher(Node absoluteRoot, Node relativeRoot, int patternCount) {
+        this.absoluteRoot = absoluteRoot;
+        this.relativeRoot = relativeRoot;
+        this.patternCount = patternCount;
+    }
+
+    /**
+     * 编译逗号分隔的模式串（配置文件中的写法），空串得到不匹配任何路径的实例
+     */
+    public static PathPatternMatcher compile(String commaSeparatedPatterns) {
+        if (commaSeparatedPatterns == null || commaSeparatedPatterns.trim().isEmpty()) {
+            return EMPTY;
+        }
+        return compile(Arrays.asList(commaSeparatedPatterns.split(",")));
+    }
+
+    public static PathPatternMatcher compile(Collection<String> patterns) {
+        Node absoluteRoot = new Node();
+        Node relativeRoot = new Node();
+        int count = 0;
+        for (String raw : patterns) {
+            String pattern = raw == null ? "" : raw.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            Node node = pattern.startsWith("/") ? absoluteRoot : relativeRoot;
+            boolean hasDoubleWildcard = false;
+            for (String segment : pattern.split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                hasDoubleWildcard |= "**".equals(segment);
+                node = segment.indexOf('{') >= 0
+                        ? node.globChild(normalizeSegment(segment))
+                        : node.child(segment);
+            }
+            // AntPathMatcher 只对不含 "**" 的模式比较末尾的 "/"
+            if (hasDoubleWildcard) {
+                node.endAny = true;
+            } else if (pattern.endsWith("/")) {
+                node.endWithSlash = true;
+            } else {
+                node.endWithoutSlash = true;
+            }
+            count++;
+        }
+        absoluteRoot.freeze();
+        relativeRoot.freeze();
+        return new PathPatternMatcher(absoluteRoot, relativeRoot, count);
+    }
+
+    /**
+     * @param path 请求路径，例如 request.getRequestURI()
+     * @return 是否匹配任意一个模式
+     */
+    public boolean matches(String path) {
+        if (path == null || patternCount == 0) {
+            return false;
+        }
+        boolean absolute = path.startsWith("/");
+        boolean trailingSlash = path.endsWith("/");
+        return matches(absolute ? absoluteRoot : relativeRoot, path, 0, trailingSlash);
+    }
+
+    public int size() {
+        return patternCount;
+    }
+
+    private static boolean matches(Node node, String path, int pos, boolean trailingSlash) {
+        int start = skipSlashes(path, pos);
+        int length = path.length();
+        if (start == length) {
+            return matchesEnd(node, trailingSlash);
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+
+        Node literal = node.literals.get(path, start, end);
+        if (literal != null && matches(literal, path, end, trailingSlash)) {
+            return true;
+        }
+        for (int i = 0; i < node.globs.length; i++) {
+            if (globMatches(node.globs[i], path, start, end)
+                    && matches(node.globNodes[i], path, end, trailingSlash)) {
+                return true;
+            }
+        }
+        if (node.anySegment != null && matches(node.anySegment, path, end, trailingSlash)) {
+            return true;
+        }
+        if (node.anySegments != null) {
+            // "**" 依次尝试吞掉 0 段、1 段、2 段……
+            int next = start;
+            while (true) {
+                if (matches(node.anySegments, path, next, trailingSlash)) {
+                    return true;
+                }
+                int slash = path.indexOf('/', skipSlashes(path, next));
+                if (slash < 0) {
+                    return matchesEnd(node.anySegments, trailingSlash);
+                }
+                next = slash;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesEnd(Node node, boolean trailingSlash) {
+        if (node.endAny || (trailingSlash ? node.endWithSlash : node.endWithoutSlash)) {
+            return true;
+        }
+        // AntPathMatcher: "/a/*" 可以匹配 "/a/"
+        if (trailingSlash && node.anySegment != null
+                && (node.anySegment.endWithoutSlash || node.anySegment.endWithSlash)) {
+            return true;
+        }
+        // "**" 可以不匹配任何段
+        return node.anySegments != null && matchesEnd(node.anySegments, trailingSlash);
+    }
+
+    private static int skipSlashes(String path, int pos) {
+        int length = path.length();
+        while (pos < length && path.charAt(pos) == '/') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * 段内通配匹配：'*' 匹配任意个字符，'?' 匹配一个字符。贪心 + 回溯，不分配对象
+     */
+    static boolean globMatches(String glob, String path, int start, int end) {
+        int g = 0;
+        int p = start;
+        int starG = -1;
+        int starP = -1;
+        int globLength = glob.length();
+        while (p < end) {
+            if (g < globLength && (glob.charAt(g) == '?' || glob.charAt(g) == path.charAt(p))) {
+                g++;
+                p++;
+            } else if (g < globLength && glob.charAt(g) == '*') {
+                starG = g++;
+                starP = p;
+            } else if (starG >= 0) {
+                g = starG + 1;
+                p = ++starP;
+            } else {
+                return false;
+            }
+        }
+        while (g < globLength && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == globLength;
+    }
+
+    /**
+     * "{id}"、"{id:\\d+}" 之类的变量段按段内 "*" 处理
+     * （不能并入单独的 "*"：AntPathMatcher 只对字面的 "*" 允许匹配末尾的 "/"）
+     */
+    private static String normalizeSegment(String segment) {
+        if (segment.indexOf('{') < 0) {
+            return segment;
+        }
+        StringBuilder sb = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '{') {
+                if (depth++ == 0) {
+                    sb.append('*');
+                }
+            } else if (c == '}') {
+                depth--;
+            } else if (depth == 0) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class Node {
+        private final LiteralTable literals = new LiteralTable();
+        private final List<String> globList = new ArrayList<>();
+        private final List<Node> globNodeList = new ArrayList<>();
+        private String[] globs = new String[0];
+        private Node[] globNodes = new Node[0];
+        private Node anySegment;
+        private Node anySegments;
+        private boolean endAny;
+        private boolean endWithSlash;
+        private boolean endWithoutSlash;
+
+        private Node child(String segment) {
+            if ("**".equals(segment)) {
+                if (anySegments == null) {
+                    anySegments = new Node();
+                }
+                return anySegments;
+            }
+            if ("*".equals(segment)) {
+                if (anySegment == null) {
+                    anySegment = new Node();
+                }
+                return anySegment;
+            }
+            if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                return globChild(segment);
+            }
+            Node node = literals.get(segment, 0, segment.length());
+            if (node == null) {
+                node = new Node();
+                literals.put(segment, node);
+            }
+            return node;
+        }
+
+        private Node globChild(String glob) {
+            int index = globList.indexOf(glob);
+            if (index >= 0) {
+                return globNodeList.get(index);
+            }
+            Node node = new Node();
+            globList.add(glob);
+            globNodeList.add(node);
+            return node;
+        }
+
+        private void freeze() {
+            globs = globList.toArray(new String[0]);
+            globNodes = globNodeList.toArray(new Node[0]);
+            for (Node node : literals.values) {
+                if (node != null) {
+                    node.freeze();
+                }
+            }
+            for (Node node : globNodes) {
+                node.freeze();
+            }
+            if (anySegment != null) {
+                anySegment.freeze();
+            }
+            if (anySegments != null) {
+                anySegments.freeze();
+            }
+        }
+    }
+
+    /**
+     * 开放寻址哈希表：直接用路径中 [start, end) 区间的字符计算哈希和比较，不需要截取子串
+     */
+    private static final class LiteralTable {
+        private String[] keys = new String[4];
+        private Node[] values = new Node[4];
+        private int size;
+
+        private Node get(String path, int start, int end) {
+            if (size == 0) {
+                return null;
+            }
+            int length = end - start;
+            int mask = keys.length - 1;
+            int index = spread(hash(path, start, end)) & mask;
+            while (true) {
+                String key = keys[index];
+                if (key == null) {
+                    return null;
+                }
+                if (key.length() == length && key.regionMatches(0, path, start, length)) {
+                    return values[index];
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private void put(String key, Node value) {
+            if ((size + 1) * 2 > keys.length) {
+                String[] oldKeys = keys;
+                Node[] oldValues = values;
+                keys = new String[oldKeys.length * 2];
+                values = new Node[oldValues.length * 2];
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != null) {
+                        put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            int mask = keys.length - 1;
+            int index = spread(key.hashCode()) & mask;
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+            size++;
+        }
+
+        // 与 String.hashCode 相同的算法，所以可以和 key.hashCode() 比较
+        private static int hash(String path, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + path.charAt(i);
+            }
+            return h;
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -1,19 +1,44 @@
 package com.gym.util;
 
+import com.gym.captcha.CaptchaVerifier;
+import com.gym.captcha.LocalCaptchaVerifier;
+import com.gym.captcha.TencentCaptchaVerifier;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import com.tencentcloudapi.captcha.v20190722.CaptchaClient;
-import com.tencentcloudapi.captcha.v20190722.models.DescribeCaptchaResultRequest;
-import com.tencentcloudapi.captcha.v20190722.models.DescribeCaptchaResultResponse;
-import com.tencentcloudapi.common.Credential;
-import com.tencentcloudapi.common.exception.TencentCloudSDKException;
-import com.tencentcloudapi.common.profile.ClientProfile;
-import com.tencentcloudapi.common.profile.HttpProfile;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 腾讯验证码校验
+ *
+ * 1. 整个应用共用一个校验器（一个 CaptchaClient，复用 HTTP 连接），mode=local 时使用本地校验器，离线测试不访问腾讯云
+ * 2. verifyCaptchaAsync 在独立的有界线程池中调用腾讯云，请求线程不等待；超过 timeout 未返回按服务不可用处理
+ * 3. 服务不可用（超时、报错、线程池已满）计入熔断器，熔断期间不再调用腾讯云
+ * 4. 服务不可用或熔断时按 fail-open 策略返回：true 放行，false（默认）拒绝
+ */
 @Slf4j
 @Data
 @Component
@@ -31,8 +56,112 @@ public class TencentCaptchaUtil {
     @Value("${tencent.captcha.appSecretKey}")
     private String appSecretKey;
 
+    // 是否在注册、登录等接口校验验证码
+    @Value("${tencent.captcha.enabled:false}")
+    private boolean enabled;
+
+    // tencent：调用腾讯云；local：本地校验，Ticket 等于 local-pass-ticket 时通过
+    @Value("${tencent.captcha.mode:tencent}")
+    private String mode;
+
+    @Value("${tencent.captcha.local-pass-ticket:local-pass}")
+    private String localPassTicket;
+
+    // 腾讯云 SDK 的连接、读取超时（秒）
+    @Value("${tencent.captcha.connect-timeout-seconds:2}")
+    private int connectTimeoutSeconds;
+
+    @Value("${tencent.captcha.read-timeout-seconds:3}")
+    private int readTimeoutSeconds;
+
+    // 一次校验的总时间预算，包括排队时间
+    @Value("${tencent.captcha.timeout:3s}")
+    private Duration timeout;
+
+    @Value("${tencent.captcha.threads:8}")
+    private int threads;
+
+    @Value("${tencent.captcha.queue-capacity:100}")
+    private int queueCapacity;
+
+    // 验证码服务不可用时是否放行
+    @Value("${tencent.captcha.fail-open:false}")
+    private boolean failOpen;
+
+    // 熔断：最近 sliding-window-size 次调用中失败率达到阈值后熔断 open-duration
+    @Value("${tencent.captcha.breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${tencent.captcha.breaker.sliding-window-size:20}")
+    private int slidingWindowSize;
+
+    @Value("${tencent.captcha.breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${tencent.captcha.breaker.open-duration:30s}")
+    private Duration openDuration;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private CaptchaVerifier verifier;
+
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private CircuitBreaker circuitBreaker;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ThreadPoolExecutor executor;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ScheduledExecutorService timer;
+
+    @PostConstruct
+    public void start() {
+        verifier = "local".equalsIgnoreCase(mode)
+                ? new LocalCaptchaVerifier(localPassTicket)
+                : new TencentCaptchaVerifier(secretId, secretKey, captchaAppId, appSecretKey,
+                        connectTimeoutSeconds, readTimeoutSeconds);
+        circuitBreaker = CircuitBreaker.of("tencent-captcha", CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(openDuration)
+                .build());
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "captcha-verifier-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "captcha-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
     /**
-     * 验证腾讯拼图验证码
+     * 验证腾讯拼图验证码（同步，最多等待 timeout）
      *
      * @param ticket  前端返回的 Ticket
      * @param randStr 前端返回的 Randstr
@@ -40,50 +169,62 @@ public class TencentCaptchaUtil {
      * @return 验证通过返回 true，否则 false
      */
     public boolean verifyCaptcha(String ticket, String randStr, String userIp) {
+        return verifyCaptchaAsync(ticket, randStr, userIp).join();
+    }
+
+    /**
+     * 异步验证腾讯拼图验证码，不阻塞调用线程
+     *
+     * 返回的 future 一定会在 timeout 内正常完成（不会异常完成）；后续回调在验证码线程上执行，只适合做轻量处理
+     *
+     * @return 验证通过为 true；票据无效为 false；服务不可用或熔断时按 fail-open 策略
+     */
+    public CompletableFuture<Boolean> verifyCaptchaAsync(String ticket, String randStr, String userIp) {
+        if (ticket == null || ticket.isEmpty() || randStr == null || randStr.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return CompletableFuture.completedFuture(unavailable(CallNotPermittedException
+                    .createCallNotPermittedException(circuitBreaker)));
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        // 校验和超时只有先到的一方生效：先计入熔断器再完成 future，调用方看到结果时熔断状态已经更新
+        AtomicBoolean settled = new AtomicBoolean();
+        long start = System.nanoTime();
+        Future<?> task;
         try {
-            // 1. 实例化一个认证对象，传入腾讯云账户 SecretId 和 SecretKey
-            Credential cred = new Credential(secretId, secretKey);
-
-            // 2. 实例化一个 http 选项，可选，如果有代理或特殊需求可配置
-            HttpProfile httpProfile = new HttpProfile();
-            httpProfile.setEndpoint("captcha.tencentcloudapi.com"); // 指定接入点
-
-            // 3. 实例化一个 client 选项，可选
-            ClientProfile clientProfile = new ClientProfile();
-            clientProfile.setHttpProfile(httpProfile);
-
-            // 4. 实例化一个 CaptchaClient
-            CaptchaClient client = new CaptchaClient(cred, "", clientProfile);
-
-            // 5. 实例化请求对象
-            DescribeCaptchaResultRequest req = new DescribeCaptchaResultRequest();
-            // 必填参数，根据官方文档设置
-            req.setCaptchaType(9L);         // 9 表示滑块验证码
-            req.setTicket(ticket);
-            req.setUserIp("2001:630:d0:5004:d93d:61f8:30af:b45e");
-            req.setRandstr(randStr);
-            req.setCaptchaAppId(captchaAppId);
-            req.setAppSecretKey(appSecretKey);
-            // 非必填参数，如有需要可设置
-            // req.setBusinessId(123L);
-            // req.setSceneId(1001L);
-            // ...
-
-            // 6. 调用接口，得到返回值
-            DescribeCaptchaResultResponse resp = client.DescribeCaptchaResult(req);
-
-            // 7. 从 resp 中获取验证状态
-            // 当 resp.getCaptchaCode() == 1 时表示成功
-            long code = resp.getCaptchaCode();
-            String msg = resp.getCaptchaMsg();
-            log.info("Captcha verify result: code={}, msg={}", code, msg);
-
-            // code == 1 表示验证通过
-            return (code == 1);
-        } catch (TencentCloudSDKException e) {
-            // 出现异常时可记录日志
-            log.error("Captcha verify exception: {}", e.toString());
-            return false;
+            task = executor.submit(() -> {
+                try {
+                    boolean passed = verifier.verify(ticket, randStr, userIp);
+                    if (settled.compareAndSet(false, true)) {
+                        circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        result.complete(passed);
+                    }
+                } catch (Exception e) {
+                    if (settled.compareAndSet(false, true)) {
+                        circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+                        result.complete(unavailable(e));
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            circuitBreaker.onError(0, TimeUnit.NANOSECONDS, e);
+            return CompletableFuture.completedFuture(unavailable(e));
         }
+        timer.schedule(() -> {
+            TimeoutException e = new TimeoutException("Captcha verify timed out after " + timeout.toMillis() + "ms");
+            if (settled.compareAndSet(false, true)) {
+                task.cancel(true);
+                circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+                result.complete(unavailable(e));
+            }
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    private boolean unavailable(Throwable cause) {
+        log.warn("Captcha service unavailable ({}), fail-{}: {}", circuitBreaker.getState(),
+                failOpen ? "open" : "closed", cause.toString());
+        return failOpen;
     }
 }
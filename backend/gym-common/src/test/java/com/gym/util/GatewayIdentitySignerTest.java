@@ -0,0 +1,49 @@
+package com.gym.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayIdentitySignerTest {
+
+    private final GatewayIdentitySigner signer = new GatewayIdentitySigner("testIdentitySecret", 60000);
+
+    @Test
+    public void testSignAndVerify() {
+        long now = System.currentTimeMillis();
+        String signature = signer.sign("100", "member", "test@example.com", now);
+
+        assertTrue(signer.verify("100", "member", "test@example.com", String.valueOf(now), signature));
+    }
+
+    @Test
+    public void testVerify_TamperedHeaders() {
+        long now = System.currentTimeMillis();
+        String signature = signer.sign("100", "member", "test@example.com", now);
+
+        // 改了角色或用户ID，签名都不再匹配
+        assertFalse(signer.verify("100", "admin", "test@example.com", String.valueOf(now), signature));
+        assertFalse(signer.verify("101", "member", "test@example.com", String.valueOf(now), signature));
+        // 另一个密钥签出的签名无效
+        GatewayIdentitySigner other = new GatewayIdentitySigner("otherSecret", 60000);
+        assertFalse(signer.verify("100", "member", "test@example.com", String.valueOf(now),
+                other.sign("100", "member", "test@example.com", now)));
+    }
+
+    @Test
+    public void testVerify_ExpiredTimestamp() {
+        long past = System.currentTimeMillis() - 120000;
+        String signature = signer.sign("100", "member", "test@example.com", past);
+
+        assertFalse(signer.verify("100", "member", "test@example.com", String.valueOf(past), signature));
+    }
+
+    @Test
+    public void testDisabledWithoutSecret() {
+        GatewayIdentitySigner disabled = new GatewayIdentitySigner("", 60000);
+
+        assertFalse(disabled.isEnabled());
+        assertNull(disabled.sign("100", "member", "test@example.com", System.currentTimeMillis()));
+        assertFalse(disabled.verify("100", "member", "test@example.com", "0", "x"));
+    }
+}
@@ -0,0 +1,387 @@
+package com.gym.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpWhitelistMatcherTest {
+
+    @Test
+    public void testIsAllowed_RuleFormats() {
+        IpWhitelistMatcher matcher = IpWhitelistMatcher.compile(
+                "10.0.0.1; 192.168.1.1-192.168.1.100; 172.16.*.*; 10.8.0.0/16");
+
+        assertTrue(matcher.isAllowed("10.0.0.1"));
+        assertTrue(matcher.isAllowed("192.168.1.50"));
+        assertTrue(matcher.isAllowed("172.16.200.3"));
+        assertTrue(matcher.isAllowed("10.8.255.255"));
+        assertFalse(matcher.isAllowed("10.0.0.2"));
+        assertFalse(matcher.isAllowed("192.168.1.101"));
+        assertFalse(matcher.isAllowed("10.9.0.0"));
+        assertFalse(matcher.isAllowed("not-an-ip"));
+        assertFalse(matcher.isAllowed(null));
+
+        assertTrue(IpWhitelistMatcher.compile("0.0").isAllowed("8.8.8.8"));
+        assertFalse(IpWhitelistMatcher.compile("0").isAllowed("127.0.0.1"));
+        // 没有任何有效规则时允许所有IP，但IP格式仍需正确
+        assertTrue(IpWhitelistMatcher.compile("").isAllowed("8.8.8.8"));
+        assertFalse(IpWhitelistMatcher.compile("").isAllowed("8.8.8"));
+    }
+
+    @Test
+    public void testIsAllowed_Ipv6() {
+        IpWhitelistMatcher matcher = IpWhitelistMatcher.compile(
+                "::1; 2001:db8::/32; fd00::10-fd00::20; 127.0.0.1");
+
+        assertTrue(matcher.isAllowed("::1"));
+        assertTrue(matcher.isAllowed("0:0:0:0:0:0:0:1"));
+        assertTrue(matcher.isAllowed("2001:DB8:ffff::1"));
+        assertTrue(matcher.isAllowed("fd00::15"));
+        assertFalse(matcher.isAllowed("fe80::1%eth0"));
+        // IPv4 映射地址按 IPv4 规则匹配
+        assertTrue(matcher.isAllowed("::ffff:127.0.0.1"));
+        assertFalse(matcher.isAllowed("2001:db9::1"));
+        assertFalse(matcher.isAllowed("fd00::21"));
+        assertFalse(matcher.isAllowed("1::2::3"));
+        assertFalse(matcher.isAllowed("12345::1"));
+    }
+
+    /**
+     * 随机生成规则和IP，与原 IpWhitelistFilter 的逐条解析实现对比结果
+     *
+     * 只比较 IPv4（原实现不支持 IPv6）。已知差异（不在生成范围内）：
+     * 单个IP原实现按字符串比较，"010.0.0.1" 与 "10.0.0.1" 不相等，现在按数值比较；
+     * 网段前缀超过 32 时原实现因移位溢出会放行所有IP，现在视为无效规则
+     */
+    @Test
+    public void testIsAllowed_SameAsLegacyImplementation() {
+        Random random = new Random(20240611L);
+        for (int round = 0; round < 3000; round++) {
+            List<String> anchors = new ArrayList<>();
+            String config = randomConfig(random, anchors);
+            IpWhitelistMatcher matcher = IpWhitelistMatcher.compile(config);
+            for (int i = 0; i < 50; i++) {
+                String ip = randomClientIp(random, anchors);
+                assertEquals(LegacyIpWhitelist.isIpAllowed(ip, config), matcher.isAllowed(ip),
+                        "config=" + config + ", ip=" + ip);
+            }
+        }
+    }
+
+    @Test
+    public void testIsAllowed_AllocationFree() {
+        IpWhitelistMatcher matcher = IpWhitelistMatcher.compile(
+                "10.0.0.1;192.168.1.1-192.168.1.100;172.16.*.*;10.8.0.0/16;2001:db8::/32");
+        String[] ips = {"10.0.0.1", "192.168.1.200", "172.16.3.4", "2001:db8::1", "fe80::1"};
+        int hits = 0;
+        for (int i = 0; i < 20000; i++) {
+            if (matcher.isAllowed(ips[i % ips.length])) {
+                hits++;
+            }
+        }
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100000; i++) {
+            if (matcher.isAllowed(ips[i % ips.length])) {
+                hits++;
+            }
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(72000, hits);
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+
+    private static String randomConfig(Random random, List<String> anchors) {
+        int roll = random.nextInt(20);
+        if (roll == 0) {
+            return "0.0";
+        }
+        if (roll == 1) {
+            return "0";
+        }
+        int count = random.nextInt(5);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (sb.length() > 0) {
+                sb.append(random.nextBoolean() ? ";" : " ; ");
+            }
+            sb.append(randomRule(random, anchors));
+        }
+        return sb.toString();
+    }
+
+    private static String randomRule(Random random, List<String> anchors) {
+        String ip = randomIp(random);
+        anchors.add(ip);
+        switch (random.nextInt(9)) {
+            case 0:
+            case 1:
+                return ip;
+            case 2:
+            case 3: {
+                String end = random.nextBoolean() ? randomIp(random) : nearby(random, ip);
+                anchors.add(end);
+                return ip + (random.nextBoolean() ? "-" : " - ") + end;
+            }
+            case 4:
+            case 5:
+                return ip + "/" + random.nextInt(33);
+            case 6:
+                return randomWildcard(random, ip);
+            case 7: {
+                // 各种格式错误的规则
+                String[] malformed = {"", ip + "-", "-" + ip, ip + "-" + ip + "-" + ip, "256.1.1.1",
+                        "1.2.3", ip + "/abc", "1.2.3/24", "abc", ip + ",::1", "01.2.3.4-1.2.3.400"};
+                return malformed[random.nextInt(malformed.length)];
+            }
+            default:
+                return ip.substring(0, ip.lastIndexOf('.')) + ".*";
+        }
+    }
+
+    private static String randomWildcard(Random random, String ip) {
+        String[] octets = ip.split("\\.");
+        String[] forms = {"*", "1*", "2*", "*5", "1*9", "25*", "**", "3*"};
+        int wildcards = 1 + random.nextInt(2);
+        for (int i = 0; i < wildcards; i++) {
+            octets[random.nextInt(4)] = forms[random.nextInt(forms.length)];
+        }
+        int length = random.nextInt(5) == 0 ? 3 : 4;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sb.append('.');
+            }
+            sb.append(octets[i]);
+        }
+        return sb.toString();
+    }
+
+    private static String randomClientIp(Random random, List<String> anchors) {
+        int roll = random.nextInt(10);
+        if (roll == 0) {
+            String[] malformed = {"", "1.2.3", "1.2.3.4.5", "256.0.0.1", "1.2.3.4 ", "unknown"};
+            return malformed[random.nextInt(malformed.length)];
+        }
+        if (roll < 5 || anchors.isEmpty()) {
+            return randomIp(random);
+        }
+        return nearby(random, anchors.get(random.nextInt(anchors.size())));
+    }
+
+    // 在某个地址附近随机改动一段，命中边界的概率更高
+    private static String nearby(Random random, String ip) {
+        String[] octets = ip.split("\\.");
+        int index = random.nextInt(4);
+        int value = Integer.parseInt(octets[index]) + random.nextInt(5) - 2;
+        octets[index] = String.valueOf(Math.max(0, Math.min(255, value)));
+        return String.join(".", octets);
+    }
+
+    private static String randomIp(Random random) {
+        int[] pool = {0, 1, 9, 10, 15, 19, 99, 100, 150, 199, 200, 249, 250, 255};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            if (i > 0) {
+                sb.append('.');
+            }
+            sb.append(random.nextBoolean() ? pool[random.nextInt(pool.length)] : random.nextInt(256));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 原 IpWhitelistFilter 的实现（每次请求重新解析规则），作为对照
+     */
+    private static final class LegacyIpWhitelist {
+
+        private static final Pattern IP_PATTERN = Pattern
+                .compile("(1\\d{1,2}|2[0-4]\\d|25[0-5]|\\d{1,2})\\." +
+                        "(1\\d{1,2}|2[0-4]\\d|25[0-5]|\\d{1,2})\\." +
+                        "(1\\d{1,2}|2[0-4]\\d|25[0-5]|\\d{1,2})\\." +
+                        "(1\\d{1,2}|2[0-4]\\d|25[0-5]|\\d{1,2})");
+
+        static boolean isIpAllowed(String ip, String allowedIps) {
+            if (ip == null || ip.isEmpty() || !IP_PATTERN.matcher(ip).matches()) {
+                return false;
+            }
+            if ("0.0".equals(allowedIps)) {
+                return true;
+            }
+            if ("0".equals(allowedIps)) {
+                return false;
+            }
+            Set<String> ipWhitelist = getAvailableIpList(allowedIps);
+            if (ipWhitelist.isEmpty() || ipWhitelist.contains(ip)) {
+                return true;
+            }
+            for (String rule : ipWhitelist) {
+                if (rule.contains("-")) {
+                    if (isIpInRange(ip, rule)) {
+                        return true;
+                    }
+                } else if (rule.contains("/")) {
+                    if (isIpInSubnet(ip, rule)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static Set<String> getAvailableIpList(String allowIp) {
+            Set<String> ipList = new HashSet<>();
+            for (String rule : allowIp.split(";")) {
+                rule = rule.trim();
+                if (rule.contains("*")) {
+                    processWildcardRule(rule, ipList);
+                } else if (rule.contains("/")) {
+                    ipList.add(rule);
+                } else if (validateIpRule(rule)) {
+                    ipList.add(rule);
+                }
+            }
+            return ipList;
+        }
+
+        private static void processWildcardRule(String rule, Set<String> ipList) {
+            String[] ips = rule.split("\\.");
+            String[] from = new String[]{"0", "0", "0", "0"};
+            String[] end = new String[]{"255", "255", "255", "255"};
+            List<String> wildcardRanges = new ArrayList<>();
+            for (int i = 0; i < ips.length && i < 4; i++) {
+                if (ips[i].contains("*")) {
+                    wildcardRanges = completeWildcard(ips[i]);
+                    from[i] = null;
+                    end[i] = null;
+                } else {
+                    from[i] = ips[i];
+                    end[i] = ips[i];
+                }
+            }
+            StringBuilder fromIP = new StringBuilder();
+            StringBuilder endIP = new StringBuilder();
+            for (int i = 0; i < 4; i++) {
+                if (from[i] != null) {
+                    fromIP.append(from[i]).append(".");
+                    endIP.append(end[i]).append(".");
+                } else {
+                    fromIP.append("[*].");
+                    endIP.append("[*].");
+                }
+            }
+            fromIP.deleteCharAt(fromIP.length() - 1);
+            endIP.deleteCharAt(endIP.length() - 1);
+            for (String range : wildcardRanges) {
+                String[] parts = range.split(";");
+                if (parts.length == 2) {
+                    String ipRange = fromIP.toString().replace("[*]", parts[0]) + "-"
+                            + endIP.toString().replace("[*]", parts[1]);
+                    if (validateIpRule(ipRange)) {
+                        ipList.add(ipRange);
+                    }
+                }
+            }
+        }
+
+        private static List<String> completeWildcard(String arg) {
+            List<String> ranges = new ArrayList<>();
+            if (arg.length() == 1) {
+                ranges.add("0;255");
+            } else if (arg.length() == 2) {
+                String s1 = completeWildcardRange(arg, 1);
+                if (s1 != null) ranges.add(s1);
+                String s2 = completeWildcardRange(arg, 2);
+                if (s2 != null) ranges.add(s2);
+            } else {
+                String s1 = completeWildcardRange(arg, 1);
+                if (s1 != null) ranges.add(s1);
+            }
+            return ranges;
+        }
+
+        private static String completeWildcardRange(String arg, int length) {
+            String from = arg.replace("*", length == 1 ? "0" : "00");
+            String end = arg.replace("*", length == 1 ? "9" : "99");
+            try {
+                if (Integer.parseInt(from) > 255) {
+                    return null;
+                }
+                if (Integer.parseInt(end) > 255) {
+                    end = "255";
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            return from + ";" + end;
+        }
+
+        private static boolean validateIpRule(String rule) {
+            for (String part : rule.split("-")) {
+                if (!IP_PATTERN.matcher(part.trim()).matches()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isIpInRange(String ip, String range) {
+            try {
+                String[] rangeParts = range.split("-");
+                if (rangeParts.length != 2) {
+                    return false;
+                }
+                String[] startParts = rangeParts[0].trim().split("\\.");
+                String[] endParts = rangeParts[1].trim().split("\\.");
+                String[] ipParts = ip.split("\\.");
+                if (startParts.length != 4 || endParts.length != 4 || ipParts.length != 4) {
+                    return false;
+                }
+                for (int i = 0; i < 4; i++) {
+                    int start = Integer.parseInt(startParts[i]);
+                    int end = Integer.parseInt(endParts[i]);
+                    int current = Integer.parseInt(ipParts[i]);
+                    if (!(start <= current && current <= end)) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private static boolean isIpInSubnet(String ip, String subnet) {
+            try {
+                int slashIndex = subnet.indexOf("/");
+                String networkAddress = subnet.substring(0, slashIndex);
+                int prefixLength = Integer.parseInt(subnet.substring(slashIndex + 1));
+                long maskLong = (0xFFFFFFFFL << (32 - prefixLength)) & 0xFFFFFFFFL;
+                return (ipToLong(ip) & maskLong) == (ipToLong(networkAddress) & maskLong);
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private static long ipToLong(String ip) {
+            String[] parts = ip.split("\\.");
+            long result = 0;
+            for (int i = 0; i < 4; i++) {
+                result = (result << 8) + Integer.parseInt(parts[i]);
+            }
+            return result;
+        }
+    }
+}
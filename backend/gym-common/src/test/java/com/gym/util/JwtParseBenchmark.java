@@ -0,0 +1,63 @@
+package com.gym.util;
+
+import com.gym.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Token 校验基准：每次都做 HMAC 校验和 JSON 解析，与命中已校验缓存（返回共享的只读声明）的耗时和分配量
+ *
+ * 类名不以 Test 结尾，默认构建不执行；手动运行：
+ * mvn -pl gym-common test -Dtest=JwtParseBenchmark
+ */
+class JwtParseBenchmark {
+
+    private static final int WARMUP = 20_000;
+
+    private static final int ROUNDS = 200_000;
+
+    @Test
+    public void benchmark() {
+        User user = new User();
+        user.setUserID(100L);
+        user.setRole(User.Role.member);
+        user.setEmail("member@example.com");
+
+        JwtUtils cached = new JwtUtils();
+        cached.setSecretKey("benchmarkSecretKey");
+        cached.setExpiration(3600000);
+        String token = cached.generateToken(user, 3L);
+
+        // 缓存大小为 0 时每次都重新校验签名
+        JwtUtils uncached = new JwtUtils();
+        uncached.setSecretKey("benchmarkSecretKey");
+        uncached.setCacheMaxSize(0);
+
+        print("verify every time", measure(uncached, token));
+        print("verified-token cache", measure(cached, token));
+    }
+
+    private static long[] measure(JwtUtils jwtUtils, String token) {
+        for (int i = 0; i < WARMUP; i++) {
+            assertTrue(jwtUtils.parseAndValidate(token).isValid());
+        }
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            jwtUtils.parseAndValidate(token);
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return new long[]{nanos / ROUNDS, bytes / ROUNDS};
+    }
+
+    private static void print(String name, long[] result) {
+        System.out.printf("%-22s %8d ns/op, %8d B/op%n", name, result[0], result[1]);
+    }
+}
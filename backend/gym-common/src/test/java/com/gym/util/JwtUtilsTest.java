@@ -69,4 +69,73 @@ class JwtUtilsTest {
         log.debug("Tampered token is invalid: {}", isValid);
     }
 
+    @Test
+    public void testParseAndValidate_CachedAfterFirstVerification() {
+        User user = new User();
+        user.setUserID(102L);
+        user.setRole(User.Role.trainer);
+        user.setEmail("test3@example.com");
+        String token = jwtUtils.generateToken(user);
+
+        JwtParseResult first = jwtUtils.parseAndValidate(token);
+        JwtParseResult second = jwtUtils.parseAndValidate(token);
+
+        assertTrue(first.isValid());
+        assertNull(first.getFailureReason());
+        assertEquals("102", first.getClaims().getSubject());
+        // 第二次直接命中缓存，返回同一个声明对象
+        assertSame(first.getClaims(), second.getClaims());
+    }
+
+    @Test
+    public void testParseAndValidate_SharedClaimsAreReadOnly() {
+        User user = new User();
+        user.setUserID(105L);
+        user.setRole(User.Role.member);
+        user.setEmail("test6@example.com");
+        String token = jwtUtils.generateToken(user);
+        Claims claims = jwtUtils.parseAndValidate(token).getClaims();
+
+        // 缓存的声明被所有请求共享，不能被某个调用方改掉
+        assertThrows(UnsupportedOperationException.class, () -> claims.put("role", "admin"));
+        assertThrows(UnsupportedOperationException.class, () -> claims.setSubject("1"));
+        assertThrows(UnsupportedOperationException.class, () -> claims.remove("email"));
+        assertEquals("member", jwtUtils.parseAndValidate(token).getClaims().get("role"));
+        assertEquals("105", jwtUtils.getClaims(token).getSubject());
+    }
+
+    @Test
+    public void testParseAndValidate_FailureReasons() {
+        User user = new User();
+        user.setUserID(103L);
+        user.setRole(User.Role.member);
+        user.setEmail("test4@example.com");
+
+        assertEquals(JwtParseResult.FailureReason.MISSING, jwtUtils.parseAndValidate("").getFailureReason());
+        assertEquals(JwtParseResult.FailureReason.MALFORMED, jwtUtils.parseAndValidate("not-a-jwt").getFailureReason());
+
+        String token = jwtUtils.generateToken(user);
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + parts[1] + "." + parts[2].substring(0, 10) + "AAAA" + parts[2].substring(14);
+        assertEquals(JwtParseResult.FailureReason.BAD_SIGNATURE, jwtUtils.parseAndValidate(forged).getFailureReason());
+
+        jwtUtils.setExpiration(-1000);
+        String expired = jwtUtils.generateToken(user);
+        assertEquals(JwtParseResult.FailureReason.EXPIRED, jwtUtils.parseAndValidate(expired).getFailureReason());
+    }
+
+    @Test
+    public void testParseAndValidate_SecretRotationInvalidatesCache() {
+        User user = new User();
+        user.setUserID(104L);
+        user.setRole(User.Role.member);
+        user.setEmail("test5@example.com");
+        String token = jwtUtils.generateToken(user);
+        assertTrue(jwtUtils.parseAndValidate(token).isValid());
+
+        jwtUtils.setSecretKey("rotatedSecretKey");
+
+        assertEquals(JwtParseResult.FailureReason.BAD_SIGNATURE, jwtUtils.parseAndValidate(token).getFailureReason());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.gym.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathPatternMatcherTest {
+
+    private static final List<String> GATEWAY_WHITELIST = Arrays.asList(
+            "/auth/**", "/api/user/signup", "/api/user/verify-code", "/api/user/login",
+            "/api/user/forgot-password", "/api/user/reset-password", "/api/user/google-login",
+            "/health/**", "/actuator/**", "/doc.html", "/swagger-resources/**", "/webjars/**",
+            "/v2/api-docs", "/static/**", "/actuator/gateway/**");
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Test
+    public void testMatches_GatewayWhitelist() {
+        PathPatternMatcher matcher = PathPatternMatcher.compile(GATEWAY_WHITELIST);
+
+        assertTrue(matcher.matches("/auth/login"));
+        assertTrue(matcher.matches("/auth"));
+        assertTrue(matcher.matches("/api/user/login"));
+        assertTrue(matcher.matches("/static/css/app.css"));
+        assertFalse(matcher.matches("/api/user/login/"));
+        assertFalse(matcher.matches("/api/user/user-profile"));
+        assertFalse(matcher.matches("/admin/pending-users"));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    public void testCompile_CommaSeparatedConfig() {
+        PathPatternMatcher matcher = PathPatternMatcher.compile(" /admin/** , /internal/** ,");
+
+        assertEquals(2, matcher.size());
+        assertTrue(matcher.matches("/internal/users/1"));
+        assertFalse(PathPatternMatcher.compile("").matches("/admin"));
+    }
+
+    /**
+     * 随机生成模式和路径，结果必须与 AntPathMatcher 一致
+     */
+    @Test
+    public void testMatches_SameAsAntPathMatcher() {
+        String[] segments = {"api", "user", "login", "a", "b", "*", "**", "*.html", "v?", "{id}", "doc.html", "v1"};
+        String[] pathSegments = {"api", "user", "login", "a", "b", "index.html", "v1", "v10", "doc.html", "123", ""};
+        Random random = new Random(20240601L);
+
+        for (int round = 0; round < 2000; round++) {
+            List<String> patterns = new ArrayList<>();
+            for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {
+                patterns.add(randomPath(random, segments, 4));
+            }
+            PathPatternMatcher matcher = PathPatternMatcher.compile(patterns);
+            for (int j = 0; j < 20; j++) {
+                String path = randomPath(random, pathSegments, 5);
+                boolean expected = patterns.stream().anyMatch(p -> antPathMatcher.match(p, path));
+                assertEquals(expected, matcher.matches(path), () -> patterns + " vs " + path);
+            }
+        }
+    }
+
+    /**
+     * 匹配过程不分配对象（依赖 HotSpot 的线程分配统计）
+     */
+    @Test
+    public void testMatches_AllocationFree() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        PathPatternMatcher matcher = PathPatternMatcher.compile(GATEWAY_WHITELIST);
+        String[] paths = {"/api/member/appointments/upcoming", "/auth/login", "/static/js/app.js", "/api/user/login"};
+        for (int i = 0; i < 20000; i++) {
+            matcher.matches(paths[i & 3]);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        int hits = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (matcher.matches(paths[i & 3])) {
+                hits++;
+            }
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(75000, hits);
+        // 留一点余量给计数本身的开销
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+
+    private static String randomPath(Random random, String[] segments, int maxSegments) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0, n = random.nextInt(maxSegments + 1); i < n; i++) {
+            sb.append('/').append(segments[random.nextInt(segments.length)]);
+        }
+        if (sb.length() == 0 || random.nextInt(8) == 0) {
+            sb.append('/');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.gym.util;
+
+import com.gym.captcha.LocalCaptchaVerifier;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用本地校验器离线测试：异步校验结果、服务不可用时的 fail-open/fail-closed 策略和熔断
+ */
+class TencentCaptchaUtilTest {
+
+    private TencentCaptchaUtil captchaUtil;
+
+    @BeforeEach
+    public void setUp() {
+        captchaUtil = new TencentCaptchaUtil();
+        captchaUtil.setMode("local");
+        captchaUtil.setLocalPassTicket("local-pass");
+        captchaUtil.setTimeout(Duration.ofSeconds(1));
+        captchaUtil.setThreads(2);
+        captchaUtil.setQueueCapacity(10);
+        captchaUtil.setFailureRateThreshold(50);
+        captchaUtil.setSlidingWindowSize(4);
+        captchaUtil.setMinimumCalls(4);
+        captchaUtil.setOpenDuration(Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        captchaUtil.stop();
+    }
+
+    @Test
+    public void testVerifyAsync() {
+        captchaUtil.start();
+
+        assertTrue(captchaUtil.verifyCaptchaAsync("local-pass", "rand", "127.0.0.1").join());
+        assertFalse(captchaUtil.verifyCaptchaAsync("wrong-ticket", "rand", "127.0.0.1").join());
+        assertFalse(captchaUtil.verifyCaptcha("", "rand", "127.0.0.1"), "空 Ticket 不调用验证码服务");
+        assertEquals(CircuitBreaker.State.CLOSED, captchaUtil.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void testUnavailable_FailClosedAndOpensBreaker() {
+        captchaUtil.start();
+
+        for (int i = 0; i < 4; i++) {
+            assertFalse(captchaUtil.verifyCaptcha(LocalCaptchaVerifier.UNAVAILABLE_TICKET, "rand", "127.0.0.1"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, captchaUtil.getCircuitBreaker().getState());
+        // 熔断期间不再调用验证码服务，正确的 Ticket 也按 fail-closed 拒绝
+        assertFalse(captchaUtil.verifyCaptcha("local-pass", "rand", "127.0.0.1"));
+    }
+
+    @Test
+    public void testUnavailable_FailOpen() {
+        captchaUtil.setFailOpen(true);
+        captchaUtil.start();
+
+        assertTrue(captchaUtil.verifyCaptcha(LocalCaptchaVerifier.UNAVAILABLE_TICKET, "rand", "127.0.0.1"));
+        assertFalse(captchaUtil.verifyCaptcha("wrong-ticket", "rand", "127.0.0.1"), "票据无效不受 fail-open 影响");
+    }
+}
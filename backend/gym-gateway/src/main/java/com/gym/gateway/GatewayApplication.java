@@ -20,8 +20,6 @@ import org.springframework.context.annotation.FilterType;
  * @version 1.0
  */
 @SpringBootApplication(exclude = {
-    org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration.class,
-    org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration.class,
     org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration.class,
     org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration.class,
     org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration.class,
@@ -0,0 +1,267 @@
+package com.gym.gateway.accesslog;
+
+import com.gym.gateway.config.AccessLogProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步访问日志写入器
+ *
+ * 1. 请求线程只把字段复制到预分配的槽位里（多生产者无锁环形缓冲区，CAS 认领序号），不做格式化和 IO
+ * 2. 单个后台线程按序取出、拼成一行 JSON 写到 ACCESS_LOG logger
+ * 3. 缓冲区写满时直接丢弃并计数，不阻塞请求线程
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class AccessLogWriter {
+
+    /** 访问日志专用 logger，可在日志配置中单独输出到文件 */
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("ACCESS_LOG");
+
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Autowired
+    private AccessLogProperties properties;
+
+    private Entry[] entries;
+
+    // 槽位序号：等于 pos 表示可写，等于 pos + 1 表示已写好可读
+    private AtomicLongArray sequences;
+
+    private int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    // 只有后台线程读写
+    private long head;
+
+    private final StringBuilder line = new StringBuilder(512);
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running;
+
+    private Thread worker;
+
+    @PostConstruct
+    public void start() {
+        int capacity = Integer.highestOneBit(Math.max(2, properties.getBufferSize() - 1)) << 1;
+        entries = new Entry[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry();
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+        running = true;
+        worker = new Thread(this::drainLoop, "access-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(worker);
+        worker.join(TimeUnit.SECONDS.toMillis(2));
+    }
+
+    /**
+     * 判断该请求是否需要记录：错误、慢请求总是记录，2xx 按比例采样
+     */
+    public boolean shouldLog(int status, long durationMillis, boolean failed) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        if (failed || status < 200 || status >= 300
+                || durationMillis >= properties.getSlowThreshold().toMillis()) {
+            return true;
+        }
+        double rate = properties.getSuccessSampleRate();
+        return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    /**
+     * 写入一条访问记录
+     *
+     * @return false 表示缓冲区已满，记录被丢弃
+     */
+    public boolean append(long timestamp, String traceId, String method, String path, String query,
+                          String clientIp, String routeId, Object userId, int status, long durationMillis,
+                          String error) {
+        long pos;
+        int index;
+        while (true) {
+            pos = tail.get();
+            index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                dropped.increment();
+                return false;
+            }
+        }
+        Entry entry = entries[index];
+        entry.timestamp = timestamp;
+        entry.traceId = traceId;
+        entry.method = method;
+        entry.path = path;
+        entry.query = query;
+        entry.clientIp = clientIp;
+        entry.routeId = routeId;
+        entry.userId = userId;
+        entry.status = status;
+        entry.durationMillis = durationMillis;
+        entry.error = error;
+        sequences.lazySet(index, pos + 1);
+        return true;
+    }
+
+    /**
+     * 生成 16 位十六进制链路追踪ID
+     */
+    public static String newTraceId() {
+        long value = ThreadLocalRandom.current().nextLong();
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = HEX[(int) value & 0xF];
+            value >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void drainLoop() {
+        int idleRounds = 0;
+        while (true) {
+            int index = (int) head & mask;
+            if (sequences.get(index) == head + 1) {
+                Entry entry = entries[index];
+                try {
+                    write(entry);
+                } catch (Exception e) {
+                    log.warn("Failed to write access log", e);
+                }
+                entry.clear();
+                sequences.lazySet(index, head + mask + 1);
+                head++;
+                idleRounds = 0;
+            } else if (!running) {
+                return;
+            } else if (++idleRounds < 100) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+    }
+
+    private void write(Entry entry) {
+        boolean slow = entry.durationMillis >= properties.getSlowThreshold().toMillis();
+        StringBuilder sb = line;
+        sb.setLength(0);
+        sb.append('{');
+        appendField(sb, "time", TIME_FORMATTER.format(Instant.ofEpochMilli(entry.timestamp)));
+        appendField(sb, "traceId", entry.traceId);
+        appendField(sb, "method", entry.method);
+        appendField(sb, "path", entry.path);
+        appendField(sb, "query", entry.query);
+        sb.append(",\"status\":").append(entry.status);
+        sb.append(",\"durationMs\":").append(entry.durationMillis);
+        appendField(sb, "clientIp", entry.clientIp);
+        appendField(sb, "route", entry.routeId);
+        appendField(sb, "userId", entry.userId == null ? null : entry.userId.toString());
+        if (slow) {
+            sb.append(",\"slow\":true");
+        }
+        appendField(sb, "error", entry.error);
+        sb.append('}');
+
+        if (entry.error != null || entry.status >= 500 || slow) {
+            ACCESS_LOG.warn(sb.toString());
+        } else {
+            ACCESS_LOG.info(sb.toString());
+        }
+        written.increment();
+    }
+
+    private static void appendField(StringBuilder sb, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        if (sb.length() > 1) {
+            sb.append(',');
+        }
+        sb.append('"').append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    // 预分配的槽位，字段由生产者写、后台线程读，可见性由 sequences 的写读保证
+    private static final class Entry {
+        private long timestamp;
+        private String traceId;
+        private String method;
+        private String path;
+        private String query;
+        private String clientIp;
+        private String routeId;
+        private Object userId;
+        private int status;
+        private long durationMillis;
+        private String error;
+
+        private void clear() {
+            traceId = null;
+            method = null;
+            path = null;
+            query = null;
+            clientIp = null;
+            routeId = null;
+            userId = null;
+            error = null;
+        }
+    }
+}
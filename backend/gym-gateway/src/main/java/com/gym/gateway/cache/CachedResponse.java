@@ -0,0 +1,73 @@
+package com.gym.gateway.cache;
+
+import com.gym.gateway.compress.ContentCoding;
+import com.gym.gateway.compress.StreamingCompressor;
+import org.springframework.http.MediaType;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 缓存的响应（只保留状态码、Content-Type 和响应体）
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+public class CachedResponse {
+
+    private final int status;
+
+    private final MediaType contentType;
+
+    private final byte[] body;
+
+    private final long storedAtNanos;
+
+    /** 预先压缩的 gzip 响应体，第一次需要时生成 */
+    private volatile byte[] gzipBody;
+
+    /** 是否有后台刷新正在进行，同一个 key 同时只刷新一次 */
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
+    public CachedResponse(int status, MediaType contentType, byte[] body, long storedAtNanos) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+        this.storedAtNanos = storedAtNanos;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public MediaType getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * gzip 压缩后的响应体，并发时可能重复压缩一次，结果相同
+     */
+    public byte[] gzipBody(int level) {
+        byte[] compressed = gzipBody;
+        if (compressed == null) {
+            compressed = StreamingCompressor.compress(ContentCoding.GZIP, level, body);
+            gzipBody = compressed;
+        }
+        return compressed;
+    }
+
+    public long ageNanos(long nowNanos) {
+        return nowNanos - storedAtNanos;
+    }
+
+    public boolean tryStartRevalidation() {
+        return revalidating.compareAndSet(false, true);
+    }
+
+    public void finishRevalidation() {
+        revalidating.set(false);
+    }
+}
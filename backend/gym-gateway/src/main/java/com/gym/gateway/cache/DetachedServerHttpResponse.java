@@ -0,0 +1,73 @@
+package com.gym.gateway.cache;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 不连接客户端的响应，用于后台刷新缓存和对冲请求
+ * 
+ * 过滤器链把上游响应写到这里，只在内存中保留响应体；超过 maxBodySize 时丢弃响应体。
+ * 对冲请求只用它接收状态码和响应头，响应体由胜出的请求写回真正的响应
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+public class DetachedServerHttpResponse extends AbstractServerHttpResponse {
+
+    private final int maxBodySize;
+
+    private volatile byte[] body;
+
+    public DetachedServerHttpResponse(DataBufferFactory dataBufferFactory, int maxBodySize) {
+        super(dataBufferFactory);
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * @return 响应体，超过大小限制或尚未写入时为 null
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    @Override
+    public <T> T getNativeResponse() {
+        throw new IllegalStateException("Detached response has no native response");
+    }
+
+    @Override
+    protected Mono<Void> writeWithInternal(Publisher<? extends DataBuffer> bodyPublisher) {
+        return DataBufferUtils.join(bodyPublisher, maxBodySize)
+                .doOnNext(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    body = bytes;
+                })
+                .onErrorResume(DataBufferLimitException.class, e -> Mono.empty())
+                .then();
+    }
+
+    @Override
+    protected Mono<Void> writeAndFlushWithInternal(Publisher<? extends Publisher<? extends DataBuffer>> bodyPublisher) {
+        return writeWithInternal(Flux.from(bodyPublisher).concatMap(Flux::from));
+    }
+
+    @Override
+    protected void applyStatusCode() {
+    }
+
+    @Override
+    protected void applyHeaders() {
+    }
+
+    @Override
+    protected void applyCookies() {
+    }
+}
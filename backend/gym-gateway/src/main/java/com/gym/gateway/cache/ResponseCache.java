@@ -0,0 +1,186 @@
+package com.gym.gateway.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.gym.gateway.config.ResponseCacheProperties;
+import com.gym.util.PathPatternMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关响应缓存
+ * 
+ * 1. 按路径、查询参数和 vary 请求头区分，Guava Cache 按响应体大小限制总内存
+ * 2. 条目在 ttl + max(staleWhileRevalidate, staleIfError) 后才真正淘汰，过了新鲜期的条目仍可用于降级
+ * 3. 只保存明确成功的响应：HTTP 200、没有 Set-Cookie、没有 no-store/private，且 RestResult.code 为 200
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class ResponseCache {
+
+    /** 缓存命中情况：HIT 新鲜命中、STALE 旧响应 + 后台刷新、STALE_IF_ERROR 上游失败时返回旧响应、MISS 未命中 */
+    public enum Result { HIT, STALE, STALE_IF_ERROR, MISS }
+
+    @Autowired
+    private ResponseCacheProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, CachedResponse> cache;
+
+    private PathPatternMatcher pathMatcher;
+
+    private final Counter[] counters = new Counter[Result.values().length];
+
+    @PostConstruct
+    public void init() {
+        long retainNanos = properties.getTtl().toNanos()
+                + Math.max(properties.getStaleWhileRevalidate().toNanos(), properties.getStaleIfError().toNanos());
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(properties.getMaxMemoryBytes())
+                .weigher((String key, CachedResponse response) -> key.length() + response.getBody().length)
+                .expireAfterWrite(retainNanos, TimeUnit.NANOSECONDS)
+                .build();
+        pathMatcher = PathPatternMatcher.compile(properties.getPaths());
+        for (Result result : Result.values()) {
+            counters[result.ordinal()] = meterRegistry.counter("gateway.response.cache", "result", result.name());
+        }
+    }
+
+    /**
+     * 是否为可缓存的请求
+     */
+    public boolean isCacheable(ServerHttpRequest request) {
+        return properties.isEnabled() && request.getMethod() == HttpMethod.GET
+                && pathMatcher.matches(request.getPath().value());
+    }
+
+    /**
+     * 缓存 key：路径 + 查询参数 + vary 请求头
+     */
+    public String key(ServerHttpRequest request) {
+        return requestKey(request, properties.getVaryHeaders());
+    }
+
+    /**
+     * 路径 + 查询参数 + 指定请求头，合并相同请求时也用它区分
+     */
+    public static String requestKey(ServerHttpRequest request, List<String> varyHeaders) {
+        StringBuilder key = new StringBuilder(request.getPath().value());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        for (String header : varyHeaders) {
+            key.append('\u0001');
+            String value = request.getHeaders().getFirst(header);
+            if (value != null) {
+                key.append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * 响应满足条件时保存
+     *
+     * @return 是否已保存
+     */
+    public boolean putIfCacheable(String key, HttpStatus status, HttpHeaders headers, byte[] body, long nowNanos) {
+        if (status != HttpStatus.OK || body == null || body.length > properties.getMaxBodySize()
+                || headers.containsKey(HttpHeaders.SET_COOKIE) || !isSuccessResult(headers.getContentType(), body)) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null && (cacheControl.contains("no-store") || cacheControl.contains("private"))) {
+            return false;
+        }
+        cache.put(key, new CachedResponse(status.value(), headers.getContentType(), body, nowNanos));
+        return true;
+    }
+
+    /**
+     * 条目是否仍在新鲜期内
+     */
+    public boolean isFresh(CachedResponse response, long nowNanos) {
+        return response.ageNanos(nowNanos) < properties.getTtl().toNanos();
+    }
+
+    /**
+     * 条目是否在"先返回旧响应、后台刷新"的时间段内
+     */
+    public boolean isRevalidatable(CachedResponse response, long nowNanos) {
+        return response.ageNanos(nowNanos)
+                < properties.getTtl().toNanos() + properties.getStaleWhileRevalidate().toNanos();
+    }
+
+    /**
+     * 上游失败时条目是否还能使用
+     */
+    public boolean isUsableOnError(CachedResponse response, long nowNanos) {
+        return response.ageNanos(nowNanos) < properties.getTtl().toNanos() + properties.getStaleIfError().toNanos();
+    }
+
+    public void record(Result result) {
+        counters[result.ordinal()].increment();
+    }
+
+    public int getMaxBodySize() {
+        return properties.getMaxBodySize();
+    }
+
+    /**
+     * 返回客户端时附带的缓存头
+     */
+    public static void applyHeaders(HttpHeaders headers, CachedResponse response, Result result, long nowNanos) {
+        headers.setContentType(response.getContentType());
+        headers.setContentLength(response.getBody().length);
+        headers.set("X-Cache", result.name());
+        headers.set(HttpHeaders.AGE, String.valueOf(TimeUnit.NANOSECONDS.toSeconds(response.ageNanos(nowNanos))));
+        headers.setCacheControl(CacheControl.noCache());
+    }
+
+    /**
+     * gym-server 出错时也返回 HTTP 200，需要看 RestResult.code
+     */
+    private static boolean isSuccessResult(MediaType contentType, byte[] body) {
+        if (contentType == null || !MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return true;
+        }
+        try {
+            Object parsed = JSON.parse(new String(body, StandardCharsets.UTF_8));
+            if (parsed instanceof JSONObject) {
+                Integer code = ((JSONObject) parsed).getInteger("code");
+                return code == null || code == HttpStatus.OK.value();
+            }
+            return true;
+        } catch (Exception e) {
+            log.debug("Response body is not valid JSON, not caching it");
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.gym.gateway.compress;
+
+/**
+ * 网关支持的响应压缩编码
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+public enum ContentCoding {
+
+    GZIP("gzip"),
+
+    DEFLATE("deflate");
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Content-Encoding 响应头的值
+     */
+    public String token() {
+        return token;
+    }
+
+    /**
+     * 按 Accept-Encoding 选择编码：gzip 优先，其次 deflate；q=0 表示不接受
+     *
+     * @return 客户端都不接受时返回 null
+     */
+    public static ContentCoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        boolean wildcard = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            if (!isAccepted(tokens)) {
+                continue;
+            }
+            if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+                gzip = true;
+            } else if ("deflate".equals(coding)) {
+                deflate = true;
+            } else if ("*".equals(coding)) {
+                wildcard = true;
+            }
+        }
+        if (gzip || wildcard) {
+            return GZIP;
+        }
+        return deflate ? DEFLATE : null;
+    }
+
+    private static boolean isAccepted(String[] tokens) {
+        for (int i = 1; i < tokens.length; i++) {
+            String param = tokens[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2)) > 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,148 @@
+package com.gym.gateway.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 流式压缩器（单个响应使用，非线程安全）
+ *
+ * 每收到一块响应体就送入 Deflater，只返回已经产生的压缩数据，不缓存整个响应体；
+ * 同时统计输入/输出字节数和压缩耗时。用完必须调用 close() 释放 Deflater 的本地内存。
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+public class StreamingCompressor {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(BUFFER_SIZE);
+
+    private final DeflaterOutputStream stream;
+
+    /** deflate 编码自己创建的 Deflater，需要手动释放；gzip 由 GZIPOutputStream 管理 */
+    private final Deflater deflater;
+
+    private long bytesIn;
+
+    private long bytesOut;
+
+    private long nanos;
+
+    private boolean closed;
+
+    public StreamingCompressor(ContentCoding coding, int level) {
+        try {
+            if (coding == ContentCoding.GZIP) {
+                this.deflater = null;
+                this.stream = new GZIPOutputStream(sink, BUFFER_SIZE) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+            } else {
+                this.deflater = new Deflater(level);
+                this.stream = new DeflaterOutputStream(sink, deflater, BUFFER_SIZE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 压缩一块数据
+     *
+     * @return 目前已产生的压缩数据，可能为空
+     */
+    public byte[] write(byte[] chunk) {
+        long start = System.nanoTime();
+        try {
+            stream.write(chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        bytesIn += chunk.length;
+        nanos += System.nanoTime() - start;
+        return drain();
+    }
+
+    /**
+     * 结束压缩
+     *
+     * @return 剩余的压缩数据（包括 gzip 尾部）
+     */
+    public byte[] finish() {
+        long start = System.nanoTime();
+        try {
+            stream.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nanos += System.nanoTime() - start;
+        return drain();
+    }
+
+    /**
+     * 释放 Deflater，可重复调用
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // 内存输出流不会抛出
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * 一次性压缩整个响应体（用于缓存的响应）
+     */
+    public static byte[] compress(ContentCoding coding, int level, byte[] body) {
+        StreamingCompressor compressor = new StreamingCompressor(coding, level);
+        try {
+            byte[] head = compressor.write(body);
+            byte[] tail = compressor.finish();
+            byte[] result = new byte[head.length + tail.length];
+            System.arraycopy(head, 0, result, 0, head.length);
+            System.arraycopy(tail, 0, result, head.length, tail.length);
+            return result;
+        } finally {
+            compressor.close();
+        }
+    }
+
+    private byte[] drain() {
+        if (sink.size() == 0) {
+            return EMPTY;
+        }
+        byte[] out = sink.toByteArray();
+        sink.reset();
+        bytesOut += out.length;
+        return out;
+    }
+}
@@ -0,0 +1,33 @@
+package com.gym.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 网关访问日志配置
+ *
+ * 每个请求最多输出一条结构化记录，2xx 按比例采样，错误和慢请求全部记录
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "access-log")
+public class AccessLogProperties {
+
+    /** 是否输出访问日志 */
+    private boolean enabled = true;
+
+    /** 2xx 响应的采样比例（0~1），1 表示全部记录 */
+    private double successSampleRate = 1.0;
+
+    /** 超过该耗时的请求视为慢请求，总是记录 */
+    private Duration slowThreshold = Duration.ofSeconds(2);
+
+    /** 环形缓冲区大小（向上取 2 的幂），写满时丢弃新记录 */
+    private int bufferSize = 8192;
+}
@@ -0,0 +1,35 @@
+package com.gym.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 网关响应压缩配置
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "compression")
+public class CompressionProperties {
+
+    /** 是否启用 */
+    private boolean enabled = true;
+
+    /** 已知长度（Content-Length）小于该值的响应不压缩；长度未知的响应一般较大，直接流式压缩 */
+    private int minResponseSize = 1024;
+
+    /** 压缩级别 1~9，越大压缩率越高、CPU 消耗越大 */
+    private int level = 6;
+
+    /** 需要压缩的响应类型 */
+    private List<String> mimeTypes = new ArrayList<>(Arrays.asList(
+            "application/json", "application/xml", "application/javascript",
+            "text/html", "text/plain", "text/css", "text/xml"));
+}
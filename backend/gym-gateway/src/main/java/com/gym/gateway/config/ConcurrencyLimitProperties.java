@@ -0,0 +1,59 @@
+package com.gym.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 网关自适应并发限制配置
+ * 
+ * 只对 routes 中列出的路由生效，每个路由一个独立的限制器
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    /** 是否启用 */
+    private boolean enabled = true;
+
+    /** 低优先级路径（Ant 风格，匹配网关收到的原始路径），上游变慢时最先被拒绝 */
+    private List<String> lowPriorityPaths = new ArrayList<>();
+
+    /** 低优先级请求可使用的并发上限比例 */
+    private double lowPriorityShare = 0.5;
+
+    /** 拒绝时返回的 Retry-After */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    /** 路由ID -> 限制参数 */
+    private Map<String, RouteLimit> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class RouteLimit {
+
+        /** 初始并发上限 */
+        private int initialLimit = 50;
+
+        /** 最小并发上限 */
+        private int minLimit = 5;
+
+        /** 最大并发上限 */
+        private int maxLimit = 500;
+
+        /** 延迟阈值，超过后减小并发上限 */
+        private Duration latencyThreshold = Duration.ofSeconds(1);
+
+        /** 每次减小时乘以的系数 */
+        private double backoffRatio = 0.9;
+    }
+}
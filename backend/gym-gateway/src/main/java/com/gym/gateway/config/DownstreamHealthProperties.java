@@ -0,0 +1,38 @@
+package com.gym.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 下游依赖健康检查配置
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "downstream-health")
+public class DownstreamHealthProperties {
+
+    /** 是否启用；关闭后健康检查接口不再包含下游依赖信息 */
+    private boolean enabled = true;
+
+    /** 后台刷新间隔，健康检查接口返回的结果最多旧这么久 */
+    private Duration refreshInterval = Duration.ofSeconds(5);
+
+    /** 单个探测的超时时间，超时记为 DOWN */
+    private Duration probeTimeout = Duration.ofSeconds(1);
+
+    /** 要探测的服务 -> 探测路径；HTTP 状态码小于 500 即视为实例可用 */
+    private Map<String, String> services = new LinkedHashMap<>();
+
+    public DownstreamHealthProperties() {
+        services.put("gym-server", "/");
+        services.put("gym-auth", "/actuator/health");
+    }
+}
@@ -58,7 +58,9 @@ public class GatewayConfig {
                 headers.add("Access-Control-Allow-Methods", "GET, PUT, POST, DELETE, OPTIONS");
                 headers.add("Access-Control-Max-Age", "18000");   // 预检缓存时长30分钟
                 headers.add("Access-Control-Allow-Headers", "*"); // 允许所有请求头
-                headers.add("Access-Control-Expose-Headers", "*"); // 暴露所有响应头
+                // 携带认证信息时浏览器不认 "*" 通配，限流头需要显式列出，前端才能读取并退避
+                headers.add("Access-Control-Expose-Headers",
+                        "*, X-RateLimit-Remaining, X-RateLimit-Replenish-Rate, X-RateLimit-Burst-Capacity, X-RateLimit-Requested-Tokens");
                 headers.add("Access-Control-Allow-Credentials", "true"); // 允许携带认证信息
                 
                 // 处理预检请求 (OPTIONS)
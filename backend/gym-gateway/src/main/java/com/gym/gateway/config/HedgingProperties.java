@@ -0,0 +1,48 @@
+package com.gym.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 请求对冲配置
+ *
+ * 只对 paths 中列出的 GET 接口生效：等待超过路由最近一分钟的 percentile 延迟仍没有响应时，
+ * 向另一个实例再发一次，用先返回的结果
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hedging")
+public class HedgingProperties {
+
+    /** 是否启用 */
+    private boolean enabled = true;
+
+    /** 需要对冲的路径（Ant 风格，匹配网关收到的原始路径） */
+    private List<String> paths = new ArrayList<>();
+
+    /** 按路由的哪个延迟分位数决定等待时间 */
+    private double percentile = 95;
+
+    /** 等待时间下限，避免路由很快时几乎每个请求都发两次 */
+    private Duration minDelay = Duration.ofMillis(20);
+
+    /** 等待时间上限，路由还没有延迟数据时也使用该值 */
+    private Duration maxDelay = Duration.ofSeconds(1);
+
+    /** 对冲请求数占普通请求数的最大比例 */
+    private double budgetRatio = 0.05;
+
+    /** 低流量时也允许的最少对冲次数（每秒） */
+    private int minHedgesPerSecond = 1;
+
+    /** 预算统计窗口 */
+    private Duration budgetWindow = Duration.ofSeconds(10);
+}
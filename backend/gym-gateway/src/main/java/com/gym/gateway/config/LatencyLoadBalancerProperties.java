@@ -0,0 +1,36 @@
+package com.gym.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 延迟感知负载均衡配置
+ *
+ * 作用于所有 lb:// 路由，见 LatencyAwareLoadBalancer
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "latency-load-balancer")
+public class LatencyLoadBalancerProperties {
+
+    /** 是否启用，关闭时退回默认的轮询 */
+    private boolean enabled = true;
+
+    /** 延迟 EWMA 的衰减时间常数，越小对最近的延迟越敏感 */
+    private Duration decayTime = Duration.ofSeconds(10);
+
+    /** 请求失败时按至少这么长的延迟计入，快速失败的实例不会因为"响应快"而分到更多流量 */
+    private Duration failurePenalty = Duration.ofSeconds(1);
+
+    /** 连续失败多少次后摘除实例 */
+    private int failureThreshold = 3;
+
+    /** 实例被摘除的时长，到期后重新放量，再次失败会立即被摘除 */
+    private Duration ejectionTime = Duration.ofSeconds(30);
+}
@@ -0,0 +1,18 @@
+package com.gym.gateway.config;
+
+import com.gym.gateway.loadbalancer.LatencyAwareLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 负载均衡配置
+ * 
+ * 所有 lb:// 路由默认使用延迟感知的负载均衡器，替代默认的轮询
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
@@ -0,0 +1,73 @@
+package com.gym.gateway.config;
+
+import com.gym.gateway.context.RequestContext;
+import com.gym.gateway.util.GatewayIpUtil;
+import com.gym.util.IpWhitelistMatcher;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+/**
+ * 网关分布式限流配置
+ * 
+ * 功能说明：
+ * 1. 使用 Spring Cloud Gateway 自带的 RedisRateLimiter（令牌桶 Lua 脚本，响应式 Redis 客户端）
+ * 2. 限流 key：已认证请求使用 AuthGlobalFilter 解析出的用户ID，匿名请求使用客户端IP（只信任可信代理追加的 X-Forwarded-For）
+ * 3. 按路由ID读取 application.yml 中的配额
+ * 4. 响应中带 X-RateLimit-Remaining / X-RateLimit-Replenish-Rate / X-RateLimit-Burst-Capacity 等头，
+ *    客户端据此退避；Redis 不可用时 RedisRateLimiter 默认放行
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Configuration
+public class RateLimitConfig {
+
+    /**
+     * 令牌桶限流器
+     * 
+     * @param properties 限流配置
+     * @return RedisRateLimiter 限流器
+     */
+    @Bean
+    public RedisRateLimiter redisRateLimiter(RateLimitProperties properties) {
+        RateLimitProperties.Quota defaults = properties.getDefaults();
+        RedisRateLimiter rateLimiter = new RedisRateLimiter(
+                defaults.getReplenishRate(), defaults.getBurstCapacity(), defaults.getRequestedTokens());
+        properties.getRoutes().forEach((routeId, quota) -> rateLimiter.getConfig().put(routeId, quota.toConfig()));
+        return rateLimiter;
+    }
+
+    /**
+     * 限流 key 解析器
+     * 
+     * 用户ID取自 AuthGlobalFilter 写入 RequestContext 的值，而不是请求头，
+     * 白名单路径上客户端自带的 X-User-Id 头不会被当作身份。
+     * RedisRateLimiter 的 Redis key 只由这里返回的值决定，所以要带上路由ID，
+     * 否则同一用户在不同路由上会共用一个令牌桶。
+     * 匿名请求的IP不取最左边的 X-Forwarded-For（客户端每次换一个值就能拿到新的令牌桶），
+     * 见 GatewayIpUtil.getTrustedClientIp
+     * 
+     * @param properties 限流配置
+     * @return KeyResolver key 解析器
+     */
+    @Bean
+    public KeyResolver userOrIpKeyResolver(RateLimitProperties properties) {
+        IpWhitelistMatcher trustedProxies = StringUtils.hasText(properties.getTrustedProxies())
+                ? IpWhitelistMatcher.compile(properties.getTrustedProxies()) : null;
+        return exchange -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "none";
+            String userId = RequestContext.userId(exchange);
+            if (userId != null) {
+                return Mono.just(routeId + ":user:" + userId);
+            }
+            return Mono.just(routeId + ":ip:" + GatewayIpUtil.getTrustedClientIp(exchange.getRequest(), trustedProxies));
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.gym.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 网关限流配置
+ * 
+ * 每个路由一个令牌桶配额，未单独配置的路由使用 defaults
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    /** 默认配额 */
+    private Quota defaults = new Quota();
+
+    /** 路由ID -> 配额 */
+    private Map<String, Quota> routes = new LinkedHashMap<>();
+
+    /**
+     * 网关前面的可信代理（如 Nginx、负载均衡器），规则写法同 IpWhitelistMatcher，多条用分号分隔；
+     * 为空时匿名请求按直连地址限流，不读 X-Forwarded-For
+     */
+    private String trustedProxies = "";
+
+    @Data
+    public static class Quota {
+
+        /** 每秒补充的令牌数（稳定速率） */
+        private int replenishRate = 10;
+
+        /** 令牌桶容量（允许的突发请求数） */
+        private int burstCapacity = 20;
+
+        /** 每个请求消耗的令牌数 */
+        private int requestedTokens = 1;
+
+        public RedisRateLimiter.Config toConfig() {
+            return new RedisRateLimiter.Config()
+                    .setReplenishRate(replenishRate)
+                    .setBurstCapacity(burstCapacity)
+                    .setRequestedTokens(requestedTokens);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.gym.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 相同请求合并配置
+ *
+ * 只合并 paths 中列出的 GET 接口，这些接口的响应必须与当前用户无关
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "request-coalescing")
+public class RequestCoalescingProperties {
+
+    /** 是否启用 */
+    private boolean enabled = true;
+
+    /** 可合并的路径（Ant 风格，匹配网关收到的原始路径） */
+    private List<String> paths = new ArrayList<>();
+
+    /** 除路径和查询参数外，还需要相同的请求头 */
+    private List<String> varyHeaders = new ArrayList<>();
+
+    /** 超过该大小的响应不共享，等待的请求各自转发 */
+    private int maxBodySize = 256 * 1024;
+}
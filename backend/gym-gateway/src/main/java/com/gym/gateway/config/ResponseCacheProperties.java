@@ -0,0 +1,47 @@
+package com.gym.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网关响应缓存配置
+ * 
+ * 只缓存 paths 中列出的 GET 接口，这些接口的响应必须与当前用户无关
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "response-cache")
+public class ResponseCacheProperties {
+
+    /** 是否启用 */
+    private boolean enabled = true;
+
+    /** 可缓存的路径（Ant 风格，匹配网关收到的原始路径） */
+    private List<String> paths = new ArrayList<>();
+
+    /** 参与缓存 key 的请求头 */
+    private List<String> varyHeaders = new ArrayList<>();
+
+    /** 新鲜期，期间直接返回缓存 */
+    private Duration ttl = Duration.ofSeconds(30);
+
+    /** 新鲜期过后的这段时间内先返回旧响应，同时在后台刷新 */
+    private Duration staleWhileRevalidate = Duration.ofSeconds(30);
+
+    /** 上游失败（熔断降级、5xx、异常）时，旧响应最多还能使用多久 */
+    private Duration staleIfError = Duration.ofMinutes(10);
+
+    /** 缓存占用的最大内存（响应体字节数） */
+    private long maxMemoryBytes = 32L * 1024 * 1024;
+
+    /** 超过该大小的响应不缓存 */
+    private int maxBodySize = 256 * 1024;
+}
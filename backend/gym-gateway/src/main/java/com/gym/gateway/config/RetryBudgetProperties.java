@@ -0,0 +1,34 @@
+package com.gym.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 重试预算配置
+ *
+ * 每个路由在最近 window 内的重试次数不超过 min-retries-per-second × window + ratio × 成功请求数，
+ * 上游整体变慢或不可用时重试会很快用完预算，不会把流量放大好几倍
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "retry-budget")
+public class RetryBudgetProperties {
+
+    /** 是否启用，关闭时只受各路由的最大重试次数限制 */
+    private boolean enabled = true;
+
+    /** 重试次数占成功请求数的最大比例 */
+    private double ratio = 0.2;
+
+    /** 低流量时也允许的最少重试次数（每秒） */
+    private int minRetriesPerSecond = 2;
+
+    /** 统计窗口 */
+    private Duration window = Duration.ofSeconds(10);
+}
@@ -1,6 +1,10 @@
 package com.gym.gateway.config;
 
 import com.gym.gateway.filter.CanaryGatewayFilterFactory;
+import com.gym.gateway.filter.HedgingGatewayFilterFactory;
+import com.gym.gateway.filter.RetryBudgetGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
@@ -14,6 +18,9 @@ import org.springframework.context.annotation.Configuration;
  * 2. 配置负载均衡策略
  * 3. 设置熔断降级
  * 4. 支持灰度发布
+ * 5. 按用户/IP 分布式限流（配额见 application.yml 的 rate-limit）
+ * 6. 带重试预算的重试，POST 只有带 Idempotency-Key 时才重试（预算见 application.yml 的 retry-budget）
+ * 7. 慢 GET 接口的请求对冲（接口和预算见 application.yml 的 hedging）
  * 
  * @author gym-system
  * @version 1.0
@@ -31,25 +38,36 @@ public class RouteConfig {
      * 
      * @param builder 路由构建器
      * @param canaryFilterFactory 灰度发布过滤器工厂
+     * @param retryBudgetFilterFactory 带重试预算的重试过滤器工厂
+     * @param hedgingFilterFactory 请求对冲过滤器工厂
+     * @param redisRateLimiter 令牌桶限流器
+     * @param userOrIpKeyResolver 限流 key 解析器
      * @return RouteLocator 路由定位器
      */
     @Bean
     public RouteLocator customRouteLocator(RouteLocatorBuilder builder, 
-                                          CanaryGatewayFilterFactory canaryFilterFactory) {
+                                          CanaryGatewayFilterFactory canaryFilterFactory,
+                                          RetryBudgetGatewayFilterFactory retryBudgetFilterFactory,
+                                          HedgingGatewayFilterFactory hedgingFilterFactory,
+                                          RedisRateLimiter redisRateLimiter,
+                                          KeyResolver userOrIpKeyResolver) {
         return builder.routes()
                 // 认证服务路由
                 .route("gym-auth-route", r -> r
                         .path("/auth/**")  // 匹配 /auth/ 开头的所有请求
                         .filters(f -> f
                                 .stripPrefix(1)  // 去掉路径前缀 /auth
+                                .requestRateLimiter(config -> config  // 限流放在熔断之前，被拒绝的请求不计入熔断统计
+                                        .setRateLimiter(redisRateLimiter)
+                                        .setKeyResolver(userOrIpKeyResolver))
                                 .circuitBreaker(config -> config  // 配置熔断器
                                         .setName("gym-auth-cb")
                                         .setFallbackUri("forward:/fallback/auth"))
                                 .filter(canaryFilterFactory.apply(new CanaryGatewayFilterFactory.Config()))  // 灰度发布
-                                .retry(retryConfig -> retryConfig  // 重试配置
+                                .filter(retryBudgetFilterFactory.apply("gym-auth-route", retryConfig -> retryConfig  // 重试配置
                                         .setRetries(3)
                                         .setBackoff(java.time.Duration.ofSeconds(1), 
-                                                   java.time.Duration.ofSeconds(5), 2, false)))
+                                                   java.time.Duration.ofSeconds(5), 2, false))))
                         .uri("lb://gym-auth"))  // 负载均衡到 gym-auth 服务
 
                 // 业务服务路由 - API接口
@@ -57,16 +75,22 @@ public class RouteConfig {
                         .path("/api/**")
                         .filters(f -> f
                                 .stripPrefix(1)
+                                .requestRateLimiter(config -> config
+                                        .setRateLimiter(redisRateLimiter)
+                                        .setKeyResolver(userOrIpKeyResolver))
                                 .circuitBreaker(config -> config
                                         .setName("gym-server-cb")
                                         .setFallbackUri("forward:/fallback/server"))
                                 .filter(canaryFilterFactory.apply(new CanaryGatewayFilterFactory.Config()))
-                                .retry(retryConfig -> retryConfig
+                                .filter(retryBudgetFilterFactory.apply("gym-server-api-route", retryConfig -> retryConfig
                                         .setRetries(2)
+                                        // POST 只有带 Idempotency-Key 时才会重试
                                         .setMethods(org.springframework.http.HttpMethod.GET, 
                                                    org.springframework.http.HttpMethod.POST)
                                         .setBackoff(java.time.Duration.ofMillis(500), 
                                                    java.time.Duration.ofSeconds(2), 2, false)))
+                                // 对冲放在最后，每次重试内部各自对冲
+                                .filter(hedgingFilterFactory.apply("gym-server-api-route", config -> { })))
                         .uri("lb://gym-server"))
 
                 // 业务服务路由 - 管理接口
@@ -74,6 +98,9 @@ public class RouteConfig {
                         .path("/admin/**")
                         .filters(f -> f
                                 .stripPrefix(1)
+                                .requestRateLimiter(config -> config
+                                        .setRateLimiter(redisRateLimiter)
+                                        .setKeyResolver(userOrIpKeyResolver))
                                 .circuitBreaker(config -> config
                                         .setName("gym-server-admin-cb")
                                         .setFallbackUri("forward:/fallback/admin"))
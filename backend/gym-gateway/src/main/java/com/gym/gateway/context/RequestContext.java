@@ -0,0 +1,147 @@
+package com.gym.gateway.context;
+
+import com.gym.gateway.accesslog.AccessLogWriter;
+import com.gym.gateway.util.GatewayIpUtil;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 网关请求上下文
+ *
+ * 1. 链路追踪ID、客户端IP、开始时间在请求进入时计算一次（RequestContextGlobalFilter），后续过滤器直接读取
+ * 2. 认证通过后保存用户ID、角色、邮箱（AuthGlobalFilter）
+ * 3. 各过滤器对转发请求头的修改先记在这里，由 RequestHeadersGlobalFilter 一次性应用，
+ *    整条链只 mutate 一次请求
+ *
+ * 保存在交换属性 ATTR 中，同一个请求的过滤器按顺序执行，不需要同步
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+public class RequestContext {
+
+    /** 交换属性名 */
+    public static final String ATTR = "gym.requestContext";
+
+    /** 链路追踪ID请求头/响应头名称 */
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private final String traceId;
+
+    private final String clientIp;
+
+    private final long startTimeMillis;
+
+    private final long startNanos;
+
+    private String userId;
+
+    private String role;
+
+    private String email;
+
+    /** 待应用的请求头修改，值为 null 表示删除 */
+    private Map<String, String> requestHeaderChanges;
+
+    private RequestContext(String traceId, String clientIp) {
+        this.traceId = traceId;
+        this.clientIp = clientIp;
+        this.startTimeMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取请求上下文，还没有时创建
+     */
+    public static RequestContext of(ServerWebExchange exchange) {
+        RequestContext context = exchange.getAttribute(ATTR);
+        if (context == null) {
+            context = new RequestContext(AccessLogWriter.newTraceId(), GatewayIpUtil.getClientIp(exchange.getRequest()));
+            context.setRequestHeader(TRACE_ID_HEADER, context.traceId);
+            exchange.getAttributes().put(ATTR, context);
+        }
+        return context;
+    }
+
+    /**
+     * 认证通过的用户ID，未认证时为 null
+     */
+    public static String userId(ServerWebExchange exchange) {
+        RequestContext context = exchange.getAttribute(ATTR);
+        return context != null ? context.userId : null;
+    }
+
+    /**
+     * 记录认证通过的用户
+     */
+    public void authenticated(String userId, String role, String email) {
+        this.userId = userId;
+        this.role = role;
+        this.email = email;
+    }
+
+    /**
+     * 设置转发给下游的请求头，value 为 null 时删除
+     */
+    public void setRequestHeader(String name, String value) {
+        if (requestHeaderChanges == null) {
+            requestHeaderChanges = new LinkedHashMap<>(8);
+        }
+        requestHeaderChanges.put(name, value);
+    }
+
+    public void removeRequestHeader(String name) {
+        setRequestHeader(name, null);
+    }
+
+    public boolean hasRequestHeaderChanges() {
+        return requestHeaderChanges != null && !requestHeaderChanges.isEmpty();
+    }
+
+    /**
+     * 把记录的修改应用到请求头
+     */
+    public void applyRequestHeaderChanges(HttpHeaders headers) {
+        if (requestHeaderChanges == null) {
+            return;
+        }
+        requestHeaderChanges.forEach((name, value) -> {
+            if (value == null) {
+                headers.remove(name);
+            } else {
+                headers.set(name, value);
+            }
+        });
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getClientIp() {
+        return clientIp;
+    }
+
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+}
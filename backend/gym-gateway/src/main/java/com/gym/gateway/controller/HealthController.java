@@ -1,5 +1,10 @@
 package com.gym.gateway.controller;
 
+import com.gym.gateway.accesslog.AccessLogWriter;
+import com.gym.gateway.compress.ResponseCompressor;
+import com.gym.gateway.health.DownstreamHealthAggregator;
+import com.gym.gateway.loadbalancer.LoadBalancerStats;
+import com.gym.gateway.metrics.GatewayMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.ServiceInstance;
@@ -10,6 +15,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +28,8 @@ import java.util.Map;
  * 2. 检查服务发现连接状态
  * 3. 统计已注册的服务实例
  * 4. 提供系统运行时信息
+ * 5. 下游依赖（gym-server、gym-auth、Redis、Nacos）的状态和探测耗时：
+ *    由 DownstreamHealthAggregator 在后台定时并行探测，接口只读取最近一次的快照
  * 
  * @author gym-system
  * @version 1.0
@@ -34,6 +42,21 @@ public class HealthController {
     @Autowired
     private DiscoveryClient discoveryClient;
 
+    @Autowired
+    private GatewayMetrics gatewayMetrics;
+
+    @Autowired
+    private AccessLogWriter accessLogWriter;
+
+    @Autowired
+    private LoadBalancerStats loadBalancerStats;
+
+    @Autowired
+    private ResponseCompressor responseCompressor;
+
+    @Autowired
+    private DownstreamHealthAggregator downstreamHealthAggregator;
+
     /** 网关启动时间 */
     private static final LocalDateTime START_TIME = LocalDateTime.now();
 
@@ -92,32 +115,20 @@ public class HealthController {
             // 基础健康信息
             health.putAll(healthCheck());
             
-            // 服务发现信息
-            Map<String, Object> discoveryInfo = new HashMap<>();
-            try {
-                List<String> services = discoveryClient.getServices();
-                discoveryInfo.put("status", "UP");
-                discoveryInfo.put("registeredServices", services);
-                discoveryInfo.put("serviceCount", services.size());
-                
-                // 统计各服务的实例数量
-                Map<String, Integer> serviceInstances = new HashMap<>();
-                for (String service : services) {
-                    int instanceCount = discoveryClient.getInstances(service).size();
-                    serviceInstances.put(service, instanceCount);
-                }
-                discoveryInfo.put("serviceInstances", serviceInstances);
-                
-                log.debug("服务发现检查完成 - 已注册服务数: {}", services.size());
-                
-            } catch (Exception e) {
-                log.warn("服务发现检查失败: {}", e.getMessage());
-                discoveryInfo.put("status", "DOWN");
-                discoveryInfo.put("error", e.getMessage());
+            // 下游依赖状态（后台探测的快照，不在请求线程上访问下游）
+            DownstreamHealthAggregator.Snapshot snapshot = downstreamHealthAggregator.getSnapshot();
+            if (snapshot != null) {
+                Map<String, Object> dependencies = new HashMap<>();
+                dependencies.put("status", snapshot.getStatus());
+                dependencies.put("checkedAt", snapshot.getCheckedAt());
+                dependencies.put("ageMs", snapshot.getAgeMillis());
+                dependencies.put("items", snapshot.getDependencies());
+                health.put("dependencies", dependencies);
+                health.put("discovery", discoveryFromSnapshot(snapshot));
+            } else {
+                health.put("discovery", discoveryInfo());
             }
             
-            health.put("discovery", discoveryInfo);
-            
             // JVM信息
             Map<String, Object> jvmInfo = new HashMap<>();
             jvmInfo.put("javaVersion", System.getProperty("java.version"));
@@ -127,6 +138,20 @@ public class HealthController {
             jvmInfo.put("osArch", System.getProperty("os.arch"));
             health.put("jvm", jvmInfo);
             
+            // 最近一分钟的流量统计（按路由、上游实例），完整指标见 /actuator/prometheus
+            health.put("traffic", gatewayMetrics.lastMinuteSummary());
+            
+            // 各上游实例的负载均衡状态（EWMA 延迟、在途请求、是否被摘除）
+            health.put("loadBalancer", loadBalancerStats.snapshot());
+            
+            // 各路由的响应压缩率和压缩耗时
+            health.put("compression", responseCompressor.summary());
+            
+            Map<String, Object> accessLogInfo = new HashMap<>();
+            accessLogInfo.put("written", accessLogWriter.getWritten());
+            accessLogInfo.put("dropped", accessLogWriter.getDropped());
+            health.put("accessLog", accessLogInfo);
+            
         } catch (Exception e) {
             log.error("详细健康检查异常: {}", e.getMessage(), e);
             health.put("status", "DOWN");
@@ -158,6 +183,25 @@ public class HealthController {
     public Map<String, Object> discoveryStatus() {
         Map<String, Object> status = new HashMap<>();
         
+        DownstreamHealthAggregator.Snapshot snapshot = downstreamHealthAggregator.getSnapshot();
+        if (snapshot != null) {
+            // 使用后台探测的快照，并附上各下游依赖的状态和探测耗时
+            Map<String, Object> discovery = discoveryFromSnapshot(snapshot);
+            status.put("status", discovery.get("status"));
+            status.put("services", discovery.getOrDefault("registeredServices", new ArrayList<>()));
+            status.put("serviceCount", discovery.getOrDefault("serviceCount", 0));
+            status.put("serviceInstances", discovery.get("serviceInstances"));
+            status.put("latencyMs", discovery.get("latencyMs"));
+            status.put("checkedAt", snapshot.getCheckedAt());
+            status.put("ageMs", snapshot.getAgeMillis());
+            status.put("dependencies", snapshot.getDependencies());
+            if (discovery.containsKey("error")) {
+                status.put("error", discovery.get("error"));
+            }
+            status.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            return status;
+        }
+        
         try {
             List<String> services = discoveryClient.getServices();
             status.put("status", "UP");
@@ -187,6 +231,57 @@ public class HealthController {
         return status;
     }
 
+    /**
+     * 直接查询服务发现的信息，下游健康探测未启用或第一轮探测还没完成时使用
+     */
+    private Map<String, Object> discoveryInfo() {
+        Map<String, Object> discoveryInfo = new HashMap<>();
+        try {
+            List<String> services = discoveryClient.getServices();
+            discoveryInfo.put("status", "UP");
+            discoveryInfo.put("registeredServices", services);
+            discoveryInfo.put("serviceCount", services.size());
+            
+            // 统计各服务的实例数量
+            Map<String, Integer> serviceInstances = new HashMap<>();
+            for (String service : services) {
+                int instanceCount = discoveryClient.getInstances(service).size();
+                serviceInstances.put(service, instanceCount);
+            }
+            discoveryInfo.put("serviceInstances", serviceInstances);
+            
+            log.debug("服务发现检查完成 - 已注册服务数: {}", services.size());
+            
+        } catch (Exception e) {
+            log.warn("服务发现检查失败: {}", e.getMessage());
+            discoveryInfo.put("status", "DOWN");
+            discoveryInfo.put("error", e.getMessage());
+        }
+        return discoveryInfo;
+    }
+
+    /**
+     * 从下游健康快照中取出服务发现的信息（Nacos 探测时已记录各服务的实例数）
+     */
+    private Map<String, Object> discoveryFromSnapshot(DownstreamHealthAggregator.Snapshot snapshot) {
+        Map<String, Object> nacos = snapshot.getDependencies().get("nacos");
+        Map<String, Object> discoveryInfo = new HashMap<>();
+        discoveryInfo.put("status", nacos.get("status"));
+        discoveryInfo.put("latencyMs", nacos.get("latencyMs"));
+        discoveryInfo.put("checkedAt", snapshot.getCheckedAt());
+        if (nacos.containsKey("error")) {
+            discoveryInfo.put("error", nacos.get("error"));
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Integer> serviceInstances = (Map<String, Integer>) nacos.get("serviceInstances");
+        if (serviceInstances != null) {
+            discoveryInfo.put("registeredServices", new ArrayList<>(serviceInstances.keySet()));
+            discoveryInfo.put("serviceCount", serviceInstances.size());
+            discoveryInfo.put("serviceInstances", serviceInstances);
+        }
+        return discoveryInfo;
+    }
+
     /**
      * 格式化字节数
      * 
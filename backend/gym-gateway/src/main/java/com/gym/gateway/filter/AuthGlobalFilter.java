@@ -1,8 +1,13 @@
 package com.gym.gateway.filter;
 
 import com.alibaba.fastjson.JSON;
+import com.gym.gateway.context.RequestContext;
+import com.gym.gateway.loadbalancer.LatencyAwareLoadBalancer;
 import com.gym.result.RestResult;
+import com.gym.util.GatewayIdentitySigner;
+import com.gym.util.JwtParseResult;
 import com.gym.util.JwtUtils;
+import com.gym.util.PathPatternMatcher;
 import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,7 +21,6 @@ import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
@@ -31,7 +35,8 @@ import java.util.List;
  * 功能说明：
  * 1. JWT Token验证
  * 2. 用户身份信息提取
- * 3. 请求头信息注入
+ * 3. 请求头信息注入，并对身份头签名（下游验签后可直接信任，不再解析JWT）；
+ *    用户信息写入 RequestContext，请求头修改由 RequestHeadersGlobalFilter 统一应用
  * 4. 白名单路径放行
  * 
  * 执行顺序：在路由过滤器之前执行
@@ -46,8 +51,18 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
     @Autowired
     private JwtUtils jwtUtils;
 
-    /** 路径匹配器 */
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    @Autowired
+    private GatewayIdentitySigner identitySigner;
+
+    /** 由网关写入的身份头和网关内部头，客户端自带的一律丢弃，防止伪造 */
+    private static final List<String> IDENTITY_HEADERS = Arrays.asList(
+            GatewayIdentitySigner.USER_ID_HEADER,
+            GatewayIdentitySigner.USER_ROLE_HEADER,
+            GatewayIdentitySigner.USER_EMAIL_HEADER,
+            GatewayIdentitySigner.TIMESTAMP_HEADER,
+            GatewayIdentitySigner.SIGNATURE_HEADER,
+            LatencyAwareLoadBalancer.EXCLUDE_INSTANCE_HEADER
+    );
 
     /** 
      * 白名单路径 - 这些路径不需要认证
@@ -80,6 +95,9 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
             "/actuator/gateway/**"   // 网关路由查看端点
     );
 
+    /** 白名单预编译后的匹配器，每个请求只需沿路径段走一遍 */
+    private final PathPatternMatcher whitelistMatcher = PathPatternMatcher.compile(whitelistPaths);
+
     /**
      * 过滤器执行逻辑
      * 
@@ -92,11 +110,14 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
         ServerHttpRequest request = exchange.getRequest();
         String path = request.getPath().value();
         
-        log.info("认证过滤器处理请求: {} {}", request.getMethod(), path);
+        log.debug("认证过滤器处理请求: {} {}", request.getMethod(), path);
+
+        // 所有请求都先丢弃客户端自带的身份头和内部头，认证通过后再由网关写入身份头
+        stripIdentityHeaders(exchange);
 
         // 检查是否为白名单路径
         if (isWhitelistPath(path)) {
-            log.info("白名单路径，跳过认证: {}", path);
+            log.debug("白名单路径，跳过认证: {}", path);
             return chain.filter(exchange);
         }
 
@@ -119,34 +140,36 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
         String token = authHeader.substring(7);
         
         try {
-            // 验证Token有效性
-            if (!jwtUtils.validateToken(token)) {
-                log.warn("Token验证失败，请求路径: {}", path);
+            // 一次完成签名校验和解析（同一Token的后续请求命中缓存）
+            JwtParseResult result = jwtUtils.parseAndValidate(token);
+            if (!result.isValid()) {
+                log.warn("Token验证失败，原因: {}，请求路径: {}", result.getFailureReason(), path);
                 return handleUnauthorized(exchange, "Token无效或已过期");
             }
 
-            // 解析Token获取用户信息
-            Claims claims = jwtUtils.getClaims(token);
+            // 获取用户信息
+            Claims claims = result.getClaims();
             String userId = claims.getSubject();
             String role = (String) claims.get("role");
             String email = (String) claims.get("email");
 
             log.debug("Token验证成功 - 用户ID: {}, 角色: {}, 邮箱: {}", userId, role, email);
 
-            // 将用户信息注入到请求头中，传递给下游服务
-            ServerHttpRequest mutatedRequest = request.mutate()
-                    .header("X-User-Id", userId)           // 用户ID
-                    .header("X-User-Role", role)           // 用户角色
-                    .header("X-User-Email", email)         // 用户邮箱
-                    .header("X-Auth-Token", token)         // 原始Token
-                    .build();
+            // 将用户信息注入到请求头中，传递给下游服务（覆盖客户端自带的同名头）
+            long timestamp = System.currentTimeMillis();
+            String signature = identitySigner.sign(userId, role, email, timestamp);
+            RequestContext context = RequestContext.of(exchange);
+            context.authenticated(userId, role, email);
+            context.setRequestHeader(GatewayIdentitySigner.USER_ID_HEADER, userId);       // 用户ID
+            context.setRequestHeader(GatewayIdentitySigner.USER_ROLE_HEADER, role);       // 用户角色
+            context.setRequestHeader(GatewayIdentitySigner.USER_EMAIL_HEADER, email);     // 用户邮箱
+            context.setRequestHeader("X-Auth-Token", token);                              // 原始Token
+            // 未配置签名密钥时删除客户端自带的签名头
+            context.setRequestHeader(GatewayIdentitySigner.TIMESTAMP_HEADER,
+                    signature != null ? String.valueOf(timestamp) : null);
+            context.setRequestHeader(GatewayIdentitySigner.SIGNATURE_HEADER, signature);
 
-            // 创建新的交换对象
-            ServerWebExchange mutatedExchange = exchange.mutate()
-                    .request(mutatedRequest)
-                    .build();
-
-            return chain.filter(mutatedExchange);
+            return chain.filter(exchange);
 
         } catch (Exception e) {
             log.error("Token解析异常，请求路径: {}, 错误: {}", path, e.getMessage());
@@ -154,6 +177,20 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
         }
     }
 
+    /**
+     * 去掉客户端自带的身份头（记录到 RequestContext，由 RequestHeadersGlobalFilter 删除）
+     * 
+     * @param exchange 服务器交换对象
+     */
+    private void stripIdentityHeaders(ServerWebExchange exchange) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        for (String header : IDENTITY_HEADERS) {
+            if (headers.containsKey(header)) {
+                RequestContext.of(exchange).removeRequestHeader(header);
+            }
+        }
+    }
+
     /**
      * 检查路径是否在白名单中
      * 
@@ -161,8 +198,7 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
      * @return 是否为白名单路径
      */
     private boolean isWhitelistPath(String path) {
-        return whitelistPaths.stream()
-                .anyMatch(pattern -> pathMatcher.match(pattern, path));
+        return whitelistMatcher.matches(path);
     }
 
     /**
@@ -1,20 +1,33 @@
 package com.gym.gateway.filter;
 
+import com.gym.gateway.context.RequestContext;
+import com.gym.util.IpWhitelistMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.cloud.gateway.route.Route;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
 
+import javax.annotation.PostConstruct;
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
 
@@ -24,13 +37,16 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.G
  * 功能说明：
  * 1. 支持基于请求头的灰度路由
  * 2. 支持基于IP白名单的灰度路由
- * 3. 动态切换到灰度环境
+ * 3. 支持按比例放量，同一用户（未登录时按IP）始终落在同一侧
  * 4. 支持外部URL灰度发布
  * 
- * 灰度策略：
+ * 灰度策略（按顺序判断）：
  * - Header策略：检查特定请求头值
  * - IP策略：检查客户端IP是否在白名单中
- * - 版本策略：根据版本号路由到不同服务
+ * - 比例策略：用户ID/IP 哈希到 0~99 的桶，桶号小于权重时走灰度；调大权重只会把更多用户切到灰度，已在灰度的用户不会切回
+ * 
+ * 配置在启动和 Nacos 刷新时编译一次，灰度路由按基础路由缓存，不在每个请求里重建。
+ * 分流结果通过 gateway.canary.requests{route,target,reason} 和 gateway.canary.weight{route} 指标导出。
  * 
  * @author gym-system
  * @version 1.0
@@ -39,34 +55,76 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.G
 @Component
 public class CanaryGatewayFilterFactory extends AbstractGatewayFilterFactory<CanaryGatewayFilterFactory.Config> {
 
-    /** 是否开启灰度发布 */
-    @Value("${canary.enabled:false}")
-    private boolean canaryEnabled;
+    /** 配置前缀 */
+    private static final String CONFIG_PREFIX = "canary.";
+
+    /** 分桶数量，权重按百分比计算 */
+    private static final int BUCKETS = 100;
 
-    /** 灰度标识请求头名称 */
-    @Value("${canary.header-key:X-Canary-Flag}")
-    private String canaryHeaderKey;
+    @Autowired
+    private Environment environment;
 
-    /** 灰度标识值列表 */
-    @Value("${canary.header-values:canary,test,beta}")
-    private String canaryHeaderValues;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    /** 灰度IP白名单 */
-    @Value("${canary.ip-whitelist:127.0.0.1,::1}")
-    private String canaryIpWhitelist;
+    /** 当前生效的灰度配置，配置刷新时整体替换 */
+    private volatile Rules rules;
 
-    /** 是否使用外部URL */
-    @Value("${canary.external-url.enabled:false}")
-    private boolean externalUrlEnabled;
+    /** 基础路由ID -> 预先构建好的灰度路由 */
+    private final Map<String, CanaryRoute> canaryRoutes = new ConcurrentHashMap<>();
 
-    /** 外部灰度URL */
-    @Value("${canary.external-url.target:}")
-    private String externalUrlTarget;
+    /** 各路由当前生效的权重，供指标导出 */
+    private final Map<String, AtomicInteger> effectiveWeights = new ConcurrentHashMap<>();
 
     public CanaryGatewayFilterFactory() {
         super(Config.class);
     }
 
+    @PostConstruct
+    public void init() {
+        rules = loadRules();
+    }
+
+    /**
+     * 灰度相关配置变化时重新编译，并丢弃已缓存的灰度路由（外部URL可能已变）
+     * 
+     * @param event 配置变更事件
+     */
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().anyMatch(key -> key.startsWith(CONFIG_PREFIX))) {
+            Rules reloaded = loadRules();
+            rules = reloaded;
+            canaryRoutes.clear();
+            log.info("灰度配置已刷新 - 启用状态: {} - 全局权重: {}", reloaded.enabled,
+                    reloaded.weight >= 0 ? reloaded.weight : "按路由配置");
+        }
+    }
+
+    private Rules loadRules() {
+        Set<String> headerValues = new HashSet<>();
+        String values = environment.getProperty(CONFIG_PREFIX + "header-values", "canary,test,beta");
+        for (String value : values.split(",")) {
+            if (StringUtils.hasText(value)) {
+                headerValues.add(value.trim());
+            }
+        }
+        String externalUrl = environment.getProperty(CONFIG_PREFIX + "external-url.target", "");
+        boolean externalUrlEnabled = environment.getProperty(CONFIG_PREFIX + "external-url.enabled", Boolean.class, false);
+        return new Rules(
+                // 是否开启灰度发布
+                environment.getProperty(CONFIG_PREFIX + "enabled", Boolean.class, false),
+                // 灰度标识请求头名称及取值
+                environment.getProperty(CONFIG_PREFIX + "header-key", "X-Canary-Flag"),
+                Collections.unmodifiableSet(headerValues),
+                // 灰度IP白名单
+                IpWhitelistMatcher.compile(environment.getProperty(CONFIG_PREFIX + "ip-whitelist", "127.0.0.1,::1")),
+                // 全局放量比例，未配置(-1)时使用各路由 Config.weight
+                environment.getProperty(CONFIG_PREFIX + "weight", Integer.class, -1),
+                // 外部灰度URL
+                externalUrlEnabled && StringUtils.hasText(externalUrl) ? URI.create(externalUrl) : null);
+    }
+
     /**
      * 创建灰度发布过滤器
      * 
@@ -76,176 +134,209 @@ public class CanaryGatewayFilterFactory extends AbstractGatewayFilterFactory<Can
     @Override
     public GatewayFilter apply(Config config) {
         return (exchange, chain) -> {
+            Rules current = rules;
             // 如果未启用灰度发布，直接放行
-            if (!canaryEnabled) {
-                log.debug("灰度发布未启用，请求正常路由");
+            if (!current.enabled || !config.isEnabled()) {
                 return chain.filter(exchange);
             }
 
-            ServerHttpRequest request = exchange.getRequest();
             Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
-            
             // 检查路由是否支持负载均衡
-            if (route == null || !route.getUri().toString().startsWith("lb://")) {
+            if (route == null || !"lb".equals(route.getUri().getScheme())) {
                 log.debug("路由不支持负载均衡，跳过灰度处理: {}", route != null ? route.getUri() : "null");
                 return chain.filter(exchange);
             }
 
-            boolean shouldUseCanary = false;
-            String reason = "";
-
-            // 策略1: 检查请求头标识
-            if (checkCanaryHeader(request)) {
-                shouldUseCanary = true;
-                reason = "请求头匹配";
-            }
-            // 策略2: 检查IP白名单
-            else if (checkCanaryIp(request)) {
-                shouldUseCanary = true;
-                reason = "IP白名单匹配";
+            CanaryRoute canaryRoute;
+            try {
+                canaryRoute = canaryRoute(route, config, current);
+            } catch (Exception e) {
+                log.error("灰度路由构建失败: {}", e.getMessage(), e);
+                // 构建失败时继续使用原路由
+                return chain.filter(exchange);
             }
 
-            // 如果需要使用灰度环境，修改路由
-            if (shouldUseCanary) {
-                log.info("触发灰度路由 - 原因: {}, 请求路径: {}, 客户端IP: {}", 
-                        reason, request.getPath().value(), getClientIp(request));
-                
-                try {
-                    Route newRoute = buildCanaryRoute(route, request);
-                    exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, newRoute);
-                    log.info("灰度路由设置成功: {} -> {}", route.getUri(), newRoute.getUri());
-                } catch (Exception e) {
-                    log.error("灰度路由设置失败: {}", e.getMessage(), e);
-                    // 设置失败时继续使用原路由
-                }
-            }
+            int weight = current.weight >= 0 ? current.weight : config.getWeight();
+            effectiveWeight(route.getId()).set(weight);
 
+            Counter decision = decide(exchange, current, config, weight, canaryRoute);
+            decision.increment();
+            if (decision != canaryRoute.stable) {
+                exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, canaryRoute.canary);
+                log.debug("触发灰度路由: {} -> {}, 请求路径: {}", route.getUri(), canaryRoute.canary.getUri(),
+                        exchange.getRequest().getPath().value());
+            }
             return chain.filter(exchange);
         };
     }
 
+    /**
+     * 判断请求走灰度还是稳定版本，返回对应原因的计数器
+     */
+    private Counter decide(ServerWebExchange exchange, Rules current, Config config, int weight,
+                           CanaryRoute canaryRoute) {
+        ServerHttpRequest request = exchange.getRequest();
+        // 策略1: 检查请求头标识
+        if (checkCanaryHeader(request, current)) {
+            return canaryRoute.byHeader;
+        }
+        String clientIp = RequestContext.of(exchange).getClientIp();
+        // 策略2: 检查IP白名单
+        if (current.ipMatcher.isAllowed(clientIp)) {
+            return canaryRoute.byIp;
+        }
+        // 策略3: 按比例放量，已登录用户按用户ID分桶，否则按IP
+        if (weight > 0) {
+            String userId = RequestContext.userId(exchange);
+            String stickyKey = userId != null ? userId : clientIp;
+            if (weight >= BUCKETS || bucket(stickyKey, config.getVersion()) < weight) {
+                return canaryRoute.byWeight;
+            }
+        }
+        return canaryRoute.stable;
+    }
+
     /**
      * 检查请求头是否匹配灰度标识
      * 
      * @param request HTTP请求
+     * @param current 当前灰度配置
      * @return 是否匹配灰度标识
      */
-    private boolean checkCanaryHeader(ServerHttpRequest request) {
-        if (!StringUtils.hasText(canaryHeaderKey) || !StringUtils.hasText(canaryHeaderValues)) {
+    private boolean checkCanaryHeader(ServerHttpRequest request, Rules current) {
+        if (!StringUtils.hasText(current.headerKey) || current.headerValues.isEmpty()) {
             return false;
         }
 
-        List<String> headerValues = request.getHeaders().get(canaryHeaderKey);
-        if (headerValues == null || headerValues.isEmpty()) {
+        List<String> headerValues = request.getHeaders().get(current.headerKey);
+        if (headerValues == null) {
             return false;
         }
 
-        List<String> canaryValues = Arrays.asList(canaryHeaderValues.split(","));
-        
         // 检查请求头值是否在灰度标识列表中
         for (String headerValue : headerValues) {
-            if (canaryValues.contains(headerValue.trim())) {
-                log.debug("请求头灰度匹配: {}={}", canaryHeaderKey, headerValue);
+            if (current.headerValues.contains(headerValue.trim())) {
                 return true;
             }
         }
-
         return false;
     }
 
     /**
-     * 检查客户端IP是否在灰度白名单中
+     * 把分流 key 稳定地映射到 0~99 的桶
      * 
-     * @param request HTTP请求
-     * @return 是否在IP白名单中
+     * String.hashCode 对相邻的用户ID几乎不打散，这里再做一次 64 位混淆（MurmurHash3 fmix64）；
+     * 加入版本号作为盐，不同批次的灰度选中的用户不完全相同
+     * 
+     * @param key 用户ID或客户端IP
+     * @param salt 灰度版本标识
+     * @return 桶号
      */
-    private boolean checkCanaryIp(ServerHttpRequest request) {
-        if (!StringUtils.hasText(canaryIpWhitelist)) {
-            return false;
-        }
+    static int bucket(String key, String salt) {
+        long h = ((long) key.hashCode() << 32) ^ (salt == null ? 0 : salt.hashCode() & 0xFFFFFFFFL);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) ((h >>> 1) % BUCKETS);
+    }
 
-        String clientIp = getClientIp(request);
-        List<String> whitelistIps = Arrays.asList(canaryIpWhitelist.split(","));
-        
-        boolean isInWhitelist = whitelistIps.stream()
-                .anyMatch(ip -> ip.trim().equals(clientIp));
-        
-        if (isInWhitelist) {
-            log.debug("IP灰度匹配: {}", clientIp);
+    /**
+     * 取出基础路由对应的灰度路由，路由刷新后（对象变化）重新构建
+     */
+    private CanaryRoute canaryRoute(Route route, Config config, Rules current) {
+        CanaryRoute cached = canaryRoutes.get(route.getId());
+        if (cached != null && cached.base == route) {
+            return cached;
         }
-        
-        return isInWhitelist;
+        CanaryRoute built = new CanaryRoute(route, buildCanaryRoute(route, config, current), meterRegistry);
+        canaryRoutes.put(route.getId(), built);
+        return built;
     }
 
     /**
      * 构建灰度路由
      * 
      * @param originalRoute 原始路由
-     * @param request HTTP请求
+     * @param config 过滤器配置
+     * @param current 当前灰度配置
      * @return 新的灰度路由
-     * @throws URISyntaxException URI构建异常
      */
-    private Route buildCanaryRoute(Route originalRoute, ServerHttpRequest request) throws URISyntaxException {
+    private Route buildCanaryRoute(Route originalRoute, Config config, Rules current) {
         URI newUri;
-        
+
         // 如果启用外部URL，使用外部地址
-        if (externalUrlEnabled && StringUtils.hasText(externalUrlTarget)) {
-            newUri = new URI(externalUrlTarget);
-            log.debug("使用外部灰度URL: {}", externalUrlTarget);
+        if (current.externalUrl != null) {
+            newUri = current.externalUrl;
         } else {
-            // 默认策略：在服务名后添加 -canary 后缀
-            String originalUriStr = originalRoute.getUri().toString();
-            String canaryUriStr = originalUriStr + "-canary";
-            newUri = new URI(canaryUriStr);
-            log.debug("使用服务名灰度策略: {} -> {}", originalUriStr, canaryUriStr);
+            // 默认策略：在服务名后添加版本后缀（默认 -canary）
+            newUri = URI.create(originalRoute.getUri().toString() + "-" + config.getVersion());
         }
+        log.info("构建灰度路由: {} -> {}", originalRoute.getUri(), newUri);
 
         // 构建新的路由对象
         return Route.async()
                 .asyncPredicate(originalRoute.getPredicate())
                 .filters(originalRoute.getFilters())
-                .id(originalRoute.getId() + "-canary")
+                .id(originalRoute.getId() + "-" + config.getVersion())
                 .order(originalRoute.getOrder())
+                .metadata(originalRoute.getMetadata())
                 .uri(newUri)
                 .build();
     }
 
+    private AtomicInteger effectiveWeight(String routeId) {
+        AtomicInteger weight = effectiveWeights.get(routeId);
+        if (weight == null) {
+            weight = effectiveWeights.computeIfAbsent(routeId, id ->
+                    meterRegistry.gauge("gateway.canary.weight", Tags.of("route", id), new AtomicInteger()));
+        }
+        return weight;
+    }
+
     /**
-     * 获取客户端真实IP地址
-     * 
-     * 支持多种代理环境下的IP获取：
-     * - X-Forwarded-For: 标准代理头
-     * - X-Real-IP: Nginx代理头
-     * - Proxy-Client-IP: Apache代理头
-     * 
-     * @param request HTTP请求
-     * @return 客户端IP地址
+     * 一次编译得到的灰度配置
      */
-    private String getClientIp(ServerHttpRequest request) {
-        // 优先级顺序检查各种代理头
-        String[] headers = {
-            "X-Forwarded-For",
-            "X-Real-IP", 
-            "Proxy-Client-IP",
-            "WL-Proxy-Client-IP",
-            "HTTP_CLIENT_IP",
-            "HTTP_X_FORWARDED_FOR"
-        };
+    private static final class Rules {
+        private final boolean enabled;
+        private final String headerKey;
+        private final Set<String> headerValues;
+        private final IpWhitelistMatcher ipMatcher;
+        private final int weight;
+        private final URI externalUrl;
 
-        for (String header : headers) {
-            String ip = request.getHeaders().getFirst(header);
-            if (StringUtils.hasText(ip) && !"unknown".equalsIgnoreCase(ip)) {
-                // 如果有多个IP，取第一个
-                if (ip.contains(",")) {
-                    ip = ip.split(",")[0].trim();
-                }
-                return ip;
-            }
+        private Rules(boolean enabled, String headerKey, Set<String> headerValues,
+                      IpWhitelistMatcher ipMatcher, int weight, URI externalUrl) {
+            this.enabled = enabled;
+            this.headerKey = headerKey;
+            this.headerValues = headerValues;
+            this.ipMatcher = ipMatcher;
+            this.weight = Math.min(BUCKETS, weight);
+            this.externalUrl = externalUrl;
         }
+    }
 
-        // 如果都没有，返回远程地址
-        return request.getRemoteAddress() != null ? 
-               request.getRemoteAddress().getAddress().getHostAddress() : "unknown";
+    /**
+     * 基础路由、灰度路由及各分流原因的计数器
+     */
+    private static final class CanaryRoute {
+        private final Route base;
+        private final Route canary;
+        private final Counter byHeader;
+        private final Counter byIp;
+        private final Counter byWeight;
+        private final Counter stable;
+
+        private CanaryRoute(Route base, Route canary, MeterRegistry registry) {
+            this.base = base;
+            this.canary = canary;
+            Tags tags = Tags.of("route", base.getId());
+            this.byHeader = registry.counter("gateway.canary.requests", tags.and("target", "canary", "reason", "header"));
+            this.byIp = registry.counter("gateway.canary.requests", tags.and("target", "canary", "reason", "ip"));
+            this.byWeight = registry.counter("gateway.canary.requests", tags.and("target", "canary", "reason", "weight"));
+            this.stable = registry.counter("gateway.canary.requests", tags.and("target", "stable", "reason", "none"));
+        }
     }
 
     /**
@@ -255,12 +346,11 @@ public class CanaryGatewayFilterFactory extends AbstractGatewayFilterFactory<Can
     public static class Config {
         /** 是否启用灰度发布 */
         private boolean enabled = true;
-        
-        /** 灰度权重 (0-100) */
+
+        /** 灰度权重 (0-100)，全局配置 canary.weight 优先 */
         private int weight = 10;
-        
-        /** 灰度版本标识 */
+
+        /** 灰度版本标识，同时作为灰度服务名后缀 */
         private String version = "canary";
     }
 }
-
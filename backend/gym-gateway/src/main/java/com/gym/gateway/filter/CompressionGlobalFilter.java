@@ -0,0 +1,108 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.compress.ContentCoding;
+import com.gym.gateway.compress.ResponseCompressor;
+import com.gym.gateway.compress.StreamingCompressor;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * 响应压缩全局过滤器
+ *
+ * 功能说明：
+ * 1. 客户端接受 gzip/deflate 且响应类型可压缩时，边接收上游响应边压缩，不缓存整个响应体
+ * 2. Content-Length 小于 compression.min-response-size 的响应不压缩
+ * 3. 已经带 Content-Encoding 的响应（包括响应缓存写出的预压缩内容）原样返回
+ * 4. 流式响应（writeAndFlushWith，如 SSE）不压缩，避免延迟推送
+ *
+ * 排在响应缓存和请求合并之前：它们保存和共享的都是未压缩的内容
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Component
+public class CompressionGlobalFilter implements GlobalFilter, Ordered {
+
+    @Autowired
+    private ResponseCompressor responseCompressor;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ContentCoding coding = responseCompressor.negotiate(exchange.getRequest());
+        if (coding == null) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "unknown";
+        return chain.filter(exchange.mutate()
+                .response(new CompressingResponse(exchange.getResponse(), coding, routeId))
+                .build());
+    }
+
+    @Override
+    public int getOrder() {
+        return -97;
+    }
+
+    private class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final ContentCoding coding;
+
+        private final String routeId;
+
+        CompressingResponse(ServerHttpResponse delegate, ContentCoding coding, String routeId) {
+            super(delegate);
+            this.coding = coding;
+            this.routeId = routeId;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            if (!responseCompressor.isCompressible(getRawStatusCode(), headers)) {
+                return super.writeWith(body);
+            }
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.set(HttpHeaders.CONTENT_ENCODING, coding.token());
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+            DataBufferFactory bufferFactory = bufferFactory();
+            StreamingCompressor compressor = responseCompressor.open(coding);
+            Flux<DataBuffer> compressed = Flux.from(body)
+                    .<byte[]>handle((buffer, sink) -> {
+                        byte[] chunk = new byte[buffer.readableByteCount()];
+                        buffer.read(chunk);
+                        DataBufferUtils.release(buffer);
+                        byte[] out = compressor.write(chunk);
+                        if (out.length > 0) {
+                            sink.next(out);
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(compressor::finish))
+                    .map(bufferFactory::wrap)
+                    .doFinally(signalType -> {
+                        if (signalType == SignalType.ON_COMPLETE) {
+                            responseCompressor.record(routeId, compressor);
+                        }
+                        compressor.close();
+                    });
+            return super.writeWith(compressed);
+        }
+    }
+}
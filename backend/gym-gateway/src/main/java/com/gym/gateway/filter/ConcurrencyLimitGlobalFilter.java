@@ -0,0 +1,171 @@
+package com.gym.gateway.filter;
+
+import com.alibaba.fastjson.JSON;
+import com.gym.gateway.config.ConcurrencyLimitProperties;
+import com.gym.gateway.limit.AdaptiveConcurrencyLimiter;
+import com.gym.result.RestResult;
+import com.gym.util.PathPatternMatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 自适应并发限制（负载保护）全局过滤器
+ * 
+ * 功能说明：
+ * 1. 按路由限制发往上游的在途请求数，上限根据上游延迟自动调整（见 AdaptiveConcurrencyLimiter）
+ * 2. 搜索、统计等低优先级请求先被拒绝，预约等写操作尽量保留
+ * 3. 被拒绝的请求立即返回 503 和 Retry-After，不进入重试和熔断
+ * 4. 在途计数包含网关重试的时间，重试放大的压力也会被限制住
+ * 5. 只有真正发到上游的请求参与调整上限：被 RequestRateLimiter 拒绝的 429、熔断器打开时直接返回的降级响应
+ *    都没有经过上游，它们的延迟和状态码不代表上游负载，只释放名额
+ * 
+ * 执行顺序：在认证之后执行，未认证的请求不占用名额
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class ConcurrencyLimitGlobalFilter implements GlobalFilter, Ordered {
+
+    @Autowired
+    private ConcurrencyLimitProperties properties;
+
+    /** 低优先级路径的预编译匹配器，配置中的列表被替换时重新编译 */
+    private volatile CompiledPaths lowPriorityMatcher;
+
+    /** 路由ID -> 限制器 */
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null) {
+            return chain.filter(exchange);
+        }
+        AdaptiveConcurrencyLimiter limiter = getLimiter(route.getId());
+        if (limiter == null) {
+            return chain.filter(exchange);
+        }
+
+        String path = exchange.getRequest().getPath().value();
+        boolean lowPriority = isLowPriority(path);
+        if (!limiter.tryAcquire(lowPriority)) {
+            log.warn("⛔ 负载保护拒绝请求 - 路由: {}, 路径: {}, 低优先级: {}, 在途: {}, 上限: {}",
+                    route.getId(), path, lowPriority, limiter.getInFlight(), limiter.getLimit());
+            return handleShed(exchange);
+        }
+
+        long startNanos = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signalType -> {
+                    if (signalType == SignalType.CANCEL || !reachedUpstream(exchange)) {
+                        limiter.releaseWithoutSample();
+                        return;
+                    }
+                    // 发到上游后熔断器超时走降级，同样按上游失败计
+                    HttpStatus status = exchange.getResponse().getStatusCode();
+                    boolean failed = signalType == SignalType.ON_ERROR
+                            || (status != null && status.is5xxServerError())
+                            || exchange.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR) != null;
+                    limiter.release(System.nanoTime() - startNanos, failed);
+                });
+    }
+
+    /**
+     * 各路由限制器的当前状态
+     * 
+     * @return 路由ID -> 上限/在途/累计拒绝数
+     */
+    public Map<String, AdaptiveConcurrencyLimiter> getLimiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+
+    /**
+     * 负载均衡已经选出实例（连接失败也算），或者已经收到上游响应
+     */
+    private static boolean reachedUpstream(ServerWebExchange exchange) {
+        return exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR) != null
+                || exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR) != null;
+    }
+
+    private AdaptiveConcurrencyLimiter getLimiter(String routeId) {
+        ConcurrencyLimitProperties.RouteLimit config = properties.getRoutes().get(routeId);
+        if (config == null) {
+            return null;
+        }
+        return limiters.computeIfAbsent(routeId, id -> new AdaptiveConcurrencyLimiter(
+                config.getInitialLimit(), config.getMinLimit(), config.getMaxLimit(),
+                config.getLatencyThreshold().toMillis(), config.getBackoffRatio(),
+                properties.getLowPriorityShare()));
+    }
+
+    private boolean isLowPriority(String path) {
+        List<String> patterns = properties.getLowPriorityPaths();
+        CompiledPaths compiled = lowPriorityMatcher;
+        if (compiled == null || compiled.source != patterns) {
+            compiled = new CompiledPaths(patterns, PathPatternMatcher.compile(patterns));
+            lowPriorityMatcher = compiled;
+        }
+        return compiled.matcher.matches(path);
+    }
+
+    private static final class CompiledPaths {
+        private final List<String> source;
+        private final PathPatternMatcher matcher;
+
+        private CompiledPaths(List<String> source, PathPatternMatcher matcher) {
+            this.source = source;
+            this.matcher = matcher;
+        }
+    }
+
+    /**
+     * 返回 503 和 Retry-After
+     * 
+     * @param exchange 服务器交换对象
+     * @return Mono<Void> 异步结果
+     */
+    private Mono<Void> handleShed(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        response.getHeaders().add(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, properties.getRetryAfter().getSeconds())));
+
+        RestResult<Object> result = RestResult.error("系统繁忙，请稍后重试", HttpStatus.SERVICE_UNAVAILABLE.value());
+        DataBuffer buffer = response.bufferFactory()
+                .wrap(JSON.toJSONString(result).getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    /**
+     * 过滤器执行顺序
+     * 
+     * @return 执行顺序 (在 AuthGlobalFilter 之后)
+     */
+    @Override
+    public int getOrder() {
+        return -90;
+    }
+}
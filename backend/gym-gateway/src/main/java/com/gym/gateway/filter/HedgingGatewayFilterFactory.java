@@ -0,0 +1,254 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.cache.DetachedServerHttpResponse;
+import com.gym.gateway.config.HedgingProperties;
+import com.gym.gateway.limit.RetryBudget;
+import com.gym.gateway.loadbalancer.LatencyAwareLoadBalancer;
+import com.gym.gateway.metrics.GatewayMetrics;
+import com.gym.util.PathPatternMatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 请求对冲过滤器工厂
+ * 
+ * 只对 hedging.paths 中的 GET 请求生效：
+ * 1. 先正常转发一次（主请求）
+ * 2. 超过路由最近一分钟的 p95 延迟（限制在 min-delay ~ max-delay 之间）还没收到响应头时，
+ *    再转发一次，并通过 EXCLUDE_INSTANCE_ATTR 让负载均衡器避开主请求所在的实例
+ * 3. 先收到响应头的一方胜出，另一方被取消（已经建立的上游连接直接关闭）；
+ *    一方失败时如果另一方还在进行，就继续等另一方，两方都失败才返回错误
+ * 4. 对冲次数受预算限制（复用 RetryBudget），上游整体变慢时不会把流量翻倍
+ * 
+ * 两次转发各自使用一份属性副本和一个不连接客户端的响应，互不干扰；胜出一方的状态码、响应头和
+ * 属性（包括上游连接）复制回原请求，响应体仍由 NettyWriteResponseFilter 直接从上游连接写给客户端。
+ * 需要放在路由过滤器的最后（在熔断、重试之内）。
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class HedgingGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgingGatewayFilterFactory.Config> {
+
+    @Autowired
+    private HedgingProperties properties;
+
+    @Autowired
+    private GatewayMetrics gatewayMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** 路由ID -> 对冲预算 */
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    private PathPatternMatcher pathMatcher;
+
+    public HedgingGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @PostConstruct
+    public void init() {
+        pathMatcher = PathPatternMatcher.compile(properties.getPaths());
+        log.info("请求对冲已配置 - 启用: {}, 路径数: {}", properties.isEnabled(), pathMatcher.size());
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() != null ? config.getRouteId() : "default";
+        return (exchange, chain) -> {
+            if (!properties.isEnabled() || exchange.getRequest().getMethod() != HttpMethod.GET
+                    || !pathMatcher.matches(originalPath(exchange))) {
+                return chain.filter(exchange);
+            }
+            return hedge(exchange, chain, routeId);
+        };
+    }
+
+    private Mono<Void> hedge(ServerWebExchange exchange, GatewayFilterChain chain, String routeId) {
+        RetryBudget budget = budget(routeId);
+        // 每个可对冲的请求都为对冲存入预算
+        budget.recordSuccess(System.nanoTime());
+
+        Attempt primary = new Attempt(exchange, null);
+        AtomicReference<Attempt> hedged = new AtomicReference<>();
+        // 还在进行中的转发数：一方失败时另一方还在进行就继续等，最后一个失败的才把错误返回
+        AtomicInteger inFlight = new AtomicInteger(1);
+        Mono<Attempt> hedge = Mono.delay(hedgeDelay(routeId))
+                .flatMap(tick -> {
+                    if (!budget.tryAcquireRetry(System.nanoTime())) {
+                        count(routeId, "exhausted");
+                        return Mono.never();
+                    }
+                    if (inFlight.getAndIncrement() == 0) {
+                        // 主请求已经失败，错误正在返回
+                        return Mono.never();
+                    }
+                    Attempt attempt = new Attempt(exchange, primary.instance());
+                    hedged.set(attempt);
+                    count(routeId, "sent");
+                    return attempt.run(chain).onErrorResume(e -> {
+                        log.debug("对冲请求失败 - 路由: {}, 原因: {}", routeId, e.getMessage());
+                        return deferToOther(inFlight, e);
+                    });
+                });
+        Mono<Attempt> primaryRun = primary.run(chain).onErrorResume(e -> {
+            if (inFlight.get() > 1) {
+                log.debug("主请求失败，等待对冲请求 - 路由: {}, 原因: {}", routeId, e.getMessage());
+            }
+            return deferToOther(inFlight, e);
+        });
+
+        return Mono.firstWithSignal(primaryRun, hedge)
+                .doOnNext(winner -> {
+                    Attempt hedgeAttempt = hedged.get();
+                    if (hedgeAttempt != null) {
+                        if (winner == hedgeAttempt) {
+                            count(routeId, "won");
+                            primary.discard();
+                        } else {
+                            hedgeAttempt.discard();
+                        }
+                    }
+                    winner.copyTo(exchange);
+                })
+                .then();
+    }
+
+    /**
+     * 一方失败：另一方还在进行时不发出信号（交给另一方决定结果），否则返回这个错误
+     */
+    private static Mono<Attempt> deferToOther(AtomicInteger inFlight, Throwable error) {
+        return inFlight.decrementAndGet() > 0 ? Mono.never() : Mono.error(error);
+    }
+
+    /**
+     * 等待时间：路由上一分钟的延迟分位数，限制在 [minDelay, maxDelay]；没有数据时用 maxDelay
+     */
+    private Duration hedgeDelay(String routeId) {
+        long percentileNanos = gatewayMetrics.routeLatencyPercentileNanos(routeId, properties.getPercentile());
+        long minNanos = properties.getMinDelay().toNanos();
+        long maxNanos = properties.getMaxDelay().toNanos();
+        return Duration.ofNanos(percentileNanos < 0 ? maxNanos : Math.min(maxNanos, Math.max(minNanos, percentileNanos)));
+    }
+
+    private RetryBudget budget(String routeId) {
+        RetryBudget budget = budgets.get(routeId);
+        if (budget == null) {
+            budget = budgets.computeIfAbsent(routeId, id -> new RetryBudget(properties.getBudgetRatio(),
+                    properties.getMinHedgesPerSecond(), (int) properties.getBudgetWindow().getSeconds()));
+        }
+        return budget;
+    }
+
+    private void count(String routeId, String outcome) {
+        meterRegistry.counter("gateway.hedge.requests", "route", routeId, "outcome", outcome).increment();
+    }
+
+    /**
+     * 网关收到的原始路径（StripPrefix 之前）
+     */
+    private static String originalPath(ServerWebExchange exchange) {
+        Set<URI> originalUrls = exchange.getAttributeOrDefault(
+                ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR, Collections.emptySet());
+        return originalUrls.isEmpty() ? exchange.getRequest().getPath().value()
+                : originalUrls.iterator().next().getRawPath();
+    }
+
+    /**
+     * 一次转发：独立的属性副本和响应，对冲请求在属性中带上要避开的实例
+     */
+    private static final class Attempt extends ServerWebExchangeDecorator {
+
+        private final Map<String, Object> attributes;
+
+        private final DetachedServerHttpResponse response;
+
+        private Attempt(ServerWebExchange exchange, String excludedInstance) {
+            super(exchange);
+            this.attributes = new ConcurrentHashMap<>(exchange.getAttributes());
+            if (excludedInstance == null) {
+                attributes.remove(LatencyAwareLoadBalancer.EXCLUDE_INSTANCE_ATTR);
+            } else {
+                attributes.put(LatencyAwareLoadBalancer.EXCLUDE_INSTANCE_ATTR, excludedInstance);
+            }
+            this.response = new DetachedServerHttpResponse(exchange.getResponse().bufferFactory(), 0);
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return response;
+        }
+
+        private Mono<Attempt> run(GatewayFilterChain chain) {
+            String excludedInstance = getAttribute(LatencyAwareLoadBalancer.EXCLUDE_INSTANCE_ATTR);
+            return LatencyAwareLoadBalancer.excluding(chain.filter(this), excludedInstance).thenReturn(this);
+        }
+
+        /**
+         * 负载均衡选中的实例（host:port），还没选出时为 null
+         */
+        private String instance() {
+            Response<ServiceInstance> lbResponse =
+                    getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            return lbResponse != null && lbResponse.hasServer()
+                    ? LatencyAwareLoadBalancer.instanceKey(lbResponse.getServer()) : null;
+        }
+
+        /**
+         * 落选的一方如果已经收到响应头，关闭它的上游连接
+         */
+        private void discard() {
+            Connection connection = getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+            if (connection != null && !connection.isDisposed()) {
+                connection.dispose();
+            }
+        }
+
+        private void copyTo(ServerWebExchange exchange) {
+            exchange.getAttributes().putAll(attributes);
+            ServerHttpResponse target = exchange.getResponse();
+            target.setRawStatusCode(response.getRawStatusCode());
+            target.getHeaders().putAll(response.getHeaders());
+        }
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+    }
+}
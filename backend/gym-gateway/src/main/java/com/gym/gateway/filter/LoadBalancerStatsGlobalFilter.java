@@ -0,0 +1,64 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.loadbalancer.LoadBalancerStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * 负载均衡统计全局过滤器
+ * 
+ * 在负载均衡选好实例之后、真正转发之前执行，记录选中实例的在途请求数和每次转发的延迟（到收到响应头为止），
+ * 转发异常或返回 502/503/504 计为失败。供 LatencyAwareLoadBalancer 打分和摘除实例使用。
+ * 
+ * 不使用 LoadBalancerLifecycle 回调：客户端断开时它不会收到完成通知，在途计数会一直偏高。
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Component
+public class LoadBalancerStatsGlobalFilter implements GlobalFilter, Ordered {
+
+    @Autowired
+    private LoadBalancerStats loadBalancerStats;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> lbResponse =
+                exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return chain.filter(exchange);
+        }
+        ServiceInstance instance = lbResponse.getServer();
+        long startNanos = System.nanoTime();
+        loadBalancerStats.requestStarted(instance);
+        return chain.filter(exchange).doFinally(signalType -> {
+            if (signalType == SignalType.CANCEL) {
+                loadBalancerStats.requestAbandoned(instance);
+            } else {
+                loadBalancerStats.requestFinished(instance, System.nanoTime() - startNanos,
+                        signalType == SignalType.ON_ERROR || isUnavailable(exchange));
+            }
+        });
+    }
+
+    private static boolean isUnavailable(ServerWebExchange exchange) {
+        HttpStatus status = exchange.getResponse().getStatusCode();
+        return status == HttpStatus.BAD_GATEWAY || status == HttpStatus.SERVICE_UNAVAILABLE
+                || status == HttpStatus.GATEWAY_TIMEOUT;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 2;
+    }
+}
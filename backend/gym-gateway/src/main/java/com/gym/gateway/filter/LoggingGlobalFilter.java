@@ -1,27 +1,28 @@
 package com.gym.gateway.filter;
 
+import com.gym.gateway.accesslog.AccessLogWriter;
+import com.gym.gateway.context.RequestContext;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
-
 /**
  * 日志记录全局过滤器
  * 
  * 功能说明：
- * 1. 记录请求和响应信息
- * 2. 生成链路追踪ID
- * 3. 计算请求处理时间
- * 4. 监控接口性能
+ * 1. 链路追踪ID、客户端IP和开始时间取自 RequestContext（请求进入时计算一次）
+ * 2. 每个请求在结束时输出一条结构化访问日志（JSON），包含耗时、状态码、路由和用户ID
+ * 3. 日志由 AccessLogWriter 异步写出，请求线程不做格式化和 IO
+ * 4. 2xx 按配置采样，4xx/5xx、异常和慢请求总是记录（见 access-log 配置）
  * 
  * @author gym-system
  * @version 1.0
@@ -30,12 +31,11 @@ import java.util.UUID;
 @Component
 public class LoggingGlobalFilter implements GlobalFilter, Ordered {
 
-    /** 时间格式化器 */
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = 
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    /** 客户端断开连接时记录的状态码（与 Nginx 一致） */
+    private static final int CLIENT_CLOSED_REQUEST = 499;
 
-    /** 链路追踪ID请求头名称 */
-    private static final String TRACE_ID_HEADER = "X-Trace-Id";
+    @Autowired
+    private AccessLogWriter accessLogWriter;
 
     /**
      * 过滤器执行逻辑
@@ -46,182 +46,42 @@ public class LoggingGlobalFilter implements GlobalFilter, Ordered {
      */
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
-        ServerHttpResponse response = exchange.getResponse();
-        
-        // 生成链路追踪ID
-        String traceId = generateTraceId();
-        
-        // 记录请求开始时间
-        long startTime = System.currentTimeMillis();
-        String startTimeStr = LocalDateTime.now().format(DATE_TIME_FORMATTER);
-        
-        // 提取请求信息
-        String method = request.getMethod().toString();
-        String path = request.getPath().value();
-        String query = request.getURI().getQuery();
-        String userAgent = request.getHeaders().getFirst("User-Agent");
-        String clientIp = getClientIp(request);
-        String referer = request.getHeaders().getFirst("Referer");
-        
-        // 构建完整URL
-        String fullUrl = path + (query != null ? "?" + query : "");
-        
-        // 记录请求开始日志
-        log.info("🚀 请求开始 [{}] - {} {} - 客户端IP: {} - 时间: {} - UserAgent: {}", 
-                traceId, method, fullUrl, clientIp, startTimeStr, userAgent);
-        
-        // 记录请求头信息 (仅在DEBUG级别)
+        RequestContext context = RequestContext.of(exchange);
+
         if (log.isDebugEnabled()) {
-            log.debug("📥 请求头 [{}] - {}", traceId, request.getHeaders().toSingleValueMap());
-            if (referer != null) {
-                log.debug("🔗 来源页面 [{}] - {}", traceId, referer);
-            }
+            ServerHttpRequest request = exchange.getRequest();
+            log.debug("请求开始 [{}] - {} {} - 请求头: {}", context.getTraceId(), request.getMethod(),
+                    request.getPath().value(), request.getHeaders().toSingleValueMap());
         }
-        
-        // 将链路追踪ID添加到请求头和响应头
-        ServerHttpRequest mutatedRequest = request.mutate()
-                .header(TRACE_ID_HEADER, traceId)
-                .build();
-        
-        response.getHeaders().add(TRACE_ID_HEADER, traceId);
-        
-        // 创建新的交换对象
-        ServerWebExchange mutatedExchange = exchange.mutate()
-                .request(mutatedRequest)
-                .build();
-        
-        // 继续执行过滤器链，并在完成后记录响应信息
-        return chain.filter(mutatedExchange)
+
+        return chain.filter(exchange)
                 .doOnSuccess(aVoid -> {
-                    // 请求成功完成
-                    logRequestCompletion(traceId, method, fullUrl, clientIp, 
-                                       startTime, response.getStatusCode().value(), true);
-                })
-                .doOnError(throwable -> {
-                    // 请求处理出错
-                    log.error("❌ 请求异常 [{}] - {} {} - 客户端IP: {} - 错误: {}", 
-                            traceId, method, fullUrl, clientIp, throwable.getMessage());
-                    logRequestCompletion(traceId, method, fullUrl, clientIp, 
-                                       startTime, 500, false);
+                    HttpStatus status = exchange.getResponse().getStatusCode();
+                    logAccess(exchange, context, status != null ? status.value() : HttpStatus.OK.value(), null);
                 })
-                .doFinally(signalType -> {
-                    // 无论成功还是失败都会执行
-                    log.debug("🏁 请求结束 [{}] - 信号类型: {}", traceId, signalType);
-                });
+                .doOnError(throwable -> logAccess(exchange, context,
+                        HttpStatus.INTERNAL_SERVER_ERROR.value(), String.valueOf(throwable.getMessage())))
+                .doOnCancel(() -> logAccess(exchange, context, CLIENT_CLOSED_REQUEST, null));
     }
 
     /**
-     * 记录请求完成信息
+     * 请求结束时记录一条访问日志
      * 
-     * @param traceId 链路追踪ID
-     * @param method HTTP方法
-     * @param fullUrl 完整URL
-     * @param clientIp 客户端IP
-     * @param startTime 开始时间
+     * @param exchange 服务器交换对象
+     * @param context 请求上下文（链路追踪ID、客户端IP、开始时间、用户ID）
      * @param statusCode 响应状态码
-     * @param success 是否成功
-     */
-    private void logRequestCompletion(String traceId, String method, String fullUrl, 
-                                    String clientIp, long startTime, int statusCode, boolean success) {
-        long endTime = System.currentTimeMillis();
-        long duration = endTime - startTime;
-        String endTimeStr = LocalDateTime.now().format(DATE_TIME_FORMATTER);
-        
-        // 根据响应时间和状态码选择不同的日志级别
-        String statusEmoji = getStatusEmoji(statusCode);
-        String performanceEmoji = getPerformanceEmoji(duration);
-        
-        if (success && statusCode < 400) {
-            log.info("✅ 请求完成 [{}] - {} {} - 状态码: {}{} - 耗时: {}ms{} - 客户端IP: {} - 时间: {}", 
-                    traceId, method, fullUrl, statusCode, statusEmoji, duration, performanceEmoji, clientIp, endTimeStr);
-        } else {
-            log.warn("⚠️ 请求异常 [{}] - {} {} - 状态码: {}{} - 耗时: {}ms{} - 客户端IP: {} - 时间: {}", 
-                    traceId, method, fullUrl, statusCode, statusEmoji, duration, performanceEmoji, clientIp, endTimeStr);
-        }
-        
-        // 性能监控：记录慢请求
-        if (duration > 2000) { // 超过2秒的请求
-            log.warn("🐌 慢请求告警 [{}] - {} {} - 耗时: {}ms - 客户端IP: {}", 
-                    traceId, method, fullUrl, duration, clientIp);
-        }
-    }
-
-    /**
-     * 生成链路追踪ID
-     * 
-     * @return 链路追踪ID
-     */
-    private String generateTraceId() {
-        return UUID.randomUUID().toString().replace("-", "").substring(0, 16);
-    }
-
-    /**
-     * 获取客户端真实IP地址
-     * 
-     * @param request HTTP请求
-     * @return 客户端IP地址
-     */
-    private String getClientIp(ServerHttpRequest request) {
-        // 尝试从各种代理头中获取真实IP
-        String[] headers = {
-            "X-Forwarded-For", "X-Real-IP", "Proxy-Client-IP", 
-            "WL-Proxy-Client-IP", "HTTP_CLIENT_IP", "HTTP_X_FORWARDED_FOR"
-        };
-
-        for (String header : headers) {
-            String ip = request.getHeaders().getFirst(header);
-            if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
-                // 如果有多个IP，取第一个
-                if (ip.contains(",")) {
-                    ip = ip.split(",")[0].trim();
-                }
-                return ip;
-            }
-        }
-
-        // 如果都没有，返回远程地址
-        return request.getRemoteAddress() != null ? 
-               request.getRemoteAddress().getAddress().getHostAddress() : "unknown";
-    }
-
-    /**
-     * 根据HTTP状态码获取对应的表情符号
-     * 
-     * @param statusCode HTTP状态码
-     * @return 表情符号
+     * @param error 异常信息，没有异常时为空
      */
-    private String getStatusEmoji(int statusCode) {
-        if (statusCode >= 200 && statusCode < 300) {
-            return " ✅"; // 成功
-        } else if (statusCode >= 300 && statusCode < 400) {
-            return " 🔄"; // 重定向
-        } else if (statusCode >= 400 && statusCode < 500) {
-            return " ❌"; // 客户端错误
-        } else if (statusCode >= 500) {
-            return " 💥"; // 服务器错误
-        }
-        return "";
-    }
-
-    /**
-     * 根据响应时间获取性能表情符号
-     * 
-     * @param duration 响应时间(毫秒)
-     * @return 性能表情符号
-     */
-    private String getPerformanceEmoji(long duration) {
-        if (duration < 100) {
-            return " ⚡"; // 极快
-        } else if (duration < 500) {
-            return " 🚀"; // 快
-        } else if (duration < 1000) {
-            return " 🏃"; // 正常
-        } else if (duration < 2000) {
-            return " 🚶"; // 较慢
-        } else {
-            return " 🐌"; // 很慢
+    private void logAccess(ServerWebExchange exchange, RequestContext context, int statusCode, String error) {
+        long duration = (System.nanoTime() - context.getStartNanos()) / 1_000_000;
+        if (!accessLogWriter.shouldLog(statusCode, duration, error != null)) {
+            return;
         }
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        accessLogWriter.append(context.getStartTimeMillis(), context.getTraceId(), request.getMethodValue(),
+                request.getPath().value(), request.getURI().getRawQuery(), context.getClientIp(),
+                route != null ? route.getId() : null, context.getUserId(), statusCode, duration, error);
     }
 
     /**
@@ -234,4 +94,3 @@ public class LoggingGlobalFilter implements GlobalFilter, Ordered {
         return -200; // 最高优先级，确保在所有其他过滤器之前执行
     }
 }
-
@@ -0,0 +1,172 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.cache.CachedResponse;
+import com.gym.gateway.cache.ResponseCache;
+import com.gym.gateway.config.RequestCoalescingProperties;
+import com.gym.util.PathPatternMatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 相同请求合并全局过滤器
+ *
+ * 功能说明（只处理 request-coalescing.paths 中的 GET 请求）：
+ * 1. 路由、路径、查询参数和 vary 请求头都相同的请求同时到达时，只有第一个（leader）转发到上游
+ * 2. leader 的响应一边写给自己的客户端，一边在内存中保留一份；完成后通过 Sinks.One 发给所有等待的请求
+ * 3. 响应体超过 max-body-size、带 Set-Cookie 或以流式写出时不共享，等待的请求各自转发
+ * 4. leader 失败或被取消时，等待的请求同样各自转发
+ *
+ * 合并的响应带 X-Coalesced: true
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Component
+public class RequestCoalescingGlobalFilter implements GlobalFilter, Ordered {
+
+    public static final String COALESCED_HEADER = "X-Coalesced";
+
+    @Autowired
+    private RequestCoalescingProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** 请求 key -> 正在进行的 leader 请求的结果 */
+    private final Map<String, Sinks.One<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private PathPatternMatcher pathMatcher;
+
+    @PostConstruct
+    public void init() {
+        pathMatcher = PathPatternMatcher.compile(properties.getPaths());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || request.getMethod() != HttpMethod.GET
+                || !pathMatcher.matches(request.getPath().value())) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String key = (route != null ? route.getId() : "") + "|"
+                + ResponseCache.requestKey(request, properties.getVaryHeaders());
+
+        Sinks.One<CachedResponse> sink = Sinks.one();
+        Sinks.One<CachedResponse> leader = inFlight.putIfAbsent(key, sink);
+        if (leader != null) {
+            count("joined");
+            return leader.asMono()
+                    .map(shared -> write(exchange.getResponse(), shared))
+                    .switchIfEmpty(Mono.fromSupplier(() -> {
+                        count("fallthrough");
+                        return chain.filter(exchange);
+                    }))
+                    .flatMap(Function.identity());
+        }
+
+        count("leader");
+        LeaderResponse response = new LeaderResponse(exchange.getResponse(), key, sink);
+        return chain.filter(exchange.mutate().response(response).build())
+                .doFinally(signalType -> {
+                    // 没有发出共享结果（失败、取消、不可共享）时让等待的请求各自转发
+                    inFlight.remove(key, sink);
+                    sink.tryEmitEmpty();
+                });
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, CachedResponse shared) {
+        response.setRawStatusCode(shared.getStatus());
+        HttpHeaders headers = response.getHeaders();
+        headers.setContentType(shared.getContentType());
+        headers.setContentLength(shared.getBody().length);
+        headers.set(COALESCED_HEADER, "true");
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.getBody())));
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("gateway.coalescing.requests", "result", result).increment();
+    }
+
+    @Override
+    public int getOrder() {
+        // 在响应缓存之后（命中缓存的请求不需要合并）、并发限制之前（等待的请求不占并发名额）
+        return -93;
+    }
+
+    /**
+     * leader 的响应包装：边写边保留响应体，写完后发给等待的请求
+     */
+    private class LeaderResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+
+        private final Sinks.One<CachedResponse> sink;
+
+        LeaderResponse(ServerHttpResponse delegate, String key, Sinks.One<CachedResponse> sink) {
+            super(delegate);
+            this.key = key;
+            this.sink = sink;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (getHeaders().containsKey(HttpHeaders.SET_COOKIE)) {
+                return super.writeWith(body);
+            }
+            int maxBodySize = properties.getMaxBodySize();
+            ByteArrayOutputStream captured = new ByteArrayOutputStream();
+            AtomicBoolean tooLarge = new AtomicBoolean();
+            Flux<DataBuffer> tee = Flux.from(body).doOnNext(buffer -> {
+                int size = buffer.readableByteCount();
+                if (tooLarge.get()) {
+                    return;
+                }
+                if (captured.size() + size > maxBodySize) {
+                    // 超过大小限制，不再保留
+                    tooLarge.set(true);
+                    captured.reset();
+                    return;
+                }
+                ByteBuffer view = buffer.asByteBuffer();
+                byte[] chunk = new byte[size];
+                view.get(chunk);
+                captured.write(chunk, 0, size);
+            });
+            return super.writeWith(tee).doOnSuccess(aVoid -> {
+                if (!tooLarge.get() && getRawStatusCode() != null) {
+                    // 先移除再发出，之后到达的请求成为新的 leader，不会拿到已经发出的结果
+                    inFlight.remove(key, sink);
+                    sink.tryEmitValue(new CachedResponse(getRawStatusCode(), getHeaders().getContentType(),
+                            captured.toByteArray(), System.nanoTime()));
+                }
+            });
+        }
+    }
+}
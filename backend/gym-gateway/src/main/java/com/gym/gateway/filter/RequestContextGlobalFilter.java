@@ -0,0 +1,34 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.context.RequestContext;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 请求上下文全局过滤器
+ * 
+ * 在所有过滤器之前创建 RequestContext（链路追踪ID、客户端IP、开始时间），并把链路追踪ID写入响应头；
+ * 转发请求头中的链路追踪ID由 RequestHeadersGlobalFilter 统一写入
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Component
+public class RequestContextGlobalFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestContext context = RequestContext.of(exchange);
+        exchange.getResponse().getHeaders().set(RequestContext.TRACE_ID_HEADER, context.getTraceId());
+        return chain.filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return -250;
+    }
+}
@@ -0,0 +1,43 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.context.RequestContext;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 请求头全局过滤器
+ * 
+ * 把前面过滤器记录在 RequestContext 中的请求头修改（链路追踪ID、身份头、删除伪造的身份头）
+ * 一次性应用到转发请求上，整条链只创建一次新的请求和交换对象
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Component
+public class RequestHeadersGlobalFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestContext context = exchange.getAttribute(RequestContext.ATTR);
+        if (context == null || !context.hasRequestHeaderChanges()) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(context::applyRequestHeaderChanges)
+                .build();
+        return chain.filter(exchange.mutate().request(request).build());
+    }
+
+    /**
+     * 在认证和并发限制之后、路由过滤器之前执行
+     */
+    @Override
+    public int getOrder() {
+        return -85;
+    }
+}
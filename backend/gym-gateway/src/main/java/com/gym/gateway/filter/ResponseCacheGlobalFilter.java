@@ -0,0 +1,220 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.cache.CachedResponse;
+import com.gym.gateway.cache.DetachedServerHttpResponse;
+import com.gym.gateway.cache.ResponseCache;
+import com.gym.gateway.compress.ResponseCompressor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 响应缓存全局过滤器
+ *
+ * 功能说明（只处理 response-cache.paths 中的 GET 请求）：
+ * 1. 新鲜期内直接返回缓存，不访问上游
+ * 2. 新鲜期过后的 stale-while-revalidate 时间内，先返回旧响应，同时在后台走一遍完整的过滤器链刷新缓存
+ * 3. 未命中时正常转发，成功的响应一边写给客户端一边保存
+ * 4. 上游失败（熔断降级、5xx、异常）且有 stale-if-error 时间内的旧响应时，返回旧响应代替降级结果
+ *
+ * 响应头 X-Cache 标明命中情况（HIT/STALE/STALE_IF_ERROR/MISS），Age 为缓存的秒数；
+ * 客户端接受 gzip 时返回条目预先压缩好的响应体，不再每次压缩
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class ResponseCacheGlobalFilter implements GlobalFilter, Ordered {
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Autowired
+    private ResponseCompressor responseCompressor;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!responseCache.isCacheable(exchange.getRequest())) {
+            return chain.filter(exchange);
+        }
+        String key = responseCache.key(exchange.getRequest());
+        CachedResponse cached = responseCache.get(key);
+        long now = System.nanoTime();
+
+        if (cached != null && responseCache.isFresh(cached, now)) {
+            responseCache.record(ResponseCache.Result.HIT);
+            return writeCached(exchange, exchange.getResponse(), cached, ResponseCache.Result.HIT);
+        }
+        if (cached != null && responseCache.isRevalidatable(cached, now)) {
+            responseCache.record(ResponseCache.Result.STALE);
+            if (cached.tryStartRevalidation()) {
+                revalidate(exchange, chain, key, cached);
+            }
+            return writeCached(exchange, exchange.getResponse(), cached, ResponseCache.Result.STALE);
+        }
+
+        responseCache.record(ResponseCache.Result.MISS);
+        CachedResponse fallback = cached != null && responseCache.isUsableOnError(cached, now) ? cached : null;
+        CachingResponse response = new CachingResponse(exchange, key, fallback);
+        return chain.filter(exchange.mutate().response(response).build())
+                .onErrorResume(e -> {
+                    if (fallback == null || exchange.getResponse().isCommitted()) {
+                        return Mono.error(e);
+                    }
+                    log.warn("上游请求失败，返回缓存的旧响应 - 路径: {}, 原因: {}",
+                            exchange.getRequest().getPath().value(), e.getMessage());
+                    responseCache.record(ResponseCache.Result.STALE_IF_ERROR);
+                    return writeCached(exchange, exchange.getResponse(), fallback, ResponseCache.Result.STALE_IF_ERROR);
+                });
+    }
+
+    /**
+     * 在后台用不连接客户端的响应重新走一遍过滤器链（认证头、负载均衡、熔断都照常生效），成功后替换缓存
+     *
+     * 后台请求使用属性的副本：exchange.mutate() 会共享属性，后台的路由结果、已路由标记、上游连接会写进客户端请求
+     */
+    private void revalidate(ServerWebExchange exchange, GatewayFilterChain chain, String key, CachedResponse cached) {
+        DetachedServerHttpResponse detached = new DetachedServerHttpResponse(
+                exchange.getResponse().bufferFactory(), responseCache.getMaxBodySize());
+        ServerWebExchange background = new RevalidationExchange(exchange, detached);
+        chain.filter(background)
+                .then(Mono.fromRunnable(() -> {
+                    // 熔断降级的结果也是 HTTP 200，不能当作新数据
+                    if (background.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR) == null) {
+                        responseCache.putIfCacheable(key, detached.getStatusCode(), detached.getHeaders(),
+                                detached.getBody(), System.nanoTime());
+                    }
+                }))
+                .doFinally(signalType -> cached.finishRevalidation())
+                .subscribe(null, e -> log.debug("后台刷新缓存失败 - key: {}, 原因: {}", key, e.getMessage()));
+    }
+
+    /**
+     * 写出缓存的响应，客户端接受 gzip 时直接使用预先压缩的响应体
+     */
+    private Mono<Void> writeCached(ServerWebExchange exchange, ServerHttpResponse response,
+                                   CachedResponse cached, ResponseCache.Result result) {
+        response.setRawStatusCode(cached.getStatus());
+        ResponseCache.applyHeaders(response.getHeaders(), cached, result, System.nanoTime());
+        byte[] body = responseCompressor.encodeCached(exchange.getRequest(), response.getHeaders(), cached);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    @Override
+    public int getOrder() {
+        // 在认证之后（缓存只对已通过认证的请求返回）、并发限制之前（命中缓存不占并发名额）
+        return -95;
+    }
+
+    /**
+     * 后台刷新用的请求：与客户端请求共用 request，属性和响应各自独立
+     */
+    private static final class RevalidationExchange extends ServerWebExchangeDecorator {
+
+        private final Map<String, Object> attributes;
+
+        private final DetachedServerHttpResponse response;
+
+        private RevalidationExchange(ServerWebExchange exchange, DetachedServerHttpResponse response) {
+            super(exchange);
+            this.attributes = new ConcurrentHashMap<>(exchange.getAttributes());
+            this.response = response;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return response;
+        }
+    }
+
+    /**
+     * 未命中时的响应包装：成功的响应边写边保存，上游失败时换成旧响应
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+
+        private final String key;
+
+        private final CachedResponse fallback;
+
+        CachingResponse(ServerWebExchange exchange, String key, CachedResponse fallback) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            boolean upstreamFailed = exchange.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR) != null
+                    || (getStatusCode() != null && getStatusCode().is5xxServerError());
+            if (upstreamFailed) {
+                if (fallback == null) {
+                    return super.writeWith(body);
+                }
+                log.warn("上游不可用，返回缓存的旧响应 - 路径: {}", exchange.getRequest().getPath().value());
+                responseCache.record(ResponseCache.Result.STALE_IF_ERROR);
+                return Flux.from(body).doOnNext(DataBufferUtils::release)
+                        .then(writeCached(exchange, getDelegate(), fallback, ResponseCache.Result.STALE_IF_ERROR));
+            }
+            if (getStatusCode() != HttpStatus.OK) {
+                return super.writeWith(body);
+            }
+
+            getHeaders().set("X-Cache", ResponseCache.Result.MISS.name());
+            int maxBodySize = responseCache.getMaxBodySize();
+            ByteArrayOutputStream captured = new ByteArrayOutputStream();
+            AtomicBoolean tooLarge = new AtomicBoolean();
+            Flux<DataBuffer> tee = Flux.from(body).doOnNext(buffer -> {
+                int size = buffer.readableByteCount();
+                if (tooLarge.get()) {
+                    return;
+                }
+                if (captured.size() + size > maxBodySize) {
+                    // 超过大小限制，只转发不保存
+                    tooLarge.set(true);
+                    captured.reset();
+                    return;
+                }
+                // asByteBuffer 不移动读指针，不影响后续写给客户端
+                ByteBuffer view = buffer.asByteBuffer();
+                byte[] chunk = new byte[size];
+                view.get(chunk);
+                captured.write(chunk, 0, size);
+            });
+            return super.writeWith(tee).doOnSuccess(aVoid -> {
+                if (!tooLarge.get()) {
+                    responseCache.putIfCacheable(key, getStatusCode(), getHeaders(), captured.toByteArray(),
+                            System.nanoTime());
+                }
+            });
+        }
+    }
+}
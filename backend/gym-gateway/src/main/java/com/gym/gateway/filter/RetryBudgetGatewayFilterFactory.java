@@ -0,0 +1,199 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.config.RetryBudgetProperties;
+import com.gym.gateway.limit.RetryBudget;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.event.EnableBodyCachingEvent;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory.BackoffConfig;
+import org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory.RetryConfig;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 带重试预算的重试过滤器工厂
+ * 
+ * 配置与内置的 Retry 过滤器相同（RetryConfig），重试判断在内置规则之外增加两条：
+ * 1. 非幂等方法（POST/PATCH）只有带 Idempotency-Key 请求头时才重试，gym-server 会对重复的 key 回放第一次的响应
+ * 2. 每个路由的重试次数受 RetryBudget 限制，上游整体故障时不会放大流量
+ * 
+ * 重试执行与内置过滤器一致：先按异常重试（Retry），再按状态码重复请求（repeatWhen），每次重试前重置上一次的响应；
+ * 使用 reactor-core 的 reactor.util.retry.Retry，不依赖已废弃的 reactor-extra（reactor.retry）
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class RetryBudgetGatewayFilterFactory extends AbstractGatewayFilterFactory<RetryConfig> {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /** 重复执行没有副作用的方法 */
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = EnumSet.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.TRACE);
+
+    @Autowired
+    private RetryGatewayFilterFactory retryGatewayFilterFactory;
+
+    @Autowired
+    private RetryBudgetProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** 路由ID -> 重试预算 */
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    public RetryBudgetGatewayFilterFactory() {
+        super(RetryConfig.class);
+    }
+
+    @Override
+    public GatewayFilter apply(RetryConfig retryConfig) {
+        retryConfig.validate();
+        String routeId = retryConfig.getRouteId() != null ? retryConfig.getRouteId() : "default";
+
+        boolean retryOnStatus = !retryConfig.getStatuses().isEmpty() || !retryConfig.getSeries().isEmpty();
+        boolean retryOnException = !retryConfig.getExceptions().isEmpty();
+        // 重试时要重新发送请求体，与内置过滤器一样通知路由缓存请求体
+        if (retryConfig.getRouteId() != null && getPublisher() != null) {
+            getPublisher().publishEvent(new EnableBodyCachingEvent(this, retryConfig.getRouteId()));
+        }
+
+        return (exchange, chain) -> {
+            Mono<Void> attempt = Mono.defer(() -> chain.filter(exchange))
+                    .doOnSuccess(aVoid -> nextIteration(exchange))
+                    .doOnError(e -> nextIteration(exchange));
+            if (retryOnException) {
+                attempt = attempt.retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                    if (signal.totalRetries() >= retryConfig.getRetries()
+                            || !isRetryableException(exchange, retryConfig, routeId, signal.failure())) {
+                        return Mono.error(signal.failure());
+                    }
+                    reset(exchange);
+                    return delay(retryConfig.getBackoff(), signal.totalRetries());
+                })));
+            }
+            Mono<Void> filtered = attempt;
+            if (retryOnStatus) {
+                // companion 完成即停止重复，最后一次的响应就是结果
+                filtered = attempt.repeatWhen(completions -> completions
+                        .takeWhile(completion -> isRetryableStatus(exchange, retryConfig, routeId))
+                        .concatMap(completion -> {
+                            reset(exchange);
+                            // 第一次请求后迭代号为 0，正好是这次重试的序号
+                            int retry = exchange.getAttributeOrDefault(RetryGatewayFilterFactory.RETRY_ITERATION_KEY, 0);
+                            return delay(retryConfig.getBackoff(), retry);
+                        }))
+                        .then();
+            }
+            return filtered.doOnSuccess(aVoid -> {
+                    HttpStatus status = exchange.getResponse().getStatusCode();
+                if (status == null || !status.is5xxServerError()) {
+                    budget(routeId).recordSuccess(System.nanoTime());
+                }
+            });
+        };
+    }
+
+    private boolean isRetryableStatus(ServerWebExchange exchange, RetryConfig retryConfig, String routeId) {
+        if (retryGatewayFilterFactory.exceedsMaxIterations(exchange, retryConfig)) {
+            return false;
+        }
+        HttpStatus statusCode = exchange.getResponse().getStatusCode();
+        boolean retryableStatusCode = retryConfig.getStatuses().contains(statusCode)
+                || (statusCode != null && retryConfig.getSeries().contains(statusCode.series()));
+        return retryableStatusCode && shouldRetry(exchange, retryConfig, routeId);
+    }
+
+    private boolean isRetryableException(ServerWebExchange exchange, RetryConfig retryConfig, String routeId,
+                                         Throwable exception) {
+        if (retryGatewayFilterFactory.exceedsMaxIterations(exchange, retryConfig)) {
+            return false;
+        }
+        boolean retryableException = retryConfig.getExceptions().stream().anyMatch(retryableClass ->
+                retryableClass.isInstance(exception)
+                        || (exception != null && retryableClass.isInstance(exception.getCause())));
+        return retryableException && shouldRetry(exchange, retryConfig, routeId);
+    }
+
+    /**
+     * 方法和预算检查，放在状态码/异常判断之后，只有确实要重试时才消耗预算
+     */
+    private boolean shouldRetry(ServerWebExchange exchange, RetryConfig retryConfig, String routeId) {
+        HttpMethod method = exchange.getRequest().getMethod();
+        if (!retryConfig.getMethods().contains(method)) {
+            return false;
+        }
+        if (!IDEMPOTENT_METHODS.contains(method)
+                && !exchange.getRequest().getHeaders().containsKey(IDEMPOTENCY_KEY_HEADER)) {
+            log.debug("非幂等请求未携带 Idempotency-Key，不重试: {} {}", method, exchange.getRequest().getPath());
+            return false;
+        }
+        if (properties.isEnabled() && !budget(routeId).tryAcquireRetry(System.nanoTime())) {
+            meterRegistry.counter("gateway.retry.budget.exhausted", "route", routeId).increment();
+            log.debug("重试预算已用完，不再重试 - 路由: {}", routeId);
+            return false;
+        }
+        return true;
+    }
+
+    private RetryBudget budget(String routeId) {
+        RetryBudget budget = budgets.get(routeId);
+        if (budget == null) {
+            budget = budgets.computeIfAbsent(routeId, id -> new RetryBudget(properties.getRatio(),
+                    properties.getMinRetriesPerSecond(), (int) properties.getWindow().getSeconds()));
+        }
+        return budget;
+    }
+
+    /**
+     * 记录已经执行的次数，exceedsMaxIterations 按这个属性判断是否超过 retries
+     */
+    private static void nextIteration(ServerWebExchange exchange) {
+        int iteration = exchange.getAttributeOrDefault(RetryGatewayFilterFactory.RETRY_ITERATION_KEY, -1);
+        exchange.getAttributes().put(RetryGatewayFilterFactory.RETRY_ITERATION_KEY, iteration + 1);
+    }
+
+    /**
+     * 重试前丢弃上一次的响应：释放上游连接，移除上游写入的响应头和已路由标记
+     */
+    private static void reset(ServerWebExchange exchange) {
+        Connection connection = exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        if (connection != null) {
+            connection.dispose();
+            exchange.getAttributes().remove(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        }
+        ServerWebExchangeUtils.reset(exchange);
+    }
+
+    /**
+     * 第 retry 次（从 0 开始）重试前的等待：firstBackoff * factor^retry，不超过 maxBackoff；没有配置退避时立即重试
+     */
+    private static Mono<?> delay(BackoffConfig backoff, long retry) {
+        if (backoff == null) {
+            return Mono.just(retry);
+        }
+        long first = backoff.getFirstBackoff().toMillis();
+        long max = backoff.getMaxBackoff() != null ? backoff.getMaxBackoff().toMillis() : Long.MAX_VALUE;
+        double millis = first * Math.pow(backoff.getFactor(), Math.max(0, retry));
+        return Mono.delay(Duration.ofMillis((long) Math.min(millis, max)));
+    }
+}
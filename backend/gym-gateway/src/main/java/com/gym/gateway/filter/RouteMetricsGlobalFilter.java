@@ -0,0 +1,65 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.metrics.GatewayMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * 路由级指标全局过滤器
+ * 
+ * 统计每个路由的端到端延迟（含认证、限流、重试）、状态码分类和在途请求数，见 GatewayMetrics
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Component
+public class RouteMetricsGlobalFilter implements GlobalFilter, Ordered {
+
+    /** 客户端断开连接时记录的状态码 */
+    private static final int CLIENT_CLOSED_REQUEST = 499;
+
+    @Autowired
+    private GatewayMetrics gatewayMetrics;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        String routeId = route.getId();
+        long startNanos = System.nanoTime();
+        gatewayMetrics.routeStarted(routeId);
+        return chain.filter(exchange)
+                .doFinally(signalType -> gatewayMetrics.routeFinished(routeId,
+                        System.nanoTime() - startNanos, statusOf(exchange, signalType)));
+    }
+
+    static int statusOf(ServerWebExchange exchange, SignalType signalType) {
+        if (signalType == SignalType.CANCEL) {
+            return CLIENT_CLOSED_REQUEST;
+        }
+        if (signalType == SignalType.ON_ERROR) {
+            return HttpStatus.INTERNAL_SERVER_ERROR.value();
+        }
+        HttpStatus status = exchange.getResponse().getStatusCode();
+        return status != null ? status.value() : HttpStatus.OK.value();
+    }
+
+    /**
+     * 在日志过滤器之后、认证之前执行，被认证或限流拒绝的请求也计入
+     */
+    @Override
+    public int getOrder() {
+        return -150;
+    }
+}
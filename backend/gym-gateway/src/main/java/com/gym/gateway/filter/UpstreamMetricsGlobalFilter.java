@@ -0,0 +1,60 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.metrics.GatewayMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 上游实例指标全局过滤器
+ * 
+ * 功能说明：
+ * 1. 紧挨着 NettyRoutingFilter 执行，此时负载均衡已经选好实例，记录的是单次转发的延迟（到收到响应头为止）
+ * 2. Retry 过滤器每次重试都会重新执行这里，第二次及以后的执行计为重试
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+@Component
+public class UpstreamMetricsGlobalFilter implements GlobalFilter, Ordered {
+
+    /** 本次请求已转发的次数 */
+    private static final String ATTEMPTS_ATTR = "gym.metrics.upstreamAttempts";
+
+    @Autowired
+    private GatewayMetrics gatewayMetrics;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        URI requestUrl = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (route == null || requestUrl == null) {
+            return chain.filter(exchange);
+        }
+        String routeId = route.getId();
+        AtomicInteger attempts = (AtomicInteger) exchange.getAttributes()
+                .computeIfAbsent(ATTEMPTS_ATTR, key -> new AtomicInteger());
+        if (attempts.incrementAndGet() > 1) {
+            gatewayMetrics.retried(routeId);
+        }
+        String instance = requestUrl.getHost() + ":" + requestUrl.getPort();
+        long startNanos = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signalType -> gatewayMetrics.upstreamFinished(routeId, instance,
+                        System.nanoTime() - startNanos, RouteMetricsGlobalFilter.statusOf(exchange, signalType)));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+}
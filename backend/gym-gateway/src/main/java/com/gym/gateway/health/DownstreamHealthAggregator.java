@@ -0,0 +1,249 @@
+package com.gym.gateway.health;
+
+import com.gym.gateway.config.DownstreamHealthProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 下游依赖健康聚合
+ *
+ * 1. 后台按 downstream-health.refresh-interval 定时并行探测 Nacos、Redis 和配置的各个服务（每个实例一个 HTTP 请求）
+ * 2. 每个探测单独超时，超时或异常记为 DOWN，不影响其他探测
+ * 3. 每轮探测完成后生成一份不可变的快照，健康检查接口只读取快照，调用多频繁都不会增加下游压力
+ * 4. 上一轮还没结束时跳过本轮，探测不会堆积
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class DownstreamHealthAggregator {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private DownstreamHealthProperties properties;
+
+    @Autowired
+    private DiscoveryClient discoveryClient;
+
+    @Autowired
+    private ReactiveRedisConnectionFactory redisConnectionFactory;
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    private WebClient webClient;
+
+    private volatile Snapshot snapshot;
+
+    private Disposable refresher;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        webClient = webClientBuilder.build();
+        refresher = Flux.interval(Duration.ZERO, properties.getRefreshInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh(), 1)
+                .subscribe(result -> snapshot = result,
+                        e -> log.error("下游健康检查任务异常终止: {}", e.getMessage(), e));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * 最近一次探测的结果，还没有完成第一轮探测时返回 null
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 并行执行一轮探测，生成新快照
+     */
+    Mono<Snapshot> refresh() {
+        List<Mono<Map.Entry<String, Map<String, Object>>>> probes = new ArrayList<>();
+        probes.add(named("nacos", probeNacos()));
+        probes.add(named("redis", probeRedis()));
+        properties.getServices().forEach((serviceId, path) -> probes.add(named(serviceId, probeService(serviceId, path))));
+        return Flux.merge(probes)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, TreeMap::new)
+                .map(Snapshot::new)
+                .onErrorResume(e -> {
+                    log.warn("下游健康检查失败: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 服务注册中心：能取到服务列表即为 UP，同时记录各服务的实例数
+     */
+    private Mono<Map<String, Object>> probeNacos() {
+        return timed(properties.getProbeTimeout(), Mono.fromCallable(() -> {
+            List<String> services = discoveryClient.getServices();
+            Map<String, Integer> serviceInstances = new TreeMap<>();
+            for (String service : services) {
+                serviceInstances.put(service, discoveryClient.getInstances(service).size());
+            }
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("status", "UP");
+            detail.put("serviceCount", services.size());
+            detail.put("serviceInstances", Collections.unmodifiableMap(serviceInstances));
+            return detail;
+        }).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private Mono<Map<String, Object>> probeRedis() {
+        return timed(properties.getProbeTimeout(), Mono.usingWhen(
+                Mono.fromSupplier(redisConnectionFactory::getReactiveConnection),
+                connection -> connection.ping(),
+                ReactiveRedisConnection::closeLater)
+                .map(pong -> {
+                    Map<String, Object> detail = new LinkedHashMap<>();
+                    detail.put("status", "PONG".equalsIgnoreCase(pong) ? "UP" : "DOWN");
+                    return detail;
+                }));
+    }
+
+    /**
+     * 服务：并行探测每个实例，任一实例可用即为 UP
+     *
+     * 整体超时是两个探测超时（取实例列表 + 实例探测），单个实例超时只把该实例记为 DOWN
+     */
+    private Mono<Map<String, Object>> probeService(String serviceId, String path) {
+        return timed(properties.getProbeTimeout().multipliedBy(2), Mono.fromCallable(() -> discoveryClient.getInstances(serviceId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(instance -> probeInstance(instance, path))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, TreeMap::new)
+                .map(instances -> {
+                    boolean up = instances.values().stream().anyMatch(item -> "UP".equals(item.get("status")));
+                    Map<String, Object> detail = new LinkedHashMap<>();
+                    detail.put("status", up ? "UP" : "DOWN");
+                    if (instances.isEmpty()) {
+                        detail.put("error", "没有可用实例");
+                    }
+                    detail.put("instances", Collections.unmodifiableMap(instances));
+                    return detail;
+                }));
+    }
+
+    private Mono<Map.Entry<String, Map<String, Object>>> probeInstance(ServiceInstance instance, String path) {
+        String key = instance.getHost() + ":" + instance.getPort();
+        Mono<Map<String, Object>> probe = webClient.get()
+                .uri(instance.getUri().toString() + path)
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.rawStatusCode()))
+                .map(status -> {
+                    Map<String, Object> detail = new LinkedHashMap<>();
+                    detail.put("status", status < 500 ? "UP" : "DOWN");
+                    detail.put("httpStatus", status);
+                    return detail;
+                });
+        return timed(properties.getProbeTimeout(), probe).map(detail -> new AbstractMap.SimpleImmutableEntry<>(key, detail));
+    }
+
+    /**
+     * 加上超时和耗时统计，超时或异常转为 DOWN
+     */
+    private static Mono<Map<String, Object>> timed(Duration timeout, Mono<Map<String, Object>> probe) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return probe.timeout(timeout)
+                    .onErrorResume(e -> {
+                        Map<String, Object> detail = new LinkedHashMap<>();
+                        detail.put("status", "DOWN");
+                        if (e instanceof TimeoutException) {
+                            detail.put("error", "超时（" + timeout.toMillis() + "ms）");
+                        } else {
+                            detail.put("error", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                        }
+                        return Mono.just(detail);
+                    })
+                    .map(detail -> {
+                        detail.put("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        return Collections.unmodifiableMap(detail);
+                    });
+        });
+    }
+
+    private static Mono<Map.Entry<String, Map<String, Object>>> named(String name, Mono<Map<String, Object>> probe) {
+        return probe.map(detail -> new AbstractMap.SimpleImmutableEntry<>(name, detail));
+    }
+
+    /**
+     * 一轮探测的结果，生成后不再修改
+     */
+    public static final class Snapshot {
+
+        private final Map<String, Map<String, Object>> dependencies;
+
+        private final String status;
+
+        private final String checkedAt;
+
+        private final long checkedAtMillis;
+
+        Snapshot(Map<String, Map<String, Object>> dependencies) {
+            this.dependencies = Collections.unmodifiableMap(dependencies);
+            this.status = dependencies.values().stream().allMatch(item -> "UP".equals(item.get("status")))
+                    ? "UP" : "DEGRADED";
+            this.checkedAt = LocalDateTime.now().format(TIME_FORMATTER);
+            this.checkedAtMillis = System.currentTimeMillis();
+        }
+
+        /** 各依赖的状态和探测耗时 */
+        public Map<String, Map<String, Object>> getDependencies() {
+            return dependencies;
+        }
+
+        /** 全部依赖可用为 UP，否则为 DEGRADED */
+        public String getStatus() {
+            return status;
+        }
+
+        public String getCheckedAt() {
+            return checkedAt;
+        }
+
+        public long getAgeMillis() {
+            return System.currentTimeMillis() - checkedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.gym.gateway.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应并发限制器（AIMD，按响应延迟调整）
+ * 
+ * 1. 请求完成时如果延迟超过阈值或上游返回 5xx，并发上限乘以 backoffRatio（乘性减少）；
+ *    每个延迟阈值周期内最多减少一次，避免一批慢请求同时返回把上限直接压到最小值
+ * 2. 正常完成且并发已用到上限一半以上时，上限增加 1/limit，约等于每一轮请求 +1（加性增加）
+ * 3. 低优先级请求只能使用上限的 lowPriorityShare 比例，上游变慢时先被拒绝，
+ *    把剩余的并发留给预约等写操作
+ * 
+ * @author gym-system
+ * @version 1.0
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final double backoffRatio;
+
+    private final double lowPriorityShare;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder shed = new LongAdder();
+
+    /** 当前并发上限，只在 synchronized 中修改 */
+    private volatile double limit;
+
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdMillis, double backoffRatio, double lowPriorityShare) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.backoffRatio = backoffRatio;
+        this.lowPriorityShare = lowPriorityShare;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime() - latencyThresholdNanos;
+    }
+
+    /**
+     * 尝试占用一个并发名额
+     * 
+     * @param lowPriority 是否为低优先级请求
+     * @return false 表示应当拒绝该请求
+     */
+    public boolean tryAcquire(boolean lowPriority) {
+        int cap = (int) limit;
+        if (lowPriority) {
+            cap = Math.max(1, (int) (cap * lowPriorityShare));
+        }
+        while (true) {
+            int current = inFlight.get();
+            if (current >= cap) {
+                shed.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放名额并根据本次请求的结果调整上限
+     * 
+     * @param latencyNanos 请求耗时（纳秒）
+     * @param failed       上游是否失败（5xx 或异常）
+     */
+    public void release(long latencyNanos, boolean failed) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (failed || latencyNanos > latencyThresholdNanos) {
+                long now = System.nanoTime();
+                if (now - lastDecreaseNanos >= latencyThresholdNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                }
+            } else if (inFlightBefore * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    /**
+     * 只释放名额，不参与调整（例如客户端主动断开）
+     */
+    public void releaseWithoutSample() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+}
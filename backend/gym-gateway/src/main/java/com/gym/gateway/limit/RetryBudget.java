@@ -0,0 +1,85 @@
+package com.gym.gateway.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 重试预算（单个路由）
+ *
+ * 1. 按秒分桶统计最近 windowSeconds 秒内的成功请求数和重试次数
+ * 2. 重试前检查：窗口内重试数 < minRetriesPerSecond × windowSeconds + ratio × 成功数
+ * 3. 计数不加锁，桶切换时可能有少量误差，对预算来说可以接受
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+public class RetryBudget {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double ratio;
+
+    private final int windowSeconds;
+
+    private final long minRetries;
+
+    /** 每个桶对应的秒数 */
+    private final AtomicLongArray epochs;
+
+    private final AtomicLongArray successes;
+
+    private final AtomicLongArray retries;
+
+    public RetryBudget(double ratio, int minRetriesPerSecond, int windowSeconds) {
+        this.ratio = ratio;
+        this.windowSeconds = Math.max(1, windowSeconds);
+        this.minRetries = (long) Math.max(0, minRetriesPerSecond) * this.windowSeconds;
+        this.epochs = new AtomicLongArray(this.windowSeconds);
+        this.successes = new AtomicLongArray(this.windowSeconds);
+        this.retries = new AtomicLongArray(this.windowSeconds);
+        for (int i = 0; i < this.windowSeconds; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * 记录一次成功的请求（不论是否经过重试），为后续重试存入预算
+     */
+    public void recordSuccess(long nowNanos) {
+        successes.incrementAndGet(bucket(nowNanos));
+    }
+
+    /**
+     * 尝试消耗一次重试预算
+     *
+     * @return false 表示预算已用完，不应再重试
+     */
+    public boolean tryAcquireRetry(long nowNanos) {
+        int index = bucket(nowNanos);
+        long second = Math.floorDiv(nowNanos, NANOS_PER_SECOND);
+        long successCount = 0;
+        long retryCount = 0;
+        for (int i = 0; i < windowSeconds; i++) {
+            if (second - epochs.get(i) < windowSeconds) {
+                successCount += successes.get(i);
+                retryCount += retries.get(i);
+            }
+        }
+        if (retryCount >= minRetries + ratio * successCount) {
+            return false;
+        }
+        retries.incrementAndGet(index);
+        return true;
+    }
+
+    private int bucket(long nowNanos) {
+        long second = Math.floorDiv(nowNanos, NANOS_PER_SECOND);
+        int index = (int) Math.floorMod(second, (long) windowSeconds);
+        long epoch = epochs.get(index);
+        if (epoch < second && epochs.compareAndSet(index, epoch, second)) {
+            successes.set(index, 0);
+            retries.set(index, 0);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,110 @@
+package com.gym.gateway.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个上游实例的负载统计
+ *
+ * 1. 延迟使用 Peak EWMA：新样本比当前值大时直接取新样本（对变慢立刻敏感），否则按时间指数衰减地平滑
+ * 2. 打分 = 衰减后的延迟 × (在途请求数 + 1)，分数越低越优先
+ * 3. 失败的请求不按实际耗时计入：快速失败（连接被拒、立即返回 503）耗时很短，按实际耗时会让实例打分最低、
+ *    分到更多流量；失败时延迟至少抬到 failurePenalty，之后只随时间衰减或被成功请求慢慢拉回
+ * 4. 连续失败达到阈值后摘除一段时间
+ *
+ * 所有时间参数都由调用方传入（System.nanoTime），便于离线测试
+ */
+public final class InstanceStats {
+
+    /** 从未测到延迟但已有在途请求的实例，排在所有测到过延迟的实例之后 */
+    private static final double UNMEASURED_PENALTY = Long.MAX_VALUE >> 16;
+
+    private static final long NOT_EJECTED = Long.MIN_VALUE;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private double costNanos;
+
+    private long lastUpdateNanos;
+
+    private int consecutiveFailures;
+
+    private volatile long ejectedUntilNanos = NOT_EJECTED;
+
+    InstanceStats(long nowNanos) {
+        this.lastUpdateNanos = nowNanos;
+    }
+
+    void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求被取消，只释放在途计数，不计入延迟
+     */
+    void requestAbandoned() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * 记录一次请求结果
+     *
+     * @return 本次是否导致实例被摘除
+     */
+    synchronized boolean requestFinished(long latencyNanos, boolean failed, long nowNanos, long decayNanos,
+                                         long failurePenaltyNanos, int failureThreshold, long ejectionNanos) {
+        inFlight.decrementAndGet();
+        double weight = decayWeight(nowNanos, decayNanos);
+        lastUpdateNanos = nowNanos;
+        if (failed) {
+            costNanos = Math.max(Math.max(costNanos, latencyNanos), failurePenaltyNanos);
+        } else if (latencyNanos > costNanos) {
+            costNanos = latencyNanos;
+        } else {
+            costNanos = costNanos * weight + latencyNanos * (1 - weight);
+        }
+
+        if (!failed) {
+            consecutiveFailures = 0;
+            return false;
+        }
+        if (++consecutiveFailures >= failureThreshold && !isEjected(nowNanos)) {
+            ejectedUntilNanos = nowNanos + ejectionNanos;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前打分，空闲期间延迟向 0 衰减，让变慢过的实例有机会被重新探测
+     */
+    synchronized double score(long nowNanos, long decayNanos) {
+        double cost = costNanos * decayWeight(nowNanos, decayNanos);
+        int pending = Math.max(0, inFlight.get());
+        if (cost == 0 && pending > 0) {
+            return UNMEASURED_PENALTY + pending;
+        }
+        return cost * (pending + 1);
+    }
+
+    boolean isEjected(long nowNanos) {
+        long until = ejectedUntilNanos;
+        return until != NOT_EJECTED && nowNanos - until < 0;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public synchronized double getCostMillis() {
+        return costNanos / 1_000_000.0;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    private double decayWeight(long nowNanos, long decayNanos) {
+        long elapsed = Math.max(0, nowNanos - lastUpdateNanos);
+        return Math.exp(-(double) elapsed / decayNanos);
+    }
+}
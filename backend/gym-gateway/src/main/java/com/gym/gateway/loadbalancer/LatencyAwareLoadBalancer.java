@@ -0,0 +1,149 @@
+package com.gym.gateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 延迟感知负载均衡器（Power of Two Choices）
+ *
+ * 1. 从可用实例中随机取两个，选打分（Peak EWMA 延迟 × 在途请求数）更低的一个
+ * 2. 被摘除的实例不参与选择；全部被摘除时退回使用全部实例，避免直接 503
+ * 3. 相比轮询，单个实例 GC 或变慢时流量会很快转移到其他实例，又不会像"总选最快"那样把流量压到同一个实例上
+ * 4. Reactor Context 中有 EXCLUDE_INSTANCE_ATTR（host:port）时不选该实例，对冲请求用它避开还没返回的那个实例。
+ *    负载均衡器只能看到由请求头构造的 RequestData，看不到 exchange 属性，所以由对冲过滤器把属性写进 Context；
+ *    不用请求头传递，客户端无法伪造
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    /** 对冲请求要避开的实例：exchange 属性名，同时也是 Reactor Context 的 key */
+    public static final String EXCLUDE_INSTANCE_ATTR = LatencyAwareLoadBalancer.class.getName() + ".excludeInstance";
+
+    /** 保留的网关内部请求头：负载均衡器不读取它，入口处（AuthGlobalFilter）仍丢弃客户端自带的，不转发给上游 */
+    public static final String EXCLUDE_INSTANCE_HEADER = "X-Gym-Exclude-Instance";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+    private final String serviceId;
+
+    private final LoadBalancerStats stats;
+
+    /** 返回 [0, bound) 的随机数 */
+    private final IntUnaryOperator random;
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                    String serviceId, LoadBalancerStats stats) {
+        this(serviceInstanceListSupplierProvider, serviceId, stats,
+                bound -> ThreadLocalRandom.current().nextInt(bound));
+    }
+
+    LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                             String serviceId, LoadBalancerStats stats, IntUnaryOperator random) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.stats = stats;
+        this.random = random;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return Mono.deferContextual(context -> {
+            String excluded = context.getOrDefault(EXCLUDE_INSTANCE_ATTR, null);
+            return supplier.get(request).next().map(instances -> {
+                Response<ServiceInstance> response = choose(excluded == null ? instances : without(instances, excluded));
+                if (supplier instanceof SelectedInstanceCallback && response.hasServer()) {
+                    ((SelectedInstanceCallback) supplier).selectedServiceInstance(response.getServer());
+                }
+                return response;
+            });
+        });
+    }
+
+    /**
+     * 让 source 中的负载均衡选择避开 excludedInstance（为 null 时不变）
+     */
+    public static <T> Mono<T> excluding(Mono<T> source, String excludedInstance) {
+        return excludedInstance == null ? source
+                : source.contextWrite(Context.of(EXCLUDE_INSTANCE_ATTR, excludedInstance));
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        long now = stats.now();
+        List<ServiceInstance> candidates = instances;
+        for (int i = 0; i < instances.size(); i++) {
+            if (stats.isEjected(instances.get(i), now)) {
+                candidates = healthyInstances(instances, now);
+                break;
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = instances;
+        }
+
+        int size = candidates.size();
+        if (size == 1) {
+            return new DefaultResponse(candidates.get(0));
+        }
+        int first = random.applyAsInt(size);
+        int second = random.applyAsInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        return new DefaultResponse(stats.score(a, now) <= stats.score(b, now) ? a : b);
+    }
+
+    public static String instanceKey(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    /**
+     * 去掉被排除的实例，只剩它一个时仍然返回全部
+     */
+    static List<ServiceInstance> without(List<ServiceInstance> instances, String excluded) {
+        List<ServiceInstance> remaining = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (!excluded.equals(instanceKey(instance))) {
+                remaining.add(instance);
+            }
+        }
+        return remaining.isEmpty() ? instances : remaining;
+    }
+
+    private List<ServiceInstance> healthyInstances(List<ServiceInstance> instances, long now) {
+        List<ServiceInstance> healthy = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (!stats.isEjected(instance, now)) {
+                healthy.add(instance);
+            }
+        }
+        return healthy;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+}
@@ -0,0 +1,106 @@
+package com.gym.gateway.loadbalancer;
+
+import com.gym.gateway.config.LatencyLoadBalancerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 所有上游实例的负载统计
+ *
+ * 由 LoadBalancerStatsGlobalFilter 在每次转发前后更新，由 LatencyAwareLoadBalancer 读取；
+ * 放在网关主上下文中，各服务的负载均衡子上下文共享同一份
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class LoadBalancerStats {
+
+    private final LatencyLoadBalancerProperties properties;
+
+    private final LongSupplier clock;
+
+    /** serviceId@host:port -> 统计 */
+    private final Map<String, InstanceStats> instances = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LoadBalancerStats(LatencyLoadBalancerProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    LoadBalancerStats(LatencyLoadBalancerProperties properties, LongSupplier clock) {
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    public void requestStarted(ServiceInstance instance) {
+        stats(instance).requestStarted();
+    }
+
+    public void requestFinished(ServiceInstance instance, long latencyNanos, boolean failed) {
+        boolean ejected = stats(instance).requestFinished(latencyNanos, failed, clock.getAsLong(),
+                properties.getDecayTime().toNanos(), properties.getFailurePenalty().toNanos(),
+                properties.getFailureThreshold(),
+                properties.getEjectionTime().toNanos());
+        if (ejected) {
+            log.warn("上游实例连续失败，暂时摘除 {} - 实例: {}:{}", properties.getEjectionTime(),
+                    instance.getHost(), instance.getPort());
+        }
+    }
+
+    public void requestAbandoned(ServiceInstance instance) {
+        stats(instance).requestAbandoned();
+    }
+
+    double score(ServiceInstance instance, long nowNanos) {
+        return stats(instance).score(nowNanos, properties.getDecayTime().toNanos());
+    }
+
+    boolean isEjected(ServiceInstance instance, long nowNanos) {
+        InstanceStats stats = instances.get(key(instance));
+        return stats != null && stats.isEjected(nowNanos);
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * 各实例当前状态，供健康检查接口展示
+     */
+    public Map<String, Object> snapshot() {
+        long now = clock.getAsLong();
+        Map<String, Object> snapshot = new TreeMap<>();
+        instances.forEach((key, stats) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("inFlight", stats.getInFlight());
+            item.put("ewmaMs", stats.getCostMillis());
+            item.put("consecutiveFailures", stats.getConsecutiveFailures());
+            item.put("ejected", stats.isEjected(now));
+            snapshot.put(key, item);
+        });
+        return snapshot;
+    }
+
+    private InstanceStats stats(ServiceInstance instance) {
+        String key = key(instance);
+        InstanceStats stats = instances.get(key);
+        if (stats == null) {
+            stats = instances.computeIfAbsent(key, k -> new InstanceStats(clock.getAsLong()));
+        }
+        return stats;
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + "@" + instance.getHost() + ":" + instance.getPort();
+    }
+}
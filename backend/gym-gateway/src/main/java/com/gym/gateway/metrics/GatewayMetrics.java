@@ -0,0 +1,216 @@
+package com.gym.gateway.metrics;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 网关流量指标
+ *
+ * 指标通过 Micrometer 注册，/actuator/prometheus 可直接抓取（延迟分位数由 Micrometer 内部的 HdrHistogram 计算）：
+ * - gateway.route.requests: 按路由统计的端到端延迟（p50/p90/p99/p999 + 直方图桶）
+ * - gateway.route.responses: 按路由、状态码分类（2xx/4xx/5xx...）计数
+ * - gateway.route.inflight: 按路由的在途请求数
+ * - gateway.route.retries: 按路由的重试次数
+ * - gateway.upstream.requests / gateway.upstream.responses: 按路由 + 上游实例统计每次转发的延迟和状态码
+ * - gateway.circuitbreaker.transitions: 熔断器状态切换次数
+ *
+ * 另外每个路由、每个上游实例保留最近一分钟的汇总，供 /health/detail 查看。
+ *
+ * @author gym-system
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class GatewayMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final int MAX_RECENT_TRANSITIONS = 20;
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final MeterRegistry registry;
+
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+
+    private final Map<String, UpstreamStats> upstreams = new ConcurrentHashMap<>();
+
+    private final Deque<String> recentTransitions = new ArrayDeque<>();
+
+    public GatewayMetrics(MeterRegistry registry, ObjectProvider<CircuitBreakerRegistry> circuitBreakerRegistry) {
+        this.registry = registry;
+        circuitBreakerRegistry.ifAvailable(cbRegistry -> {
+            cbRegistry.getAllCircuitBreakers().forEach(this::watchTransitions);
+            cbRegistry.getEventPublisher().onEntryAdded(event -> watchTransitions(event.getAddedEntry()));
+        });
+    }
+
+    /**
+     * 请求进入某个路由
+     */
+    public void routeStarted(String routeId) {
+        route(routeId).inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求离开某个路由（无论成功、失败还是取消都要调用一次）
+     */
+    public void routeFinished(String routeId, long latencyNanos, int status) {
+        RouteStats stats = route(routeId);
+        stats.inFlight.decrementAndGet();
+        stats.timer.record(latencyNanos, TimeUnit.NANOSECONDS);
+        stats.statusCounter(status).increment();
+        stats.window.record(latencyNanos, status);
+    }
+
+    public void retried(String routeId) {
+        route(routeId).retries.increment();
+    }
+
+    /**
+     * 记录一次转发到上游实例的结果
+     */
+    public void upstreamFinished(String routeId, String instance, long latencyNanos, int status) {
+        UpstreamStats stats = upstreams.computeIfAbsent(routeId + "|" + instance,
+                key -> new UpstreamStats(registry, routeId, instance));
+        stats.timer.record(latencyNanos, TimeUnit.NANOSECONDS);
+        stats.statusCounter(status).increment();
+        stats.window.record(latencyNanos, status);
+    }
+
+    /**
+     * 路由上一分钟的端到端延迟分位数
+     *
+     * @param percentile 0~100
+     * @return 纳秒，没有数据时返回 -1
+     */
+    public long routeLatencyPercentileNanos(String routeId, double percentile) {
+        RouteStats stats = routes.get(routeId);
+        return stats == null ? -1 : stats.window.lastMinutePercentileNanos(percentile);
+    }
+
+    /**
+     * 最近一分钟的汇总，供健康检查接口展示
+     */
+    public Map<String, Object> lastMinuteSummary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+
+        Map<String, Object> routeSummary = new TreeMap<>();
+        routes.forEach((routeId, stats) -> {
+            Map<String, Object> item = new LinkedHashMap<>(stats.window.lastMinute());
+            item.put("inFlight", stats.inFlight.get());
+            item.put("retriesTotal", (long) stats.retries.count());
+            routeSummary.put(routeId, item);
+        });
+        summary.put("routes", routeSummary);
+
+        Map<String, Object> upstreamSummary = new TreeMap<>();
+        upstreams.forEach((key, stats) -> upstreamSummary.put(key, stats.window.lastMinute()));
+        summary.put("upstreams", upstreamSummary);
+
+        synchronized (recentTransitions) {
+            summary.put("circuitBreakerTransitions", new ArrayList<>(recentTransitions));
+        }
+        return summary;
+    }
+
+    private RouteStats route(String routeId) {
+        return routes.computeIfAbsent(routeId, id -> new RouteStats(registry, id));
+    }
+
+    private void watchTransitions(CircuitBreaker circuitBreaker) {
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            CircuitBreaker.StateTransition transition = event.getStateTransition();
+            registry.counter("gateway.circuitbreaker.transitions",
+                    "name", event.getCircuitBreakerName(),
+                    "from", transition.getFromState().name(),
+                    "to", transition.getToState().name()).increment();
+            log.warn("熔断器状态切换 - {}: {}", event.getCircuitBreakerName(), transition);
+            synchronized (recentTransitions) {
+                if (recentTransitions.size() == MAX_RECENT_TRANSITIONS) {
+                    recentTransitions.removeFirst();
+                }
+                recentTransitions.addLast(LocalDateTime.now().format(TIME_FORMATTER) + " "
+                        + event.getCircuitBreakerName() + " " + transition);
+            }
+        });
+    }
+
+    private static Timer latencyTimer(MeterRegistry registry, String name, Tags tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .register(registry);
+    }
+
+    private static Counter[] statusCounters(MeterRegistry registry, String name, Tags tags) {
+        // 下标 1~5 对应 1xx~5xx
+        Counter[] counters = new Counter[6];
+        for (int i = 1; i < counters.length; i++) {
+            counters[i] = registry.counter(name, tags.and("status", i + "xx"));
+        }
+        return counters;
+    }
+
+    private static Counter statusCounter(Counter[] counters, int status) {
+        return counters[Math.min(5, Math.max(1, status / 100))];
+    }
+
+    private static final class RouteStats {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Timer timer;
+        private final Counter[] statusCounters;
+        private final Counter retries;
+        private final LatencyWindow window = new LatencyWindow();
+
+        private RouteStats(MeterRegistry registry, String routeId) {
+            Tags tags = Tags.of("route", routeId);
+            timer = latencyTimer(registry, "gateway.route.requests", tags);
+            statusCounters = statusCounters(registry, "gateway.route.responses", tags);
+            retries = registry.counter("gateway.route.retries", tags);
+            registry.gauge("gateway.route.inflight", tags, inFlight);
+        }
+
+        private Counter statusCounter(int status) {
+            return GatewayMetrics.statusCounter(statusCounters, status);
+        }
+    }
+
+    private static final class UpstreamStats {
+        private final Timer timer;
+        private final Counter[] statusCounters;
+        private final LatencyWindow window = new LatencyWindow();
+
+        private UpstreamStats(MeterRegistry registry, String routeId, String instance) {
+            Tags tags = Tags.of("route", routeId, "instance", instance);
+            timer = latencyTimer(registry, "gateway.upstream.requests", tags);
+            statusCounters = statusCounters(registry, "gateway.upstream.responses", tags);
+        }
+
+        private Counter statusCounter(int status) {
+            return GatewayMetrics.statusCounter(statusCounters, status);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.gym.gateway.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 最近一分钟的延迟分布和状态码分类计数
+ *
+ * 1. 延迟写入 HdrHistogram Recorder（无锁，微秒精度，两位有效数字）
+ * 2. 每满一分钟把当前区间的直方图和计数切换出来作为"上一分钟"的结果，读取时只看这份快照
+ * 3. 超过两分钟没有请求时，上一分钟的结果视为空
+ */
+public class LatencyWindow {
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Recorder recorder = new Recorder(2);
+
+    // 下标 1~5 对应 1xx~5xx
+    private final LongAdder[] statusClasses = new LongAdder[6];
+
+    private volatile long windowStartNanos = System.nanoTime();
+
+    private volatile Summary lastMinute = Summary.EMPTY;
+
+    public LatencyWindow() {
+        for (int i = 0; i < statusClasses.length; i++) {
+            statusClasses[i] = new LongAdder();
+        }
+    }
+
+    public void record(long latencyNanos, int status) {
+        long now = System.nanoTime();
+        if (now - windowStartNanos >= WINDOW_NANOS) {
+            rotate(now);
+        }
+        recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        statusClasses[Math.min(5, Math.max(0, status / 100))].increment();
+    }
+
+    /**
+     * 上一个完整分钟的统计
+     */
+    public Map<String, Object> lastMinute() {
+        long now = System.nanoTime();
+        if (now - windowStartNanos >= WINDOW_NANOS) {
+            rotate(now);
+        }
+        return lastMinute.toMap();
+    }
+
+    /**
+     * 上一个完整分钟的延迟分位数
+     *
+     * @param percentile 0~100
+     * @return 纳秒，上一分钟没有请求时返回 -1
+     */
+    public long lastMinutePercentileNanos(double percentile) {
+        long now = System.nanoTime();
+        if (now - windowStartNanos >= WINDOW_NANOS) {
+            rotate(now);
+        }
+        Histogram histogram = lastMinute.histogram;
+        if (histogram == null || histogram.getTotalCount() == 0) {
+            return -1;
+        }
+        return TimeUnit.MICROSECONDS.toNanos(histogram.getValueAtPercentile(percentile));
+    }
+
+    private synchronized void rotate(long now) {
+        long elapsed = now - windowStartNanos;
+        if (elapsed < WINDOW_NANOS) {
+            return;
+        }
+        Histogram histogram = recorder.getIntervalHistogram();
+        long[] counts = new long[statusClasses.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = statusClasses[i].sumThenReset();
+        }
+        // 超过两个窗口没有切换，说明上一分钟没有请求
+        lastMinute = elapsed < 2 * WINDOW_NANOS ? new Summary(histogram, counts) : Summary.EMPTY;
+        windowStartNanos = now;
+    }
+
+    private static final class Summary {
+
+        private static final Summary EMPTY = new Summary(null, new long[6]);
+
+        private final Histogram histogram;
+
+        private final Map<String, Object> values;
+
+        private Summary(Histogram histogram, long[] counts) {
+            this.histogram = histogram;
+            Map<String, Object> values = new LinkedHashMap<>();
+            long total = histogram == null ? 0 : histogram.getTotalCount();
+            values.put("count", total);
+            if (total > 0) {
+                values.put("p50Ms", toMillis(histogram.getValueAtPercentile(50)));
+                values.put("p90Ms", toMillis(histogram.getValueAtPercentile(90)));
+                values.put("p99Ms", toMillis(histogram.getValueAtPercentile(99)));
+                values.put("p999Ms", toMillis(histogram.getValueAtPercentile(99.9)));
+                values.put("maxMs", toMillis(histogram.getMaxValue()));
+            }
+            Map<String, Long> statuses = new LinkedHashMap<>();
+            for (int i = 1; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    statuses.put(i + "xx", counts[i]);
+                }
+            }
+            values.put("status", statuses);
+            this.values = Collections.unmodifiableMap(values);
+        }
+
+        private static double toMillis(long micros) {
+            return micros / 1000.0;
+        }
+
+        private Map<String, Object> toMap() {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.gym.gateway.util;
+
+import com.gym.util.IpWhitelistMatcher;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网关获取客户端IP工具类（响应式请求版本）
+ */
+public class GatewayIpUtil {
+
+    private static final String[] IP_HEADERS = {
+            "X-Forwarded-For", "X-Real-IP", "Proxy-Client-IP",
+            "WL-Proxy-Client-IP", "HTTP_CLIENT_IP", "HTTP_X_FORWARDED_FOR"
+    };
+
+    private GatewayIpUtil() {
+    }
+
+    /**
+     * 获取客户端真实IP地址，优先读取代理头，多个IP时取第一个
+     *
+     * 代理头由客户端任意填写，结果只能用于日志等场景，不能用于限流、鉴权
+     */
+    public static String getClientIp(ServerHttpRequest request) {
+        for (String header : IP_HEADERS) {
+            String ip = request.getHeaders().getFirst(header);
+            if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
+                int comma = ip.indexOf(',');
+                return comma >= 0 ? ip.substring(0, comma).trim() : ip;
+            }
+        }
+        return getRemoteIp(request);
+    }
+
+    /**
+     * 获取不能被客户端伪造的IP地址，用于限流 key
+     *
+     * 1. 直连地址不是可信代理时，直接使用直连地址，忽略所有代理头
+     * 2. 直连地址是可信代理时，从右往左读 X-Forwarded-For，取第一个不是可信代理的地址
+     *    （客户端自己填的值只会出现在左边，可信代理追加的才在右边）
+     *
+     * @param trustedProxies 可信代理，为 null 表示没有代理，始终使用直连地址
+     */
+    public static String getTrustedClientIp(ServerHttpRequest request, IpWhitelistMatcher trustedProxies) {
+        String remoteIp = getRemoteIp(request);
+        if (trustedProxies == null || !trustedProxies.isAllowed(remoteIp)) {
+            return remoteIp;
+        }
+        List<String> forwarded = new ArrayList<>();
+        List<String> values = request.getHeaders().get("X-Forwarded-For");
+        if (values != null) {
+            for (String value : values) {
+                for (String ip : value.split(",")) {
+                    if (!ip.trim().isEmpty()) {
+                        forwarded.add(ip.trim());
+                    }
+                }
+            }
+        }
+        for (int i = forwarded.size() - 1; i >= 0; i--) {
+            if (!trustedProxies.isAllowed(forwarded.get(i))) {
+                return forwarded.get(i);
+            }
+        }
+        // 整条链都是可信代理（内网直接调用）
+        return forwarded.isEmpty() ? remoteIp : forwarded.get(0);
+    }
+
+    private static String getRemoteIp(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return "unknown";
+        }
+        return remoteAddress.getAddress().getHostAddress();
+    }
+}
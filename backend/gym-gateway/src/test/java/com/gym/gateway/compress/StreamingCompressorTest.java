@@ -0,0 +1,80 @@
+package com.gym.gateway.compress;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式压缩和编码协商测试
+ */
+class StreamingCompressorTest {
+
+    @Test
+    public void testNegotiate() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("gzip, deflate, br"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("deflate, gzip;q=0"));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("*"));
+        assertNull(ContentCoding.negotiate("br"));
+        assertNull(ContentCoding.negotiate("identity"));
+        assertNull(ContentCoding.negotiate(null));
+    }
+
+    @Test
+    public void testGzip_ChunkedRoundTrip() throws IOException {
+        String json = json(2000);
+        byte[] source = json.getBytes(StandardCharsets.UTF_8);
+        StreamingCompressor compressor = new StreamingCompressor(ContentCoding.GZIP, 6);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try {
+            for (int offset = 0; offset < source.length; offset += 4096) {
+                int length = Math.min(4096, source.length - offset);
+                byte[] chunk = new byte[length];
+                System.arraycopy(source, offset, chunk, 0, length);
+                compressed.write(compressor.write(chunk));
+            }
+            compressed.write(compressor.finish());
+        } finally {
+            compressor.close();
+        }
+
+        assertEquals(source.length, compressor.getBytesIn());
+        assertEquals(compressed.size(), compressor.getBytesOut());
+        assertTrue(compressor.getBytesOut() < source.length / 5);
+        assertEquals(json, read(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+    }
+
+    @Test
+    public void testDeflate_OneShot() throws IOException {
+        String json = json(100);
+        byte[] compressed = StreamingCompressor.compress(ContentCoding.DEFLATE, 6, json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(json, read(new InflaterInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    private static String json(int items) {
+        StringBuilder json = new StringBuilder("{\"code\":200,\"data\":[");
+        for (int i = 0; i < items; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i)
+                    .append(",\"workoutPlanContent\":\"warm up, squats 5x5, bench press 5x5\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,62 @@
+package com.gym.gateway.config;
+
+import com.gym.gateway.context.RequestContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitConfigTest {
+
+    private final RateLimitConfig config = new RateLimitConfig();
+
+    @Test
+    void testNoTrustedProxies_ForwardedHeaderIgnored() {
+        KeyResolver resolver = config.userOrIpKeyResolver(new RateLimitProperties());
+
+        assertThat(resolve(resolver, "203.0.113.7", "1.1.1.1")).isEqualTo("none:ip:203.0.113.7");
+        assertThat(resolve(resolver, "203.0.113.7", "2.2.2.2")).isEqualTo("none:ip:203.0.113.7");
+        assertThat(resolve(resolver, "203.0.113.7", null)).isEqualTo("none:ip:203.0.113.7");
+    }
+
+    @Test
+    void testTrustedProxy_SpoofedLeftmostValueIgnored() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setTrustedProxies("10.0.0.0/8");
+        KeyResolver resolver = config.userOrIpKeyResolver(properties);
+
+        // 代理把真实的对端地址追加在最右边，客户端自己填的值在左边
+        assertThat(resolve(resolver, "10.0.0.5", "1.1.1.1, 198.51.100.9")).isEqualTo("none:ip:198.51.100.9");
+        assertThat(resolve(resolver, "10.0.0.5", "2.2.2.2, 198.51.100.9")).isEqualTo("none:ip:198.51.100.9");
+        // 多层可信代理时跳过它们
+        assertThat(resolve(resolver, "10.0.0.5", "1.1.1.1, 198.51.100.9, 10.0.0.6")).isEqualTo("none:ip:198.51.100.9");
+        // 不是从可信代理来的请求，头里写的内容一律忽略
+        assertThat(resolve(resolver, "203.0.113.7", "10.0.0.9")).isEqualTo("none:ip:203.0.113.7");
+    }
+
+    @Test
+    void testAuthenticatedRequest_KeyedByUser() {
+        KeyResolver resolver = config.userOrIpKeyResolver(new RateLimitProperties());
+        MockServerWebExchange exchange = exchange("203.0.113.7", "1.1.1.1");
+        RequestContext.of(exchange).authenticated("42", "member", "a@example.com");
+
+        assertThat(resolver.resolve(exchange).block()).isEqualTo("none:user:42");
+    }
+
+    private static String resolve(KeyResolver resolver, String remoteIp, String forwardedFor) {
+        return resolver.resolve(exchange(remoteIp, forwardedFor)).block();
+    }
+
+    private static MockServerWebExchange exchange(String remoteIp, String forwardedFor) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.post("/auth/login")
+                .remoteAddress(new InetSocketAddress(remoteIp, 40000));
+        if (forwardedFor != null) {
+            request.header("X-Forwarded-For", forwardedFor);
+        }
+        return MockServerWebExchange.from(request);
+    }
+}
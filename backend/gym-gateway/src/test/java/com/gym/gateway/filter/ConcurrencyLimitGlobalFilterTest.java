@@ -0,0 +1,126 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.config.ConcurrencyLimitProperties;
+import com.gym.gateway.limit.AdaptiveConcurrencyLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用桩过滤器链验证只有到达上游的请求参与调整并发上限
+ */
+class ConcurrencyLimitGlobalFilterTest {
+
+    private static final String ROUTE_ID = "gym-server-api-route";
+
+    private ConcurrencyLimitGlobalFilter filter;
+
+    private ConcurrencyLimitProperties.RouteLimit routeLimit;
+
+    @BeforeEach
+    public void setUp() {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        routeLimit = new ConcurrencyLimitProperties.RouteLimit();
+        routeLimit.setMinLimit(1);
+        routeLimit.setMaxLimit(100);
+        routeLimit.setLatencyThreshold(Duration.ofSeconds(1));
+        routeLimit.setBackoffRatio(0.5);
+        properties.getRoutes().put(ROUTE_ID, routeLimit);
+        filter = new ConcurrencyLimitGlobalFilter();
+        ReflectionTestUtils.setField(filter, "properties", properties);
+    }
+
+    @Test
+    public void testRateLimited429_NotSampled() {
+        routeLimit.setInitialLimit(1);
+        // RequestRateLimiter 直接返回 429，不调用后面的过滤器
+        run(ex -> Mono.fromRunnable(() -> ex.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS)));
+
+        assertEquals(1, limiter().getLimit());
+        assertEquals(0, limiter().getInFlight());
+    }
+
+    @Test
+    public void testCircuitBreakerOpenFallback_NotSampled() {
+        routeLimit.setInitialLimit(10);
+        run(ex -> Mono.fromRunnable(() -> {
+            ex.getAttributes().put(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR,
+                    new IllegalStateException("CircuitBreaker 'gym-server' is OPEN"));
+            ex.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        }));
+
+        assertEquals(10, limiter().getLimit());
+        assertEquals(0, limiter().getInFlight());
+    }
+
+    @Test
+    public void testUpstreamSuccess_IncreasesLimit() {
+        routeLimit.setInitialLimit(1);
+        run(ex -> Mono.fromRunnable(() -> {
+            routedToUpstream(ex);
+            ex.getResponse().setStatusCode(HttpStatus.OK);
+        }));
+
+        assertEquals(2, limiter().getLimit());
+        assertEquals(0, limiter().getInFlight());
+    }
+
+    @Test
+    public void testUpstream5xx_DecreasesLimit() {
+        routeLimit.setInitialLimit(10);
+        run(ex -> Mono.fromRunnable(() -> {
+            routedToUpstream(ex);
+            ex.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+        }));
+
+        assertEquals(5, limiter().getLimit());
+    }
+
+    @Test
+    public void testUpstreamTimeoutFallback_DecreasesLimit() {
+        routeLimit.setInitialLimit(10);
+        // 请求已发到上游，熔断器超时后转到降级接口
+        run(ex -> Mono.fromRunnable(() -> {
+            routedToUpstream(ex);
+            ex.getAttributes().put(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR,
+                    new TimeoutException("Did not observe any item or terminal signal"));
+            ex.getResponse().setStatusCode(HttpStatus.OK);
+        }));
+
+        assertEquals(5, limiter().getLimit());
+    }
+
+    private void run(GatewayFilterChain chain) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/classes"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id(ROUTE_ID)
+                .uri("lb://gym-server")
+                .predicate(ex -> true)
+                .build());
+        filter.filter(exchange, chain).block();
+    }
+
+    private static void routedToUpstream(ServerWebExchange exchange) {
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR,
+                new DefaultResponse(new DefaultServiceInstance("gym-server-1", "gym-server", "10.0.0.1", 8080, false)));
+    }
+
+    private AdaptiveConcurrencyLimiter limiter() {
+        return filter.getLimiters().get(ROUTE_ID);
+    }
+}
@@ -0,0 +1,169 @@
+package com.gym.gateway.filter;
+
+import com.gym.entity.User;
+import com.gym.gateway.accesslog.AccessLogWriter;
+import com.gym.gateway.config.AccessLogProperties;
+import com.gym.util.GatewayIdentitySigner;
+import com.gym.util.JwtUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 请求入口过滤器链（请求上下文、日志、认证、请求头、安全头）的内存分配基准
+ *
+ * 类名不以 Test 结尾，默认构建不执行；手动运行：
+ * mvn -pl gym-gateway test -Dtest=FilterChainAllocationBenchmark
+ *
+ * 每轮创建一个带 JWT 和 X-Forwarded-For 的请求走完整条链，用 ThreadMXBean 统计本线程分配的字节数，
+ * 减去只有终点（模拟路由转发）时的分配量，得到过滤器链本身每个请求的分配量
+ */
+class FilterChainAllocationBenchmark {
+
+    private static final String[] FILTERS = {
+            "com.gym.gateway.filter.RequestContextGlobalFilter",
+            "com.gym.gateway.filter.LoggingGlobalFilter",
+            "com.gym.gateway.filter.AuthGlobalFilter",
+            "com.gym.gateway.filter.RequestHeadersGlobalFilter",
+            "com.gym.gateway.filter.SecurityHeadersGlobalFilter"
+    };
+
+    private static final int WARMUP = 10_000;
+
+    private static final int ROUNDS = 20_000;
+
+    @Test
+    public void benchmark() throws Exception {
+        JwtUtils jwtUtils = new JwtUtils();
+        jwtUtils.setSecretKey("benchmarkSecretKey");
+        jwtUtils.setExpiration(3600000);
+        User user = new User();
+        user.setUserID(100L);
+        user.setRole(User.Role.member);
+        user.setEmail("member@example.com");
+        String token = jwtUtils.generateToken(user);
+
+        AccessLogProperties accessLogProperties = new AccessLogProperties();
+        accessLogProperties.setSuccessSampleRate(0);
+        AccessLogWriter accessLogWriter = new AccessLogWriter();
+        inject(accessLogWriter, Collections.singletonList(accessLogProperties));
+        accessLogWriter.start();
+
+        List<Object> dependencies = new ArrayList<>();
+        dependencies.add(jwtUtils);
+        dependencies.add(new GatewayIdentitySigner("benchmarkIdentitySecret", 60000));
+        dependencies.add(accessLogWriter);
+
+        List<GlobalFilter> filters = new ArrayList<>();
+        for (String className : FILTERS) {
+            Class<?> type;
+            try {
+                type = Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                continue;
+            }
+            Object filter = type.getDeclaredConstructor().newInstance();
+            inject(filter, dependencies);
+            for (Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(PostConstruct.class)) {
+                    method.setAccessible(true);
+                    method.invoke(filter);
+                }
+            }
+            filters.add((GlobalFilter) filter);
+        }
+        filters.sort(Comparator.comparingInt(filter -> ((Ordered) filter).getOrder()));
+
+        long baseline = bytesPerRequest(Collections.emptyList(), token);
+        long chain = bytesPerRequest(filters, token);
+        System.out.printf("filters=%d, terminal only: %d B/request, full chain: %d B/request, filters: %d B/request%n",
+                filters.size(), baseline, chain, chain - baseline);
+        accessLogWriter.stop();
+    }
+
+    private static long bytesPerRequest(List<GlobalFilter> filters, String token) {
+        for (int i = 0; i < WARMUP; i++) {
+            run(filters, token);
+        }
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ROUNDS; i++) {
+            run(filters, token);
+        }
+        return (threadBean.getThreadAllocatedBytes(threadId) - before) / ROUNDS;
+    }
+
+    private static void run(List<GlobalFilter> filters, String token) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .get("/api/member/appointments/upcoming")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .header("X-Forwarded-For", "203.0.113.7, 10.0.0.1")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE));
+        new Chain(filters, 0).filter(exchange).then(exchange.getResponse().setComplete()).block();
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+    }
+
+    private static void inject(Object target, List<?> dependencies) throws IllegalAccessException {
+        for (Class<?> type = target.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(Autowired.class)) {
+                    continue;
+                }
+                for (Object dependency : dependencies) {
+                    if (field.getType().isInstance(dependency)) {
+                        field.setAccessible(true);
+                        field.set(target, dependency);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 按顺序执行过滤器，最后模拟路由转发：设置状态码和上游响应头
+     */
+    private static final class Chain implements GatewayFilterChain {
+
+        private final List<GlobalFilter> filters;
+
+        private final int index;
+
+        private Chain(List<GlobalFilter> filters, int index) {
+            this.filters = filters;
+            this.index = index;
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            if (index < filters.size()) {
+                return filters.get(index).filter(exchange, new Chain(filters, index + 1));
+            }
+            return Mono.fromRunnable(() -> {
+                exchange.getResponse().setStatusCode(HttpStatus.OK);
+                exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            });
+        }
+    }
+}
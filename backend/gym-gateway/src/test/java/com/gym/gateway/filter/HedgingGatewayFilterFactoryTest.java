@@ -0,0 +1,126 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.config.HedgingProperties;
+import com.gym.gateway.loadbalancer.LatencyAwareLoadBalancer;
+import com.gym.gateway.metrics.GatewayMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用桩过滤器链离线验证对冲：主请求先失败时等待对冲请求，两方都失败才返回错误
+ */
+class HedgingGatewayFilterFactoryTest {
+
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(30);
+
+    private GatewayFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        HedgingProperties properties = new HedgingProperties();
+        properties.setPaths(Collections.singletonList("/api/classes/**"));
+        properties.setMinDelay(HEDGE_DELAY);
+        properties.setMaxDelay(HEDGE_DELAY);
+        GatewayMetrics gatewayMetrics = mock(GatewayMetrics.class);
+        when(gatewayMetrics.routeLatencyPercentileNanos(anyString(), anyDouble())).thenReturn(-1L);
+
+        HedgingGatewayFilterFactory factory = new HedgingGatewayFilterFactory();
+        ReflectionTestUtils.setField(factory, "properties", properties);
+        ReflectionTestUtils.setField(factory, "gatewayMetrics", gatewayMetrics);
+        ReflectionTestUtils.setField(factory, "meterRegistry", new SimpleMeterRegistry());
+        factory.init();
+        filter = factory.apply(new HedgingGatewayFilterFactory.Config());
+    }
+
+    @Test
+    public void testPrimaryErrorDefersToPendingHedge() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/classes/1"));
+        AtomicInteger calls = new AtomicInteger();
+        List<String> excluded = new CopyOnWriteArrayList<>();
+        GatewayFilterChain chain = ex -> Mono.deferContextual(context -> {
+            excluded.add(context.getOrDefault(LatencyAwareLoadBalancer.EXCLUDE_INSTANCE_ATTR, "none"));
+            if (calls.incrementAndGet() == 1) {
+                // 主请求选中了实例，在对冲请求发出之后、返回之前失败
+                ex.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(
+                        new DefaultServiceInstance("10.0.0.1:8080", "gym-server", "10.0.0.1", 8080, false)));
+                return Mono.delay(HEDGE_DELAY.multipliedBy(2)).then(Mono.error(new IOException("connection reset")));
+            }
+            return Mono.delay(HEDGE_DELAY.multipliedBy(3))
+                    .then(Mono.fromRunnable(() -> ex.getResponse().setStatusCode(HttpStatus.OK)));
+        });
+
+        filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+
+        assertEquals(2, calls.get());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        // 对冲请求通过 Context 让负载均衡器避开主请求的实例
+        assertEquals(Arrays.asList("none", "10.0.0.1:8080"), excluded);
+    }
+
+    @Test
+    public void testPrimaryErrorWithoutHedgeFailsFast() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/classes/1"));
+        AtomicInteger calls = new AtomicInteger();
+        GatewayFilterChain chain = ex -> {
+            calls.incrementAndGet();
+            return Mono.error(new IOException("connection refused"));
+        };
+
+        long start = System.nanoTime();
+        assertThrows(IOException.class, () -> unwrap(() -> filter.filter(exchange, chain).block(Duration.ofSeconds(5))));
+
+        assertEquals(1, calls.get());
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    public void testBothFailReturnsError() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/classes/1"));
+        AtomicInteger calls = new AtomicInteger();
+        GatewayFilterChain chain = ex -> {
+            int call = calls.incrementAndGet();
+            return Mono.delay(HEDGE_DELAY.multipliedBy(call == 1 ? 2 : 3))
+                    .then(Mono.error(new IOException("attempt " + call + " failed")));
+        };
+
+        IOException error = assertThrows(IOException.class,
+                () -> unwrap(() -> filter.filter(exchange, chain).block(Duration.ofSeconds(5))));
+
+        assertEquals(2, calls.get());
+        // 最后失败的一方决定返回的错误
+        assertEquals("attempt 2 failed", error.getMessage());
+    }
+
+    private static void unwrap(Runnable blocking) throws Throwable {
+        try {
+            blocking.run();
+        } catch (RuntimeException e) {
+            throw e.getCause() != null ? e.getCause() : e;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.gym.gateway.filter;
+
+import com.gym.gateway.config.RetryBudgetProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory.RetryConfig;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用桩过滤器链离线验证按状态码、按异常重试，以及非幂等请求不重试
+ */
+class RetryBudgetGatewayFilterFactoryTest {
+
+    private RetryBudgetGatewayFilterFactory factory;
+
+    @BeforeEach
+    public void setUp() {
+        factory = new RetryBudgetGatewayFilterFactory();
+        ReflectionTestUtils.setField(factory, "retryGatewayFilterFactory", new RetryGatewayFilterFactory());
+        ReflectionTestUtils.setField(factory, "properties", new RetryBudgetProperties());
+        ReflectionTestUtils.setField(factory, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void testRetriesOnStatusUntilSuccess() {
+        GatewayFilter filter = factory.apply(config(3));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/classes"));
+        AtomicInteger calls = new AtomicInteger();
+        GatewayFilterChain chain = ex -> Mono.fromRunnable(() -> ex.getResponse().setStatusCode(
+                calls.incrementAndGet() < 3 ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK));
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(3, calls.get());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    public void testStopsAfterMaxRetriesOnStatus() {
+        GatewayFilter filter = factory.apply(config(2));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/classes"));
+        AtomicInteger calls = new AtomicInteger();
+        GatewayFilterChain chain = ex -> Mono.fromRunnable(() -> {
+            calls.incrementAndGet();
+            ex.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+        });
+
+        filter.filter(exchange, chain).block();
+
+        // 第一次请求 + 2 次重试
+        assertEquals(3, calls.get());
+        assertEquals(HttpStatus.BAD_GATEWAY, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    public void testRetriesOnException() {
+        GatewayFilter filter = factory.apply(config(3));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/classes"));
+        AtomicInteger calls = new AtomicInteger();
+        GatewayFilterChain chain = ex -> calls.incrementAndGet() < 2
+                ? Mono.error(new IOException("connection reset"))
+                : Mono.fromRunnable(() -> ex.getResponse().setStatusCode(HttpStatus.OK));
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(2, calls.get());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    public void testPostWithoutIdempotencyKeyIsNotRetried() {
+        GatewayFilter filter = factory.apply(config(3));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/bookings"));
+        AtomicInteger calls = new AtomicInteger();
+        GatewayFilterChain chain = ex -> {
+            calls.incrementAndGet();
+            return Mono.error(new IOException("connection reset"));
+        };
+
+        assertThrows(IOException.class, () -> {
+            try {
+                filter.filter(exchange, chain).block();
+            } catch (RuntimeException e) {
+                throw e.getCause();
+            }
+        });
+        assertEquals(1, calls.get());
+    }
+
+    private static RetryConfig config(int retries) {
+        RetryConfig config = new RetryConfig();
+        config.setRetries(retries);
+        config.setMethods(HttpMethod.GET, HttpMethod.POST);
+        config.setStatuses(HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.BAD_GATEWAY);
+        config.setExceptions(IOException.class);
+        return config;
+    }
+}
@@ -0,0 +1,234 @@
+package com.gym.gateway.loadbalancer;
+
+import com.gym.gateway.config.LatencyLoadBalancerProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用本地桩实例和手动时钟离线验证负载均衡选择逻辑
+ */
+class LatencyAwareLoadBalancerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ServiceInstance fast1 = instance("10.0.0.1");
+    private final ServiceInstance fast2 = instance("10.0.0.2");
+    private final ServiceInstance slow = instance("10.0.0.3");
+    private final List<ServiceInstance> instances = Arrays.asList(fast1, fast2, slow);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    private LoadBalancerStats stats;
+
+    private LatencyAwareLoadBalancer loadBalancer;
+
+    @BeforeEach
+    public void setUp() {
+        LatencyLoadBalancerProperties properties = new LatencyLoadBalancerProperties();
+        properties.setDecayTime(Duration.ofSeconds(10));
+        properties.setFailureThreshold(3);
+        properties.setEjectionTime(Duration.ofSeconds(30));
+        stats = new LoadBalancerStats(properties, clock::get);
+        Random random = new Random(42);
+        ServiceInstanceListSupplier supplier = ServiceInstanceListSuppliers.from("gym-server",
+                instances.toArray(new ServiceInstance[0]));
+        loadBalancer = new LatencyAwareLoadBalancer(
+                new StaticListableBeanFactory(Collections.singletonMap("supplier", supplier))
+                        .getBeanProvider(ServiceInstanceListSupplier.class),
+                "gym-server", stats, random::nextInt);
+    }
+
+    @Test
+    public void testChoose_AvoidsSlowInstance() {
+        observe(fast1, 10 * MS, false);
+        observe(fast2, 12 * MS, false);
+        observe(slow, 500 * MS, false);
+
+        Map<ServiceInstance, Integer> picks = pick(1000);
+
+        // 慢实例与任一快实例比较都会输，P2C 下不会被选中
+        assertEquals(0, picks.getOrDefault(slow, 0));
+        assertTrue(picks.get(fast1) > 300);
+        assertTrue(picks.get(fast2) > 300);
+    }
+
+    @Test
+    public void testChoose_FastFailingInstanceNotPreferred() {
+        observe(fast2, 10 * MS, false);
+        observe(slow, 500 * MS, false);
+        // 连接被拒、立即返回 503，耗时很短但没有达到摘除阈值
+        observe(fast1, MS, true);
+        observe(fast1, MS, true);
+
+        Map<ServiceInstance, Integer> picks = pick(1000);
+
+        assertEquals(0, picks.getOrDefault(fast1, 0));
+        assertTrue(picks.get(fast2) > 500);
+    }
+
+    @Test
+    public void testChoose_PenalizesInFlight() {
+        observe(fast1, 10 * MS, false);
+        observe(fast2, 10 * MS, false);
+        observe(slow, 10 * MS, false);
+        for (int i = 0; i < 20; i++) {
+            stats.requestStarted(fast1);
+        }
+
+        Map<ServiceInstance, Integer> picks = pick(1000);
+
+        assertEquals(0, picks.getOrDefault(fast1, 0));
+        assertEquals(1000, picks.get(fast2) + picks.get(slow));
+    }
+
+    @Test
+    public void testChoose_SlowInstanceRecoversAfterIdle() {
+        observe(fast1, 10 * MS, false);
+        observe(fast2, 10 * MS, false);
+        observe(slow, 500 * MS, false);
+        assertEquals(0, pick(200).getOrDefault(slow, 0));
+
+        // 快实例持续有流量，慢实例空闲一分钟后 EWMA 衰减到比快实例更低，会被重新探测
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        observe(fast1, 10 * MS, false);
+        observe(fast2, 10 * MS, false);
+        assertTrue(pick(200).getOrDefault(slow, 0) > 0);
+    }
+
+    @Test
+    public void testChoose_EjectsFailingInstance() {
+        observe(fast1, 10 * MS, false);
+        observe(fast2, 10 * MS, false);
+        // 连接失败往往很快返回，仅靠延迟无法把它排到后面
+        observe(slow, 1 * MS, true);
+        observe(slow, 1 * MS, true);
+        observe(slow, 1 * MS, false);
+        observe(slow, 1 * MS, true);
+        observe(slow, 1 * MS, true);
+        assertFalse(stats.isEjected(slow, clock.get()));
+
+        observe(slow, 1 * MS, true);
+        assertTrue(stats.isEjected(slow, clock.get()));
+        assertEquals(0, pick(500).getOrDefault(slow, 0));
+
+        // 摘除到期后重新放量，再失败一次立刻重新摘除
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertFalse(stats.isEjected(slow, clock.get()));
+        observe(slow, 1 * MS, true);
+        assertTrue(stats.isEjected(slow, clock.get()));
+
+        // 成功后清零连续失败计数
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        observe(slow, 1 * MS, false);
+        observe(slow, 1 * MS, true);
+        assertFalse(stats.isEjected(slow, clock.get()));
+    }
+
+    @Test
+    public void testChoose_AllEjectedFallsBackToAll() {
+        for (ServiceInstance instance : instances) {
+            for (int i = 0; i < 3; i++) {
+                observe(instance, 5 * MS, true);
+            }
+            assertTrue(stats.isEjected(instance, clock.get()));
+        }
+
+        Response<ServiceInstance> response = loadBalancer.choose(instances);
+
+        assertTrue(response.hasServer());
+    }
+
+    @Test
+    public void testChoose_ReactiveSupplier() {
+        Response<ServiceInstance> response = loadBalancer.choose(new DefaultRequest<>()).block();
+
+        assertNotNull(response);
+        assertTrue(instances.contains(response.getServer()));
+        assertFalse(loadBalancer.choose(Collections.emptyList()).hasServer());
+        assertSame(fast1, loadBalancer.choose(Collections.singletonList(fast1)).getServer());
+    }
+
+    @Test
+    public void testChoose_ExcludedInstance() {
+        observe(fast1, 10 * MS, false);
+        observe(fast2, 50 * MS, false);
+        observe(slow, 500 * MS, false);
+        DefaultRequest<RequestDataContext> request = new DefaultRequest<>(new RequestDataContext(requestData(new HttpHeaders())));
+
+        // 对冲请求避开主请求所在的实例，即使它最快
+        for (int i = 0; i < 50; i++) {
+            Response<ServiceInstance> response = LatencyAwareLoadBalancer.excluding(loadBalancer.choose(request), "10.0.0.1:8080").block();
+            assertNotNull(response);
+            assertNotSame(fast1, response.getServer());
+        }
+        // 只剩被排除的实例时仍然可以选它
+        assertSame(fast1, LatencyAwareLoadBalancer.without(Collections.singletonList(fast1), "10.0.0.1:8080").get(0));
+    }
+
+    @Test
+    public void testChoose_ExcludeHeaderFromClientIsIgnored() {
+        observe(fast1, 10 * MS, false);
+        observe(fast2, 500 * MS, false);
+        observe(slow, 500 * MS, false);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(LatencyAwareLoadBalancer.EXCLUDE_INSTANCE_HEADER, "10.0.0.1:8080");
+        DefaultRequest<RequestDataContext> request = new DefaultRequest<>(new RequestDataContext(requestData(headers)));
+
+        // 请求头不能影响实例选择，只有对冲过滤器写入的 Context 才能
+        int picked = 0;
+        for (int i = 0; i < 50; i++) {
+            Response<ServiceInstance> response = loadBalancer.choose(request).block();
+            assertNotNull(response);
+            if (response.getServer() == fast1) {
+                picked++;
+            }
+        }
+        assertTrue(picked > 0);
+    }
+
+    private static RequestData requestData(HttpHeaders headers) {
+        return new RequestData(HttpMethod.GET, URI.create("http://gym-server/member/appointments/upcoming"),
+                headers, new HttpHeaders(), new HashMap<>());
+    }
+
+    private void observe(ServiceInstance instance, long latencyNanos, boolean failed) {
+        stats.requestStarted(instance);
+        stats.requestFinished(instance, latencyNanos, failed);
+    }
+
+    private Map<ServiceInstance, Integer> pick(int rounds) {
+        Map<ServiceInstance, Integer> picks = new HashMap<>();
+        for (int i = 0; i < rounds; i++) {
+            picks.merge(loadBalancer.choose(instances).getServer(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private static ServiceInstance instance(String host) {
+        return new DefaultServiceInstance(host + ":8080", "gym-server", host, 8080, false);
+    }
+}
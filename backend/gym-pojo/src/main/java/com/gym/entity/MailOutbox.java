@@ -0,0 +1,53 @@
+package com.gym.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString(exclude = "body")
+@TableName("mail_outbox")
+public class MailOutbox implements Serializable {
+
+    @TableId(value = "mail_id", type = IdType.AUTO)
+    private Long mailId;
+
+    @TableField("to_email")
+    private String toEmail; // 收件人
+
+    @TableField("subject")
+    private String subject; // 邮件标题
+
+    @TableField("body")
+    private String body; // 邮件正文（纯文本）
+
+    @TableField("status")
+    private MailStatus status; // Pending, Sending, Sent, Dead
+
+    @TableField("attempts")
+    private Integer attempts; // 已尝试发送次数
+
+    @TableField("next_attempt_at")
+    private LocalDateTime nextAttemptAt; // 下次可发送时间；Sending 状态下为租约到期时间
+
+    @TableField("last_error")
+    private String lastError; // 最近一次发送失败原因
+
+    @TableField("delivered_at")
+    private LocalDateTime deliveredAt; // 发送成功时间
+
+    @TableField(value = "created_at", fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updateTime;
+
+    public enum MailStatus {
+        Pending, Sending, Sent, Dead
+    }
+}
@@ -32,6 +32,12 @@ public class Notification implements Serializable {
     @TableField("is_read")
     private Boolean isRead; // 是否已读
 
+    @TableField("aggregate_count")
+    private Integer aggregateCount; // 合并后的通知条数，未合并时为 1
+
+    @TableField("ref_ids")
+    private String refIds; // 合并的业务记录ID（逗号分隔），例如预约ID、连接申请ID
+
     @TableField(value = "created_at", fill = FieldFill.INSERT)
     private LocalDateTime createTime;
 
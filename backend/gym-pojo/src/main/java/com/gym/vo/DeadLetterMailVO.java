@@ -0,0 +1,30 @@
+package com.gym.vo;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class DeadLetterMailVO {
+    // 不返回邮件正文：正文里可能有验证码、重置密码链接
+    private Long mailId;
+
+    private String toEmail;
+
+    private String subject;
+
+    private Integer attempts;
+
+    private String lastError;
+
+    // 正文超过保留时间后被清除，清除后不能再重新发送
+    private Boolean requeueable;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+}
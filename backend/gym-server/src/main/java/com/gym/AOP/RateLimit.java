@@ -21,4 +21,13 @@ public @interface RateLimit {
      * 提示信息，可自定义
      */
     String message() default "Too many requests. Please try again later.";
+
+    /**
+     * 限流维度：按客户端IP，或按登录用户（JWT 中的 userId，未登录请求仍按IP）
+     */
+    KeyType keyType() default KeyType.IP;
+
+    enum KeyType {
+        IP, USER
+    }
 }
@@ -2,17 +2,18 @@ package com.gym.AOP;
 
 import com.gym.exception.CustomException;
 import com.gym.util.IpUtil;
+import com.gym.util.SecurityUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 import com.gym.enumeration.ErrorCode;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.concurrent.TimeUnit;
 
 @Aspect
@@ -21,11 +22,14 @@ import java.util.concurrent.TimeUnit;
 public class RateLimitAspect {
 
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private SlidingWindowRateLimiter rateLimiter;
 
     @Autowired
     private HttpServletRequest request;
 
+    @Autowired
+    private HttpServletResponse response;
+
     /**
      * 配置切点：
      * 拦截所有被 @RateLimit 注解标记的方法
@@ -39,46 +43,43 @@ public class RateLimitAspect {
     @Around("rateLimitPointcut() && @annotation(rateLimit)")
     public Object around(ProceedingJoinPoint joinPoint, RateLimit rateLimit) throws Throwable {
 
-        // 1. 构造限流Key：可用 客户端IP + methodSignature
-        String clientIp = IpUtil.getClientIp(request);
+        // 1. 构造限流Key：methodSignature + 用户ID 或 客户端IP
         String methodName = joinPoint.getSignature().toShortString();
-        String redisKey = "RATE_LIMIT:" + methodName + ":" + clientIp;
+        String redisKey = "RATE_LIMIT:" + methodName + ":" + resolveClientKey(rateLimit.keyType());
 
-        int timeWindowSeconds = rateLimit.timeWindowSeconds();
         int maxRequests = rateLimit.maxRequests();
-        String message = rateLimit.message();
+        long windowMillis = TimeUnit.SECONDS.toMillis(rateLimit.timeWindowSeconds());
 
-        // 2. 使用 Redis incr 进行计数
-        Long currentCount = redisTemplate.opsForValue().increment(redisKey, 1);
-        if (currentCount != null) {
-            // 如果是第一次计数，设置过期时间
-            if (currentCount == 1) {
-                redisTemplate.expire(redisKey, timeWindowSeconds, TimeUnit.SECONDS);
-            }
+        // 2. 滑动窗口限流（Lua 脚本一次往返 + 本地拒绝缓存）
+        long retryAfterMillis;
+        try {
+            retryAfterMillis = rateLimiter.tryAcquire(redisKey, maxRequests, windowMillis);
+        } catch (Exception e) {
+            // Redis 不可用时放行，限流不能影响正常业务
+            log.warn("Rate limit check skipped, key={}, error={}", redisKey, e.getMessage());
+            retryAfterMillis = 0;
+        }
 
-            // 如果超出限制，抛出异常
-            if (currentCount > maxRequests) {
-                log.warn("Rate limit triggered, key={}, count={}, limit={}", redisKey, currentCount, maxRequests);
-                throw new CustomException(ErrorCode.TOO_MANY_REQUESTS, message);
-            }
+        // 如果超出限制，抛出异常
+        if (retryAfterMillis > 0) {
+            log.warn("Rate limit triggered, key={}, limit={}, retryAfter={}ms", redisKey, maxRequests, retryAfterMillis);
+            response.setHeader("Retry-After", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis + 999)));
+            throw new CustomException(ErrorCode.TOO_MANY_REQUESTS, rateLimit.message());
         }
 
         // 3. 继续执行被拦截的方法
         return joinPoint.proceed();
     }
-}
 
-//    private String getClientIp(HttpServletRequest request) {
-//        String ip = request.getHeader("X-Forwarded-For");
-//        if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-//            ip = request.getHeader("Proxy-Client-IP");
-//        }
-//        if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-//            ip = request.getHeader("WL-Proxy-Client-IP");
-//        }
-//        if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-//            ip = request.getRemoteAddr();
-//        }
-//        // 如果有多个IP，取第一个
-//        return ip.split(",")[0].trim();
-//    }
\ No newline at end of file
+    private String resolveClientKey(RateLimit.KeyType keyType) {
+        if (keyType == RateLimit.KeyType.USER) {
+            // JwtAuthenticationFilter 已把 JWT 中的用户放入 SecurityContext
+            Long userId = SecurityUtils.getCurrentUserId();
+            if (userId != null) {
+                return "USER:" + userId;
+            }
+            // 未登录请求按 IP 计数，避免所有匿名请求共用同一个 key
+        }
+        return "IP:" + IpUtil.getClientIp(request);
+    }
+}
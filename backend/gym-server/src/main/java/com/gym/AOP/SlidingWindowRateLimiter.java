@@ -0,0 +1,90 @@
+package com.gym.AOP;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基于 Redis Lua 脚本的滑动窗口限流器
+ *
+ * 1. 清理过期记录、计数、记录本次请求、设置过期时间在一次 EVALSHA 中原子完成，
+ *    不会出现 INCR 成功但 EXPIRE 没执行导致 key 永不过期的问题
+ * 2. 滑动窗口没有固定窗口边界处 2 倍突发的问题
+ * 3. 本地近端缓存：Redis 判定超限后会返回需要等待的时间，在这段时间内同一个 key
+ *    直接在本地拒绝，不再访问 Redis。被拒绝的请求不占名额，所以本地拒绝不会误伤
+ */
+@Slf4j
+@Component
+public class SlidingWindowRateLimiter {
+
+    /** 本地拒绝缓存的最大 key 数量，超过后先清理已过期的条目 */
+    private static final int MAX_LOCAL_BLOCKS = 10000;
+
+    private static final DefaultRedisScript<List> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        SLIDING_WINDOW_SCRIPT.setScriptSource(
+                new ResourceScriptSource(new ClassPathResource("lua/sliding_window_rate_limit.lua")));
+        SLIDING_WINDOW_SCRIPT.setResultType(List.class);
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // key -> 本地拒绝截止时间（毫秒）
+    private final Map<String, Long> localBlocks = new ConcurrentHashMap<>();
+
+    /**
+     * 尝试获取一次访问许可
+     *
+     * @param key          限流 key
+     * @param maxRequests  窗口内最大请求数
+     * @param windowMillis 窗口长度（毫秒）
+     * @return 0 表示放行；大于 0 表示被限流，值为建议等待的毫秒数
+     */
+    public long tryAcquire(String key, int maxRequests, long windowMillis) {
+        long now = System.currentTimeMillis();
+        Long blockedUntil = localBlocks.get(key);
+        if (blockedUntil != null) {
+            if (now < blockedUntil) {
+                return blockedUntil - now;
+            }
+            localBlocks.remove(key, blockedUntil);
+        }
+
+        List<?> result = stringRedisTemplate.execute(SLIDING_WINDOW_SCRIPT, Collections.singletonList(key),
+                String.valueOf(windowMillis), String.valueOf(maxRequests),
+                Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        if (result == null || result.size() < 3) {
+            // 脚本结果异常时放行，限流不能影响正常业务
+            log.warn("Unexpected rate limit script result for key={}: {}", key, result);
+            return 0;
+        }
+        if (((Number) result.get(0)).longValue() == 1) {
+            return 0;
+        }
+        long retryAfterMillis = Math.max(1, ((Number) result.get(2)).longValue());
+        blockLocally(key, now + retryAfterMillis, now);
+        return retryAfterMillis;
+    }
+
+    private void blockLocally(String key, long blockedUntil, long now) {
+        if (localBlocks.size() >= MAX_LOCAL_BLOCKS) {
+            localBlocks.entrySet().removeIf(entry -> entry.getValue() <= now);
+            if (localBlocks.size() >= MAX_LOCAL_BLOCKS) {
+                return;
+            }
+        }
+        localBlocks.put(key, blockedUntil);
+    }
+}
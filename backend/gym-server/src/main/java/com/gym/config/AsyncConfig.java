@@ -1,5 +1,7 @@
 package com.gym.config;
 
+import com.gym.enumeration.ErrorCode;
+import com.gym.exception.CustomException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.context.annotation.Bean;
@@ -29,6 +31,22 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    // 异步接口（如注册、忘记密码）在验证码校验完成后执行业务逻辑的线程池，不占用验证码线程
+    // 排满后拒绝（429），不回退到调用线程执行
+    @Bean("requestAsyncExecutor")
+    public Executor requestAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("RequestAsyncExecutor-");
+        executor.setRejectedExecutionHandler((runnable, pool) -> {
+            throw new CustomException(ErrorCode.TOO_MANY_REQUESTS, "Server is busy, please try again later.");
+        });
+        executor.initialize();
+        return executor;
+    }
+
     @Override
     public Executor getAsyncExecutor() {
         // 返回默认的异步线程池，如果没有特别指定可用同一个
@@ -0,0 +1,34 @@
+package com.gym.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 幂等键配置
+ *
+ * 带 Idempotency-Key 请求头的写请求，第一次执行的响应保存在 Redis 中，
+ * 相同 key 的重复请求（网关重试、客户端重复提交）直接返回保存的响应，不再执行业务。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gym.idempotency")
+public class IdempotencyProperties {
+
+    /** 是否启用 */
+    private boolean enabled = true;
+
+    /** 请求处理期间的占位时长，进程崩溃时占位到期后允许重新执行 */
+    private Duration lockTime = Duration.ofSeconds(30);
+
+    /** 响应保存时长，超过后相同 key 会被当作新请求 */
+    private Duration responseTtl = Duration.ofHours(24);
+
+    /** Idempotency-Key 最大长度 */
+    private int maxKeyLength = 128;
+
+    /** 超过该大小的响应不保存（释放占位，重复请求会重新执行） */
+    private int maxBodySize = 64 * 1024;
+}
@@ -0,0 +1,52 @@
+package com.gym.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 邮件发送队列配置
+ *
+ * 邮件先写入 mail_outbox 表，再由固定数量的发送线程按批次取出，
+ * 每个批次复用同一个 SMTP 连接发送，失败按指数退避重试，超过次数进入死信（Dead）。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gym.mail.queue")
+public class MailQueueProperties {
+
+    /** 发件人地址，需与 spring.mail.username 对应 */
+    private String from;
+
+    /** 发送线程数，同时也是同时打开的 SMTP 连接上限 */
+    private int workers = 2;
+
+    /** 每个批次（一个 SMTP 连接）最多发送的邮件数 */
+    private int batchSize = 20;
+
+    /** 轮询 mail_outbox 的间隔 */
+    private Duration pollInterval = Duration.ofSeconds(2);
+
+    /** 取出后的租约时间，进程崩溃时超过租约的邮件会被重新发送 */
+    private Duration leaseTime = Duration.ofMinutes(2);
+
+    /** 最大尝试次数，超过后进入死信 */
+    private int maxAttempts = 5;
+
+    /** 首次重试退避时间，之后每次翻倍 */
+    private Duration initialBackoff = Duration.ofSeconds(10);
+
+    /** 最大退避时间 */
+    private Duration maxBackoff = Duration.ofMinutes(5);
+
+    /** 已发送邮件正文的保留时间，超过后清除（正文中有验证码、重置链接） */
+    private Duration sentBodyRetention = Duration.ofHours(1);
+
+    /** 死信正文的保留时间，不应长于验证码、重置链接的有效期（5 分钟）太多 */
+    private Duration deadBodyRetention = Duration.ofMinutes(10);
+
+    /** 清除正文的执行间隔 */
+    private Duration purgeInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,44 @@
+package com.gym.config;
+
+import com.gym.entity.Notification;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 通知合并（digest）配置
+ *
+ * 同一接收人、同一类型、同一标题的通知在窗口期内会在内存中合并为一条，
+ * 窗口结束后批量写入 notifications 表。窗口为 0 或未配置的类型不合并，直接写库。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gym.notification.coalesce")
+public class NotificationCoalesceProperties {
+
+    /** 是否启用通知合并 */
+    private boolean enabled = true;
+
+    /** 后台刷新间隔，决定窗口到期后最多延迟多久落库 */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /** 单条合并通知最多记录的业务ID数量，超出后只累加计数 */
+    private int maxRefs = 50;
+
+    /** 内存中最多同时挂起的合并通知数，超出后新通知直接写库 */
+    private int maxPending = 10000;
+
+    /** 各通知类型的合并窗口 */
+    private Map<Notification.NotificationType, Duration> windows = new EnumMap<>(Notification.NotificationType.class);
+
+    public Duration windowOf(Notification.NotificationType type) {
+        if (!enabled || type == null) {
+            return Duration.ZERO;
+        }
+        return windows.getOrDefault(type, Duration.ZERO);
+    }
+}
@@ -1,5 +1,6 @@
 package com.gym.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -7,8 +8,15 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class PasswordConfig {
+
+    @Autowired
+    private PasswordHashingProperties passwordHashingProperties;
+
+    /**
+     * BCrypt 强度由 gym.password-hashing.strength 配置；业务代码通过 PasswordHasher 在独立线程池中使用
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(passwordHashingProperties.getStrength());
     }
 }
@@ -0,0 +1,34 @@
+package com.gym.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 密码哈希配置
+ *
+ * BCrypt 计算和校验在独立的固定大小线程池中执行，请求线程只等待结果；
+ * 排队的任务过多时直接拒绝（429），撞库流量不会占满 Tomcat 线程、拖慢预约等正常请求。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gym.password-hashing")
+public class PasswordHashingProperties {
+
+    /** BCrypt 强度（log2 轮数，4~31）；调整后旧密码在用户下次登录时自动按新强度重新哈希 */
+    private int strength = 10;
+
+    /** 哈希线程数，0 表示 CPU 核数 */
+    private int threads = 0;
+
+    /** 最多排队的任务数，超过后立即拒绝 */
+    private int queueCapacity = 64;
+
+    /** 按当前排队数和平均耗时估算的等待时间超过该值时立即拒绝，不再排队 */
+    private Duration maxWait = Duration.ofSeconds(2);
+
+    /** 请求线程等待结果的最长时间 */
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,40 @@
+package com.gym.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Token 注销配置
+ *
+ * 每个用户有一个会话版本号（Redis），签发 Token 时写入声明，版本号增加后旧 Token 全部失效（退出所有设备、改密码）；
+ * 单个注销的 Token ID 存在 Redis 有序集合中，本地用布隆过滤器挡住绝大多数查询，各实例之间通过 Redis 发布订阅同步。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gym.token-revocation")
+public class TokenRevocationProperties {
+
+    /** 是否启用 */
+    private boolean enabled = true;
+
+    /** 发布订阅频道 */
+    private String channel = "gym:token-revocation";
+
+    /** 本地会话版本号缓存时长，发布订阅消息丢失时最多这么久后读到新版本号 */
+    private Duration versionCacheTtl = Duration.ofSeconds(60);
+
+    /** 本地会话版本号缓存最大条数 */
+    private long versionCacheSize = 10000;
+
+    /** 布隆过滤器预计容纳的已注销 Token 数，超过后在下次重建时自动扩容 */
+    private int bloomExpectedInsertions = 100000;
+
+    /** 布隆过滤器误判率，误判时多查一次 Redis */
+    private double bloomFalsePositiveRate = 0.001;
+
+    /** 清理过期的已注销 Token 并重建布隆过滤器的间隔 */
+    private Duration rebuildInterval = Duration.ofMinutes(10);
+}
@@ -14,9 +14,11 @@ import com.gym.enumeration.ErrorCode;
 import com.gym.exception.CustomException;
 import com.gym.result.RestResult;
 import com.gym.service.FitnessCentreService;
+import com.gym.service.MailService;
 import com.gym.service.SpecializationsService;
 import com.gym.service.UserService;
 import com.gym.util.SecurityUtils;
+import com.gym.vo.DeadLetterMailVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,6 +26,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/admin")
@@ -42,6 +45,9 @@ public class AdminController {
     @Autowired
     private FitnessCentreService fitnessCentreService;  // 新增
 
+    @Autowired
+    private MailService mailService;
+
     /**
      * 获取当前登录管理员的个人信息
      * GET /admin/profile
@@ -223,4 +229,36 @@ public class AdminController {
         Page<User> result = userService.listUsers(page, pageSize, role);
         return RestResult.success(result, "Users retrieved successfully.");
     }
+
+    /**
+     * 邮件队列积压与发送吞吐统计
+     * GET /admin/mail/stats
+     */
+    @GetMapping("/mail/stats")
+    public RestResult<?> getMailStats() {
+        Map<String, Object> stats = mailService.getDeliveryStats();
+        return RestResult.success(stats, "Mail delivery stats retrieved successfully.");
+    }
+
+    /**
+     * 分页查询死信邮件
+     * GET /admin/mail/dead-letters?page=1&pageSize=10
+     */
+    @GetMapping("/mail/dead-letters")
+    public RestResult<?> listDeadLetters(
+            @RequestParam(value = "page", defaultValue = "1") int page,
+            @RequestParam(value = "pageSize", defaultValue = "10") int pageSize) {
+        Page<DeadLetterMailVO> result = mailService.getDeadLetters(page, pageSize);
+        return RestResult.success(result, "Dead letter mails retrieved successfully.");
+    }
+
+    /**
+     * 将死信邮件重新放回发送队列
+     * POST /admin/mail/dead-letters/{id}/requeue
+     */
+    @PostMapping("/mail/dead-letters/{id}/requeue")
+    public RestResult<?> requeueDeadLetter(@PathVariable("id") Long id) {
+        mailService.requeueDeadLetter(id);
+        return RestResult.success(null, "Mail requeued successfully.");
+    }
 }
@@ -1,5 +1,7 @@
 package com.gym.controller;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.gym.dto.redis.UserCacheDTO;
 import com.gym.entity.User;
 import com.gym.result.RestResult;
 import com.gym.service.UserService;
@@ -9,6 +11,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * 内部服务调用控制器
  * 
@@ -16,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
  * 1. 提供内部微服务间调用的API接口
  * 2. 主要供认证服务等其他服务调用
  * 3. 不对外暴露，仅用于服务间通信
+ * 4. 返回的用户信息不包含密码哈希
  * 
  * @author gym-system
  * @version 1.0
@@ -26,6 +34,9 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class InternalController {
 
+    /** 批量查询单次最多的用户ID数 */
+    private static final int MAX_BATCH_SIZE = 200;
+
     @Autowired
     private UserService userService;
 
@@ -44,6 +55,7 @@ public class InternalController {
             
             if (user != null) {
                 log.debug("内部调用成功：找到用户信息 - userId: {}, email: {}", userId, user.getEmail());
+                user.setPasswordHash(null);
                 return RestResult.success(user);
             } else {
                 log.debug("内部调用：用户不存在 - userId: {}", userId);
@@ -70,6 +82,7 @@ public class InternalController {
             
             if (user != null) {
                 log.debug("内部调用成功：找到用户信息 - email: {}, userId: {}", email, user.getUserID());
+                user.setPasswordHash(null);
                 return RestResult.success(user);
             } else {
                 log.debug("内部调用：用户不存在 - email: {}", email);
@@ -80,4 +93,36 @@ public class InternalController {
             return RestResult.error("获取用户信息失败: " + e.getMessage(), 500);
         }
     }
+
+    /**
+     * 根据用户ID批量获取用户信息（内部调用）
+     * 
+     * 只查询认证需要的字段（ID、姓名、邮箱、角色、账号状态），不存在的ID不在结果中
+     * 
+     * @param userIds 用户ID列表，最多 200 个
+     * @return 用户信息列表
+     */
+    @ApiOperation("根据用户ID批量获取用户信息")
+    @PostMapping("/users/batch")
+    public RestResult<List<UserCacheDTO>> getUsersByIds(@RequestBody List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return RestResult.success(new ArrayList<>());
+        }
+        if (userIds.size() > MAX_BATCH_SIZE) {
+            return RestResult.error("单次最多查询 " + MAX_BATCH_SIZE + " 个用户", 400);
+        }
+        try {
+            log.debug("内部调用：批量获取用户信息 - 数量: {}", userIds.size());
+            LambdaQueryWrapper<User> queryWrapper = new LambdaQueryWrapper<User>()
+                    .select(User::getUserID, User::getName, User::getEmail, User::getRole, User::getAccountStatus)
+                    .in(User::getUserID, new LinkedHashSet<>(userIds));
+            List<UserCacheDTO> users = userService.list(queryWrapper).stream()
+                    .map(UserCacheDTO::fromEntity)
+                    .collect(Collectors.toList());
+            return RestResult.success(users);
+        } catch (Exception e) {
+            log.error("内部调用异常：批量获取用户信息失败 - 数量: {}, error: {}", userIds.size(), e.getMessage());
+            return RestResult.error("批量获取用户信息失败: " + e.getMessage(), 500);
+        }
+    }
 }
@@ -20,6 +20,7 @@ import com.gym.result.RestResult;
 import com.gym.util.JwtUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
@@ -27,6 +28,8 @@ import org.springframework.web.bind.annotation.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -50,6 +53,11 @@ public class UserController {
     @Autowired
     private FitnessCentreService fitnessCentreService;
 
+    // 验证码通过后的业务逻辑（查库、发邮件）在这个线程池执行，验证码回调线程只做轻量处理
+    @Autowired
+    @Qualifier("requestAsyncExecutor")
+    private Executor requestAsyncExecutor;
+
     // 用于生成腾讯机器人验证码
     private void validateCaptcha(String captchaTicket, String captchaRandstr, HttpServletRequest request) {
         String clientIp = IpUtil.getClientIp(request);
@@ -59,6 +67,21 @@ public class UserController {
         }
     }
 
+    // 异步校验验证码：等待腾讯云期间不占用 Tomcat 线程，未开启验证码（tencent.captcha.enabled）时直接通过
+    private CompletableFuture<Void> validateCaptchaAsync(String captchaTicket, String captchaRandstr,
+                                                         HttpServletRequest request) {
+        if (!tencentCaptchaUtil.isEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String clientIp = IpUtil.getClientIp(request);
+        return tencentCaptchaUtil.verifyCaptchaAsync(captchaTicket, captchaRandstr, clientIp)
+                .thenAccept(captchaValid -> {
+                    if (!captchaValid) {
+                        throw new CustomException(ErrorCode.BAD_REQUEST, "Captcha verification failed.");
+                    }
+                });
+    }
+
     /**
      * 注册第一步：发送验证码邮件
      */
@@ -66,13 +89,15 @@ public class UserController {
     // 限流注解，60 秒内最多 5 次请求
     @RateLimit(timeWindowSeconds = 60, maxRequests = 5,
             message = "Too many signup requests. Please try again later.")
-    public RestResult<?> signup(@Valid @RequestBody SignupRequest request, HttpServletRequest httpRequest) {
-        // 先进行验证码校验
-        // validateCaptcha(request.getCaptchaTicket(), request.getCaptchaRandstr(), httpRequest);
-
-        log.info("signup request: {}", request);
-        userService.sendSignupVerification(request);
-        return RestResult.success(null, "Verification code has been sent to your email. Please enter it to complete registration.");
+    public CompletableFuture<RestResult<?>> signup(@Valid @RequestBody SignupRequest request,
+                                                  HttpServletRequest httpRequest) {
+        // 先进行验证码校验（异步），通过后再发送验证码邮件
+        return validateCaptchaAsync(request.getCaptchaTicket(), request.getCaptchaRandstr(), httpRequest)
+                .thenApplyAsync(v -> {
+                    log.info("signup request: {}", request);
+                    userService.sendSignupVerification(request);
+                    return RestResult.success(null, "Verification code has been sent to your email. Please enter it to complete registration.");
+                }, requestAsyncExecutor);
     }
 
     /**
@@ -96,18 +121,52 @@ public class UserController {
         return RestResult.success(response, "Login success.");
     }
 
+    /**
+     * 退出登录：注销当前 Token
+     */
+    @PostMapping("/logout")
+    public RestResult<?> logout(HttpServletRequest request) {
+        Long currentUserId = SecurityUtils.getCurrentUserId();
+        if (currentUserId == null) {
+            throw new CustomException(ErrorCode.UNAUTHORIZED, "User is not authenticated or session is invalid.");
+        }
+        // 经过网关时原始 Token 在 X-Auth-Token 中
+        String token = request.getHeader("X-Auth-Token");
+        String authHeader = request.getHeader("Authorization");
+        if (token == null && authHeader != null && authHeader.startsWith("Bearer ")) {
+            token = authHeader.substring(7);
+        }
+        authService.logout(token);
+        return RestResult.success(null, "Logout success.");
+    }
+
+    /**
+     * 退出所有设备：当前用户之前签发的 Token 全部失效
+     */
+    @PostMapping("/logout-all")
+    public RestResult<?> logoutAll() {
+        Long currentUserId = SecurityUtils.getCurrentUserId();
+        if (currentUserId == null) {
+            throw new CustomException(ErrorCode.UNAUTHORIZED, "User is not authenticated or session is invalid.");
+        }
+        authService.logoutAllSessions(currentUserId);
+        return RestResult.success(null, "Logged out from all devices.");
+    }
+
     /**
      * 忘记密码：发送重置链接
      */
     @PostMapping("/forgot-password")
     @RateLimit(timeWindowSeconds = 60, maxRequests = 5,
             message = "Too many reset password requests. Please try again later.")
-    public RestResult<?> forgotPassword(@Valid @RequestBody ForgotPasswordRequest request,
-                                        HttpServletRequest httpRequest) {
-        // 先进行验证码校验
-        // validateCaptcha(request.getCaptchaTicket(), request.getCaptchaRandstr(), httpRequest);
-        authService.forgotPassword(request);
-        return RestResult.success(null, "A password reset link has been sent to your email.");
+    public CompletableFuture<RestResult<?>> forgotPassword(@Valid @RequestBody ForgotPasswordRequest request,
+                                                          HttpServletRequest httpRequest) {
+        // 先进行验证码校验（异步）
+        return validateCaptchaAsync(request.getCaptchaTicket(), request.getCaptchaRandstr(), httpRequest)
+                .thenApplyAsync(v -> {
+                    authService.forgotPassword(request);
+                    return RestResult.success(null, "A password reset link has been sent to your email.");
+                }, requestAsyncExecutor);
     }
 
     /**
@@ -0,0 +1,71 @@
+package com.gym.dao;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.gym.entity.MailOutbox;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface MailOutboxDao extends BaseMapper<MailOutbox> {
+
+    /**
+     * 到期可发送的邮件：Pending 且到了重试时间，或 Sending 但租约已过期
+     */
+    @Select("SELECT mail_id, to_email, subject, body, status, attempts, next_attempt_at " +
+            "FROM mail_outbox " +
+            "WHERE status IN ('Pending', 'Sending') AND next_attempt_at <= #{now} " +
+            "ORDER BY next_attempt_at " +
+            "LIMIT #{limit}")
+    List<MailOutbox> selectDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 认领一封邮件（Pending/Sending -> Sending），状态和到期时间都没变时才更新，多实例下只有一个能成功
+     */
+    @Update("UPDATE mail_outbox " +
+            "SET status = 'Sending', next_attempt_at = #{leaseUntil}, attempts = #{attempts} " +
+            "WHERE mail_id = #{mailId} AND status = #{expectedStatus} AND next_attempt_at <= #{now}")
+    int claim(@Param("mailId") Long mailId,
+              @Param("expectedStatus") MailOutbox.MailStatus expectedStatus,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil,
+              @Param("attempts") int attempts);
+
+    /**
+     * 租约过期且次数已用完的邮件直接进入死信
+     */
+    @Update("UPDATE mail_outbox " +
+            "SET status = 'Dead', attempts = #{attempts}, last_error = #{lastError} " +
+            "WHERE mail_id = #{mailId} AND status = 'Sending' AND next_attempt_at <= #{now}")
+    int expireLease(@Param("mailId") Long mailId,
+                    @Param("now") LocalDateTime now,
+                    @Param("attempts") int attempts,
+                    @Param("lastError") String lastError);
+
+    @Update("<script>" +
+            "UPDATE mail_outbox SET status = 'Sent', delivered_at = #{deliveredAt} " +
+            "WHERE mail_id IN " +
+            "<foreach collection='mailIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markSent(@Param("mailIds") List<Long> mailIds, @Param("deliveredAt") LocalDateTime deliveredAt);
+
+    @Update("UPDATE mail_outbox " +
+            "SET status = #{status}, attempts = #{attempts}, last_error = #{lastError}, next_attempt_at = #{nextAttemptAt} " +
+            "WHERE mail_id = #{mailId}")
+    int markFailed(@Param("mailId") Long mailId,
+                   @Param("status") MailOutbox.MailStatus status,
+                   @Param("attempts") int attempts,
+                   @Param("lastError") String lastError,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * 清除指定状态下、最后更新早于 before 的邮件正文（正文中可能有验证码、重置链接）
+     */
+    @Update("UPDATE mail_outbox SET body = NULL " +
+            "WHERE status = #{status} AND updated_at < #{before} AND body IS NOT NULL")
+    int purgeBodies(@Param("status") MailOutbox.MailStatus status, @Param("before") LocalDateTime before);
+}
@@ -1,29 +1,39 @@
 package com.gym.filter;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.gym.entity.User;
 import com.gym.service.RedisCacheService;
+import com.gym.session.TokenRevocationStore;
+import com.gym.util.GatewayIdentitySigner;
+import com.gym.util.JwtParseResult;
 import com.gym.util.JwtUtils;
 import com.gym.util.UserRoleUtil;
 import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 每次请求前执行:
- * 1) 从Header中取Token
- * 2) 验证Token
- * 3) 将用户信息放入SecurityContext
+ * 1) 如果带有网关签名的身份头且验签通过，信任头中的用户ID和角色；转发的原始 Token（X-Auth-Token）必须有效、属于同一用户，否则不认证
+ * 2) 否则从Header中取Token并验证
+ * 3) 检查 Token 是否已被注销（单个注销，或会话版本号过旧：退出所有设备、改密码）
+ * 4) 用认证版本号检查用户是否被注销或角色变动：版本号没变就用本地缓存的用户，不再取完整用户
+ * 5) 将用户信息放入SecurityContext
  */
 @Slf4j
 @Component
@@ -41,45 +51,61 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private RedisCacheService redisCacheService;
 
+    @Autowired
+    private GatewayIdentitySigner identitySigner;
+
+    @Autowired
+    private TokenRevocationStore tokenRevocationStore;
+
+    // 网关转发的原始 Token
+    private static final String AUTH_TOKEN_HEADER = "X-Auth-Token";
+
+    // 是否信任网关签名的身份头
+    @Value("${gateway.identity.trusted:true}")
+    private boolean trustSignedHeaders;
+
+    // 本地用户快照的最长存活时间（秒）：Redis 版本号丢失或回退时，最多这么久之后也会重新取用户
+    @Value("${jwt.auth-snapshot.ttl-seconds:300}")
+    private long authSnapshotTtlSeconds;
+
+    // userId -> (认证版本号, 用户)，版本号变化或超过存活时间后重新取用户
+    private Cache<Long, AuthSnapshot> authSnapshots;
+
+    @PostConstruct
+    public void init() {
+        authSnapshots = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(authSnapshotTtlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain)
             throws ServletException, IOException {
 
+        if (trustSignedHeaders && identitySigner.isEnabled() && authenticateFromSignedHeaders(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         String authHeader = request.getHeader("Authorization");
         String token = null;
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             token = authHeader.substring(7);
         }
 
-        // 如果拿到了Token, 验证它
-        if (token != null && jwtUtils.validateToken(token)) {
-            Claims claims = jwtUtils.getClaims(token);
+        // 如果拿到了Token, 验证它（校验和解析一次完成）
+        JwtParseResult result = token != null ? jwtUtils.parseAndValidate(token) : null;
+        if (result != null && result.isValid() && !tokenRevocationStore.isRevoked(result.getClaims())) {
+            Claims claims = result.getClaims();
             String userIdStr = claims.getSubject(); // subject里放的是 userId
             String roleStr = (String) claims.get("role");
 
             try {
                 Long userId = Long.valueOf(userIdStr);
-                // 去缓存中取用户信息
-                User user = redisCacheService.getUser(userId);
-
-                // 判断用户是否已经被注销 或者 用户权限是否变动
-                // 如果用户没问题！则为这次http请求设置认证信息，确保接下来的业务逻辑可以获取到用户信息
-                if (user != null && user.getRole().name().equals(roleStr)) {
-                    // 构建Security认证对象
-                    UsernamePasswordAuthenticationToken authenticationToken =
-                            new UsernamePasswordAuthenticationToken(
-                                    user, // Principal，后续可在代码中取SecurityContextHolder.getContext().getAuthentication().getPrincipal()
-                                    null, // Credentials
-                                    // 把角色加入权限
-                                    UserRoleUtil.buildAuthorities(user.getRole())
-                            );
-                    authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                    // 将认证信息放到上下文
-                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                }
+                authenticate(request, userId, roleStr);
             } catch (NumberFormatException e) {
                 log.warn("Token subject不是数字类型: {}", userIdStr);
             }
@@ -90,6 +116,97 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // 放行
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * 使用网关签名的身份头认证
+     *
+     * 签名只覆盖用户ID、角色、邮箱和时间戳，不包含 jti 和会话版本号，注销状态要靠转发的原始 Token 检查：
+     * 原始 Token 缺失、无效、不属于签名头中的用户或已被注销时都不认证（fail-closed）
+     *
+     * @return true 表示验签通过（无论是否认证成功都不再走 JWT）；false 表示没有签名头或验签失败
+     */
+    private boolean authenticateFromSignedHeaders(HttpServletRequest request) {
+        String signature = request.getHeader(GatewayIdentitySigner.SIGNATURE_HEADER);
+        String userIdStr = request.getHeader(GatewayIdentitySigner.USER_ID_HEADER);
+        if (signature == null || userIdStr == null) {
+            return false;
+        }
+        String roleStr = request.getHeader(GatewayIdentitySigner.USER_ROLE_HEADER);
+        String email = request.getHeader(GatewayIdentitySigner.USER_EMAIL_HEADER);
+        String timestamp = request.getHeader(GatewayIdentitySigner.TIMESTAMP_HEADER);
+        if (!identitySigner.verify(userIdStr, roleStr, email, timestamp, signature)) {
+            log.warn("网关身份头验签失败, userId: {}, timestamp: {}", userIdStr, timestamp);
+            return false;
+        }
+        // 网关不检查注销状态，用转发的原始 Token 检查（解析结果有本地缓存）
+        JwtParseResult result = jwtUtils.parseAndValidate(request.getHeader(AUTH_TOKEN_HEADER));
+        if (!result.isValid()) {
+            log.warn("身份头缺少有效的原始Token, userId: {}, 原因: {}", userIdStr, result.getFailureReason());
+            return true;
+        }
+        if (!userIdStr.equals(result.getClaims().getSubject())) {
+            log.warn("原始Token与身份头的用户不一致, userId: {}, subject: {}", userIdStr, result.getClaims().getSubject());
+            return true;
+        }
+        if (tokenRevocationStore.isRevoked(result.getClaims())) {
+            return true;
+        }
+        try {
+            authenticate(request, Long.valueOf(userIdStr), roleStr);
+        } catch (NumberFormatException e) {
+            log.warn("身份头中的用户ID不是数字类型: {}", userIdStr);
+        }
+        return true;
+    }
+
+    /**
+     * 判断用户是否已经被注销 或者 用户权限是否变动
+     * 如果用户没问题！则为这次http请求设置认证信息，确保接下来的业务逻辑可以获取到用户信息
+     */
+    private void authenticate(HttpServletRequest request, Long userId, String roleStr) {
+        User user = loadUser(userId);
+        if (user != null && user.getRole().name().equals(roleStr)) {
+            // 构建Security认证对象
+            UsernamePasswordAuthenticationToken authenticationToken =
+                    new UsernamePasswordAuthenticationToken(
+                            user, // Principal，后续可在代码中取SecurityContextHolder.getContext().getAuthentication().getPrincipal()
+                            null, // Credentials
+                            // 把角色加入权限
+                            UserRoleUtil.buildAuthorities(user.getRole())
+                    );
+            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+            // 将认证信息放到上下文
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+        }
+    }
+
+    /**
+     * 先读认证版本号（一个很小的 Redis 字符串），和本地缓存的版本一致就直接用本地的用户，
+     * 不一致（用户被更新或删除过）才去缓存中取完整用户
+     */
+    private User loadUser(Long userId) {
+        long version = redisCacheService.getAuthVersion(userId);
+        AuthSnapshot snapshot = authSnapshots.getIfPresent(userId);
+        if (snapshot != null && snapshot.version == version) {
+            return snapshot.user;
+        }
+        // 去缓存中取用户信息
+        User user = redisCacheService.getUser(userId);
+        authSnapshots.put(userId, new AuthSnapshot(version, user));
+        return user;
+    }
+
+    // user 为 null 表示用户不存在（已注销）
+    private static final class AuthSnapshot {
+        private final long version;
+        private final User user;
+
+        private AuthSnapshot(long version, User user) {
+            this.version = version;
+            this.user = user;
+        }
+    }
 }
 
 
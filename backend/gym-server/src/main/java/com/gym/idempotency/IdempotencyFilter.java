@@ -0,0 +1,222 @@
+package com.gym.idempotency;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.gym.config.IdempotencyProperties;
+import com.gym.result.RestResult;
+import com.gym.util.SecurityUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 幂等键过滤器
+ *
+ * 对带 Idempotency-Key 请求头的 POST/PUT/PATCH/DELETE 请求：
+ * 1) 第一次请求正常执行，响应保存到 Redis（按用户、方法、路径、key 区分）
+ * 2) 相同 key 的重复请求直接回放保存的响应，并带上 Idempotent-Replayed: true
+ * 3) 第一次请求还在处理时，重复请求返回 409
+ * 4) 服务端错误（HTTP 5xx 或 RestResult code 5xx）不保存，允许重试重新执行
+ * 5) 异步处理的请求（接口返回 CompletableFuture）在异步分派完成时再保存响应
+ *
+ * 在 Spring Security 过滤器链之后执行，此时已经能拿到当前用户
+ */
+@Slf4j
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final String KEY_PREFIX = "idempotency:";
+
+    // 异步请求第一次进入时拿到的占位，异步分派时取出
+    private static final String PENDING_CLAIM_ATTRIBUTE = IdempotencyFilter.class.getName() + ".PENDING_CLAIM";
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IdempotencyProperties properties;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!properties.isEnabled() || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null) {
+            return true;
+        }
+        String method = request.getMethod();
+        return !("POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method) || "DELETE".equals(method));
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            PendingClaim pending = (PendingClaim) request.getAttribute(PENDING_CLAIM_ATTRIBUTE);
+            ContentCachingResponseWrapper responseWrapper =
+                    WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+            if (pending == null || responseWrapper == null) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            proceed(request, response, filterChain, pending.key, pending.token, responseWrapper);
+            return;
+        }
+
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > properties.getMaxKeyLength()) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be 1-" + properties.getMaxKeyLength() + " characters.");
+            return;
+        }
+
+        Long userId = SecurityUtils.getCurrentUserId();
+        String key = KEY_PREFIX + (userId != null ? userId : "anonymous") + ":"
+                + request.getMethod() + ":" + request.getRequestURI() + ":" + idempotencyKey;
+
+        IdempotencyStore.Claim claim;
+        try {
+            claim = idempotencyStore.claim(key);
+        } catch (Exception e) {
+            // Redis 不可用时按普通请求处理，幂等保护不能影响正常业务
+            log.warn("Idempotency store unavailable, processing request without it: {}", e.getMessage());
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        switch (claim.getState()) {
+            case REPLAY:
+                replay(response, claim.getResponse());
+                return;
+            case IN_PROGRESS:
+                response.setHeader("Retry-After", "1");
+                writeError(response, HttpStatus.CONFLICT,
+                        "A request with the same Idempotency-Key is still being processed.");
+                return;
+            default:
+                break;
+        }
+
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        proceed(request, responseWrapper, filterChain, key, claim.getToken(), responseWrapper);
+    }
+
+    /**
+     * 执行请求并保存响应；请求转为异步处理时保留占位，等异步分派再次进入时保存
+     */
+    private void proceed(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String key, String token, ContentCachingResponseWrapper responseWrapper)
+            throws ServletException, IOException {
+        boolean stored = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (isAsyncStarted(request)) {
+                request.setAttribute(PENDING_CLAIM_ATTRIBUTE, new PendingClaim(key, token));
+                return;
+            }
+            stored = saveIfStorable(key, token, responseWrapper);
+        } finally {
+            if (!isAsyncStarted(request)) {
+                if (!stored) {
+                    releaseQuietly(key, token);
+                }
+                responseWrapper.copyBodyToResponse();
+            }
+        }
+    }
+
+    private boolean saveIfStorable(String key, String token, ContentCachingResponseWrapper responseWrapper) {
+        byte[] body = responseWrapper.getContentAsByteArray();
+        if (!isStorable(responseWrapper.getStatus(), responseWrapper.getContentType(), body)) {
+            return false;
+        }
+        try {
+            idempotencyStore.complete(key, token,
+                    new StoredResponse(responseWrapper.getStatus(), responseWrapper.getContentType(), body));
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to save idempotent response, key={}: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 只保存确定的结果：服务端错误（包括 GlobalExceptionHandler 返回的 code 5xx）可能是暂时的，不保存
+     */
+    private boolean isStorable(int status, String contentType, byte[] body) {
+        if (status >= 500 || body.length > properties.getMaxBodySize()) {
+            return false;
+        }
+        if (contentType == null || !contentType.startsWith(MediaType.APPLICATION_JSON_VALUE) || body.length == 0) {
+            return true;
+        }
+        try {
+            Object parsed = JSON.parse(new String(body, StandardCharsets.UTF_8));
+            if (parsed instanceof JSONObject) {
+                Integer code = ((JSONObject) parsed).getInteger("code");
+                return code == null || code < 500 || code >= 600;
+            }
+        } catch (Exception e) {
+            log.debug("Response body is not valid JSON, saving as is");
+        }
+        return true;
+    }
+
+    private void replay(HttpServletResponse response, StoredResponse stored) throws IOException {
+        response.setStatus(stored.getStatus());
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+        response.flushBuffer();
+    }
+
+    private void releaseQuietly(String key, String token) {
+        try {
+            idempotencyStore.release(key, token);
+        } catch (Exception e) {
+            // 释放失败时占位会在 lockTime 后自动过期
+            log.warn("Failed to release idempotency key={}: {}", key, e.getMessage());
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(JSON.toJSONString(RestResult.error(message, status.value())));
+        response.getWriter().flush();
+    }
+
+    private static final class PendingClaim {
+        private final String key;
+        private final String token;
+
+        private PendingClaim(String key, String token) {
+            this.key = key;
+            this.token = token;
+        }
+    }
+}
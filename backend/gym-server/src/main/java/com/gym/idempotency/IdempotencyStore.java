@@ -0,0 +1,131 @@
+package com.gym.idempotency;
+
+import com.gym.config.IdempotencyProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis 的幂等键存储
+ *
+ * 1. 第一次请求用 SET NX 写入占位值（PENDING:随机串），拿到占位的请求执行业务
+ * 2. 执行完成后用 Lua 脚本校验占位仍属于自己，再替换为响应（或释放占位）
+ * 3. 其他带相同 key 的请求看到占位返回"处理中"，看到响应直接回放
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    private static final String PENDING_PREFIX = "PENDING:";
+
+    private static final DefaultRedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        COMPLETE_SCRIPT.setScriptSource(
+                new ResourceScriptSource(new ClassPathResource("lua/idempotency_complete.lua")));
+        COMPLETE_SCRIPT.setResultType(Long.class);
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private IdempotencyProperties properties;
+
+    /**
+     * 尝试占用幂等键
+     *
+     * @param key Redis key
+     * @return 占用结果
+     */
+    public Claim claim(String key) {
+        String token = PENDING_PREFIX + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        // 占位刚好过期时 GET 会拿到 null，再试一次
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(key, token, properties.getLockTime().toMillis(), TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(acquired)) {
+                return Claim.acquired(token);
+            }
+            String value = stringRedisTemplate.opsForValue().get(key);
+            if (value == null) {
+                continue;
+            }
+            StoredResponse stored = StoredResponse.decode(value);
+            return stored != null ? Claim.replay(stored) : Claim.inProgress();
+        }
+        return Claim.inProgress();
+    }
+
+    /**
+     * 保存响应，之后相同 key 的请求直接回放
+     */
+    public void complete(String key, String token, StoredResponse response) {
+        finish(key, token, response.encode());
+    }
+
+    /**
+     * 释放占位，相同 key 的请求可以重新执行
+     */
+    public void release(String key, String token) {
+        finish(key, token, "");
+    }
+
+    private void finish(String key, String token, String value) {
+        Long result = stringRedisTemplate.execute(COMPLETE_SCRIPT, Collections.singletonList(key),
+                token, value, String.valueOf(properties.getResponseTtl().toMillis()));
+        if (result == null || result == 0) {
+            log.warn("Idempotency lock expired before the request finished, key={}", key);
+        }
+    }
+
+    /**
+     * 占用结果
+     */
+    public static final class Claim {
+
+        enum State { ACQUIRED, IN_PROGRESS, REPLAY }
+
+        private final State state;
+        private final String token;
+        private final StoredResponse response;
+
+        private Claim(State state, String token, StoredResponse response) {
+            this.state = state;
+            this.token = token;
+            this.response = response;
+        }
+
+        static Claim acquired(String token) {
+            return new Claim(State.ACQUIRED, token, null);
+        }
+
+        static Claim inProgress() {
+            return new Claim(State.IN_PROGRESS, null, null);
+        }
+
+        static Claim replay(StoredResponse response) {
+            return new Claim(State.REPLAY, null, response);
+        }
+
+        State getState() {
+            return state;
+        }
+
+        String getToken() {
+            return token;
+        }
+
+        StoredResponse getResponse() {
+            return response;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.gym.idempotency;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 保存在 Redis 中的响应：状态码、Content-Type 和响应体
+ */
+@Getter
+public class StoredResponse {
+
+    private static final String PREFIX = "DONE\n";
+
+    private final int status;
+
+    private final String contentType;
+
+    private final byte[] body;
+
+    public StoredResponse(int status, String contentType, byte[] body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    /**
+     * 序列化为 "DONE\n状态码\nContent-Type\nBase64(响应体)"
+     */
+    String encode() {
+        return PREFIX + status + "\n" + (contentType == null ? "" : contentType) + "\n"
+                + Base64.getEncoder().encodeToString(body);
+    }
+
+    /**
+     * @return 不是已完成的响应（例如占位值）时返回 null
+     */
+    static StoredResponse decode(String value) {
+        if (value == null || !value.startsWith(PREFIX)) {
+            return null;
+        }
+        String[] parts = value.substring(PREFIX.length()).split("\n", -1);
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new StoredResponse(Integer.parseInt(parts[0]), parts[1].isEmpty() ? null : parts[1],
+                    Base64.getDecoder().decode(parts[2].getBytes(StandardCharsets.US_ASCII)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
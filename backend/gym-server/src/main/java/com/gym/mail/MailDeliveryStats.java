@@ -0,0 +1,68 @@
+package com.gym.mail;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 邮件发送吞吐统计（进程内计数，重启清零）
+ */
+public class MailDeliveryStats {
+
+    private final long startMillis = System.currentTimeMillis();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder dead = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchMillis = new LongAdder();
+
+    public void recordEnqueued() {
+        enqueued.increment();
+    }
+
+    public void recordBatch(int sentCount, int retriedCount, int deadCount, long elapsedMillis) {
+        batches.increment();
+        batchMillis.add(elapsedMillis);
+        sent.add(sentCount);
+        retried.add(retriedCount);
+        dead.add(deadCount);
+    }
+
+    /**
+     * 租约过期且次数用完、未经过发送批次直接进入死信的邮件
+     */
+    public void recordDead(int deadCount) {
+        dead.add(deadCount);
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    public long getDead() {
+        return dead.sum();
+    }
+
+    public Map<String, Object> snapshot() {
+        long batchCount = batches.sum();
+        long sentCount = sent.sum();
+        long attempted = sentCount + retried.sum() + dead.sum();
+        double uptimeSeconds = Math.max(1, System.currentTimeMillis() - startMillis) / 1000.0;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enqueued", enqueued.sum());
+        result.put("sent", sentCount);
+        result.put("retried", retried.sum());
+        result.put("dead", dead.sum());
+        result.put("batches", batchCount);
+        result.put("avgBatchMillis", batchCount == 0 ? 0 : batchMillis.sum() / batchCount);
+        result.put("avgBatchSize", batchCount == 0 ? 0 : (double) attempted / batchCount);
+        result.put("sentPerSecond", sentCount / uptimeSeconds);
+        return result;
+    }
+}
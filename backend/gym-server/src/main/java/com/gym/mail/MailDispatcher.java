@@ -0,0 +1,291 @@
+package com.gym.mail;
+
+import com.gym.config.MailQueueProperties;
+import com.gym.dao.MailOutboxDao;
+import com.gym.entity.MailOutbox;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 邮件发送调度器
+ *
+ * 1. 轮询线程从 mail_outbox 中按批次认领（Pending -> Sending）到期的邮件
+ * 2. 认领使用带条件的 UPDATE，多实例部署时同一封邮件只会被一个实例取走
+ * 3. 每个批次交给固定大小的发送线程池，一次 JavaMailSender.send(MimeMessage...) 复用同一个 SMTP 连接
+ * 4. 发送失败按指数退避重新排队，超过最大次数标记为 Dead（死信）
+ * 5. 发送线程全部忙时轮询线程不再认领，积压留在数据库里，不会因为队列满而丢邮件
+ * 6. 租约过期被重新认领也算一次尝试，进程反复崩溃的邮件同样会进入死信，不会无限重发
+ * 7. 正文中有验证码、重置密码链接：Sent 和 Dead 的邮件超过保留时间后清除正文
+ */
+@Slf4j
+@Component
+public class MailDispatcher {
+
+    private final MailOutboxDao mailOutboxDao;
+
+    private final JavaMailSender mailSender;
+
+    private final MailQueueProperties properties;
+
+    private final MailDeliveryStats stats = new MailDeliveryStats();
+
+    private ScheduledExecutorService poller;
+
+    private ExecutorService workers;
+
+    private Semaphore idleWorkers;
+
+    public MailDispatcher(MailOutboxDao mailOutboxDao, JavaMailSender mailSender, MailQueueProperties properties) {
+        this.mailOutboxDao = mailOutboxDao;
+        this.mailSender = mailSender;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        int workerCount = Math.max(1, properties.getWorkers());
+        idleWorkers = new Semaphore(workerCount);
+        workers = Executors.newFixedThreadPool(workerCount, namedThreadFactory("mail-sender-"));
+        poller = Executors.newSingleThreadScheduledExecutor(namedThreadFactory("mail-poller-"));
+        long intervalMillis = properties.getPollInterval().toMillis();
+        poller.scheduleWithFixedDelay(this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        long purgeMillis = properties.getPurgeInterval().toMillis();
+        poller.scheduleWithFixedDelay(this::purgeBodies, purgeMillis, purgeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        poller.shutdown();
+        workers.shutdown();
+        // 正在发送的批次尽量发完；没发完的会在租约到期后由其他实例重新发送
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 新邮件入队后调用，立即触发一次轮询，而不是等到下一个轮询周期
+     */
+    public void wakeUp() {
+        stats.recordEnqueued();
+        try {
+            poller.execute(this::poll);
+        } catch (RejectedExecutionException e) {
+            // 停机中，交给下次启动后的轮询
+        }
+    }
+
+    public MailDeliveryStats getStats() {
+        return stats;
+    }
+
+    private void poll() {
+        try {
+            while (idleWorkers.tryAcquire()) {
+                List<MailOutbox> batch;
+                try {
+                    batch = claimBatch();
+                } catch (RuntimeException e) {
+                    idleWorkers.release();
+                    throw e;
+                }
+                if (batch.isEmpty()) {
+                    idleWorkers.release();
+                    return;
+                }
+                workers.execute(() -> {
+                    try {
+                        deliver(batch);
+                    } catch (Exception e) {
+                        // 状态没写回的邮件会在租约到期后被重新认领
+                        log.error("Mail batch delivery failed unexpectedly", e);
+                    } finally {
+                        idleWorkers.release();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            // 不能让异常终止定时轮询
+            log.error("Failed to poll mail outbox", e);
+        }
+    }
+
+    private void purgeBodies() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int sent = mailOutboxDao.purgeBodies(MailOutbox.MailStatus.Sent, now.minus(properties.getSentBodyRetention()));
+            int dead = mailOutboxDao.purgeBodies(MailOutbox.MailStatus.Dead, now.minus(properties.getDeadBodyRetention()));
+            if (sent + dead > 0) {
+                log.info("Purged mail bodies: sent={}, dead={}", sent, dead);
+            }
+        } catch (Exception e) {
+            log.error("Failed to purge mail bodies", e);
+        }
+    }
+
+    /**
+     * 认领一批到期的邮件：Pending 且到了重试时间，或 Sending 但租约已过期（上次发送的进程崩溃）
+     *
+     * 租约过期说明上一次发送没有写回结果，按一次失败计入 attempts；次数用完的直接进入死信
+     */
+    List<MailOutbox> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<MailOutbox> candidates = mailOutboxDao.selectDue(now, properties.getBatchSize());
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LocalDateTime leaseUntil = now.plus(properties.getLeaseTime());
+        List<MailOutbox> claimed = new ArrayList<>(candidates.size());
+        for (MailOutbox mail : candidates) {
+            int attempts = mail.getAttempts() == null ? 0 : mail.getAttempts();
+            if (mail.getStatus() == MailOutbox.MailStatus.Sending) {
+                attempts++;
+                if (attempts >= properties.getMaxAttempts()) {
+                    if (mailOutboxDao.expireLease(mail.getMailId(), now, attempts, "Lease expired without delivery result") == 1) {
+                        stats.recordDead(1);
+                        log.error("Mail moved to dead letters after {} attempts (lease expired): id={}, to={}",
+                                attempts, mail.getMailId(), mail.getToEmail());
+                    }
+                    continue;
+                }
+            }
+            if (mailOutboxDao.claim(mail.getMailId(), mail.getStatus(), now, leaseUntil, attempts) == 1) {
+                mail.setAttempts(attempts);
+                claimed.add(mail);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 通过一个 SMTP 连接发送一批邮件，并把每封邮件的结果写回 mail_outbox
+     */
+    void deliver(List<MailOutbox> batch) {
+        long startNanos = System.nanoTime();
+        // List 保持入队顺序，IdentityHashMap 用于把失败的 MimeMessage 对应回 outbox 记录
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        Map<MimeMessage, MailOutbox> byMessage = new IdentityHashMap<>();
+        Map<MailOutbox, Exception> failures = new IdentityHashMap<>();
+        for (MailOutbox mail : batch) {
+            try {
+                MimeMessage message = toMimeMessage(mail);
+                messages.add(message);
+                byMessage.put(message, mail);
+            } catch (MessagingException e) {
+                failures.put(mail, e);
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            try {
+                mailSender.send(messages.toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                // 只有 failedMessages 中的邮件失败，其余已经发出
+                Map<Object, Exception> failedMessages = e.getFailedMessages();
+                if (failedMessages.isEmpty()) {
+                    byMessage.values().forEach(mail -> failures.put(mail, e));
+                } else {
+                    failedMessages.forEach((message, ex) -> {
+                        MailOutbox mail = byMessage.get(message);
+                        if (mail != null) {
+                            failures.put(mail, ex);
+                        }
+                    });
+                }
+            } catch (MailException e) {
+                // 连接或认证失败，整批都没有发出
+                byMessage.values().forEach(mail -> failures.put(mail, e));
+            }
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        for (MailOutbox mail : batch) {
+            if (!failures.containsKey(mail)) {
+                sentIds.add(mail.getMailId());
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            mailOutboxDao.markSent(sentIds, LocalDateTime.now());
+        }
+
+        int deadCount = 0;
+        for (Map.Entry<MailOutbox, Exception> entry : failures.entrySet()) {
+            if (markFailed(entry.getKey(), entry.getValue())) {
+                deadCount++;
+            }
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        stats.recordBatch(sentIds.size(), failures.size() - deadCount, deadCount, elapsedMillis);
+        log.info("Mail batch delivered: sent={}, failed={}, dead={}, elapsed={}ms",
+                sentIds.size(), failures.size(), deadCount, elapsedMillis);
+    }
+
+    /**
+     * @return true 表示已进入死信
+     */
+    private boolean markFailed(MailOutbox mail, Exception e) {
+        int attempts = (mail.getAttempts() == null ? 0 : mail.getAttempts()) + 1;
+        boolean dead = attempts >= properties.getMaxAttempts();
+        String error = String.valueOf(e.getMessage());
+        if (error.length() > 500) {
+            error = error.substring(0, 500);
+        }
+        mailOutboxDao.markFailed(mail.getMailId(),
+                dead ? MailOutbox.MailStatus.Dead : MailOutbox.MailStatus.Pending,
+                attempts, error, LocalDateTime.now().plus(backoff(attempts)));
+        if (dead) {
+            log.error("Mail moved to dead letters after {} attempts: id={}, to={}, error={}",
+                    attempts, mail.getMailId(), mail.getToEmail(), error);
+        } else {
+            log.warn("Mail delivery failed, will retry: id={}, to={}, attempt={}, error={}",
+                    mail.getMailId(), mail.getToEmail(), attempts, error);
+        }
+        return dead;
+    }
+
+    /**
+     * 指数退避 + 随机抖动，避免大量失败邮件在同一时刻重试
+     */
+    Duration backoff(int attempts) {
+        long initial = properties.getInitialBackoff().toMillis();
+        long max = properties.getMaxBackoff().toMillis();
+        long delay = initial << Math.min(attempts - 1, 20);
+        if (delay <= 0 || delay > max) {
+            delay = max;
+        }
+        long jitter = ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+        return Duration.ofMillis(delay - jitter);
+    }
+
+    private MimeMessage toMimeMessage(MailOutbox mail) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(properties.getFrom());
+        helper.setTo(mail.getToEmail());
+        helper.setSubject(mail.getSubject());
+        helper.setText(mail.getBody(), false);
+        return message;
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
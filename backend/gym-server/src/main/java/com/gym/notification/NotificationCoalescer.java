@@ -0,0 +1,204 @@
+package com.gym.notification;
+
+import com.gym.entity.Notification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 通知合并缓冲区（纯内存，线程安全）
+ *
+ * 1. 以 (接收人, 通知类型, 标题) 为 key，窗口期内的同类通知合并为一条，记录条数和业务ID
+ * 2. 窗口从该 key 第一条通知到达时开始计算，到期后由调用方 drain 出来批量落库
+ * 3. 对同一个 key 的合并和取出都通过 ConcurrentHashMap.compute 完成，保证不会丢计数
+ * 4. 取出后写库失败的合并通知可以 requeue 放回，与期间新到达的同类通知再次合并
+ */
+public class NotificationCoalescer {
+
+    private final ConcurrentMap<Key, Digest> pending = new ConcurrentHashMap<>();
+
+    private final int maxRefs;
+
+    private final int maxPending;
+
+    public NotificationCoalescer(int maxRefs, int maxPending) {
+        this.maxRefs = maxRefs;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * 放入一条待合并的通知
+     *
+     * @param notification 通知（只读取 userId/type/title/message）
+     * @param refId        关联的业务ID，可为空
+     * @param windowMillis 合并窗口（毫秒）
+     * @param nowMillis    当前时间（毫秒）
+     * @return false 表示缓冲区已满且该 key 不存在，调用方应直接写库
+     */
+    public boolean offer(Notification notification, Long refId, long windowMillis, long nowMillis) {
+        Key key = new Key(notification.getUserId(), notification.getType(), notification.getTitle());
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            return false;
+        }
+        pending.compute(key, (k, digest) -> {
+            if (digest == null) {
+                digest = new Digest(nowMillis + windowMillis);
+            }
+            digest.merge(notification.getMessage(), refId, maxRefs);
+            return digest;
+        });
+        return true;
+    }
+
+    /**
+     * 取出所有窗口已到期的合并通知
+     */
+    public List<Drained> drainDue(long nowMillis) {
+        List<Drained> due = new ArrayList<>();
+        for (Key key : pending.keySet()) {
+            pending.computeIfPresent(key, (k, digest) -> {
+                if (digest.deadline > nowMillis) {
+                    return digest;
+                }
+                due.add(new Drained(k, digest));
+                return null;
+            });
+        }
+        return due;
+    }
+
+    /**
+     * 取出所有合并通知（用于停机前落库）
+     */
+    public List<Drained> drainAll() {
+        return drainDue(Long.MAX_VALUE);
+    }
+
+    /**
+     * 放回写库失败的合并通知，下次刷新时重试
+     *
+     * 取出后同一个 key 又有新通知时合并到一起：保留较早的截止时间，计数和业务ID累加，消息取较新的一条。
+     * 放回不受 maxPending 限制（这些通知原本就在缓冲区中）
+     */
+    public void requeue(List<Drained> drained) {
+        for (Drained entry : drained) {
+            pending.merge(entry.key, entry.digest, (current, failed) -> failed.absorb(current, maxRefs));
+        }
+    }
+
+    public int pendingSize() {
+        return pending.size();
+    }
+
+    /**
+     * 取出的一条合并通知
+     */
+    public static final class Drained {
+        private final Key key;
+        private final Digest digest;
+        private final Notification notification;
+
+        private Drained(Key key, Digest digest) {
+            this.key = key;
+            this.digest = digest;
+            this.notification = digest.toNotification(key);
+        }
+
+        public Notification getNotification() {
+            return notification;
+        }
+    }
+
+    private static final class Key {
+        private final Long userId;
+        private final Notification.NotificationType type;
+        private final String title;
+
+        private Key(Long userId, Notification.NotificationType type, String title) {
+            this.userId = userId;
+            this.type = type;
+            this.title = title;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(userId, other.userId)
+                    && type == other.type
+                    && Objects.equals(title, other.title);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, type, title);
+        }
+    }
+
+    // 只在 compute 回调中被访问，不需要额外同步
+    private static final class Digest {
+        private final long deadline;
+        private final List<Long> refIds = new ArrayList<>();
+        private int count;
+        private String latestMessage;
+
+        private Digest(long deadline) {
+            this.deadline = deadline;
+        }
+
+        private void merge(String message, Long refId, int maxRefs) {
+            count++;
+            latestMessage = message;
+            if (refId != null && refIds.size() < maxRefs) {
+                refIds.add(refId);
+            }
+        }
+
+        // 把取出后新到达的同类通知并入放回的合并通知
+        private Digest absorb(Digest newer, int maxRefs) {
+            count += newer.count;
+            latestMessage = newer.latestMessage;
+            for (Long refId : newer.refIds) {
+                if (refIds.size() >= maxRefs) {
+                    break;
+                }
+                refIds.add(refId);
+            }
+            return this;
+        }
+
+        private Notification toNotification(Key key) {
+            String message = count == 1
+                    ? latestMessage
+                    : "You have " + count + " new notifications of this kind. Latest: " + latestMessage;
+            String refs = null;
+            if (!refIds.isEmpty()) {
+                StringBuilder sb = new StringBuilder();
+                for (Long refId : refIds) {
+                    if (sb.length() > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(refId);
+                }
+                refs = sb.toString();
+            }
+            return Notification.builder()
+                    .userId(key.userId)
+                    .type(key.type)
+                    .title(key.title)
+                    .message(message)
+                    .aggregateCount(count)
+                    .refIds(refs)
+                    .isRead(false)
+                    .build();
+        }
+    }
+}
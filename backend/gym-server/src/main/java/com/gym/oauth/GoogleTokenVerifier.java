@@ -0,0 +1,131 @@
+package com.gym.oauth;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
+import com.google.api.client.googleapis.auth.oauth2.GooglePublicKeysManager;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Google ID Token 校验器（单例）
+ *
+ * 1. 整个应用共用一个 GoogleIdTokenVerifier 和 HttpTransport，Google 公钥缓存在 GooglePublicKeysManager 中，
+ *    有效期按证书响应的 Cache-Control max-age 计算
+ * 2. 后台线程在公钥过期前 REFRESH_MARGIN 主动刷新，登录时只做本地签名校验，不访问 Google
+ * 3. 刷新失败时每隔 RETRY_DELAY 重试，期间继续使用旧公钥（过期后由 verifier 在登录时自行拉取）
+ * 4. 测试中可以传入返回固定证书的 HttpTransport 和证书地址，离线校验
+ */
+@Slf4j
+@Component
+public class GoogleTokenVerifier {
+
+    /** 在公钥过期前多久刷新，需要大于 GooglePublicKeysManager 自身的 5 分钟提前量 */
+    private static final long REFRESH_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /** 刷新失败后的重试间隔，也是两次刷新之间的最小间隔 */
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final GooglePublicKeysManager publicKeysManager;
+
+    private final GoogleIdTokenVerifier verifier;
+
+    private ScheduledExecutorService refresher;
+
+    @Autowired
+    public GoogleTokenVerifier(@Value("${google.clientId}") String clientId) {
+        this(clientId, new NetHttpTransport(), JacksonFactory.getDefaultInstance(), null);
+    }
+
+    /**
+     * @param publicCertsUrl 证书地址，为 null 时使用 Google 默认地址
+     */
+    public GoogleTokenVerifier(String clientId, HttpTransport transport, JsonFactory jsonFactory, String publicCertsUrl) {
+        GooglePublicKeysManager.Builder keysBuilder = new GooglePublicKeysManager.Builder(transport, jsonFactory);
+        if (publicCertsUrl != null) {
+            keysBuilder.setPublicCertsEncodedUrl(publicCertsUrl);
+        }
+        this.publicKeysManager = keysBuilder.build();
+        this.verifier = new GoogleIdTokenVerifier.Builder(publicKeysManager)
+                .setAudience(Collections.singletonList(clientId))
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "google-certs-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.execute(this::refreshKeys);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * 校验 ID Token 的签名、签发方、受众和有效期
+     *
+     * @return 校验通过时返回 payload，否则返回 null
+     */
+    public GoogleIdToken.Payload verify(String idTokenString) {
+        try {
+            GoogleIdToken idToken = verifier.verify(idTokenString);
+            if (idToken != null) {
+                return idToken.getPayload();
+            }
+            log.error("Invalid ID Token, verify returned null.");
+            return null;
+        } catch (Exception e) {
+            log.error("Google ID Token verify exception: ", e);
+            return null;
+        }
+    }
+
+    /**
+     * 公钥缓存的过期时间（毫秒时间戳），还没加载过时为 0
+     */
+    public long getKeysExpirationTimeMillis() {
+        return publicKeysManager.getExpirationTimeMilliseconds();
+    }
+
+    /**
+     * 刷新公钥，并按新的过期时间安排下一次刷新
+     */
+    void refreshKeys() {
+        long delay;
+        try {
+            publicKeysManager.refresh();
+            long expiresAt = publicKeysManager.getExpirationTimeMilliseconds();
+            delay = Math.max(RETRY_DELAY_MILLIS, expiresAt - System.currentTimeMillis() - REFRESH_MARGIN_MILLIS);
+            log.debug("Google public keys refreshed, next refresh in {}s", TimeUnit.MILLISECONDS.toSeconds(delay));
+        } catch (Exception e) {
+            delay = RETRY_DELAY_MILLIS;
+            log.warn("Failed to refresh Google public keys, retry in {}s: {}",
+                    TimeUnit.MILLISECONDS.toSeconds(delay), e.getMessage());
+        }
+        try {
+            refresher.schedule(this::refreshKeys, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 停机中
+        }
+    }
+}
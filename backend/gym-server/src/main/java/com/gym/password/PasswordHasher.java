@@ -0,0 +1,179 @@
+package com.gym.password;
+
+import com.gym.config.PasswordHashingProperties;
+import com.gym.enumeration.ErrorCode;
+import com.gym.exception.CustomException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 密码哈希执行器
+ *
+ * 1. BCrypt 计算（encode）和校验（matches）都提交到固定大小的线程池，同时进行的哈希数不超过线程数
+ * 2. 入队前按排队数 × 平均耗时 / 线程数估算等待时间，超过 max-wait 或队列已满时直接拒绝（429），不占用请求线程
+ * 3. 平均耗时用 EWMA 统计，调整 BCrypt 强度后估算会自动跟上
+ * 4. needsRehash 判断旧哈希的强度是否低于当前配置，登录成功后由调用方在后台重新哈希
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final PasswordHashingProperties properties;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private ThreadPoolExecutor executor;
+
+    private int threads;
+
+    /** 单次哈希耗时的 EWMA（纳秒），初始按 BCrypt 强度 10 约 80ms 估计 */
+    private final AtomicLong averageNanos = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(80));
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, PasswordHashingProperties properties) {
+        this.passwordEncoder = passwordEncoder;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        threads = properties.getThreads() > 0 ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * 计算密码哈希
+     */
+    public String encode(CharSequence rawPassword) {
+        return await(submit(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    /**
+     * 校验密码，哈希为空时直接返回 false，不占用线程池
+     */
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        return await(submit(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * 旧哈希的强度是否低于当前配置
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return encodedPassword != null && !encodedPassword.isEmpty() && passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * 后台计算新哈希，不等待结果；线程池繁忙时放弃（下次登录再试）
+     *
+     * @param callback 收到新哈希后的处理，如写回数据库
+     * @return 是否已提交
+     */
+    public boolean encodeInBackground(CharSequence rawPassword, Consumer<String> callback) {
+        try {
+            submit(() -> {
+                try {
+                    callback.accept(passwordEncoder.encode(rawPassword));
+                } catch (RuntimeException e) {
+                    log.warn("Background password rehash failed: {}", e.getMessage());
+                }
+                return null;
+            });
+            return true;
+        } catch (CustomException e) {
+            return false;
+        }
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public long getAverageMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(averageNanos.get());
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        long estimatedWait = (executor.getQueue().size() + 1L) * averageNanos.get() / threads;
+        if (estimatedWait > properties.getMaxWait().toNanos()) {
+            throw reject("estimated wait " + TimeUnit.NANOSECONDS.toMillis(estimatedWait) + "ms");
+        }
+        try {
+            return executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw reject("queue full");
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new CustomException(ErrorCode.INTERNAL_SERVER_ERROR, "Password check interrupted.");
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new CustomException(ErrorCode.TOO_MANY_REQUESTS, "Too many login attempts, please try again later.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CustomException(ErrorCode.INTERNAL_SERVER_ERROR, "Password hashing failed.");
+        }
+    }
+
+    private CustomException reject(String reason) {
+        rejected.increment();
+        log.warn("Password hashing rejected: {} (queue={}, avg={}ms)", reason, executor.getQueue().size(), getAverageMillis());
+        return new CustomException(ErrorCode.TOO_MANY_REQUESTS, "Too many login attempts, please try again later.");
+    }
+
+    private void record(long nanos) {
+        // alpha = 1/8
+        averageNanos.accumulateAndGet(nanos, (average, sample) -> average + (sample - average) / 8);
+    }
+}
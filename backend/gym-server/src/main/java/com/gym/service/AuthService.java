@@ -14,5 +14,7 @@ public interface AuthService {
     void resetPassword(ResetPasswordRequest request);
     LoginResponse loginWithGoogle(String googleIdToken);
     public void changePassword(ChangePasswordRequest request);
+    void logout(String token);
+    void logoutAllSessions(Long userId);
 }
 
@@ -1,8 +1,28 @@
 package com.gym.service;
 
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.gym.vo.DeadLetterMailVO;
+
+import java.util.Map;
+
 public interface MailService {
 
     void sendVerificationCode(String toEmail, String code);
 
     void sendResetLink(String toEmail, String resetLink);
+
+    /**
+     * 分页查询死信邮件（超过最大重试次数仍发送失败），不包含正文
+     */
+    Page<DeadLetterMailVO> getDeadLetters(int page, int pageSize);
+
+    /**
+     * 将死信邮件重新放回发送队列
+     */
+    void requeueDeadLetter(Long mailId);
+
+    /**
+     * 邮件队列积压和发送吞吐统计
+     */
+    Map<String, Object> getDeliveryStats();
 }
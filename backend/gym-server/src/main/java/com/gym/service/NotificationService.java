@@ -12,6 +12,15 @@ public interface NotificationService extends IService<Notification> {
      */
     void sendNotification(Notification notification);
 
+    /**
+     * 发送可合并的通知：同一接收人、同类型、同标题的通知在配置的窗口期内合并为一条，
+     * 窗口结束后批量落库。所在事务提交后才进入合并缓冲区；未配置窗口的类型直接落库。
+     *
+     * @param notification 通知实体
+     * @param refId        关联的业务ID（如预约ID、连接申请ID），可为空
+     */
+    void sendCoalescedNotification(Notification notification, Long refId);
+
 
     /**
      * 分页查询指定用户的通知
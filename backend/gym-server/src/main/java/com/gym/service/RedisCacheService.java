@@ -6,4 +6,10 @@ import com.gym.entity.User;
 public interface RedisCacheService {
     User getUser(Long userId);
 
+    /**
+     * 用户认证版本号：用户缓存每次更新或删除时加一，
+     * 调用方可以用它判断本地缓存的用户是否还有效，而不必每次取完整用户
+     */
+    long getAuthVersion(Long userId);
+
 }
@@ -212,7 +212,8 @@ public class AppointmentBookingServiceImpl extends ServiceImpl<AppointmentBookin
                 .type(Notification.NotificationType.INFO)
                 .isRead(false)
                 .build();
-        notificationService.sendNotification(notification);
+        // 热门教练短时间内会收到大量预约申请，按窗口合并成一条通知
+        notificationService.sendCoalescedNotification(notification, booking.getAppointmentId());
 
         log.info("Appointment booking created successfully: Appointment id [{}] for member [{}] and trainer [{}]",
                 booking.getAppointmentId(), memberId, dto.getTrainerId());
@@ -1,10 +1,8 @@
 package com.gym.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.jackson2.JacksonFactory;
 import com.gym.dto.ChangePasswordRequest;
 import com.gym.dto.ForgotPasswordRequest;
 import com.gym.dto.LoginRequest;
@@ -12,19 +10,20 @@ import com.gym.dto.ResetPasswordRequest;
 import com.gym.entity.User;
 import com.gym.enumeration.ErrorCode;
 import com.gym.exception.CustomException;
+import com.gym.oauth.GoogleTokenVerifier;
+import com.gym.password.PasswordHasher;
 import com.gym.service.AuthService;
 import com.gym.service.MailService;
 import com.gym.service.UserService;
+import com.gym.session.TokenRevocationStore;
+import com.gym.util.JwtParseResult;
 import com.gym.util.JwtUtils;
 import com.gym.util.SecurityUtils;
 import com.gym.vo.LoginResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
 import java.util.UUID;
 
 
@@ -39,7 +38,7 @@ public class AuthServiceImpl implements AuthService {
     private JwtUtils jwtUtils;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Autowired
     private MailService mailService;
@@ -47,8 +46,11 @@ public class AuthServiceImpl implements AuthService {
     @Autowired
     private RedisCacheServiceImpl redisCacheService;
 
-    @Value("${google.clientId}")
-    private String googleClientId;
+    @Autowired
+    private GoogleTokenVerifier googleTokenVerifier;
+
+    @Autowired
+    private TokenRevocationStore tokenRevocationStore;
 
     /**
      * 使用谷歌 ID Token 登录
@@ -58,8 +60,8 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public LoginResponse loginWithGoogle(String googleIdToken) {
         // 1. 验证并解析 Google ID Token
-        GoogleIdToken.Payload payload = verifyGoogleIdToken(googleIdToken);
-        // 如果验证失败，verifyGoogleIdToken 会抛异常或返回 null，视你实现而定
+        GoogleIdToken.Payload payload = googleTokenVerifier.verify(googleIdToken);
+        // 验证失败时返回 null（单例校验器，公钥已在后台缓存，这里只做本地签名校验）
         if (payload == null) {
             throw new CustomException(ErrorCode.BAD_REQUEST, "Invalid Google ID Token.");
         }
@@ -93,8 +95,8 @@ public class AuthServiceImpl implements AuthService {
             throw new CustomException(ErrorCode.BAD_REQUEST, "Your account is suspended.");
         }
 
-        // 5. 生成系统自己的 JWT
-        String token = jwtUtils.generateToken(user);
+        // 5. 生成系统自己的 JWT（带当前会话版本号）
+        String token = jwtUtils.generateToken(user, tokenRevocationStore.currentSessionVersion(user.getUserID()));
         LoginResponse resp = new LoginResponse();
         resp.setToken(token);
         resp.setUserId(user.getUserID());
@@ -103,29 +105,6 @@ public class AuthServiceImpl implements AuthService {
         return resp;
     }
 
-    /**
-     * 使用 Google 提供的库验证 ID Token
-     */
-    private GoogleIdToken.Payload verifyGoogleIdToken(String idTokenString) {
-        try {
-            // 构造一个 verifier
-            GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(new NetHttpTransport(), new JacksonFactory())
-                    .setAudience(Collections.singletonList(googleClientId))
-                    .build();
-
-            GoogleIdToken idToken = verifier.verify(idTokenString);
-            if (idToken != null) {
-                return idToken.getPayload();
-            } else {
-                log.error("Invalid ID Token, verify returned null.");
-                return null;
-            }
-        } catch (Exception e) {
-            log.error("Google ID Token verify exception: ", e);
-            return null;
-        }
-    }
-
     /**
      * 针对全新的 Google 用户，自动生成一个账号并写入数据库
      */
@@ -135,7 +114,7 @@ public class AuthServiceImpl implements AuthService {
         newUser.setName(name);
         // 如果你允许后续用账号密码登录，可以设置一个随机密码，或留空
         // 这里只做个示例
-//        newUser.setPasswordHash(passwordEncoder.encode(UUID.randomUUID().toString()));
+//        newUser.setPasswordHash(passwordHasher.encode(UUID.randomUUID().toString()));
         newUser.setRole(User.Role.member);
         newUser.setAccountStatus(User.AccountStatus.Pending);
         // 也可以直接设为 Approved 看你业务需要
@@ -150,7 +129,7 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public LoginResponse login(LoginRequest loginReq) {
         User user = userService.getByEmail(loginReq.getEmail());
-        if (user == null || !passwordEncoder.matches(loginReq.getPassword(), user.getPasswordHash())) {
+        if (user == null || !passwordHasher.matches(loginReq.getPassword(), user.getPasswordHash())) {
             throw new CustomException(ErrorCode.BAD_REQUEST, "Incorrect email or password.");
         }
         if (user.getAccountStatus() == User.AccountStatus.Pending) {
@@ -159,8 +138,12 @@ public class AuthServiceImpl implements AuthService {
         if (user.getAccountStatus() == User.AccountStatus.Suspended) {
             throw new CustomException(ErrorCode.BAD_REQUEST, "Your account is suspended.");
         }
-        // 生成JWT
-        String token = jwtUtils.generateToken(user);
+        // BCrypt 强度调高后，旧密码在登录成功时后台按新强度重新哈希（待审核、已停用的账号不写库）
+        if (passwordHasher.needsRehash(user.getPasswordHash())) {
+            rehashPassword(user, loginReq.getPassword());
+        }
+        // 生成JWT（带当前会话版本号）
+        String token = jwtUtils.generateToken(user, tokenRevocationStore.currentSessionVersion(user.getUserID()));
         LoginResponse resp = new LoginResponse();
         resp.setToken(token);
         resp.setUserId(user.getUserID());
@@ -168,6 +151,25 @@ public class AuthServiceImpl implements AuthService {
         return resp;
     }
 
+    /**
+     * 后台重新哈希并写回数据库和缓存，只在密码哈希没有被其他请求修改过时更新
+     */
+    private void rehashPassword(User user, String rawPassword) {
+        Long userId = user.getUserID();
+        String oldHash = user.getPasswordHash();
+        passwordHasher.encodeInBackground(rawPassword, newHash -> {
+            boolean updated = userService.update(new LambdaUpdateWrapper<User>()
+                    .set(User::getPasswordHash, newHash)
+                    .eq(User::getUserID, userId)
+                    .eq(User::getPasswordHash, oldHash));
+            if (updated) {
+                user.setPasswordHash(newHash);
+                redisCacheService.updateUser(user);
+                log.info("Password rehashed with current BCrypt strength, userId={}", userId);
+            }
+        });
+    }
+
     @Override
     public void forgotPassword(ForgotPasswordRequest request) {
         // 只查出必要的字段
@@ -207,9 +209,11 @@ public class AuthServiceImpl implements AuthService {
             throw new CustomException(ErrorCode.BAD_REQUEST, "Email is not registered.");
         }
         // 更新密码并同步缓存
-        user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
+        user.setPasswordHash(passwordHasher.encode(request.getNewPassword()));
         userService.updateById(user);
         redisCacheService.updateUser(user);
+        // 重置密码后，之前签发的 Token 全部失效
+        tokenRevocationStore.bumpSessionVersion(user.getUserID());
         log.info("User password reset success, email={}", email);
     }
 
@@ -223,16 +227,45 @@ public class AuthServiceImpl implements AuthService {
             throw new CustomException(ErrorCode.BAD_REQUEST, "User not found.");
         }
         // 校验用户输入的旧密码是否正确
-        if (!passwordEncoder.matches(request.getOldPassword(), user.getPasswordHash())) {
+        if (!passwordHasher.matches(request.getOldPassword(), user.getPasswordHash())) {
             throw new CustomException(ErrorCode.BAD_REQUEST, "Old password is incorrect.");
         }
         // 更新新密码（先加密再存储）
-        user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
+        user.setPasswordHash(passwordHasher.encode(request.getNewPassword()));
         // 更新数据库
         boolean updateSuccess = userService.updateById(user);
         if (!updateSuccess) {
             throw new CustomException(ErrorCode.INTERNAL_SERVER_ERROR, "Failed to update password. Please try again.");
         }
+        // 修改密码后，之前签发的 Token（包括当前这个）全部失效，需要重新登录
+        tokenRevocationStore.bumpSessionVersion(currentUserId);
+    }
+
+    /**
+     * 退出登录：注销当前 Token，到 Token 过期前都不能再使用
+     */
+    @Override
+    public void logout(String token) {
+        JwtParseResult result = jwtUtils.parseAndValidate(token);
+        if (!result.isValid()) {
+            return;
+        }
+        String tokenId = result.getClaims().getId();
+        if (tokenId == null) {
+            // 旧 Token 没有 jti，只能让该用户的所有 Token 失效
+            logoutAllSessions(Long.valueOf(result.getClaims().getSubject()));
+            return;
+        }
+        tokenRevocationStore.revoke(tokenId, result.getClaims().getExpiration().getTime());
+    }
+
+    /**
+     * 退出所有设备：会话版本号加一，之前签发的 Token 全部失效
+     */
+    @Override
+    public void logoutAllSessions(Long userId) {
+        tokenRevocationStore.bumpSessionVersion(userId);
+        log.info("All sessions revoked, userId={}", userId);
     }
 }
 
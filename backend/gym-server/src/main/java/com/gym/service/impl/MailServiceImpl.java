@@ -1,76 +1,121 @@
 package com.gym.service.impl;
 
-import javax.mail.MessagingException;
-import javax.mail.internet.MimeMessage;
-
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.gym.dao.MailOutboxDao;
+import com.gym.entity.MailOutbox;
+import com.gym.enumeration.ErrorCode;
+import com.gym.exception.CustomException;
+import com.gym.mail.MailDispatcher;
 import com.gym.service.MailService;
+import com.gym.vo.DeadLetterMailVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 邮件服务
+ * 邮件不再直接在线程池中发送，而是先写入 mail_outbox 表（持久化队列），
+ * 由 MailDispatcher 按批次复用 SMTP 连接发送，失败自动重试，超过次数进入死信
+ */
 @Service
 @Slf4j
 public class MailServiceImpl implements MailService {
 
     @Autowired
-    private JavaMailSender mailSender;
+    private MailOutboxDao mailOutboxDao;
+
+    @Autowired
+    private MailDispatcher mailDispatcher;
 
-    @Async("mailAsyncExecutor")
     @Override
     public void sendVerificationCode(String toEmail, String code) {
         String subject = "Fitness App - Verification Code";
         String text = "Hello,\n\nYour verification code is: " + code + "\n\nPlease complete the verification within 5 minutes.";
-        sendMail(toEmail, subject, text);
+        enqueueMail(toEmail, subject, text);
     }
 
     /**
-     * General method for sending emails
+     * General method for sending emails: persist to the outbox and wake up the dispatcher
      */
-    private void sendMail(String to, String subject, String text) {
-        try {
-            // 1. 创建邮件对象
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            // 2. 设置发件人、收件人、标题、内容
-            helper.setFrom("yourgmailEmail@gmail.com"); // 需与 spring.mail.username 对应
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(text, false);
-
-            // 3. 发送邮件
-            mailSender.send(message);
-            log.info("Email sent successfully: to={}, subject={}", to, subject);
-
-        } catch (MessagingException e) {
-            // 只捕获 javax.mail.MessagingException 即可
-            log.error("Failed to send email: to={}, subject={}, error={}", to, subject, e.getMessage());
-            // 若有需要，也可以抛出 RuntimeException 或做其他处理
+    private void enqueueMail(String to, String subject, String text) {
+        MailOutbox mail = MailOutbox.builder()
+                .toEmail(to)
+                .subject(subject)
+                .body(text)
+                .status(MailOutbox.MailStatus.Pending)
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+        if (mailOutboxDao.insert(mail) != 1) {
+            throw new CustomException(ErrorCode.INTERNAL_SERVER_ERROR, "Failed to queue email. Please try again.");
         }
+        mailDispatcher.wakeUp();
+        log.info("Email queued: id={}, to={}, subject={}", mail.getMailId(), to, subject);
     }
 
 
-    @Async("mailAsyncExecutor")
     @Override
     public void sendResetLink(String toEmail, String resetLink) {
         String subject = "Fitness App - Password Reset Link";
         String text = "Hello,\n\nPlease click the following link to reset your password:\n" +
                 resetLink + "\n\nThe link is valid for 5 minutes.\n" +
                 "If you did not request a password reset, please ignore this email.";
-        sendMail(toEmail, subject, text);
+        enqueueMail(toEmail, subject, text);
+    }
+
+    @Override
+    public Page<DeadLetterMailVO> getDeadLetters(int page, int pageSize) {
+        LambdaQueryWrapper<MailOutbox> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(MailOutbox::getStatus, MailOutbox.MailStatus.Dead)
+                .orderByDesc(MailOutbox::getUpdateTime);
+        Page<MailOutbox> mails = mailOutboxDao.selectPage(new Page<>(page, pageSize), queryWrapper);
+        // The body may contain verification codes or reset links, so it is never returned
+        Page<DeadLetterMailVO> result = new Page<>(mails.getCurrent(), mails.getSize(), mails.getTotal());
+        result.setRecords(mails.getRecords().stream()
+                .map(mail -> DeadLetterMailVO.builder()
+                        .mailId(mail.getMailId())
+                        .toEmail(mail.getToEmail())
+                        .subject(mail.getSubject())
+                        .attempts(mail.getAttempts())
+                        .lastError(mail.getLastError())
+                        .requeueable(mail.getBody() != null)
+                        .createTime(mail.getCreateTime())
+                        .updateTime(mail.getUpdateTime())
+                        .build())
+                .collect(Collectors.toList()));
+        return result;
     }
 
+    @Override
+    public void requeueDeadLetter(Long mailId) {
+        int updated = mailOutboxDao.update(null, new LambdaUpdateWrapper<MailOutbox>()
+                .eq(MailOutbox::getMailId, mailId)
+                .eq(MailOutbox::getStatus, MailOutbox.MailStatus.Dead)
+                // The body is purged after the retention window; such mails can no longer be sent
+                .isNotNull(MailOutbox::getBody)
+                .set(MailOutbox::getStatus, MailOutbox.MailStatus.Pending)
+                .set(MailOutbox::getAttempts, 0)
+                .set(MailOutbox::getNextAttemptAt, LocalDateTime.now()));
+        if (updated != 1) {
+            throw new CustomException(ErrorCode.NOT_FOUND, "Dead letter mail not found or its content has expired.");
+        }
+        mailDispatcher.wakeUp();
+        log.info("Dead letter mail [{}] requeued", mailId);
+    }
 
+    @Override
+    public Map<String, Object> getDeliveryStats() {
+        Map<String, Object> stats = mailDispatcher.getStats().snapshot();
+        stats.put("backlog", mailOutboxDao.selectCount(new LambdaQueryWrapper<MailOutbox>()
+                .in(MailOutbox::getStatus, MailOutbox.MailStatus.Pending, MailOutbox.MailStatus.Sending)));
+        stats.put("deadLetters", mailOutboxDao.selectCount(new LambdaQueryWrapper<MailOutbox>()
+                .eq(MailOutbox::getStatus, MailOutbox.MailStatus.Dead)));
+        return stats;
+    }
 }
-
-// 废弃
-//    @Override
-//    public void sendAdminNotification(String adminEmail, String message) {
-//        String subject = "New User Pending Review";
-//        String text = "Dear Administrator,\n\n" + message +
-//                "\nPlease log in to the admin system to review the new user.\n\nBest regards";
-//        sendMail(adminEmail, subject, text);
-//    }
@@ -3,18 +3,65 @@ package com.gym.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.gym.config.NotificationCoalesceProperties;
 import com.gym.dao.NotificationDao;
 import com.gym.entity.Notification;
 import com.gym.enumeration.ErrorCode;
 import com.gym.exception.CustomException;
+import com.gym.notification.NotificationCoalescer;
 import com.gym.service.NotificationService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class NotificationServiceImpl extends ServiceImpl<NotificationDao, Notification> implements NotificationService {
 
+    @Autowired
+    private NotificationCoalesceProperties coalesceProperties;
+
+    // 定时线程中调用 this.saveBatch 不经过 Spring 代理，@Transactional 不生效，需要显式开启事务
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private NotificationCoalescer coalescer;
+
+    private ScheduledExecutorService flushScheduler;
+
+    @PostConstruct
+    public void initCoalescer() {
+        coalescer = new NotificationCoalescer(coalesceProperties.getMaxRefs(), coalesceProperties.getMaxPending());
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notification-coalesce-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalMillis = coalesceProperties.getFlushInterval().toMillis();
+        flushScheduler.scheduleWithFixedDelay(this::flushDueNotifications, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdownCoalescer() {
+        flushScheduler.shutdown();
+        // 停机前把缓冲区里还没到期的通知也写入数据库（此时写库失败无法再重试，只记录日志）
+        List<NotificationCoalescer.Drained> remaining = coalescer.drainAll();
+        if (!writeBatch(remaining)) {
+            log.error("Lost [{}] coalesced notifications on shutdown", remaining.size());
+        }
+    }
+
     @Override
     // 直接通知表中插入通知
     public void sendNotification(Notification notification) {
@@ -25,6 +72,81 @@ public class NotificationServiceImpl extends ServiceImpl<NotificationDao, Notifi
         log.info("Notification sent to user [{}] with title [{}]", notification.getUserId(), notification.getTitle());
     }
 
+    @Override
+    public void sendCoalescedNotification(Notification notification, Long refId) {
+        long windowMillis = coalesceProperties.windowOf(notification.getType()).toMillis();
+        if (windowMillis <= 0) {
+            sendNotification(notification);
+            return;
+        }
+        // 在事务中调用时，等事务提交后再进入缓冲区，避免回滚后仍然发出通知
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offerOrSend(notification, refId, windowMillis);
+                }
+            });
+        } else {
+            offerOrSend(notification, refId, windowMillis);
+        }
+    }
+
+    private void offerOrSend(Notification notification, Long refId, long windowMillis) {
+        if (!coalescer.offer(notification, refId, windowMillis, System.currentTimeMillis())) {
+            // 缓冲区已满，退化为直接写库
+            if (refId != null) {
+                notification.setRefIds(String.valueOf(refId));
+            }
+            sendNotification(notification);
+        }
+    }
+
+    private void flushDueNotifications() {
+        try {
+            List<NotificationCoalescer.Drained> due = coalescer.drainDue(System.currentTimeMillis());
+            if (!writeBatch(due)) {
+                // 写库失败时放回缓冲区，下次刷新重试
+                coalescer.requeue(due);
+            }
+        } catch (Exception e) {
+            // 不能让异常终止定时任务
+            log.error("Failed to flush coalesced notifications", e);
+        }
+    }
+
+    /**
+     * 批量写入合并通知
+     *
+     * @return 是否写入成功（在 transactionTemplate 的事务中执行，失败时整批回滚，放回缓冲区重试不会重复写入）
+     */
+    private boolean writeBatch(List<NotificationCoalescer.Drained> drained) {
+        if (drained.isEmpty()) {
+            return true;
+        }
+        List<Notification> notifications = drained.stream()
+                .map(NotificationCoalescer.Drained::getNotification)
+                .collect(Collectors.toList());
+        try {
+            Boolean saved = transactionTemplate.execute(status -> {
+                if (!this.saveBatch(notifications)) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            });
+            if (!Boolean.TRUE.equals(saved)) {
+                log.error("Failed to write [{}] coalesced notifications", notifications.size());
+                return false;
+            }
+        } catch (Exception e) {
+            log.error("Failed to write [{}] coalesced notifications", notifications.size(), e);
+            return false;
+        }
+        log.info("Flushed [{}] coalesced notifications", notifications.size());
+        return true;
+    }
+
     @Override
     public Page<Notification> getNotificationsByUser(Long userId, int page, int pageSize) {
         LambdaQueryWrapper<Notification> queryWrapper = new LambdaQueryWrapper<>();
@@ -9,6 +9,7 @@ import com.gym.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.io.Serializable;
@@ -21,14 +22,22 @@ import java.util.concurrent.TimeUnit;
  * 主要实现了：
  * 1. 利用布隆过滤器防止缓存穿透
  * 2. 利用分布式锁和随机 TTL 防止缓存雪崩
+ * 3. 维护用户认证版本号（AUTH_VERSION:userId），用户数据被修改（updateUser）或删除时加一；
+ *    缓存未命中时从数据库回填不算修改，不加版本号，否则每次缓存过期都会让各实例的本地快照失效
  */
 @Service
 @Slf4j
 public class RedisCacheServiceImpl implements RedisCacheService {
 
+    private static final String AUTH_VERSION_PREFIX = "AUTH_VERSION:";
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    // 版本号需要 INCR，用字符串序列化
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
     // 直接注入 UserDao（或 UserMapper），而非 UserService
     @Autowired
     private UserDao userDao;
@@ -77,7 +86,8 @@ public class RedisCacheServiceImpl implements RedisCacheService {
 //                    int randomExtra = new Random().nextInt(60); // 0-59秒随机额外时间
 //                    int ttl = baseTtl + randomExtra;
 //                    redisTemplate.opsForValue().set(key, UserCacheDTO.fromEntity(user), ttl, TimeUnit.SECONDS);
-                    updateUser(user);
+                    // 只是回填缓存，用户没有变化，不加版本号
+                    cacheUser(user);
                     return user;
                 } else {
                     // 数据库中不存在，缓存空值防止缓存穿透（空值缓存有效期较短）
@@ -98,8 +108,14 @@ public class RedisCacheServiceImpl implements RedisCacheService {
         }
     }
 
-    // 更新缓存
+    // 更新缓存（用户数据被修改后调用）
     public void updateUser(User user) {
+        cacheUser(user);
+        bumpAuthVersion(user.getUserID());
+    }
+
+    // 写入缓存，设置随机过期时间，防止缓存大量同时失效
+    private void cacheUser(User user) {
         int baseTtl = 600; // 基础10分钟
         int randomExtra = new Random().nextInt(60); // 0-59秒随机额外时间
         int ttl = baseTtl + randomExtra;
@@ -112,6 +128,18 @@ public class RedisCacheServiceImpl implements RedisCacheService {
     public void deleteUser(Long userId) {
         String key = "USER:" + userId;
         redisTemplate.delete(key);
+        bumpAuthVersion(userId);
+    }
+
+    @Override
+    public long getAuthVersion(Long userId) {
+        String value = stringRedisTemplate.opsForValue().get(AUTH_VERSION_PREFIX + userId);
+        return value == null ? 0L : Long.parseLong(value);
+    }
+
+    // 先写缓存再加版本号，读到新版本号的请求一定能取到新的用户信息
+    private void bumpAuthVersion(Long userId) {
+        stringRedisTemplate.opsForValue().increment(AUTH_VERSION_PREFIX + userId);
     }
 
     // 基于 Redis 的简单分布式锁实现
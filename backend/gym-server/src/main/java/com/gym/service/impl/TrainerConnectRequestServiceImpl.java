@@ -76,7 +76,8 @@ public class TrainerConnectRequestServiceImpl extends ServiceImpl<TrainerConnect
                 .type(Notification.NotificationType.INFO)
                 .isRead(false)
                 .build();
-        notificationService.sendNotification(notification);
+        // 同一教练窗口期内的连接申请通知合并成一条
+        notificationService.sendCoalescedNotification(notification, request.getRequestId());
     }
 
 
@@ -17,6 +17,7 @@ import com.gym.entity.User;
 import com.gym.enumeration.ErrorCode;
 import com.gym.event.UserCreatedEvent;
 import com.gym.exception.CustomException;
+import com.gym.password.PasswordHasher;
 import com.gym.service.MailService;
 import com.gym.service.UserService;
 import com.gym.vo.TrainerBasicInfoVO;
@@ -24,7 +25,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -39,7 +39,7 @@ public class UserServiceImpl extends ServiceImpl<UserDao, User> implements UserS
     private MailService mailService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
@@ -156,7 +156,7 @@ public class UserServiceImpl extends ServiceImpl<UserDao, User> implements UserS
     private User convertSignupRequestToUser(SignupRequest req) {
         User newUser = new User();
         newUser.setEmail(req.getEmail());
-        newUser.setPasswordHash(passwordEncoder.encode(req.getPassword()));
+        newUser.setPasswordHash(passwordHasher.encode(req.getPassword()));
         newUser.setName(req.getName());
         newUser.setAddress(req.getAddress());
         newUser.setDateOfBirth(req.getDateOfBirth());
@@ -0,0 +1,238 @@
+package com.gym.session;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.gym.config.TokenRevocationProperties;
+import com.gym.util.JwtUtils;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token 注销存储
+ *
+ * 1. 会话版本号：SESSION_VERSION:userId（INCR），签发 Token 时写入 sv 声明；Token 的 sv 小于当前版本号即失效。
+ *    本地缓存版本号，版本号增加时通过发布订阅通知其他实例，缓存过期时间作为消息丢失时的兜底
+ * 2. 单个 Token 注销：jti 写入有序集合 REVOKED_TOKENS（score 为 Token 的过期时间），
+ *    本地布隆过滤器判断"一定没注销"时不访问 Redis，只有可能命中时才 ZSCORE 确认
+ * 3. 注销的 jti 通过发布订阅加入各实例的布隆过滤器；后台定期清理已过期的 jti 并按集合重建过滤器
+ */
+@Slf4j
+@Component
+public class TokenRevocationStore implements MessageListener {
+
+    static final String SESSION_VERSION_PREFIX = "SESSION_VERSION:";
+
+    static final String REVOKED_TOKENS_KEY = "REVOKED_TOKENS";
+
+    // 消息格式：t:jti 或 v:userId:version
+    private static final String TOKEN_MESSAGE = "t:";
+
+    private static final String VERSION_MESSAGE = "v:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final TokenRevocationProperties properties;
+
+    private final Cache<Long, Long> sessionVersions;
+
+    private volatile BloomFilter<String> revokedTokens;
+
+    // 重建期间新注销的 jti 同时写入正在构建的过滤器
+    private volatile BloomFilter<String> rebuilding;
+
+    private ScheduledExecutorService rebuilder;
+
+    public TokenRevocationStore(StringRedisTemplate stringRedisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                TokenRevocationProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.properties = properties;
+        this.sessionVersions = CacheBuilder.newBuilder()
+                .maximumSize(properties.getVersionCacheSize())
+                .expireAfterWrite(properties.getVersionCacheTtl().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        this.revokedTokens = newFilter(0);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        listenerContainer.addMessageListener(this, new ChannelTopic(properties.getChannel()));
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getRebuildInterval().toMillis();
+        rebuilder.scheduleWithFixedDelay(this::rebuildQuietly, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+    }
+
+    /**
+     * Token 是否已失效：会话版本号过旧，或 jti 已被注销
+     */
+    public boolean isRevoked(Claims claims) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        Long userId;
+        try {
+            userId = Long.valueOf(claims.getSubject());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        Object sv = claims.get(JwtUtils.SESSION_VERSION_CLAIM);
+        long tokenVersion = sv instanceof Number ? ((Number) sv).longValue() : 0L;
+        if (tokenVersion < getSessionVersion(userId)) {
+            return true;
+        }
+        String tokenId = claims.getId();
+        if (tokenId == null || !revokedTokens.mightContain(tokenId)) {
+            return false;
+        }
+        return stringRedisTemplate.opsForZSet().score(REVOKED_TOKENS_KEY, tokenId) != null;
+    }
+
+    /**
+     * 本地缓存的会话版本号，过期后从 Redis 重新读取
+     */
+    public long getSessionVersion(Long userId) {
+        Long cached = sessionVersions.getIfPresent(userId);
+        return cached != null ? cached : currentSessionVersion(userId);
+    }
+
+    /**
+     * 从 Redis 读取会话版本号（签发 Token 时使用，不用本地缓存）
+     */
+    public long currentSessionVersion(Long userId) {
+        String value = stringRedisTemplate.opsForValue().get(SESSION_VERSION_PREFIX + userId);
+        long version = value != null ? Long.parseLong(value) : 0L;
+        updateLocalVersion(userId, version);
+        return version;
+    }
+
+    /**
+     * 会话版本号加一，之前签发的 Token 全部失效
+     *
+     * @return 新的版本号
+     */
+    public long bumpSessionVersion(Long userId) {
+        Long version = stringRedisTemplate.opsForValue().increment(SESSION_VERSION_PREFIX + userId);
+        long current = version != null ? version : 0L;
+        updateLocalVersion(userId, current);
+        publish(VERSION_MESSAGE + userId + ":" + current);
+        return current;
+    }
+
+    /**
+     * 注销单个 Token
+     *
+     * @param expiresAtMillis Token 的过期时间，过期后从集合中清理
+     */
+    public void revoke(String tokenId, long expiresAtMillis) {
+        if (tokenId == null || expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        // 先写 Redis 再加入过滤器：重建时读到的集合一定包含已经广播出去的 jti
+        stringRedisTemplate.opsForZSet().add(REVOKED_TOKENS_KEY, tokenId, expiresAtMillis);
+        addToFilter(tokenId);
+        publish(TOKEN_MESSAGE + tokenId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (body.startsWith(TOKEN_MESSAGE)) {
+                addToFilter(body.substring(TOKEN_MESSAGE.length()));
+            } else if (body.startsWith(VERSION_MESSAGE)) {
+                String[] parts = body.substring(VERSION_MESSAGE.length()).split(":");
+                updateLocalVersion(Long.valueOf(parts[0]), Long.parseLong(parts[1]));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ignore malformed token revocation message: {}", body);
+        }
+    }
+
+    /**
+     * 清理已过期的 jti，并按 Redis 中的集合重建布隆过滤器
+     */
+    void rebuild() {
+        stringRedisTemplate.opsForZSet().removeRangeByScore(REVOKED_TOKENS_KEY, 0, System.currentTimeMillis());
+        Long size = stringRedisTemplate.opsForZSet().zCard(REVOKED_TOKENS_KEY);
+        BloomFilter<String> next = newFilter(size != null ? size : 0);
+        rebuilding = next;
+        Set<String> tokenIds = stringRedisTemplate.opsForZSet().range(REVOKED_TOKENS_KEY, 0, -1);
+        for (String tokenId : tokenIds != null ? tokenIds : Collections.<String>emptySet()) {
+            next.put(tokenId);
+        }
+        revokedTokens = next;
+        rebuilding = null;
+        log.debug("Token revocation filter rebuilt, revoked tokens: {}", tokenIds != null ? tokenIds.size() : 0);
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            rebuilding = null;
+            log.warn("Failed to rebuild token revocation filter: {}", e.getMessage());
+        }
+    }
+
+    private void addToFilter(String tokenId) {
+        revokedTokens.put(tokenId);
+        BloomFilter<String> next = rebuilding;
+        if (next != null) {
+            next.put(tokenId);
+        }
+    }
+
+    private void updateLocalVersion(Long userId, long version) {
+        sessionVersions.asMap().merge(userId, version, Math::max);
+    }
+
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(properties.getChannel(), message);
+        } catch (RuntimeException e) {
+            // 其他实例最迟在缓存过期或下次重建时看到
+            log.warn("Failed to publish token revocation message: {}", e.getMessage());
+        }
+    }
+
+    private BloomFilter<String> newFilter(long revoked) {
+        // 容量至少为已注销数的两倍，保证重建后误判率不超过配置值
+        long expected = Math.max(properties.getBloomExpectedInsertions(), revoked * 2);
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expected,
+                properties.getBloomFalsePositiveRate());
+    }
+}
@@ -0,0 +1,15 @@
+-- 幂等键处理完成：只有持有占位的请求才能写入结果或释放（原子执行）
+-- KEYS[1]  幂等 key
+-- ARGV[1]  占位值（PENDING:随机串），与当前值不同说明占位已过期被别的请求拿走，什么都不做
+-- ARGV[2]  要保存的响应，为空表示释放占位（允许带相同 key 的请求重新执行）
+-- ARGV[3]  响应保存时长（毫秒）
+-- 返回 1 表示已处理，0 表示占位已不属于本请求
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+    return 0
+end
+if ARGV[2] == '' then
+    redis.call('DEL', KEYS[1])
+else
+    redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+end
+return 1
@@ -0,0 +1,27 @@
+-- 滑动窗口限流（一次调用内完成清理、计数、记录和设置过期，原子执行）
+-- KEYS[1]  限流 key，ZSET，成员为每次放行请求，score 为放行时间（毫秒）
+-- ARGV[1]  窗口长度（毫秒）
+-- ARGV[2]  窗口内允许的最大请求数
+-- ARGV[3]  本次请求的唯一标识，避免同一毫秒内的成员互相覆盖
+-- 返回 {是否放行(1/0), 窗口内已放行数, 需等待的毫秒数}
+-- 时间取 Redis 服务器时间，多个实例之间不受本地时钟偏差影响（依赖 Redis 5+ 的脚本效果复制）
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local window = tonumber(ARGV[1])
+local limit = tonumber(ARGV[2])
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+local count = redis.call('ZCARD', KEYS[1])
+if count < limit then
+    redis.call('ZADD', KEYS[1], now, now .. '-' .. ARGV[3])
+    redis.call('PEXPIRE', KEYS[1], window)
+    return {1, count + 1, 0}
+end
+
+-- 被拒绝的请求不记录；最早的一次放行滑出窗口后才会有新名额
+local retryAfter = window
+local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+if oldest[2] then
+    retryAfter = tonumber(oldest[2]) + window - now
+end
+return {0, count, retryAfter}
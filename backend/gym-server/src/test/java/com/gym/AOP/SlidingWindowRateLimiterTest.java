@@ -0,0 +1,131 @@
+package com.gym.AOP;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SlidingWindowRateLimiterTest {
+
+    private static final long WINDOW = 60_000;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    private SlidingWindowRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new SlidingWindowRateLimiter();
+        ReflectionTestUtils.setField(limiter, "stringRedisTemplate", stringRedisTemplate);
+    }
+
+    @Test
+    void testAllowed_ReturnsZero() {
+        whenScript().thenReturn(Arrays.asList(1L, 1L, 0L));
+
+        assertThat(limiter.tryAcquire("login:1.2.3.4", 5, WINDOW)).isZero();
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(Collections.singletonList("login:1.2.3.4")),
+                eq(String.valueOf(WINDOW)), eq("5"), anyString());
+        assertThat(localBlocks()).isEmpty();
+    }
+
+    @Test
+    void testBlocked_ReturnsRetryAfterFromScript() {
+        whenScript().thenReturn(Arrays.asList(0L, 5L, 1500L));
+
+        assertThat(limiter.tryAcquire("login:1.2.3.4", 5, WINDOW)).isEqualTo(1500);
+        assertThat(localBlocks()).containsKey("login:1.2.3.4");
+    }
+
+    @Test
+    void testLocalBlock_ShortCircuitsRedis() {
+        whenScript().thenReturn(Arrays.asList(0L, 5L, 30_000L));
+
+        assertThat(limiter.tryAcquire("login:1.2.3.4", 5, WINDOW)).isEqualTo(30_000);
+        long retryAfter = limiter.tryAcquire("login:1.2.3.4", 5, WINDOW);
+
+        assertThat(retryAfter).isPositive().isLessThanOrEqualTo(30_000);
+        verify(stringRedisTemplate, times(1)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+    }
+
+    @Test
+    void testLocalBlockExpired_AsksRedisAgain() throws Exception {
+        whenScript()
+                .thenReturn(Arrays.asList(0L, 5L, 1L))
+                .thenReturn(Arrays.asList(1L, 5L, 0L));
+
+        assertThat(limiter.tryAcquire("login:1.2.3.4", 5, WINDOW)).isEqualTo(1);
+        Thread.sleep(10);
+
+        assertThat(limiter.tryAcquire("login:1.2.3.4", 5, WINDOW)).isZero();
+        verify(stringRedisTemplate, times(2)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+        assertThat(localBlocks()).isEmpty();
+    }
+
+    @Test
+    void testLocalBlocksFull_ExpiredEntriesEvictedFirst() {
+        whenScript().thenReturn(Arrays.asList(0L, 5L, 30_000L));
+        long past = System.currentTimeMillis() - 1;
+        for (int i = 0; i < 10_000; i++) {
+            localBlocks().put("expired:" + i, past);
+        }
+
+        limiter.tryAcquire("login:1.2.3.4", 5, WINDOW);
+
+        assertThat(localBlocks()).containsOnlyKeys("login:1.2.3.4");
+    }
+
+    @Test
+    void testLocalBlocksFullOfActiveEntries_NotBlockedLocally() {
+        whenScript().thenReturn(Arrays.asList(0L, 5L, 30_000L));
+        long future = System.currentTimeMillis() + WINDOW;
+        for (int i = 0; i < 10_000; i++) {
+            localBlocks().put("active:" + i, future);
+        }
+
+        assertThat(limiter.tryAcquire("login:1.2.3.4", 5, WINDOW)).isEqualTo(30_000);
+        assertThat(localBlocks()).hasSize(10_000).doesNotContainKey("login:1.2.3.4");
+        // 没有本地记录时每次都由 Redis 判定
+        limiter.tryAcquire("login:1.2.3.4", 5, WINDOW);
+        verify(stringRedisTemplate, times(2)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+    }
+
+    @Test
+    void testUnexpectedScriptResult_Allowed() {
+        whenScript().thenReturn(null).thenReturn(Collections.singletonList(0L));
+
+        assertThat(limiter.tryAcquire("login:1.2.3.4", 5, WINDOW)).isZero();
+        assertThat(limiter.tryAcquire("login:1.2.3.4", 5, WINDOW)).isZero();
+        assertThat(localBlocks()).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private OngoingStubbing<List<?>> whenScript() {
+        return (OngoingStubbing<List<?>>) (OngoingStubbing<?>) when(stringRedisTemplate.execute(
+                any(RedisScript.class), anyList(), any(), any(), any()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> localBlocks() {
+        return (Map<String, Long>) ReflectionTestUtils.getField(limiter, "localBlocks");
+    }
+}
@@ -0,0 +1,131 @@
+package com.gym.filter;
+
+import com.gym.entity.User;
+import com.gym.service.RedisCacheService;
+import com.gym.session.TokenRevocationStore;
+import com.gym.util.GatewayIdentitySigner;
+import com.gym.util.JwtParseResult;
+import com.gym.util.JwtUtils;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    @Mock
+    private RedisCacheService redisCacheService;
+
+    @Mock
+    private GatewayIdentitySigner identitySigner;
+
+    @Mock
+    private TokenRevocationStore tokenRevocationStore;
+
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(filter, "redisCacheService", redisCacheService);
+        ReflectionTestUtils.setField(filter, "identitySigner", identitySigner);
+        ReflectionTestUtils.setField(filter, "tokenRevocationStore", tokenRevocationStore);
+        ReflectionTestUtils.setField(filter, "trustSignedHeaders", true);
+        ReflectionTestUtils.setField(filter, "authSnapshotTtlSeconds", 300L);
+        filter.init();
+
+        when(identitySigner.isEnabled()).thenReturn(true);
+        when(identitySigner.verify(anyString(), anyString(), any(), any(), anyString())).thenReturn(true);
+        lenient().when(redisCacheService.getUser(1L)).thenReturn(user(1L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testSignedHeadersWithValidToken_Authenticated() throws Exception {
+        when(jwtUtils.parseAndValidate("token")).thenReturn(JwtParseResult.success(claims("1")));
+
+        assertThat(filter(signedRequest("token"))).isTrue();
+    }
+
+    @Test
+    void testSignedHeadersWithoutToken_NotAuthenticated() throws Exception {
+        when(jwtUtils.parseAndValidate(null)).thenReturn(JwtParseResult.failure(JwtParseResult.FailureReason.MISSING));
+
+        assertThat(filter(signedRequest(null))).isFalse();
+        verifyNoInteractions(tokenRevocationStore, redisCacheService);
+    }
+
+    @Test
+    void testSignedHeadersWithOtherUsersToken_NotAuthenticated() throws Exception {
+        when(jwtUtils.parseAndValidate("token")).thenReturn(JwtParseResult.success(claims("2")));
+
+        assertThat(filter(signedRequest("token"))).isFalse();
+        verifyNoInteractions(tokenRevocationStore, redisCacheService);
+    }
+
+    @Test
+    void testSignedHeadersWithRevokedToken_NotAuthenticated() throws Exception {
+        when(jwtUtils.parseAndValidate("token")).thenReturn(JwtParseResult.success(claims("1")));
+        when(tokenRevocationStore.isRevoked(any())).thenReturn(true);
+
+        assertThat(filter(signedRequest("token"))).isFalse();
+        verifyNoInteractions(redisCacheService);
+    }
+
+    /**
+     * @return 请求是否已认证
+     */
+    private boolean filter(MockHttpServletRequest request) throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication() != null;
+    }
+
+    private static MockHttpServletRequest signedRequest(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user/profile");
+        request.addHeader(GatewayIdentitySigner.USER_ID_HEADER, "1");
+        request.addHeader(GatewayIdentitySigner.USER_ROLE_HEADER, "member");
+        request.addHeader(GatewayIdentitySigner.TIMESTAMP_HEADER, String.valueOf(System.currentTimeMillis()));
+        request.addHeader(GatewayIdentitySigner.SIGNATURE_HEADER, "signature");
+        if (token != null) {
+            request.addHeader("X-Auth-Token", token);
+        }
+        return request;
+    }
+
+    private static DefaultClaims claims(String subject) {
+        DefaultClaims claims = new DefaultClaims();
+        claims.setSubject(subject);
+        claims.put("role", "member");
+        return claims;
+    }
+
+    private static User user(Long userId) {
+        User user = new User();
+        user.setUserID(userId);
+        user.setRole(User.Role.member);
+        user.setAccountStatus(User.AccountStatus.Approved);
+        return user;
+    }
+}
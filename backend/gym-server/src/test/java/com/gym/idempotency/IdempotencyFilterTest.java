@@ -0,0 +1,148 @@
+package com.gym.idempotency;
+
+import com.gym.config.IdempotencyProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyFilterTest {
+
+    @Mock
+    private IdempotencyStore mockIdempotencyStore;
+
+    @Spy
+    private IdempotencyProperties properties = new IdempotencyProperties();
+
+    @InjectMocks
+    private IdempotencyFilter idempotencyFilter;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private String responseBody;
+
+    @BeforeEach
+    void setUp() {
+        responseBody = "{\"code\":200,\"message\":\"Appointment request submitted.\"}";
+    }
+
+    @Test
+    void testFirstRequest_ExecutesAndStoresResponse() throws Exception {
+        when(mockIdempotencyStore.claim(anyString())).thenReturn(IdempotencyStore.Claim.acquired("PENDING:1"));
+
+        MockHttpServletResponse response = execute(request("key-1"));
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(response.getContentAsString()).isEqualTo(responseBody);
+        verify(mockIdempotencyStore).claim("idempotency:anonymous:POST:/member/appointment:key-1");
+        verify(mockIdempotencyStore).complete(eq("idempotency:anonymous:POST:/member/appointment:key-1"),
+                eq("PENDING:1"), argThat(stored -> stored.getStatus() == 200
+                        && new String(stored.getBody(), StandardCharsets.UTF_8).equals(responseBody)));
+        verify(mockIdempotencyStore, never()).release(anyString(), anyString());
+    }
+
+    @Test
+    void testDuplicateRequest_ReplaysStoredResponse() throws Exception {
+        StoredResponse stored = new StoredResponse(200, MediaType.APPLICATION_JSON_VALUE,
+                responseBody.getBytes(StandardCharsets.UTF_8));
+        // 经过 Redis 编码再解码，确认保存格式可还原
+        when(mockIdempotencyStore.claim(anyString()))
+                .thenReturn(IdempotencyStore.Claim.replay(StoredResponse.decode(stored.encode())));
+
+        MockHttpServletResponse response = execute(request("key-1"));
+
+        assertThat(executions.get()).isZero();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_VALUE);
+        assertThat(response.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(response.getContentAsString()).isEqualTo(responseBody);
+    }
+
+    @Test
+    void testConcurrentDuplicate_ReturnsConflict() throws Exception {
+        when(mockIdempotencyStore.claim(anyString())).thenReturn(IdempotencyStore.Claim.inProgress());
+
+        MockHttpServletResponse response = execute(request("key-1"));
+
+        assertThat(executions.get()).isZero();
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+    }
+
+    @Test
+    void testServerError_ReleasesKeyInsteadOfStoring() throws Exception {
+        // GlobalExceptionHandler 返回 HTTP 200 + code 500
+        responseBody = "{\"code\":500,\"message\":\"Internal Server Error\"}";
+        when(mockIdempotencyStore.claim(anyString())).thenReturn(IdempotencyStore.Claim.acquired("PENDING:1"));
+
+        MockHttpServletResponse response = execute(request("key-1"));
+
+        assertThat(response.getContentAsString()).isEqualTo(responseBody);
+        verify(mockIdempotencyStore, never()).complete(anyString(), anyString(), any());
+        verify(mockIdempotencyStore).release(anyString(), eq("PENDING:1"));
+    }
+
+    @Test
+    void testRequestsWithoutKeyOrWithSafeMethod_AreNotTracked() throws Exception {
+        execute(request(null));
+        MockHttpServletRequest get = request("key-1");
+        get.setMethod("GET");
+        execute(get);
+
+        assertThat(executions.get()).isEqualTo(2);
+        verifyNoInteractions(mockIdempotencyStore);
+    }
+
+    @Test
+    void testStoreUnavailable_FallsThrough() throws Exception {
+        when(mockIdempotencyStore.claim(anyString())).thenThrow(new IllegalStateException("Redis down"));
+
+        MockHttpServletResponse response = execute(request("key-1"));
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(response.getContentAsString()).isEqualTo(responseBody);
+    }
+
+    private MockHttpServletRequest request(String idempotencyKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/member/appointment");
+        if (idempotencyKey != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse execute(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpServlet controller = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                executions.incrementAndGet();
+                resp.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                resp.getOutputStream().write(responseBody.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        idempotencyFilter.doFilter(request, response, new MockFilterChain(controller));
+        return response;
+    }
+}
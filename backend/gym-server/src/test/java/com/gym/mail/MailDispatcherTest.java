@@ -0,0 +1,159 @@
+package com.gym.mail;
+
+import com.gym.config.MailQueueProperties;
+import com.gym.dao.MailOutboxDao;
+import com.gym.entity.MailOutbox;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 使用 GreenMail 作为进程内 SMTP 服务，离线验证批量发送、重试和死信
+ */
+class MailDispatcherTest {
+
+    private GreenMail greenMail;
+
+    private MailOutboxDao mockMailOutboxDao;
+
+    private MailQueueProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+        greenMail.start();
+        mockMailOutboxDao = mock(MailOutboxDao.class);
+        when(mockMailOutboxDao.markSent(anyList(), any())).thenReturn(1);
+        when(mockMailOutboxDao.markFailed(anyLong(), any(), anyInt(), anyString(), any())).thenReturn(1);
+        when(mockMailOutboxDao.claim(anyLong(), any(), any(), any(), anyInt())).thenReturn(1);
+        when(mockMailOutboxDao.expireLease(anyLong(), any(), anyInt(), anyString())).thenReturn(1);
+        properties = new MailQueueProperties();
+        properties.setFrom("noreply@gym.test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        greenMail.stop();
+    }
+
+    @Test
+    void testDeliver_SendsWholeBatchThroughInProcessSmtp() throws Exception {
+        MailDispatcher dispatcher = new MailDispatcher(mockMailOutboxDao, mailSender(greenMail.getSmtp().getPort()), properties);
+
+        dispatcher.deliver(batch(3));
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(3);
+        assertThat(received[0].getSubject()).isEqualTo("subject-1");
+        assertThat(dispatcher.getStats().getSent()).isEqualTo(3);
+        assertThat(dispatcher.getStats().getRetried()).isZero();
+        // 成功的邮件用一条 UPDATE 批量标记为 Sent
+        verify(mockMailOutboxDao, times(1)).markSent(eq(Arrays.asList(1L, 2L, 3L)), any());
+        verify(mockMailOutboxDao, never()).markFailed(anyLong(), any(), anyInt(), anyString(), any());
+    }
+
+    @Test
+    void testDeliver_SmtpUnavailable_RetriesThenDeadLetters() {
+        int port = greenMail.getSmtp().getPort();
+        greenMail.stop();
+        properties.setMaxAttempts(2);
+        MailDispatcher dispatcher = new MailDispatcher(mockMailOutboxDao, mailSender(port), properties);
+
+        List<MailOutbox> firstTry = batch(2);
+        dispatcher.deliver(firstTry);
+        assertThat(dispatcher.getStats().getRetried()).isEqualTo(2);
+        assertThat(dispatcher.getStats().getDead()).isZero();
+
+        List<MailOutbox> secondTry = batch(2);
+        secondTry.forEach(mail -> mail.setAttempts(1));
+        dispatcher.deliver(secondTry);
+        assertThat(dispatcher.getStats().getDead()).isEqualTo(2);
+        assertThat(dispatcher.getStats().getSent()).isZero();
+        verify(mockMailOutboxDao, times(2)).markFailed(anyLong(), eq(MailOutbox.MailStatus.Dead), eq(2), anyString(), any());
+    }
+
+    @Test
+    void testClaimBatch_ExpiredLeaseCountsAsAttempt() {
+        properties.setMaxAttempts(3);
+        MailDispatcher dispatcher = new MailDispatcher(mockMailOutboxDao, mailSender(0), properties);
+        MailOutbox pending = mail(1, MailOutbox.MailStatus.Pending, 1);
+        MailOutbox expiredLease = mail(2, MailOutbox.MailStatus.Sending, 1);
+        when(mockMailOutboxDao.selectDue(any(), eq(properties.getBatchSize())))
+                .thenReturn(new ArrayList<>(Arrays.asList(pending, expiredLease)));
+
+        List<MailOutbox> claimed = dispatcher.claimBatch();
+
+        assertThat(claimed).containsExactly(pending, expiredLease);
+        // Pending 的邮件按原次数认领；租约过期的邮件重新认领计一次尝试
+        verify(mockMailOutboxDao).claim(eq(1L), eq(MailOutbox.MailStatus.Pending), any(), any(), eq(1));
+        verify(mockMailOutboxDao).claim(eq(2L), eq(MailOutbox.MailStatus.Sending), any(), any(), eq(2));
+        assertThat(expiredLease.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void testClaimBatch_ExpiredLeaseAtMaxAttempts_DeadLetters() {
+        properties.setMaxAttempts(3);
+        MailDispatcher dispatcher = new MailDispatcher(mockMailOutboxDao, mailSender(0), properties);
+        MailOutbox expiredLease = mail(1, MailOutbox.MailStatus.Sending, 2);
+        when(mockMailOutboxDao.selectDue(any(), anyInt())).thenReturn(Collections.singletonList(expiredLease));
+
+        List<MailOutbox> claimed = dispatcher.claimBatch();
+
+        // 每次发送都让进程崩溃的邮件不会被无限重新认领
+        assertThat(claimed).isEmpty();
+        verify(mockMailOutboxDao).expireLease(eq(1L), any(), eq(3), anyString());
+        verify(mockMailOutboxDao, never()).claim(anyLong(), any(), any(), any(), anyInt());
+        assertThat(dispatcher.getStats().getDead()).isEqualTo(1);
+    }
+
+    @Test
+    void testBackoff_GrowsExponentiallyAndIsCapped() {
+        MailDispatcher dispatcher = new MailDispatcher(mockMailOutboxDao, mailSender(0), properties);
+
+        assertThat(dispatcher.backoff(1).toMillis()).isBetween(7_500L, 10_000L);
+        assertThat(dispatcher.backoff(3).toMillis()).isBetween(30_000L, 40_000L);
+        assertThat(dispatcher.backoff(30).toMillis()).isLessThanOrEqualTo(properties.getMaxBackoff().toMillis());
+    }
+
+    private static JavaMailSenderImpl mailSender(int port) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(port);
+        sender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        return sender;
+    }
+
+    private static List<MailOutbox> batch(int size) {
+        List<MailOutbox> mails = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            mails.add(mail(i, MailOutbox.MailStatus.Sending, 0));
+        }
+        return mails;
+    }
+
+    private static MailOutbox mail(int id, MailOutbox.MailStatus status, int attempts) {
+        return MailOutbox.builder()
+                .mailId((long) id)
+                .toEmail("member" + id + "@gym.test")
+                .subject("subject-" + id)
+                .body("body-" + id)
+                .status(status)
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.gym.notification;
+
+import com.gym.entity.Notification;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationCoalescerTest {
+
+    private static final long WINDOW = 60_000;
+
+    private final NotificationCoalescer coalescer = new NotificationCoalescer(2, 100);
+
+    @Test
+    void testSameKey_MergedIntoOneDigest() {
+        coalescer.offer(notification(1L, "Booking", "first"), 10L, WINDOW, 0);
+        coalescer.offer(notification(1L, "Booking", "second"), 11L, WINDOW, 1000);
+        coalescer.offer(notification(1L, "Booking", "third"), 12L, WINDOW, 2000);
+        // 不同接收人、不同标题各自独立
+        coalescer.offer(notification(2L, "Booking", "other user"), 20L, WINDOW, 0);
+        coalescer.offer(notification(1L, "Plan", "other title"), 30L, WINDOW, 0);
+
+        assertThat(coalescer.pendingSize()).isEqualTo(3);
+        Notification digest = find(coalescer.drainAll(), 1L, "Booking");
+        assertThat(digest.getAggregateCount()).isEqualTo(3);
+        assertThat(digest.getMessage()).contains("3 new notifications").endsWith("third");
+        // 超过 maxRefs 后只累加计数
+        assertThat(digest.getRefIds()).isEqualTo("10,11");
+    }
+
+    @Test
+    void testDrainDue_OnlyReturnsExpiredWindows() {
+        coalescer.offer(notification(1L, "Booking", "early"), null, WINDOW, 0);
+        coalescer.offer(notification(2L, "Booking", "late"), null, WINDOW, 30_000);
+
+        assertThat(coalescer.drainDue(WINDOW - 1)).isEmpty();
+
+        List<NotificationCoalescer.Drained> due = coalescer.drainDue(WINDOW);
+        assertThat(due).hasSize(1);
+        assertThat(due.get(0).getNotification().getUserId()).isEqualTo(1L);
+        assertThat(due.get(0).getNotification().getMessage()).isEqualTo("early");
+        assertThat(coalescer.pendingSize()).isEqualTo(1);
+    }
+
+    @Test
+    void testDrainAll_ReturnsPendingBeforeDeadline() {
+        coalescer.offer(notification(1L, "Booking", "a"), null, WINDOW, 0);
+        coalescer.offer(notification(2L, "Booking", "b"), null, WINDOW, 0);
+
+        assertThat(coalescer.drainAll()).hasSize(2);
+        assertThat(coalescer.pendingSize()).isZero();
+        assertThat(coalescer.drainAll()).isEmpty();
+    }
+
+    @Test
+    void testRequeue_MergesWithNewerNotifications() {
+        coalescer.offer(notification(1L, "Booking", "first"), 10L, WINDOW, 0);
+        List<NotificationCoalescer.Drained> failed = coalescer.drainDue(WINDOW);
+        // 写库失败期间又来了一条同类通知
+        coalescer.offer(notification(1L, "Booking", "second"), 11L, WINDOW, WINDOW);
+
+        coalescer.requeue(failed);
+
+        // 保留原来的截止时间，下次刷新即可取出
+        List<NotificationCoalescer.Drained> retried = coalescer.drainDue(WINDOW);
+        assertThat(retried).hasSize(1);
+        Notification digest = retried.get(0).getNotification();
+        assertThat(digest.getAggregateCount()).isEqualTo(2);
+        assertThat(digest.getMessage()).endsWith("second");
+        assertThat(digest.getRefIds()).isEqualTo("10,11");
+    }
+
+    @Test
+    void testFullBuffer_RejectsNewKeysOnly() {
+        NotificationCoalescer small = new NotificationCoalescer(10, 1);
+        assertThat(small.offer(notification(1L, "Booking", "a"), null, WINDOW, 0)).isTrue();
+        assertThat(small.offer(notification(1L, "Booking", "b"), null, WINDOW, 0)).isTrue();
+        assertThat(small.offer(notification(2L, "Booking", "c"), null, WINDOW, 0)).isFalse();
+        assertThat(small.drainAll()).hasSize(1);
+    }
+
+    private static Notification notification(Long userId, String title, String message) {
+        return Notification.builder()
+                .userId(userId)
+                .type(Notification.NotificationType.INFO)
+                .title(title)
+                .message(message)
+                .build();
+    }
+
+    private static Notification find(List<NotificationCoalescer.Drained> drained, Long userId, String title) {
+        return drained.stream()
+                .map(NotificationCoalescer.Drained::getNotification)
+                .filter(n -> n.getUserId().equals(userId) && n.getTitle().equals(title))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+}
@@ -0,0 +1,119 @@
+package com.gym.oauth;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 使用自签名证书和 MockHttpTransport 离线验证：签名校验、受众校验，以及公钥只拉取一次
+ */
+class GoogleTokenVerifierTest {
+
+    private static final String CLIENT_ID = "test-client-id.apps.googleusercontent.com";
+
+    private final AtomicInteger certFetches = new AtomicInteger();
+
+    private KeyPair keyPair;
+
+    private GoogleTokenVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        String certs = "{\"test-key\": \"" + pem(selfSignedCertificate(keyPair)).replace("\n", "\\n") + "\"}";
+
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, String url) {
+                certFetches.incrementAndGet();
+                MockLowLevelHttpResponse response = new MockLowLevelHttpResponse()
+                        .setContentType(Json.MEDIA_TYPE)
+                        .setContent(certs);
+                response.addHeader("Cache-Control", "public, max-age=3600");
+                return new MockLowLevelHttpRequest(url).setResponse(response);
+            }
+        };
+        verifier = new GoogleTokenVerifier(CLIENT_ID, transport, JacksonFactory.getDefaultInstance(),
+                "https://certs.test/oauth2/v1/certs");
+        verifier.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        verifier.stop();
+    }
+
+    @Test
+    void verifiesTokensLocallyAfterKeysAreCached() {
+        for (int i = 0; i < 5; i++) {
+            GoogleIdToken.Payload payload = verifier.verify(token(CLIENT_ID, "member" + i + "@example.com"));
+            assertThat(payload).isNotNull();
+            assertThat(payload.getEmail()).isEqualTo("member" + i + "@example.com");
+        }
+        assertThat(certFetches.get()).isEqualTo(1);
+        // 按 Cache-Control max-age 计算过期时间
+        assertThat(verifier.getKeysExpirationTimeMillis())
+                .isGreaterThan(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(50));
+    }
+
+    @Test
+    void rejectsTokenForAnotherAudience() {
+        assertThat(verifier.verify(token("someone-else", "member@example.com"))).isNull();
+    }
+
+    private String token(String audience, String email) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setHeaderParam("kid", "test-key")
+                .setIssuer("https://accounts.google.com")
+                .setAudience(audience)
+                .setSubject("1234567890")
+                .claim("email", email)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + TimeUnit.HOURS.toMillis(1)))
+                .signWith(SignatureAlgorithm.RS256, keyPair.getPrivate())
+                .compact();
+    }
+
+    private static X509Certificate selfSignedCertificate(KeyPair keyPair) throws Exception {
+        X500Name subject = new X500Name("CN=test-google-certs");
+        long now = System.currentTimeMillis();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(subject, BigInteger.ONE,
+                new Date(now - TimeUnit.DAYS.toMillis(1)), new Date(now + TimeUnit.DAYS.toMillis(1)),
+                subject, keyPair.getPublic());
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+    }
+
+    private static String pem(X509Certificate certificate) throws Exception {
+        return "-----BEGIN CERTIFICATE-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(certificate.getEncoded())
+                + "\n-----END CERTIFICATE-----\n";
+    }
+}
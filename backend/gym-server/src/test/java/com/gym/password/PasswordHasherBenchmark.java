@@ -0,0 +1,103 @@
+package com.gym.password;
+
+import com.gym.config.PasswordHashingProperties;
+import com.gym.exception.CustomException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 登录吞吐基准：每个核每秒能完成多少次 BCrypt 校验，以及过载时的拒绝情况
+ *
+ * 类名不以 Test 结尾，默认构建不执行；手动运行：
+ * mvn -pl gym-server test -Dtest=PasswordHasherBenchmark
+ *
+ * 1. 直接在调用线程上执行（原来的方式）
+ * 2. 通过 PasswordHasher，客户端线程数等于哈希线程数
+ * 3. 通过 PasswordHasher，客户端线程数是哈希线程数的 4 倍（模拟撞库突发），统计成功和被拒绝的次数
+ */
+class PasswordHasherBenchmark {
+
+    private static final int STRENGTH = 10;
+
+    private static final long RUN_MILLIS = 3000;
+
+    @Test
+    public void benchmark() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(STRENGTH);
+        String hash = encoder.encode("correct horse battery staple");
+
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setStrength(STRENGTH);
+        properties.setThreads(cores);
+        properties.setMaxWait(Duration.ofMillis(500));
+        PasswordHasher hasher = new PasswordHasher(encoder, properties);
+        hasher.start();
+        try {
+            encoder.matches("warm up", hash);
+
+            Result direct = run(cores, () -> encoder.matches("correct horse battery staple", hash));
+            print("direct, " + cores + " threads", direct, cores);
+
+            Result pooled = run(cores, () -> hasher.matches("correct horse battery staple", hash));
+            print("pooled, " + cores + " clients", pooled, cores);
+
+            Result burst = run(cores * 4, () -> hasher.matches("correct horse battery staple", hash));
+            print("pooled, " + cores * 4 + " clients", burst, cores);
+            assertTrue(burst.completed > 0);
+        } finally {
+            hasher.stop();
+        }
+    }
+
+    private static Result run(int clients, Runnable login) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    try {
+                        login.run();
+                        completed.increment();
+                    } catch (CustomException e) {
+                        rejected.increment();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new Result(completed.sum(), rejected.sum());
+    }
+
+    private static void print(String name, Result result, int cores) {
+        double perSecond = result.completed * 1000.0 / RUN_MILLIS;
+        System.out.printf("%-24s logins/s: %8.1f, per core: %6.1f, rejected: %d%n",
+                name, perSecond, perSecond / cores, result.rejected);
+    }
+
+    private static final class Result {
+
+        private final long completed;
+
+        private final long rejected;
+
+        private Result(long completed, long rejected) {
+            this.completed = completed;
+            this.rejected = rejected;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.gym.password;
+
+import com.gym.config.PasswordHashingProperties;
+import com.gym.enumeration.ErrorCode;
+import com.gym.exception.CustomException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTest {
+
+    private final SlowEncoder encoder = new SlowEncoder();
+
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void tearDown() {
+        encoder.release.countDown();
+        if (hasher != null) {
+            hasher.stop();
+        }
+    }
+
+    @Test
+    void testEstimatedWaitOverMaxWait_RejectedWithoutQueueing() throws Exception {
+        // 初始平均耗时按 80ms 估计：排队 0 个时估计 80ms 可以入队，排队 1 个时估计 160ms 超过 max-wait
+        hasher = start(1, 64, Duration.ofMillis(100), Duration.ofSeconds(5));
+        assertThat(hasher.encodeInBackground("busy", hash -> { })).isTrue();
+        assertThat(encoder.started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(hasher.encodeInBackground("queued", hash -> { })).isTrue();
+
+        long start = System.nanoTime();
+        assertTooManyRequests(() -> hasher.encode("rejected"));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(100);
+        assertThat(hasher.getQueueSize()).isEqualTo(1);
+        assertThat(hasher.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void testQueueFull_Rejected() throws Exception {
+        hasher = start(1, 1, Duration.ofHours(1), Duration.ofSeconds(5));
+        assertThat(hasher.encodeInBackground("busy", hash -> { })).isTrue();
+        assertThat(encoder.started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(hasher.encodeInBackground("queued", hash -> { })).isTrue();
+
+        assertTooManyRequests(() -> hasher.matches("rejected", "hash:rejected"));
+        // 后台重新哈希被拒绝时不抛异常，只返回 false
+        assertThat(hasher.encodeInBackground("dropped", hash -> { })).isFalse();
+        assertThat(hasher.getRejected()).isEqualTo(2);
+    }
+
+    @Test
+    void testSlowHash_TimesOutAndCancels() throws Exception {
+        hasher = start(1, 64, Duration.ofHours(1), Duration.ofMillis(100));
+
+        assertTooManyRequests(() -> hasher.encode("slow"));
+        assertThat(hasher.getRejected()).isEqualTo(1);
+        // 超时后取消任务，哈希线程被中断，不会继续占用
+        assertThat(encoder.interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void testWithinBudget_ReturnsResult() {
+        hasher = start(1, 64, Duration.ofSeconds(2), Duration.ofSeconds(5));
+        encoder.release.countDown();
+
+        assertThat(hasher.encode("secret")).isEqualTo("hash:secret");
+        assertThat(hasher.matches("secret", "hash:secret")).isTrue();
+        assertThat(hasher.matches("secret", null)).isFalse();
+        assertThat(hasher.getRejected()).isZero();
+    }
+
+    private PasswordHasher start(int threads, int queueCapacity, Duration maxWait, Duration timeout) {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setThreads(threads);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setMaxWait(maxWait);
+        properties.setTimeout(timeout);
+        PasswordHasher passwordHasher = new PasswordHasher(encoder, properties);
+        passwordHasher.start();
+        return passwordHasher;
+    }
+
+    private static void assertTooManyRequests(Runnable call) {
+        assertThatThrownBy(call::run)
+                .isInstanceOf(CustomException.class)
+                .extracting(e -> ((CustomException) e).getErrorCode())
+                .isEqualTo(ErrorCode.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * 放行前一直阻塞的编码器，模拟高强度 BCrypt
+     */
+    private static class SlowEncoder implements PasswordEncoder {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
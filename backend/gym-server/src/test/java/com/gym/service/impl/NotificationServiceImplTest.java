@@ -0,0 +1,136 @@
+package com.gym.service.impl;
+
+import com.gym.entity.Notification;
+import com.gym.notification.NotificationCoalescer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class NotificationServiceImplTest {
+
+    private final TableTransactionManager transactionManager = new TableTransactionManager();
+
+    private final NotificationCoalescer coalescer = new NotificationCoalescer(50, 100);
+
+    private NotificationServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = spy(new NotificationServiceImpl());
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(service, "coalescer", coalescer);
+    }
+
+    @Test
+    void testInsertFailsPartway_RolledBackAndWrittenOnceOnRetry() {
+        coalescer.offer(notification(1L, "Booking"), 10L, 0, 0);
+        coalescer.offer(notification(2L, "Booking"), 20L, 0, 0);
+        coalescer.offer(notification(3L, "Booking"), 30L, 0, 0);
+        // 第一次写到第二条时数据库报错，之后恢复正常
+        int[] calls = {0};
+        doAnswer(invocation -> {
+            Collection<Notification> batch = invocation.getArgument(0);
+            boolean fail = calls[0]++ == 0;
+            int written = 0;
+            for (Notification notification : batch) {
+                if (fail && written == 1) {
+                    throw new IllegalStateException("Deadlock found when trying to get lock");
+                }
+                transactionManager.write(notification.getUserId());
+                written++;
+            }
+            return true;
+        }).when(service).saveBatch(anyCollection());
+
+        ReflectionTestUtils.invokeMethod(service, "flushDueNotifications");
+
+        // 已写入的第一条随事务回滚，整批放回缓冲区
+        assertThat(transactionManager.committed).isEmpty();
+        assertThat(transactionManager.rollbacks).isEqualTo(1);
+        assertThat(coalescer.pendingSize()).isEqualTo(3);
+
+        ReflectionTestUtils.invokeMethod(service, "flushDueNotifications");
+
+        assertThat(transactionManager.committed).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(coalescer.pendingSize()).isZero();
+    }
+
+    @Test
+    void testSaveBatchReturnsFalse_RolledBackAndRequeued() {
+        coalescer.offer(notification(1L, "Booking"), 10L, 0, 0);
+        doAnswer(invocation -> {
+            Collection<Notification> batch = invocation.getArgument(0);
+            batch.forEach(notification -> transactionManager.write(notification.getUserId()));
+            return false;
+        }).when(service).saveBatch(anyCollection());
+
+        ReflectionTestUtils.invokeMethod(service, "flushDueNotifications");
+
+        assertThat(transactionManager.committed).isEmpty();
+        assertThat(coalescer.pendingSize()).isEqualTo(1);
+    }
+
+    private static Notification notification(Long userId, String title) {
+        return Notification.builder()
+                .userId(userId)
+                .type(Notification.NotificationType.INFO)
+                .title(title)
+                .message("message")
+                .build();
+    }
+
+    /**
+     * 模拟带事务的表：事务中写入的行在提交后才可见，回滚时丢弃；没有事务时按 autocommit 立即可见
+     */
+    private static class TableTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final List<Long> staged = new ArrayList<>();
+
+        private final List<Long> committed = new ArrayList<>();
+
+        private int rollbacks;
+
+        private void write(Long userId) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                staged.add(userId);
+            } else {
+                committed.add(userId);
+            }
+        }
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            staged.clear();
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            committed.addAll(staged);
+            staged.clear();
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks++;
+            staged.clear();
+        }
+    }
+}
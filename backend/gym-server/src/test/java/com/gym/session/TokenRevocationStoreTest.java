@@ -0,0 +1,108 @@
+package com.gym.session;
+
+import com.gym.config.TokenRevocationProperties;
+import com.gym.util.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationStoreTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private TokenRevocationStore store;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        store = new TokenRevocationStore(stringRedisTemplate, listenerContainer, new TokenRevocationProperties());
+    }
+
+    @Test
+    void testUnrevokedToken_CheckedLocallyAfterFirstLookup() {
+        when(valueOperations.get("SESSION_VERSION:1")).thenReturn("2");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(store.isRevoked(claims(1L, 2L, "token-" + i))).isFalse();
+        }
+
+        // 版本号只读一次 Redis，布隆过滤器未命中时不查已注销集合
+        verify(valueOperations, times(1)).get(anyString());
+        verifyNoInteractions(zSetOperations);
+    }
+
+    @Test
+    void testOlderSessionVersion_IsRevoked() {
+        when(valueOperations.increment("SESSION_VERSION:1")).thenReturn(1L);
+
+        store.bumpSessionVersion(1L);
+
+        assertThat(store.isRevoked(claims(1L, 0L, "token-1"))).isTrue();
+        assertThat(store.isRevoked(claims(1L, 1L, "token-2"))).isFalse();
+        verify(stringRedisTemplate).convertAndSend("gym:token-revocation", "v:1:1");
+    }
+
+    @Test
+    void testRevokedTokenId_ConfirmedInRedis() {
+        when(valueOperations.get("SESSION_VERSION:1")).thenReturn(null);
+        when(zSetOperations.score("REVOKED_TOKENS", "token-1")).thenReturn(1.0);
+
+        store.revoke("token-1", System.currentTimeMillis() + 60000);
+
+        assertThat(store.isRevoked(claims(1L, 0L, "token-1"))).isTrue();
+        verify(stringRedisTemplate).convertAndSend("gym:token-revocation", "t:token-1");
+    }
+
+    @Test
+    void testMessagesFromOtherInstances_UpdateLocalState() {
+        when(zSetOperations.score("REVOKED_TOKENS", "token-9")).thenReturn(1.0);
+
+        store.onMessage(message("v:1:3"), null);
+        store.onMessage(message("t:token-9"), null);
+
+        assertThat(store.getSessionVersion(1L)).isEqualTo(3L);
+        assertThat(store.isRevoked(claims(1L, 2L, "token-1"))).isTrue();
+        assertThat(store.isRevoked(claims(1L, 3L, "token-9"))).isTrue();
+        verify(valueOperations, never()).get(anyString());
+    }
+
+    private static Claims claims(Long userId, long sessionVersion, String tokenId) {
+        Claims claims = new DefaultClaims();
+        claims.setSubject(String.valueOf(userId));
+        claims.setId(tokenId);
+        claims.put(JwtUtils.SESSION_VERSION_CLAIM, sessionVersion);
+        return claims;
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("gym:token-revocation".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
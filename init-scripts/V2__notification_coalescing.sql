@@ -0,0 +1,6 @@
+-- 3.2 notifications table: coalesced (digest) notifications
+-- aggregate_count: number of notifications merged into this row
+-- ref_ids: comma-separated business ids referenced by the merged notifications
+ALTER TABLE notifications
+    ADD COLUMN aggregate_count INT NOT NULL DEFAULT 1,
+    ADD COLUMN ref_ids VARCHAR(1024) DEFAULT NULL;
@@ -0,0 +1,15 @@
+-- 5.1 mail_outbox table (persistent queue for outgoing emails; Dead rows form the dead-letter list)
+CREATE TABLE IF NOT EXISTS mail_outbox (
+    mail_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    to_email VARCHAR(150) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    status ENUM('Pending', 'Sending', 'Sent', 'Dead') NOT NULL DEFAULT 'Pending',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(500),
+    delivered_at TIMESTAMP NULL DEFAULT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_mail_outbox_status_next (status, next_attempt_at)
+);
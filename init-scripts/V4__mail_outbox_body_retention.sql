@@ -0,0 +1,5 @@
+-- 5.2 mail_outbox: bodies may contain verification codes and password-reset links,
+-- so they are cleared (set to NULL) once a mail is Sent or Dead for longer than the retention window
+ALTER TABLE mail_outbox
+    MODIFY COLUMN body TEXT NULL,
+    ADD INDEX idx_mail_outbox_status_updated (status, updated_at);